@@ -50,7 +50,7 @@ public class FurnitureTestViewer {
         System.out.println("\n" + BLUE + "地图信息:" + RESET);
         System.out.println("大小: " + gameMap.getWidth() + "x" + gameMap.getHeight());
         System.out.println("方块大小: " + gameMap.getTileWidth() + "x" + gameMap.getTileHeight());
-        System.out.println("可破坏方块数量: " + gameMap.getDestructibleBlocks().size());
+        System.out.println("可破坏方块数量: " + gameMap.getDestructibleBlockCount());
     }
     
     private static void displayMap(GameMap gameMap) {
@@ -190,7 +190,7 @@ public class PlayerBombSystemTest {
         // 模拟炸弹爆炸
         System.out.println("\n模拟炸弹爆炸:");
         Bomb bomb = bombs1.getActiveBombs().get(0);
-        bomb.explode();
+        bombs1.forceExplodeAll();
         
         // 创建爆炸事件
         List<Point2D> explosionRange = bombs1.getExplosionRange(bomb);
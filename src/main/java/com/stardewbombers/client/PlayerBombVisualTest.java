@@ -10,6 +10,7 @@ import com.stardewbombers.component.BombComponent;
 import com.stardewbombers.shared.util.SimpleMapLoader;
 import com.stardewbombers.shared.util.MapLoader;
 import com.stardewbombers.shared.game.GameManager;
+import com.stardewbombers.shared.game.GameLoop;
 import javafx.application.Application;
 import javafx.geometry.Point2D;
 import javafx.scene.Group;
@@ -46,6 +47,7 @@ public class PlayerBombVisualTest extends Application {
     // 游戏对象
     private GameMap gameMap;
     private GameManager gameManager;
+    private GameLoop gameLoop;
     private List<PlayerComponent> players;
     private Map<String, ImageView> playerVisuals;
     private Map<String, List<javafx.scene.Node>> bombVisuals;
@@ -61,7 +63,6 @@ public class PlayerBombVisualTest extends Application {
     private UIManager uiManager;
     
     // 游戏状态
-    private long lastUpdateTime;
     private boolean gameRunning;
     private String currentMapName;
     private com.stardewbombers.model.Player currentUser; // 当前登录的用户
@@ -166,6 +167,7 @@ public class PlayerBombVisualTest extends Application {
         // 初始化游戏管理器
         gameManager = new GameManager();
         gameManager.setGameMap(gameMap, SCALE); // 使用缩放因子
+        gameLoop = new GameLoop(gameManager); // 固定60Hz推进模拟，与渲染帧率解耦
         
         // 设置游戏结束回调
         gameManager.addGameEndCallback(this::handleGameEnd);
@@ -201,7 +203,7 @@ public class PlayerBombVisualTest extends Application {
         Point2D player3Position = findValidSpawnPosition();
         createPlayer("player3", player3Position, Color.GREEN);
         
-        lastUpdateTime = System.currentTimeMillis();
+        gameLoop.resync();
         gameRunning = true;
     }
     
@@ -389,6 +391,9 @@ public class PlayerBombVisualTest extends Application {
         // 设置游戏暂停回调
         uiManager.setGamePauseCallback(() -> {
             gameRunning = !gameRunning;
+            if (gameRunning) {
+                gameLoop.resync(); // 暂停期间不补帧
+            }
             System.out.println("游戏状态切换: " + (gameRunning ? "运行中" : "暂停"));
         });
         
@@ -605,7 +610,7 @@ public class PlayerBombVisualTest extends Application {
                 playerAnimationManagers.get("player1").setDirection(PlayerAnimationManager.Direction.RIGHT);
             } else if (key == KeyCode.Q) {
                 System.out.println("玩家1按下空格键，尝试放置炸弹");
-                boolean success = players.get(0).placeBomb(System.currentTimeMillis());
+                boolean success = players.get(0).placeBomb(gameManager.getCurrentTimeMs());
                 System.out.println("玩家1放置炸弹结果: " + success);
             }
             
@@ -625,7 +630,7 @@ public class PlayerBombVisualTest extends Application {
                     playerAnimationManagers.get("player2").setDirection(PlayerAnimationManager.Direction.RIGHT);
                 } else if (key == KeyCode.ENTER) {
                     System.out.println("玩家2按下回车键，尝试放置炸弹");
-                    boolean success = players.get(1).placeBomb(System.currentTimeMillis());
+                    boolean success = players.get(1).placeBomb(gameManager.getCurrentTimeMs());
                     System.out.println("玩家2放置炸弹结果: " + success);
                 }
             }
@@ -646,7 +651,7 @@ public class PlayerBombVisualTest extends Application {
                     playerAnimationManagers.get("player3").setDirection(PlayerAnimationManager.Direction.RIGHT);
                 } else if (key == KeyCode.SPACE) {
                     System.out.println("玩家3按下P键，尝试放置炸弹");
-                    boolean success = players.get(2).placeBomb(System.currentTimeMillis());
+                    boolean success = players.get(2).placeBomb(gameManager.getCurrentTimeMs());
                     System.out.println("玩家3放置炸弹结果: " + success);
                 }
             }
@@ -702,24 +707,9 @@ public class PlayerBombVisualTest extends Application {
     }
     
     private void updateGame() {
-        long currentTime = System.currentTimeMillis();
-        double deltaTime = (currentTime - lastUpdateTime) / 1000.0;
-        lastUpdateTime = currentTime;
-        
-        // 更新所有玩家
-        for (PlayerComponent playerComponent : players) {
-            // 更新移动组件
-            playerComponent.getMovement().update();
-        }
-        
-        // 使用deltaTime进行游戏逻辑更新（目前暂时不需要，但保留以备将来使用）
-        if (deltaTime > 0.1) {
-            // 如果帧率过低，可以在这里进行特殊处理
-            System.out.println("帧率过低，deltaTime: " + deltaTime);
-        }
-        
-        // 使用游戏管理器更新游戏状态（包括爆炸处理）
-        gameManager.update(currentTime);
+        // 按固定步长推进模拟（移动、炸弹、爆炸处理都在GameManager.update中完成）
+        gameLoop.advance();
+        long currentTime = gameManager.getCurrentTimeMs();
         
         // 处理爆炸视觉效果（从GameManager获取爆炸的炸弹）
         for (PlayerComponent playerComponent : players) {
@@ -769,7 +759,11 @@ public class PlayerBombVisualTest extends Application {
             }
         }
         
-        if (bombComponent != null) {
+        // 优先使用GameManager结算出的实际爆炸范围（方块已被炸掉后重新计算会偏大）
+        ExplosionEvent explosionEvent = gameManager.findExplosion(bomb);
+        if (explosionEvent != null) {
+            createExplosionVisual(explosionEvent.getAffectedPositions());
+        } else if (bombComponent != null) {
             // 创建爆炸特效，不管玩家是否存活
             List<Point2D> explosionRange = bombComponent.getExplosionRange(bomb);
             createExplosionVisual(explosionRange);
@@ -1006,7 +1000,7 @@ public class PlayerBombVisualTest extends Application {
                             break;
                         case TICKING:
                             // 根据引信进度改变透明度
-                            double fuseProgress = bomb.getFuseProgress();
+                            double fuseProgress = bomb.getFuseProgress(gameManager.getCurrentTimeMs());
                             if (fuseProgress < 0.3) {
                                 bombVisual.setOpacity(1.0);
                             } else if (fuseProgress < 0.6) {
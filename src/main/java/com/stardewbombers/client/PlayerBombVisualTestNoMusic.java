@@ -11,6 +11,7 @@ import com.stardewbombers.shared.util.SimpleMapLoader;
 import com.stardewbombers.shared.util.MapLoader;
 import com.stardewbombers.shared.util.GameConfig;
 import com.stardewbombers.shared.game.GameManager;
+import com.stardewbombers.shared.game.GameLoop;
 import javafx.application.Application;
 import javafx.geometry.Point2D;
 import javafx.scene.Group;
@@ -44,6 +45,7 @@ public class PlayerBombVisualTestNoMusic extends Application {
     // 游戏对象
     private GameMap gameMap;
     private GameManager gameManager;
+    private GameLoop gameLoop;
     private List<PlayerComponent> players;
     private Map<String, ImageView> playerVisuals;
     private Map<String, List<javafx.scene.Node>> bombVisuals;
@@ -55,7 +57,6 @@ public class PlayerBombVisualTestNoMusic extends Application {
     private Label statusLabel;
     
     // 游戏状态
-    private long lastUpdateTime;
     private boolean gameRunning;
     private String currentMapName = "cave_map";
     
@@ -110,6 +111,7 @@ public class PlayerBombVisualTestNoMusic extends Application {
         // 初始化游戏管理器
         gameManager = new GameManager();
         gameManager.setGameMap(gameMap, SCALE);
+        gameLoop = new GameLoop(gameManager);
         
         // 创建玩家
         players = new ArrayList<>();
@@ -122,7 +124,7 @@ public class PlayerBombVisualTestNoMusic extends Application {
         createPlayer("player1", new Point2D(3 * TILE_SIZE + TILE_SIZE/2, 3 * TILE_SIZE + TILE_SIZE/2), Color.BLUE);
         createPlayer("player2", new Point2D(11 * TILE_SIZE + TILE_SIZE/2, 9 * TILE_SIZE + TILE_SIZE/2), Color.RED);
         
-        lastUpdateTime = System.currentTimeMillis();
+        gameLoop.resync();
         gameRunning = true;
     }
     
@@ -184,7 +186,7 @@ public class PlayerBombVisualTestNoMusic extends Application {
             } else if (key == KeyCode.D) {
                 players.get(0).moveRight();
             } else if (key == KeyCode.SPACE) {
-                players.get(0).placeBomb(System.currentTimeMillis());
+                players.get(0).placeBomb(gameManager.getCurrentTimeMs());
             }
             
             // 玩家2控制 (方向键)
@@ -198,7 +200,7 @@ public class PlayerBombVisualTestNoMusic extends Application {
                 } else if (key == KeyCode.RIGHT) {
                     players.get(1).moveRight();
                 } else if (key == KeyCode.ENTER) {
-                    players.get(1).placeBomb(System.currentTimeMillis());
+                    players.get(1).placeBomb(gameManager.getCurrentTimeMs());
                 }
             }
         });
@@ -224,20 +226,16 @@ public class PlayerBombVisualTestNoMusic extends Application {
     }
     
     private void updateGame() {
-        long currentTime = System.currentTimeMillis();
-        double deltaTime = (currentTime - lastUpdateTime) / 1000.0;
-        lastUpdateTime = currentTime;
+        // 按固定步长推进模拟（移动、炸弹、爆炸处理都在GameManager.update中完成）
+        gameLoop.advance();
+        long currentTime = gameManager.getCurrentTimeMs();
         
-        // 更新所有玩家
         for (PlayerComponent playerComponent : players) {
-            playerComponent.getMovement().update();
-            List<Bomb> explodedBombs = playerComponent.getBombs().tick(currentTime);
-            for (Bomb bomb : explodedBombs) {
+            for (Bomb bomb : playerComponent.getBombs().getExplodedBombs()) {
                 handleBombExplosion(bomb, currentTime);
             }
+            playerComponent.getBombs().clearExplodedBombs();
         }
-        
-        gameManager.update(currentTime);
     }
     
     private void handleBombExplosion(Bomb bomb, long currentTime) {
@@ -154,7 +154,7 @@ public class SimpleMapViewer extends Application {
         root.getChildren().add(tileSizeText);
         
         y += 25;
-        Text destructibleText = new Text(startX, y, "可破坏方块: " + gameMap.getDestructibleBlocks().size());
+        Text destructibleText = new Text(startX, y, "可破坏方块: " + gameMap.getDestructibleBlockCount());
         root.getChildren().add(destructibleText);
         
         y += 40;
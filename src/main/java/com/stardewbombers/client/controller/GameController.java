@@ -1,19 +1,173 @@
 package com.stardewbombers.client.controller;
 
+import com.stardewbombers.client.network.NetworkClient;
+import com.stardewbombers.client.prediction.InputPredictor;
+import com.stardewbombers.client.prediction.PredictedInput;
+import com.stardewbombers.client.prediction.SnapshotInterpolator;
+import com.stardewbombers.component.MovementComponent;
+import com.stardewbombers.shared.game.CollisionDetector;
+import com.stardewbombers.shared.entity.GameMap;
+import com.stardewbombers.shared.log.GameLog;
+import com.stardewbombers.shared.log.GameLogger;
+import com.stardewbombers.shared.log.LogCategory;
+import com.stardewbombers.shared.protocol.Message;
+import com.stardewbombers.shared.protocol.PlaceBombMessage;
+import com.stardewbombers.shared.protocol.PlayerMoveMessage;
+import com.stardewbombers.shared.protocol.ServerResponseMessage;
+import com.stardewbombers.shared.protocol.snapshot.PlayerState;
+import com.stardewbombers.shared.protocol.snapshot.WorldSnapshot;
+import com.stardewbombers.shared.util.GameConfig;
+import com.stardewbombers.shared.util.MapLoader;
+import javafx.geometry.Point2D;
+
+import java.io.IOException;
+
+/**
+ * 联网对局的客户端控制器（JavaFX 线程）
+ * 本地玩家：输入立即在本地执行（InputPredictor），带序号发给服务器，收到快照后按服务器状态校正；
+ * 其他玩家：按缓存的快照插值显示（SnapshotInterpolator），插值延迟随心跳测得的抖动调整。
+ * 房间地图在服务器回复后加载，用于本地碰撞预测，快照中新破坏的格子同步到本地地图。
+ */
 public class GameController {
+    private static final GameLogger LOG = GameLog.logger(LogCategory.NETWORK);
+    private NetworkClient networkClient;
+    private String localPlayerId;   // 服务器分配的 id
+    private GameMap gameMap;        // 没有地图时预测不做碰撞检测，由服务器校正
+    private int appliedDestroyed;
+    private InputPredictor predictor;
+    private final SnapshotInterpolator interpolator = new SnapshotInterpolator();
+
+    public void setNetworkClient(NetworkClient networkClient) {
+        this.networkClient = networkClient;
+    }
 
-    public void handleNetworkMessage(String json) {
-        System.out.println("游戏控制器处理网络消息: " + json);
+    public void handleNetworkMessage(Message message) {
+        LOG.debug("游戏控制器处理网络消息: {}", message.getType());
 
-        // 这里解析消息并更新游戏状态
-        // 比如：
-        // - 更新其他玩家位置
-        // - 显示爆炸效果
-        // - 更新农场状态
+        if (message instanceof ServerResponseMessage) {
+            onServerResponse((ServerResponseMessage) message);
+        }
     }
 
+    private void onServerResponse(ServerResponseMessage response) {
+        localPlayerId = response.getClientId();
+        predictor = null;
+        appliedDestroyed = 0;
+        interpolator.clear();
+        gameMap = null;
+        if (response.getMapName() != null) {
+            try {
+                gameMap = MapLoader.loadMap(response.getMapName());
+            } catch (IOException e) {
+                LOG.warn("加载房间地图 {} 失败: {}", response.getMapName(), e.getMessage());
+            }
+        }
+        LOG.info("服务器分配 id: {}，房间: {}", localPlayerId, response.getRoomId());
+    }
+
+    /**
+     * 收到服务器快照：同步地图破坏，校正本地玩家，缓存用于其他玩家插值
+     */
+    public void handleSnapshot(WorldSnapshot snapshot) {
+        interpolator.add(snapshot, System.currentTimeMillis());
+        if (gameMap != null) {
+            for (; appliedDestroyed < snapshot.getDestroyedCount(); appliedDestroyed++) {
+                gameMap.applyDestroyed(snapshot.getDestroyedCell(appliedDestroyed));
+            }
+        }
+        PlayerState self = localPlayerId != null ? snapshot.findPlayer(localPlayerId) : null;
+        if (self == null) {
+            return;
+        }
+        if (predictor == null) {
+            predictor = new InputPredictor(createMovement(self.getX(), self.getY()));
+        }
+        predictor.reconcile(self);
+    }
+
+    private MovementComponent createMovement(double x, double y) {
+        double tileSize = gameMap != null ? gameMap.getTileWidth() : GameConfig.TILE_SIZE;
+        MovementComponent movement = new MovementComponent(new Point2D(x, y), tileSize);
+        if (gameMap != null) {
+            movement.setCollisionDetector(new CollisionDetector(gameMap));
+        }
+        return movement;
+    }
+
+    /**
+     * 本地玩家移动：先在本地执行，本地接受的输入才带序号发给服务器
+     */
     public void sendPlayerMove(String direction) {
-        // 这里会调用 NetworkClient 发送移动消息
-        System.out.println("玩家移动: " + direction);
+        if (predictor == null) {
+            // 还没有收到自己的状态，不做预测，直接发送
+            send(new PlayerMoveMessage(localPlayerId, null, direction));
+            return;
+        }
+        PredictedInput input = predictor.applyInput(direction);
+        if (input != null) {
+            PlayerMoveMessage move = PlayerMoveMessage.obtain(localPlayerId, new Point2D(
+                predictor.getMovement().getTargetX(), predictor.getMovement().getTargetY()), direction,
+                input.getSequence());
+            send(move);
+            move.recycle(); // NetworkClient 同步发送，之后可以复用
+        }
+    }
+
+    /**
+     * 本地玩家放炸弹：带与移动共用的序号发送，服务器在之前的移动执行完后再放，炸弹由快照同步
+     */
+    public void sendPlaceBomb() {
+        if (predictor == null) {
+            send(new PlaceBombMessage(localPlayerId, null, 0));
+            return;
+        }
+        WorldSnapshot latest = interpolator.getLatest();
+        PlayerState self = latest != null ? latest.findPlayer(localPlayerId) : null;
+        send(new PlaceBombMessage(localPlayerId, new Point2D(predictor.getMovement().getX(),
+            predictor.getMovement().getY()), self != null ? self.getBombPower() : 0, predictor.nextSequence()));
+    }
+
+    private void send(Message message) {
+        if (networkClient != null && networkClient.isConnected()) {
+            networkClient.sendMessage(message);
+        }
+    }
+
+    /**
+     * 每帧调用，推进本地预测
+     */
+    public void update() {
+        if (predictor != null) {
+            predictor.update();
+        }
+        if (networkClient != null && networkClient.getLatency().getSampleCount() > 1) {
+            interpolator.adaptDelay(networkClient.getLatency().getJitterMicros());
+        }
+    }
+
+    /**
+     * 本地玩家的显示位置，还没有状态时返回 null
+     */
+    public Point2D getLocalPlayerPosition() {
+        return predictor != null ? new Point2D(predictor.getX(), predictor.getY()) : null;
+    }
+
+    /**
+     * 其他玩家的插值位置
+     */
+    public Point2D getRemotePlayerPosition(String playerId) {
+        return interpolator.positionOf(playerId, System.currentTimeMillis());
+    }
+
+    public WorldSnapshot getLatestSnapshot() {
+        return interpolator.getLatest();
+    }
+
+    public String getLocalPlayerId() {
+        return localPlayerId;
+    }
+
+    public InputPredictor getPredictor() {
+        return predictor;
     }
 }
@@ -1,8 +1,14 @@
 package com.stardewbombers.client.network;
 
 import com.stardewbombers.client.controller.GameController;
+import com.stardewbombers.shared.log.GameLog;
+import com.stardewbombers.shared.log.GameLogger;
+import com.stardewbombers.shared.log.LogCategory;
+import com.stardewbombers.shared.protocol.Message;
+import com.stardewbombers.shared.protocol.snapshot.WorldSnapshot;
 
 public class ClientMessageHandler implements MessageHandler {
+    private static final GameLogger LOG = GameLog.logger(LogCategory.NETWORK);
     private GameController gameController;
 
     public ClientMessageHandler(GameController gameController) {
@@ -10,14 +16,21 @@ public class ClientMessageHandler implements MessageHandler {
     }
 
     @Override
-    public void handleMessage(String json) {
+    public void handleMessage(Message message) {
         // 解析消息并处理
-        System.out.println("处理收到的消息: " + json);
+        LOG.debug("处理收到的消息: {}", message.getType());
 
         // 这里可以根据消息类型做不同处理
         // 比如更新玩家位置、显示爆炸效果等
         if (gameController != null) {
-            gameController.handleNetworkMessage(json);
+            gameController.handleNetworkMessage(message);
         }
     }
-}
\ No newline at end of file
+
+    @Override
+    public void handleSnapshot(WorldSnapshot snapshot) {
+        if (gameController != null) {
+            gameController.handleSnapshot(snapshot);
+        }
+    }
+}
@@ -1,5 +1,20 @@
 package com.stardewbombers.client.network;
 
+import com.stardewbombers.shared.protocol.Message;
+import com.stardewbombers.shared.protocol.snapshot.WorldSnapshot;
+
 public interface MessageHandler {
-    void handleMessage(String json);
+    void handleMessage(Message message);
+
+    /**
+     * 收到服务器的权威状态（已在接收线程上由增量重建），在 JavaFX 线程调用
+     */
+    default void handleSnapshot(WorldSnapshot snapshot) {
+    }
+
+    /**
+     * 连接断开（服务器关闭连接、读取出错或心跳超时；主动 disconnect 不会通知），在 JavaFX 线程调用
+     */
+    default void handleDisconnect() {
+    }
 }
@@ -1,87 +1,344 @@
 package com.stardewbombers.client.network;
 
+import com.stardewbombers.shared.log.GameLog;
+import com.stardewbombers.shared.log.GameLogger;
+import com.stardewbombers.shared.log.LogCategory;
 import com.stardewbombers.shared.protocol.*;
-import com.stardewbombers.shared.util.JsonUtil;
+import com.stardewbombers.shared.protocol.codec.CompressingCodec;
+import com.stardewbombers.shared.protocol.codec.Frames;
+import com.stardewbombers.shared.protocol.codec.MessageCodec;
+import com.stardewbombers.shared.protocol.codec.WireFormat;
+import com.stardewbombers.shared.protocol.codec.WireReader;
+import com.stardewbombers.shared.protocol.codec.WireWriter;
+import com.stardewbombers.shared.protocol.datagram.Datagrams;
+import com.stardewbombers.shared.protocol.snapshot.SnapshotDelta;
+import com.stardewbombers.shared.protocol.snapshot.SnapshotHistory;
+import com.stardewbombers.shared.protocol.snapshot.WorldSnapshot;
+import com.stardewbombers.shared.util.ConnectionThreads;
+import com.stardewbombers.shared.util.LatencyTracker;
 import javafx.application.Platform;
 
 import java.io.*;
+import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * 客户端网络连接
+ * 接收线程解码服务器消息：快照在接收线程上重建并确认，心跳直接回显，其余消息交给 JavaFX 线程处理。
+ * 心跳线程每秒向服务器发 ping 测量往返时间和抖动（getLatency），超时没有收到服务器任何数据时断开连接并通知处理器。
+ * 开启数据报通道（setUseUdp，默认取 -Dstardew.net.udp）且服务器支持时，带序号的输入（移动、放炸弹）和快照确认改走 UDP（UdpLink），
+ * 服务器的快照和转发的移动也从 UDP 收到，由数据报接收线程按同样的方式处理；其余消息仍走 TCP。
+ */
 public class NetworkClient {
+    private static final GameLogger LOG = GameLog.logger(LogCategory.NETWORK);
     private Socket socket;
-    private PrintWriter out;
-    private BufferedReader in;
+    private DataOutputStream out;
+    private DataInputStream in;
     private MessageHandler messageHandler;
-    private boolean connected = false;
+    private volatile boolean connected = false;
     private Thread receiveThread;
-    private String clientId;
+    private volatile String clientId; // 连接时自己生成，收到服务器回复后换成服务器分配的 id
+    // 接收线程是否使用虚拟线程，默认取 -Dstardew.client.virtualThreads
+    private boolean useVirtualThreads = Boolean.getBoolean("stardew.client.virtualThreads");
+    // 编码格式，默认二进制，调试时可用 -Dstardew.net.format=json
+    private WireFormat wireFormat = WireFormat.parse(System.getProperty("stardew.net.format"), WireFormat.BINARY);
+    private MessageCodec codec;
+    // 是否请求压缩（带宽受限的网络），默认取 -Dstardew.net.compress
+    private boolean compress = Boolean.getBoolean("stardew.net.compress");
+    private final WireWriter writer = new WireWriter();
+    private final SnapshotHistory snapshots = new SnapshotHistory(); // TCP 和数据报接收线程共用，访问时锁住
+    private final LatencyTracker latency = new LatencyTracker();
+    private ScheduledExecutorService heartbeat;
+    // 是否尝试数据报通道（只用于二进制格式），默认取 -Dstardew.net.udp
+    private boolean useUdp = Boolean.getBoolean("stardew.net.udp");
+    private volatile UdpLink udp;
 
     public void connect(String serverAddress, int port) {
         try {
             socket = new Socket(serverAddress, port);
-            out = new PrintWriter(socket.getOutputStream(), true);
-            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            socket.setTcpNoDelay(true);
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            codec = wireFormat.newCodec();
+            if (compress) {
+                // 自己发出的帧马上开始压缩，服务器是否压缩由它的握手决定
+                codec = new CompressingCodec(codec, true, false, null);
+            }
+            // 先发握手，服务器的握手由接收线程读取
+            out.write(wireFormat.preamble(compress));
+            out.flush();
             connected = true;
             clientId = "client_" + UUID.randomUUID().toString().substring(0, 8);
 
-            // 启动接收消息线程
+            // 启动接收消息线程和心跳
+            latency.onReceive(System.nanoTime());
             startReceiveThread();
+            startHeartbeat();
 
             // 发送加入游戏的消息
             PlayerJoinMessage joinMsg = new PlayerJoinMessage(clientId, "Player_" + clientId);
             sendMessage(joinMsg);
 
-            System.out.println("已连接到服务器: " + serverAddress + ":" + port);
+            LOG.info("已连接到服务器: {}:{}", serverAddress, port);
 
         } catch (IOException e) {
-            System.err.println("连接服务器失败: " + e.getMessage());
+            LOG.warn("连接服务器失败: {}", e.getMessage());
             connected = false;
         }
     }
 
-    public void sendMessage(Message message) {
+    /**
+     * 在调用线程上编码并写出，返回后消息不再被引用（对象池取出的消息可以立即放回）
+     */
+    public synchronized void sendMessage(Message message) {
+        UdpLink link = udp;
+        if (connected && link != null && link.isActive()) {
+            // 移动和炸弹共用输入序号，必须走同一条有序的重发通道，服务器按输入序号去重；没有序号的输入走 TCP
+            if (Datagrams.inputSequence(message) > 0) {
+                link.sendInput(message);
+                return;
+            }
+            if (message.getType() == MessageType.SNAPSHOT_ACK) {
+                link.send(message);
+                return;
+            }
+        }
         if (connected && out != null) {
-            String json = JsonUtil.toJson(message);
-            out.println(json);
-            System.out.println("发送消息: " + message.getType());
+            writer.reset();
+            codec.encode(message, writer);
+            try {
+                Frames.writeFrame(out, writer);
+                out.flush();
+            } catch (IOException e) {
+                LOG.warn("发送消息失败: {}", e.getMessage());
+                return;
+            }
+            if (LOG.isDebugEnabled() && message.getType() != MessageType.SNAPSHOT_ACK
+                && message.getType() != MessageType.HEARTBEAT) {
+                LOG.debug("发送消息: {}", message.getType());
+            }
         }
     }
 
+    /**
+     * 设置接收线程是否使用虚拟线程（在 connect 之前调用）
+     */
+    public void setUseVirtualThreads(boolean useVirtualThreads) {
+        this.useVirtualThreads = useVirtualThreads;
+    }
+
+    /**
+     * 设置是否请求压缩（在 connect 之前调用）
+     */
+    public void setCompress(boolean compress) {
+        this.compress = compress;
+    }
+
+    /**
+     * 发送方向的压缩率（发出字节数 / 压缩前字节数），没有请求压缩时为 1
+     */
+    public double getCompressionRatio() {
+        MessageCodec current = codec;
+        return current instanceof CompressingCodec ? ((CompressingCodec) current).getCompressionRatio() : 1.0;
+    }
+
+    /**
+     * 设置是否尝试数据报通道（在 connect 之前调用）
+     */
+    public void setUseUdp(boolean useUdp) {
+        this.useUdp = useUdp;
+    }
+
+    /**
+     * 数据报通道是否已经建立
+     */
+    public boolean isUdpActive() {
+        UdpLink link = udp;
+        return link != null && link.isActive();
+    }
+
+    /**
+     * 数据报通道按确认统计的丢包率，没有建立时为 0
+     */
+    public double getUdpLossRatio() {
+        UdpLink link = udp;
+        return link != null ? link.getLossRatio() : 0.0;
+    }
+
+    /**
+     * 设置编码格式（在 connect 之前调用）
+     */
+    public void setWireFormat(WireFormat wireFormat) {
+        this.wireFormat = wireFormat;
+    }
+
     private void startReceiveThread() {
-        receiveThread = new Thread(() -> {
+        receiveThread = ConnectionThreads.factory(useVirtualThreads, "net-receive-").newThread(() -> {
             try {
-                String receivedMessage;
-                while (connected && (receivedMessage = in.readLine()) != null) {
-                    final String finalMessage = receivedMessage;
-
-                    // 在JavaFX线程中处理消息
-                    Platform.runLater(() -> {
-                        handleReceivedMessage(finalMessage);
-                    });
+                byte[] preamble = new byte[WireFormat.PREAMBLE_SIZE];
+                in.readFully(preamble);
+                WireFormat.fromPreamble(preamble, 0);
+                if (codec instanceof CompressingCodec) {
+                    ((CompressingCodec) codec).setInboundCompressed(WireFormat.isCompressed(preamble, 0));
+                }
+
+                WireReader reader = new WireReader();
+                byte[] frame;
+                while (connected && (frame = Frames.readFrame(in)) != null) {
+                    latency.onReceive(System.nanoTime());
+                    reader.reset(frame, 0, frame.length);
+                    Message message = codec.decode(reader);
+                    if (message instanceof ServerResponseMessage) {
+                        ServerResponseMessage response = (ServerResponseMessage) message;
+                        clientId = response.getClientId();
+                        openUdp(response);
+                    }
+                    onReceived(message);
                 }
             } catch (IOException e) {
                 if (connected) {
-                    System.err.println("接收消息出错: " + e.getMessage());
+                    LOG.warn("接收消息出错: {}", e.getMessage());
                 }
             }
+            if (connected) { // 服务器关闭连接或读取出错；主动断开时不通知
+                disconnect();
+                notifyDisconnect();
+            }
         });
-        receiveThread.setDaemon(true);
+        if (!useVirtualThreads) {
+            receiveThread.setDaemon(true); // 虚拟线程总是守护线程
+        }
         receiveThread.start();
     }
 
-    private void handleReceivedMessage(String json) {
+    /**
+     * 处理收到的一条消息（TCP 或数据报接收线程）：心跳回显，快照重建并确认，其余消息交给 JavaFX 线程
+     */
+    private void onReceived(Message message) {
+        if (message instanceof HeartbeatMessage) {
+            onHeartbeat((HeartbeatMessage) message);
+            return;
+        }
+        if (message instanceof WorldSnapshotMessage) {
+            applySnapshot(((WorldSnapshotMessage) message).getDelta());
+            return;
+        }
+
+        // 在JavaFX线程中处理消息
+        Platform.runLater(() -> {
+            handleReceivedMessage(message);
+        });
+    }
+
+    /**
+     * 服务器提供数据报通道时开始配对，失败时继续只用 TCP
+     */
+    private void openUdp(ServerResponseMessage response) {
+        if (!useUdp || wireFormat != WireFormat.BINARY || response.getUdpPort() <= 0 || udp != null) {
+            return;
+        }
         try {
-            // 这里简化处理，实际应该根据消息类型创建不同的对象
-            System.out.println("收到消息: " + json);
+            UdpLink link = new UdpLink(new InetSocketAddress(socket.getInetAddress(), response.getUdpPort()),
+                response.getUdpToken(), message -> {
+                    latency.onReceive(System.nanoTime());
+                    onReceived(message);
+                });
+            udp = link;
+            link.start();
+        } catch (IOException e) {
+            LOG.warn("创建数据报通道失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 服务器的 ping 立即回显，自己 ping 的回显记录往返时间（接收线程）
+     */
+    private void onHeartbeat(HeartbeatMessage message) {
+        if (message.isReply()) {
+            latency.onEcho(message.getPingId(), message.getOriginNanos(), System.nanoTime());
+        } else {
+            sendMessage(message.echo(clientId));
+        }
+    }
+
+    /**
+     * 启动心跳线程：定期发 ping，超时没有收到服务器数据时断开（服务器崩溃或网络中断时 TCP 可能长时间察觉不到）
+     */
+    private void startHeartbeat() {
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "net-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = HeartbeatMessage.DEFAULT_INTERVAL_MS;
+        heartbeat.scheduleAtFixedRate(() -> {
+            long now = System.nanoTime();
+            if (!connected) {
+                return;
+            }
+            if (latency.getIdleNanos(now) > TimeUnit.MILLISECONDS.toNanos(HeartbeatMessage.DEFAULT_TIMEOUT_MS)) {
+                LOG.warn("服务器超过 {}ms 没有响应，断开连接", HeartbeatMessage.DEFAULT_TIMEOUT_MS);
+                disconnect();
+                notifyDisconnect();
+                return;
+            }
+            sendMessage(new HeartbeatMessage(clientId, latency.nextPingId(), now, false));
+        }, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    private void notifyDisconnect() {
+        Platform.runLater(() -> {
+            if (messageHandler != null) {
+                messageHandler.handleDisconnect();
+            }
+        });
+    }
+
+    /**
+     * 在接收线程上把增量应用到对应的基准快照，保存结果并确认，然后交给 JavaFX 线程
+     * 基准已不在本地历史中时丢弃这个增量：不确认，服务器会继续以更早的确认为基准（或改发完整快照）
+     * 经 TCP 和数据报到达的快照可能乱序，比已应用的快照旧的直接丢弃。
+     */
+    private void applySnapshot(SnapshotDelta delta) {
+        WorldSnapshot snapshot;
+        synchronized (snapshots) {
+            WorldSnapshot latest = snapshots.getLatest();
+            if (latest != null && delta.getSequence() <= latest.getSequence()) {
+                return;
+            }
+            WorldSnapshot baseline = delta.isFull() ? null : snapshots.get(delta.getBaselineSequence());
+            if (!delta.isFull() && baseline == null) {
+                LOG.debug("快照基准 #{} 已丢失，忽略快照 #{}", delta.getBaselineSequence(), delta.getSequence());
+                return;
+            }
+            snapshot = delta.apply(baseline);
+            snapshots.put(snapshot);
+        }
+        SnapshotAckMessage ack = SnapshotAckMessage.obtain(clientId, snapshot.getSequence());
+        sendMessage(ack);
+        ack.recycle();
+        Platform.runLater(() -> {
+            if (messageHandler != null) {
+                messageHandler.handleSnapshot(snapshot);
+            }
+        });
+    }
+
+    private void handleReceivedMessage(Message message) {
+        try {
+            LOG.debug("收到消息: {}", message.getType());
 
             // 通知消息处理器
             if (messageHandler != null) {
-                messageHandler.handleMessage(json);
+                messageHandler.handleMessage(message);
             }
 
         } catch (Exception e) {
-            System.err.println("处理消息失败: " + e.getMessage());
+            LOG.error("处理消息失败: {}", e.getMessage(), e);
         }
     }
 
@@ -97,12 +354,25 @@ public class NetworkClient {
         return clientId;
     }
 
+    /**
+     * 心跳测得的往返时间和抖动（可以在任意线程读取）
+     */
+    public LatencyTracker getLatency() {
+        return latency;
+    }
+
     public void disconnect() {
         connected = false;
+        if (heartbeat != null) {
+            heartbeat.shutdown();
+        }
+        if (udp != null) {
+            udp.close();
+        }
         try {
             if (socket != null) socket.close();
         } catch (IOException e) {
-            System.err.println("断开连接出错: " + e.getMessage());
+            LOG.debug("断开连接出错: {}", e.getMessage());
         }
     }
 }
@@ -0,0 +1,239 @@
+package com.stardewbombers.client.network;
+
+import com.stardewbombers.shared.log.GameLog;
+import com.stardewbombers.shared.log.GameLogger;
+import com.stardewbombers.shared.log.LogCategory;
+import com.stardewbombers.shared.protocol.Message;
+import com.stardewbombers.shared.protocol.datagram.AckWindow;
+import com.stardewbombers.shared.protocol.datagram.Datagrams;
+import com.stardewbombers.shared.protocol.codec.ProtocolException;
+import com.stardewbombers.shared.protocol.codec.WireReader;
+import com.stardewbombers.shared.protocol.codec.WireWriter;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * 客户端的数据报通道（见 Datagrams）
+ * 收到服务器的 UDP 端口和令牌后创建：接收线程每 HELLO_INTERVAL_MS 发一次 HELLO，收到服务器的 HELLO 回复后开始使用；
+ * 一直没有回复（防火墙、服务器没有开启）时放弃，继续只用 TCP。
+ *
+ * 输入（移动、放炸弹）需要按顺序送达：每个输入编码后保留，在之后的每个包中重发，直到携带它的包被服务器确认
+ * （服务器按输入序号去掉重复）；快照确认只放在当前的包中，丢了由下一个快照的确认补上。
+ * 收到的包乱序或重复时整体丢弃，其中的消息交给 receiver（接收线程调用）。
+ */
+class UdpLink {
+    private static final GameLogger LOG = GameLog.logger(LogCategory.NETWORK);
+    private static final int HELLO_INTERVAL_MS = 200;
+    private static final int HELLO_ATTEMPTS = 25;     // 约 5 秒
+    private static final int MAX_PENDING_INPUTS = 16; // 未确认输入的上限，超过时丢弃最旧的（由快照校正）
+
+    private final DatagramSocket socket;
+    private final long token;
+    private final Consumer<Message> receiver;
+    private final AckWindow acks = new AckWindow();
+    private final ArrayDeque<PendingInput> inputs = new ArrayDeque<>();
+    private final WireWriter packet = new WireWriter(Datagrams.MAX_PACKET_BYTES);
+    private final WireWriter scratch = new WireWriter(256);
+    private final double lossRate;
+    private volatile boolean active;
+    private volatile boolean closed;
+    private long droppedInputs;
+
+    UdpLink(InetSocketAddress server, long token, Consumer<Message> receiver) throws IOException {
+        this.socket = new DatagramSocket();
+        socket.connect(server);
+        socket.setSoTimeout(HELLO_INTERVAL_MS);
+        this.token = token;
+        this.receiver = receiver;
+        this.lossRate = Datagrams.DEFAULT_LOSS_RATE;
+    }
+
+    void start() {
+        Thread thread = new Thread(this::receiveLoop, "net-udp");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 是否已经与服务器配对，可以发送
+     */
+    boolean isActive() {
+        return active && !closed;
+    }
+
+    /**
+     * 发送需要送达的输入（在调用线程上编码，返回后不再引用 message）
+     */
+    synchronized void sendInput(Message message) {
+        scratch.reset();
+        Datagrams.appendMessage(scratch, message, packet);
+        inputs.addLast(new PendingInput(scratch.toByteArray()));
+        if (inputs.size() > MAX_PENDING_INPUTS) {
+            inputs.removeFirst();
+            droppedInputs++;
+        }
+        sendPacket(null);
+    }
+
+    /**
+     * 发送只关心最新值的消息，和未确认的输入一起放在一个包中
+     */
+    synchronized void send(Message message) {
+        sendPacket(message);
+    }
+
+    private void sendPacket(Message extra) {
+        packet.reset();
+        int sequence = acks.nextSequence(System.nanoTime());
+        Datagrams.writeDataHeader(packet, token, sequence, acks);
+        for (PendingInput input : inputs) {
+            if (packet.size() + input.bytes.length > Datagrams.MAX_PACKET_BYTES) {
+                break;
+            }
+            if (input.firstSequence == 0) {
+                input.firstSequence = sequence;
+            }
+            packet.writeBytes(input.bytes, 0, input.bytes.length);
+        }
+        if (extra != null) {
+            Datagrams.appendMessage(packet, extra, scratch);
+        }
+        transmit();
+    }
+
+    private void transmit() {
+        if (Datagrams.simulateLoss(lossRate)) {
+            return;
+        }
+        try {
+            socket.send(new DatagramPacket(packet.array(), packet.size()));
+        } catch (IOException e) {
+            LOG.debug("发送数据报出错: {}", e.getMessage());
+        }
+    }
+
+    private void receiveLoop() {
+        byte[] buffer = new byte[Datagrams.MAX_PACKET_BYTES];
+        DatagramPacket datagram = new DatagramPacket(buffer, buffer.length);
+        WireReader reader = new WireReader();
+        WireReader frame = new WireReader();
+        int attempts = 0;
+        while (!closed) {
+            try {
+                if (!active) {
+                    if (attempts++ >= HELLO_ATTEMPTS) {
+                        LOG.warn("服务器没有回复数据报，继续只使用 TCP");
+                        close();
+                        return;
+                    }
+                    sendHello();
+                }
+                datagram.setLength(buffer.length);
+                socket.receive(datagram);
+                reader.reset(buffer, 0, datagram.getLength());
+                onPacket(reader, frame);
+            } catch (SocketTimeoutException e) {
+                // 配对阶段按间隔重发 HELLO；之后没有数据时继续等待（连接是否存活由 TCP 心跳判断）
+            } catch (ProtocolException e) {
+                LOG.debug("无效的数据报: {}", e.getMessage());
+            } catch (IOException e) {
+                if (!closed) {
+                    LOG.warn("数据报接收出错: {}", e.getMessage());
+                    close();
+                }
+            }
+        }
+    }
+
+    private void sendHello() {
+        WireWriter hello = new WireWriter(16);
+        Datagrams.writeHello(hello, token);
+        try {
+            socket.send(new DatagramPacket(hello.array(), hello.size()));
+        } catch (IOException e) {
+            LOG.debug("发送 HELLO 出错: {}", e.getMessage());
+        }
+    }
+
+    private void onPacket(WireReader in, WireReader frame) throws ProtocolException {
+        int kind = in.readByte();
+        if (in.readVarLong() != token) {
+            return;
+        }
+        if (kind == Datagrams.HELLO) {
+            if (!active) {
+                active = true;
+                LOG.info("数据报通道已建立");
+            }
+            return;
+        }
+        if (kind != Datagrams.DATA) {
+            return;
+        }
+        active = true; // HELLO 回复丢失时以第一个数据包为准
+        int sequence = in.readVarInt();
+        int ack = in.readVarInt();
+        int bits = in.readVarInt();
+        synchronized (this) {
+            acks.onAck(ack, bits, System.nanoTime());
+            // 每个包都带着之前所有未确认的输入，服务器收到的最新包不早于输入第一次发出的包时，输入已经送达
+            Iterator<PendingInput> it = inputs.iterator();
+            while (it.hasNext()) {
+                PendingInput input = it.next();
+                if (input.firstSequence == 0 || input.firstSequence > acks.getLatestAcked()) {
+                    break;
+                }
+                it.remove();
+            }
+            if (!acks.onReceive(sequence)) {
+                return;
+            }
+        }
+        while (in.remaining() > 0) {
+            receiver.accept(Datagrams.readMessage(in, frame));
+        }
+    }
+
+    /**
+     * 对方确认统计的丢包率
+     */
+    synchronized double getLossRatio() {
+        return acks.getLossRatio();
+    }
+
+    /**
+     * 数据报往返时间（微秒），没有样本时为 -1
+     */
+    synchronized long getSmoothedRttMicros() {
+        long nanos = acks.getSmoothedRttNanos();
+        return nanos < 0 ? -1 : nanos / 1000;
+    }
+
+    /** 未确认就被挤出重发窗口的输入数 */
+    synchronized long getDroppedInputs() {
+        return droppedInputs;
+    }
+
+    void close() {
+        closed = true;
+        socket.close();
+    }
+
+    /**
+     * 已编码的输入（长度 + 独立帧）和第一次发出它的包序号（0 表示还没有发出）
+     */
+    private static final class PendingInput {
+        final byte[] bytes;
+        int firstSequence;
+
+        PendingInput(byte[] bytes) {
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.stardewbombers.client.prediction;
+
+import com.stardewbombers.component.MovementComponent;
+import com.stardewbombers.shared.protocol.snapshot.PlayerState;
+import java.util.ArrayDeque;
+
+/**
+ * 本地玩家的移动预测与服务器校正
+ *
+ * 输入立即作用于本地的 MovementComponent（与服务器相同的网格移动代码），分配递增序号后缓存并发给服务器。
+ * 收到服务器状态（位置 + 已处理的最后输入序号）时丢弃已确认的输入，检查服务器的目标格子是否就是第一个
+ * 未确认输入的起点；一致时什么都不做，不一致时回到服务器位置，按原顺序重放未确认的输入。
+ * 校正造成的位置跳变记为显示偏移，在之后几帧内逐渐消失，画面不会瞬移。
+ *
+ * 只在 JavaFX 线程访问。
+ */
+public class InputPredictor {
+    private static final double POSITION_EPSILON = 2.0 / PlayerState.POSITION_SCALE; // 坐标量化误差
+    private static final int MAX_PENDING_INPUTS = 64;
+    private static final int MAX_REPLAY_FRAMES = 600;   // 重放一步移动最多模拟的帧数
+    private static final double SMOOTHING = 0.8;        // 显示偏移每帧保留的比例
+    private static final int STALL_SNAPSHOTS = 2;       // 已确认的输入连续几个快照停在起点时认为被服务器拒绝
+
+    private final MovementComponent movement;
+    private final ArrayDeque<PredictedInput> pending = new ArrayDeque<>();
+    private PredictedInput lastAcked;
+    private int nextSequence = 1;
+    private long frame;
+    private int stalledSnapshots;
+    private double offsetX;
+    private double offsetY;
+    private int corrections;
+
+    public InputPredictor(MovementComponent movement) {
+        this.movement = movement;
+    }
+
+    /**
+     * 在本地执行一个移动输入
+     * @return 需要发给服务器的输入；正在移动或被地形挡住时返回 null（服务器也会忽略，不必发送）
+     */
+    public PredictedInput applyInput(String direction) {
+        if (movement.isMoving()) {
+            return null;
+        }
+        double fromX = movement.getX();
+        double fromY = movement.getY();
+        if (!move(direction) || !movement.isMoving()) {
+            return null;
+        }
+        PredictedInput input = new PredictedInput(nextSequence++, direction, frame,
+            fromX, fromY, movement.getTargetX(), movement.getTargetY());
+        if (pending.size() >= MAX_PENDING_INPUTS) {
+            pending.poll(); // 长时间没有服务器状态，最早的输入已无法用于校正
+        }
+        pending.add(input);
+        return input;
+    }
+
+    /**
+     * 分配一个不参与移动预测的输入序号（放炸弹），与移动共用序号，服务器按序号顺序执行
+     */
+    public int nextSequence() {
+        return nextSequence++;
+    }
+
+    /**
+     * 每帧调用：推进本地移动，衰减显示偏移
+     */
+    public void update() {
+        frame++;
+        movement.update();
+        offsetX *= SMOOTHING;
+        offsetY *= SMOOTHING;
+        if (Math.abs(offsetX) < 0.01) offsetX = 0;
+        if (Math.abs(offsetY) < 0.01) offsetY = 0;
+    }
+
+    /**
+     * 用服务器状态校正
+     * @return 是否发生了校正
+     */
+    public boolean reconcile(PlayerState state) {
+        return reconcile(state.getX(), state.getY(), state.getLastInput());
+    }
+
+    public boolean reconcile(double serverX, double serverY, int lastInput) {
+        while (!pending.isEmpty() && pending.peek().getSequence() <= lastInput) {
+            lastAcked = pending.poll();
+        }
+
+        // 服务器的目标格子：还在执行最后确认的输入时是该输入的目标，否则就是服务器位置
+        // （lastInput 可能是之后的炸弹序号，炸弹不改变移动）
+        double targetX = serverX;
+        double targetY = serverY;
+        if (lastAcked != null && lastAcked.getSequence() <= lastInput && !lastAcked.isBlocked()
+                && lastAcked.isOnPath(serverX, serverY, POSITION_EPSILON)) {
+            // 停在起点可能是刚执行还没走，也可能被服务器挡住；连续几个快照都停在起点才认为被挡住
+            stalledSnapshots = lastAcked.isAtStart(serverX, serverY, POSITION_EPSILON) ? stalledSnapshots + 1 : 0;
+            if (stalledSnapshots < STALL_SNAPSHOTS) {
+                targetX = lastAcked.toX;
+                targetY = lastAcked.toY;
+            }
+        } else {
+            stalledSnapshots = 0;
+        }
+
+        PredictedInput first = pending.peek();
+        double expectedX = first != null ? first.fromX : movement.getTargetX();
+        double expectedY = first != null ? first.fromY : movement.getTargetY();
+        if (near(targetX, expectedX) && near(targetY, expectedY)) {
+            return false;
+        }
+        replay(serverX, serverY, targetX, targetY);
+        return true;
+    }
+
+    /**
+     * 回到服务器状态，按顺序重放未确认的输入
+     */
+    private void replay(double serverX, double serverY, double targetX, double targetY) {
+        double shownX = getX();
+        double shownY = getY();
+        movement.setPosition(serverX, serverY);
+        movement.setTarget(targetX, targetY);
+        PredictedInput last = pending.peekLast();
+        for (PredictedInput input : pending) {
+            finishMove();
+            input.fromX = movement.getX();
+            input.fromY = movement.getY();
+            move(input.getDirection());
+            input.toX = movement.getTargetX();
+            input.toY = movement.getTargetY();
+            if (input == last) {
+                // 最后一个输入只推进它在本地已经走过的帧数
+                long elapsed = Math.min(frame - input.getFrame(), MAX_REPLAY_FRAMES);
+                for (long i = 0; i < elapsed && movement.isMoving(); i++) {
+                    movement.update();
+                }
+            }
+        }
+        stalledSnapshots = 0;
+        offsetX = shownX - movement.getX();
+        offsetY = shownY - movement.getY();
+        corrections++;
+    }
+
+    private void finishMove() {
+        for (int i = 0; i < MAX_REPLAY_FRAMES && movement.isMoving(); i++) {
+            movement.update();
+        }
+    }
+
+    private boolean move(String direction) {
+        switch (direction.toUpperCase()) {
+            case "UP": movement.moveUp(); return true;
+            case "DOWN": movement.moveDown(); return true;
+            case "LEFT": movement.moveLeft(); return true;
+            case "RIGHT": movement.moveRight(); return true;
+            default: return false;
+        }
+    }
+
+    private static boolean near(double a, double b) {
+        return Math.abs(a - b) <= POSITION_EPSILON;
+    }
+
+    /** 显示位置（预测位置 + 校正偏移） */
+    public double getX() { return movement.getX() + offsetX; }
+    public double getY() { return movement.getY() + offsetY; }
+    public MovementComponent getMovement() { return movement; }
+    public int getPendingCount() { return pending.size(); }
+    public int getCorrectionCount() { return corrections; }
+}
@@ -0,0 +1,53 @@
+package com.stardewbombers.client.prediction;
+
+/**
+ * 一个已经在本地执行、等待服务器确认的移动输入
+ * 记录执行时的起点和目标格子，用来判断服务器位置是否与预测一致。
+ */
+public final class PredictedInput {
+    private final int sequence;
+    private final String direction;
+    private final long frame;   // 执行时的本地帧号
+    double fromX;
+    double fromY;
+    double toX;
+    double toY;
+
+    PredictedInput(int sequence, String direction, long frame, double fromX, double fromY, double toX, double toY) {
+        this.sequence = sequence;
+        this.direction = direction;
+        this.frame = frame;
+        this.fromX = fromX;
+        this.fromY = fromY;
+        this.toX = toX;
+        this.toY = toY;
+    }
+
+    public int getSequence() { return sequence; }
+    public String getDirection() { return direction; }
+    long getFrame() { return frame; }
+
+    /**
+     * (x, y) 是否在这次移动的路径上（沿坐标轴的线段，包括两端）
+     */
+    boolean isOnPath(double x, double y, double epsilon) {
+        double minX = Math.min(fromX, toX) - epsilon;
+        double maxX = Math.max(fromX, toX) + epsilon;
+        double minY = Math.min(fromY, toY) - epsilon;
+        double maxY = Math.max(fromY, toY) + epsilon;
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+
+    boolean isAtStart(double x, double y, double epsilon) {
+        return Math.abs(x - fromX) <= epsilon && Math.abs(y - fromY) <= epsilon;
+    }
+
+    boolean isBlocked() {
+        return fromX == toX && fromY == toY;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Input[#%d %s (%.1f, %.1f)->(%.1f, %.1f)]", sequence, direction, fromX, fromY, toX, toY);
+    }
+}
@@ -0,0 +1,120 @@
+package com.stardewbombers.client.prediction;
+
+import com.stardewbombers.shared.game.GameLoop;
+import com.stardewbombers.shared.protocol.snapshot.PlayerState;
+import com.stardewbombers.shared.protocol.snapshot.WorldSnapshot;
+import javafx.geometry.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 其他玩家的插值显示
+ *
+ * 保存最近收到的快照，按"估计的服务器时间 - 插值延迟"取前后两个快照，在它们之间线性插值。
+ * 延迟略大于快照间隔加网络抖动，显示的是稍早但连续的位置，不会因为包的到达时间不均匀而跳动。
+ * 服务器时间估计取 快照时间 - 本地到达时间 的最大值（到得最早的包延迟最小），之后缓慢跟随，适应时钟漂移。
+ * 延迟可以按心跳测得的抖动调整（adaptDelay）：网络稳定时缩短，抖动大时加长。
+ *
+ * 只在 JavaFX 线程访问。
+ */
+public class SnapshotInterpolator {
+    public static final long DEFAULT_DELAY_MS = 100;
+    public static final long MIN_DELAY_MS = 50;
+    public static final long MAX_DELAY_MS = 250;
+    private static final long BASE_DELAY_MS = 2 * 1000 / GameLoop.DEFAULT_TICK_RATE; // 两个快照间隔
+    private static final int JITTER_FACTOR = 4;
+    private static final int DELAY_DECAY_SHIFT = 4; // 延迟每次向目标靠近 1/16
+    private static final int CAPACITY = 32;
+    private static final int OFFSET_DECAY_SHIFT = 6; // 偏移每个快照向新值靠近 1/64
+
+    private final List<WorldSnapshot> snapshots = new ArrayList<>(CAPACITY);
+    private long delayMs;
+    private long clockOffset; // 服务器时间 - 本地时间
+    private boolean synced;
+
+    public SnapshotInterpolator() {
+        this(DEFAULT_DELAY_MS);
+    }
+
+    public SnapshotInterpolator(long delayMs) {
+        this.delayMs = delayMs;
+    }
+
+    /**
+     * 收到一个快照（按序号递增到达，旧的忽略）
+     */
+    public void add(WorldSnapshot snapshot, long localNowMs) {
+        if (!snapshots.isEmpty() && snapshot.getSequence() <= snapshots.get(snapshots.size() - 1).getSequence()) {
+            return;
+        }
+        long offset = snapshot.getTimeMs() - localNowMs;
+        if (!synced || offset > clockOffset) {
+            clockOffset = offset;
+            synced = true;
+        } else {
+            clockOffset -= (clockOffset - offset) >> OFFSET_DECAY_SHIFT;
+        }
+        if (snapshots.size() == CAPACITY) {
+            snapshots.remove(0);
+        }
+        snapshots.add(snapshot);
+    }
+
+    /**
+     * 按测得的抖动调整插值延迟：目标为两个快照间隔加 4 倍抖动，限制在 [MIN_DELAY_MS, MAX_DELAY_MS]；
+     * 每次只向目标靠近一小步，显示时间不会跳变
+     */
+    public void adaptDelay(long jitterMicros) {
+        long target = Math.max(MIN_DELAY_MS, Math.min(MAX_DELAY_MS, BASE_DELAY_MS + JITTER_FACTOR * jitterMicros / 1000));
+        long step = (target - delayMs) >> DELAY_DECAY_SHIFT;
+        delayMs += step != 0 ? step : Long.signum(target - delayMs);
+    }
+
+    public long getDelayMs() {
+        return delayMs;
+    }
+
+    /**
+     * 本地时间对应的显示时间（服务器时间轴）
+     */
+    public long renderTime(long localNowMs) {
+        return localNowMs + clockOffset - delayMs;
+    }
+
+    /**
+     * 玩家在显示时间的插值位置；显示时间超出已收到的范围时取最近的快照，没有该玩家时返回 null
+     */
+    public Point2D positionOf(String playerId, long localNowMs) {
+        if (snapshots.isEmpty()) {
+            return null;
+        }
+        long time = renderTime(localNowMs);
+        int after = 0;
+        while (after < snapshots.size() && snapshots.get(after).getTimeMs() < time) {
+            after++;
+        }
+        if (after == 0 || after == snapshots.size()) {
+            PlayerState state = snapshots.get(after == 0 ? 0 : snapshots.size() - 1).findPlayer(playerId);
+            return state != null ? new Point2D(state.getX(), state.getY()) : null;
+        }
+        WorldSnapshot a = snapshots.get(after - 1);
+        WorldSnapshot b = snapshots.get(after);
+        PlayerState from = a.findPlayer(playerId);
+        PlayerState to = b.findPlayer(playerId);
+        if (from == null || to == null) {
+            PlayerState state = to != null ? to : from;
+            return state != null ? new Point2D(state.getX(), state.getY()) : null;
+        }
+        double t = (double) (time - a.getTimeMs()) / Math.max(1, b.getTimeMs() - a.getTimeMs());
+        return new Point2D(from.getX() + (to.getX() - from.getX()) * t, from.getY() + (to.getY() - from.getY()) * t);
+    }
+
+    public WorldSnapshot getLatest() {
+        return snapshots.isEmpty() ? null : snapshots.get(snapshots.size() - 1);
+    }
+
+    public void clear() {
+        snapshots.clear();
+        synced = false;
+    }
+}
@@ -1,24 +1,42 @@
 package com.stardewbombers.component;
 
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collections;
 import java.util.List;
 import javafx.geometry.Point2D;
 import com.stardewbombers.shared.entity.Bomb;
 import com.stardewbombers.shared.entity.GameMap;
+import com.stardewbombers.shared.game.ExplosionEngine;
+import com.stardewbombers.shared.game.TimerWheel;
+import com.stardewbombers.shared.log.GameLog;
+import com.stardewbombers.shared.log.GameLogger;
+import com.stardewbombers.shared.log.LogCategory;
+import com.stardewbombers.shared.util.GameConfig;
 
 /**
  * 炸弹组件类 - 管理玩家的炸弹系统
  * 释放模式：同一时间只能存在 1 个炸弹；必须等爆炸/结束后才能放新的
- * 包含：网格吸附、爆炸范围计算
+ * 包含：网格吸附、爆炸范围计算（委托ExplosionEngine）
+ *
+ * 引信和爆炸结束都是时间轮（TimerWheel）上的定时器，tick 不轮询炸弹，只取出时间轮已经触发的爆炸。
+ * 加入 GameManager 时使用对局共用的时间轮（由 GameManager 推进）；单独使用时组件在第一次放置炸弹时
+ * 创建自己的时间轮，在 tick 中推进。
  */
 public class BombComponent {
+	private static final GameLogger LOG = GameLog.logger(LogCategory.BOMB);
+
 	private final String ownerId;
 	private int bombPower;
 	private final List<Bomb> activeBombs = new ArrayList<>();
 	private final List<Bomb> explodedBombs = new ArrayList<>(); // 存储爆炸的炸弹
 	private final int gridSize = 40; // 网格大小，与TILE_SIZE保持一致
 	private GameMap gameMap; // 地图引用，用于边界检查
+	private double fuseSeconds = GameConfig.BOMB_FUSE_TIME; // 新放置炸弹的引信时间
+	private long lastTickMs = -1L; // 上一次tick（或放置炸弹）的模拟时间
+	private TimerWheel timerWheel; // 引信和爆炸结束所在的时间轮，第一次放置炸弹前可能为null
+	private boolean ownsWheel;     // 时间轮是组件自己创建的，由tick推进
+	private final List<BombTimer> bombTimers = new ArrayList<>();
+	private final List<Bomb> pendingExploded = new ArrayList<>(); // 时间轮触发、等待下一次tick上报的炸弹
 
 	public BombComponent(String ownerId, int bombCount, int bombPower) {
 		this.ownerId = ownerId;
@@ -30,6 +48,17 @@ public class BombComponent {
 	public int getBombPower() { return bombPower; }
 	public void setBombPower(int power) { this.bombPower = power; }
 	public List<Bomb> getActiveBombs() { return activeBombs; }
+	public double getFuseSeconds() { return fuseSeconds; }
+
+	/**
+	 * 设置之后放置的炸弹的引信时间（秒），默认 GameConfig.BOMB_FUSE_TIME
+	 */
+	public void setFuseSeconds(double fuseSeconds) {
+		if (fuseSeconds <= 0) {
+			throw new IllegalArgumentException("引信时间必须大于0: " + fuseSeconds);
+		}
+		this.fuseSeconds = fuseSeconds;
+	}
 	
 	/**
 	 * 设置游戏地图引用
@@ -39,6 +68,44 @@ public class BombComponent {
 		this.gameMap = gameMap;
 	}
 
+	/**
+	 * 设置共用的时间轮（由GameManager在加入玩家时设置，传null则改用组件自己的时间轮）
+	 * 已有的炸弹会按剩余时间重新登记
+	 */
+	public void setTimerWheel(TimerWheel timerWheel) {
+		if (timerWheel == null) {
+			if (ownsWheel || this.timerWheel == null) {
+				return;
+			}
+			timerWheel = new TimerWheel(lastTickMs < 0 ? this.timerWheel.getCurrentTimeMs() : lastTickMs);
+			ownsWheel = true;
+		} else if (this.timerWheel == timerWheel) {
+			return;
+		} else {
+			ownsWheel = false;
+		}
+		for (BombTimer timer : bombTimers) {
+			this.timerWheel.cancel(timer);
+			Bomb bomb = timer.bomb;
+			if (bomb.getState() == Bomb.BombState.TICKING && bomb.getFuseEndMs() >= 0 && lastTickMs >= 0) {
+				bomb.setFuseTime(Math.max(0L, bomb.getFuseEndMs() - lastTickMs) / 1000.0);
+			}
+			bomb.setFuseEndMs(-1L);
+		}
+		bombTimers.clear();
+		this.timerWheel = timerWheel;
+		long nowMs = lastTickMs < 0 ? timerWheel.getCurrentTimeMs() : lastTickMs;
+		for (Bomb bomb : activeBombs) {
+			BombTimer timer = new BombTimer(bomb);
+			bombTimers.add(timer);
+			if (bomb.getState() == Bomb.BombState.EXPLODING) {
+				scheduleExplosionEnd(timer);
+			} else {
+				scheduleFuse(timer, nowMs);
+			}
+		}
+	}
+
 	/**
 	 * 放置炸弹（对齐到格子中心）
 	 */
@@ -50,152 +117,100 @@ public class BombComponent {
 		int gridX = (int)(worldPosition.getX() / gridSize);
 		int gridY = (int)(worldPosition.getY() / gridSize);
 		
+		// 同一格子只能有一个炸弹
+		if (gameMap != null && gameMap.hasBombAt(gridX, gridY)) return false;
+		
 		// 计算格子中心的世界坐标
 		double alignedWorldX = gridX * gridSize + gridSize / 2.0;
 		double alignedWorldY = gridY * gridSize + gridSize / 2.0;
 		
 		Bomb bomb = new Bomb(gridX, gridY, alignedWorldX, alignedWorldY, ownerId);
 		bomb.setExplosionRadius(bombPower);
+		if (fuseSeconds != bomb.getTotalFuseTime()) {
+			bomb.setTotalFuseTime(fuseSeconds);
+		}
 		bomb.startTicking();
 		activeBombs.add(bomb);
-		System.out.println("放置炸弹: " + ownerId + " 网格位置: (" + gridX + ", " + gridY + ") 世界坐标: (" + alignedWorldX + ", " + alignedWorldY + ") 状态: " + bomb.getState());
+		lastTickMs = nowMs;
+		if (timerWheel == null) {
+			timerWheel = new TimerWheel(nowMs);
+			ownsWheel = true;
+		}
+		BombTimer timer = new BombTimer(bomb);
+		bombTimers.add(timer);
+		scheduleFuse(timer, nowMs);
+		if (gameMap != null) {
+			gameMap.getBombIndex().insert(bomb, gameMap.getBombIndex().cellOf(gridX, gridY));
+		}
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("放置炸弹: {} 网格位置: ({}, {}) 状态: {}", ownerId, gridX, gridY, bomb.getState());
+		}
 		return true;
 	}
 
 	/**
-	 * 更新所有炸弹状态
+	 * 取出上次调用之后开始爆炸的炸弹（由时间轮触发；连锁引爆的炸弹由爆炸结算直接处理，不在这里上报）
+	 * 使用组件自己的时间轮时先推进到 nowMs
 	 */
 	public List<Bomb> tick(long nowMs) {
-		List<Bomb> exploded = new ArrayList<>();
-		Iterator<Bomb> it = activeBombs.iterator();
-		
-		// 调试信息：显示活跃炸弹数量和调用栈
-		if (!activeBombs.isEmpty()) {
-			System.out.println("BombComponent.tick() 被调用 - 拥有者: " + ownerId + " 活跃炸弹列表大小: " + activeBombs.size());
-			// 打印调用栈的前几层
-			StackTraceElement[] stack = Thread.currentThread().getStackTrace();
-			for (int i = 1; i < Math.min(4, stack.length); i++) {
-				System.out.println("  调用栈 " + i + ": " + stack[i].getClassName() + "." + stack[i].getMethodName() + ":" + stack[i].getLineNumber());
-			}
+		lastTickMs = nowMs;
+		if (ownsWheel) {
+			timerWheel.advance(nowMs);
 		}
-		
-		while (it.hasNext()) {
-			Bomb bomb = it.next();
-			System.out.println("处理炸弹: " + bomb.getOwnerId() + " 状态: " + bomb.getState() + " 引信时间: " + bomb.getFuseTime());
-			System.out.println("炸弹状态检查: " + bomb.getState() + " == " + Bomb.BombState.EXPLODING + " ? " + (bomb.getState() == Bomb.BombState.EXPLODING));
-			
-			// 更新倒计时
-			if (bomb.getState() == Bomb.BombState.TICKING) {
-				double deltaTime = 0.016; // 固定步长，后续可由调用方传入
-				double newFuseTime = bomb.getFuseTime() - deltaTime;
-				bomb.setFuseTime(newFuseTime);
-				
-				if (newFuseTime <= 0) {
-					System.out.println("炸弹即将爆炸: " + bomb.getOwnerId() + " 位置: (" + bomb.getX() + ", " + bomb.getY() + ")");
-					bomb.explode();
-					// 炸弹开始爆炸，但不要立即移除，等爆炸动画完成
-				}
-			}
-			
-			// 检查爆炸状态
-			if (bomb.getState() == Bomb.BombState.EXPLODING) {
-				long currentTime = System.currentTimeMillis();
-				
-				// 如果炸弹刚开始爆炸且还没有被添加到爆炸列表，添加到爆炸列表
-				boolean timeCheck = currentTime - bomb.getExplosionStartTime() < 100;
-				boolean notAdded = !bomb.hasBeenAddedToExplodedList();
-				System.out.println("炸弹 " + bomb.getOwnerId() + " 检查: 时间检查=" + timeCheck + " 未添加=" + notAdded + " 爆炸时间差=" + (currentTime - bomb.getExplosionStartTime()));
-				
-				if (notAdded && timeCheck) {
-					System.out.println("炸弹开始爆炸，添加到爆炸列表: " + bomb.getOwnerId());
-					exploded.add(bomb);
-					explodedBombs.add(bomb); // 同时添加到explodedBombs列表
-					bomb.setHasBeenAddedToExplodedList(true); // 标记为已添加，防止重复
-					System.out.println("炸弹 " + bomb.getOwnerId() + " 已标记为已添加");
-				} else if (!notAdded) {
-					System.out.println("炸弹 " + bomb.getOwnerId() + " 已经被添加到爆炸列表，跳过");
-				} else if (!timeCheck) {
-					System.out.println("炸弹 " + bomb.getOwnerId() + " 爆炸时间已超过100ms，跳过");
-				}
-				
-				// 检查爆炸动画是否结束
-				if (currentTime - bomb.getExplosionStartTime() >= bomb.getExplosionDuration() * 1000) {
-					bomb.setState(Bomb.BombState.EXPLODED);
-					bomb.setHasExploded(true);
-					it.remove();
-				}
-			}
+		if (pendingExploded.isEmpty()) {
+			return Collections.emptyList(); // 没有炸弹爆炸时不分配对象
 		}
-		
+		List<Bomb> exploded = new ArrayList<>(pendingExploded);
+		pendingExploded.clear();
 		return exploded;
 	}
 
 	/**
-	 * 获取爆炸影响范围（十字形，以炸弹所在格子为中心，固定5个格子）
+	 * 获取爆炸影响范围（十字形射线，长度为炸弹威力，由ExplosionEngine按当前地图计算）
+	 * 返回各格子左上角的世界坐标
 	 */
 	public List<Point2D> getExplosionRange(Bomb bomb) {
-		List<Point2D> affectedPositions = new ArrayList<>();
-		
-		// 将炸弹坐标对齐到格子中心
-		int col = (int)(bomb.getWorldX() / gridSize);
-		int row = (int)(bomb.getWorldY() / gridSize);
-		
-		// 直接使用格子坐标计算左上角位置
-		double centerX = col * gridSize;
-		double centerY = row * gridSize;
-
-		// 中心点（炸弹所在格子）
-		affectedPositions.add(new Point2D(centerX, centerY));
-
-		// 上下左右各1格（固定十字形，总共5个格子），但需要检查边界
-		// 上
-		if (row > 0) {
-			affectedPositions.add(new Point2D(centerX, centerY - gridSize));
+		int[] cells = new int[ExplosionEngine.maxBlastCells(bomb) * 2];
+		int count = ExplosionEngine.computeBlast(gameMap, bomb, cells);
+		List<Point2D> affectedPositions = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			affectedPositions.add(new Point2D(cells[i * 2] * gridSize, cells[i * 2 + 1] * gridSize));
 		}
-		// 下
-		if (gameMap != null && row < gameMap.getHeight() - 1) {
-			affectedPositions.add(new Point2D(centerX, centerY + gridSize));
-		}
-		// 左
-		if (col > 0) {
-			affectedPositions.add(new Point2D(centerX - gridSize, centerY));
-		}
-		// 右
-		if (gameMap != null && col < gameMap.getWidth() - 1) {
-			affectedPositions.add(new Point2D(centerX + gridSize, centerY));
-		}
-
 		return affectedPositions;
 	}
 
 	/**
-	 * 检查位置是否在爆炸范围内（固定十字形，5个格子）
+	 * 检查位置是否在爆炸范围内（与ExplosionEngine的射线规则一致）
 	 */
 	public boolean isInExplosionRange(Point2D targetPosition, Bomb bomb) {
 		// 将目标位置转换为网格坐标
 		int targetGridX = (int)(targetPosition.getX() / gridSize);
 		int targetGridY = (int)(targetPosition.getY() / gridSize);
-		
-		// 将炸弹位置转换为网格坐标
-		int bombGridX = (int)(bomb.getWorldX() / gridSize);
-		int bombGridY = (int)(bomb.getWorldY() / gridSize);
-		
-		// 检查是否在固定十字形爆炸范围内（中心+上下左右各1格）
-		boolean inHorizontalRange = (targetGridX == bombGridX) && 
-			Math.abs(targetGridY - bombGridY) <= 1;
-		boolean inVerticalRange = (targetGridY == bombGridY) && 
-			Math.abs(targetGridX - bombGridX) <= 1;
-		
-		return inHorizontalRange || inVerticalRange;
+		return ExplosionEngine.isInBlast(gameMap, bomb, targetGridX, targetGridY);
+	}
+
+	/**
+	 * 被其他爆炸波及时立即引爆（连锁爆炸）
+	 * 标记为已加入爆炸列表，避免下一次tick重复上报
+	 */
+	public void detonate(Bomb bomb, long nowMs) {
+		if (bomb.getState() != Bomb.BombState.TICKING) {
+			return;
+		}
+		bomb.setFuseTime(0);
+		bomb.explode(nowMs);
+		bomb.setHasBeenAddedToExplodedList(true);
+		explodedBombs.add(bomb);
+		scheduleExplosionEnd(findTimer(bomb)); // 同时取消原来的引信定时器
 	}
 
 	/**
-	 * 强制爆炸所有炸弹
+	 * 强制爆炸所有炸弹（按上一次tick的模拟时间，下一次tick上报）
 	 */
 	public void forceExplodeAll() {
 		for (Bomb bomb : activeBombs) {
 			if (bomb.getState() == Bomb.BombState.TICKING) {
-				bomb.explode();
+				onFuseExpired(findTimer(bomb), lastTickMs);
 			}
 		}
 	}
@@ -204,6 +219,18 @@ public class BombComponent {
 	 * 清除所有炸弹
 	 */
 	public void clearAllBombs() {
+		if (timerWheel != null) {
+			for (BombTimer timer : bombTimers) {
+				timerWheel.cancel(timer);
+			}
+		}
+		bombTimers.clear();
+		pendingExploded.clear();
+		if (gameMap != null) {
+			for (Bomb bomb : activeBombs) {
+				gameMap.getBombIndex().remove(bomb);
+			}
+		}
 		activeBombs.clear();
 		explodedBombs.clear();
 	}
@@ -221,5 +248,74 @@ public class BombComponent {
 	public void clearExplodedBombs() {
 		explodedBombs.clear();
 	}
-}
 
+	private void scheduleFuse(BombTimer timer, long nowMs) {
+		long fuseEndMs = nowMs + Math.round(timer.bomb.getFuseTime() * 1000);
+		timer.bomb.setFuseEndMs(fuseEndMs);
+		timerWheel.schedule(timer, fuseEndMs);
+	}
+
+	private void scheduleExplosionEnd(BombTimer timer) {
+		Bomb bomb = timer.bomb;
+		timerWheel.schedule(timer, bomb.getExplosionStartTime() + Math.round(bomb.getExplosionDuration() * 1000));
+	}
+
+	/**
+	 * 引信到时：开始爆炸，等待下一次tick上报，并登记爆炸结束时间
+	 */
+	private void onFuseExpired(BombTimer timer, long nowMs) {
+		Bomb bomb = timer.bomb;
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("炸弹即将爆炸: {} 位置: ({}, {})", bomb.getOwnerId(), bomb.getX(), bomb.getY());
+		}
+		bomb.setFuseTime(0);
+		bomb.explode(nowMs);
+		bomb.setHasBeenAddedToExplodedList(true);
+		pendingExploded.add(bomb);
+		explodedBombs.add(bomb);
+		scheduleExplosionEnd(timer);
+	}
+
+	/**
+	 * 爆炸动画结束：移除炸弹
+	 */
+	private void onExplosionEnd(BombTimer timer) {
+		Bomb bomb = timer.bomb;
+		bomb.setState(Bomb.BombState.EXPLODED);
+		bomb.setHasExploded(true);
+		activeBombs.remove(bomb);
+		bombTimers.remove(timer);
+		if (gameMap != null) {
+			gameMap.getBombIndex().remove(bomb);
+		}
+	}
+
+	private BombTimer findTimer(Bomb bomb) {
+		for (int i = 0; i < bombTimers.size(); i++) {
+			if (bombTimers.get(i).bomb == bomb) {
+				return bombTimers.get(i);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * 单个炸弹的定时器，先用于引信结束，再用于爆炸结束
+	 */
+	private final class BombTimer extends TimerWheel.Timer {
+		private final Bomb bomb;
+
+		BombTimer(Bomb bomb) {
+			this.bomb = bomb;
+		}
+
+		@Override
+		protected void onTimer(long nowMs) {
+			if (bomb.getState() == Bomb.BombState.TICKING) {
+				onFuseExpired(this, nowMs);
+			} else {
+				onExplosionEnd(this);
+			}
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package com.stardewbombers.component;
+
+import com.stardewbombers.shared.entity.GameMap;
+import com.stardewbombers.shared.entity.Player;
+import com.stardewbombers.shared.game.GameManager;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import javafx.geometry.Point2D;
+
+/**
+ * 移动更新的分配基准测试
+ * 4个玩家在空地图上来回走动，测量稳定状态下每个 GameManager.update 分配的字节数（期望为 0 B/op）
+ *
+ * 运行：java -cp target/classes com.stardewbombers.component.MovementAllocationBenchmark [次数]
+ */
+public class MovementAllocationBenchmark {
+	private static final int TILE_SIZE = 40;
+	private static final int WARMUP_TICKS = 200_000;
+
+	public static void main(String[] args) {
+		int ticks = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+		ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+			System.out.println("当前JVM不支持线程分配统计，无法运行基准测试");
+			return;
+		}
+		com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+		allocationBean.setThreadAllocatedMemoryEnabled(true);
+
+		GameMap map = new GameMap(15, 13, TILE_SIZE, TILE_SIZE);
+		GameManager gameManager = new GameManager(0L);
+		gameManager.setGameMap(map);
+		PlayerComponent[] players = new PlayerComponent[4];
+		for (int i = 0; i < players.length; i++) {
+			Point2D spawn = new Point2D(2 * TILE_SIZE + TILE_SIZE / 2.0, (2 + 2 * i) * TILE_SIZE + TILE_SIZE / 2.0);
+			PlayerComponent playerComponent = new PlayerComponent(new Player("bench" + i, spawn),
+				new MovementComponent(spawn, TILE_SIZE), new BombComponent("bench" + i, 1, 1));
+			playerComponent.getMovement().setItemManager(map.getItemManager());
+			gameManager.addPlayer(playerComponent);
+			players[i] = playerComponent;
+		}
+
+		long now = 0L;
+		for (int i = 0; i < WARMUP_TICKS; i++) {
+			now = step(gameManager, players, i, now);
+		}
+
+		long threadId = Thread.currentThread().threadId();
+		long before = allocationBean.getThreadAllocatedBytes(threadId);
+		long startNanos = System.nanoTime();
+		for (int i = 0; i < ticks; i++) {
+			now = step(gameManager, players, i, now);
+		}
+		long elapsedNanos = System.nanoTime() - startNanos;
+		long allocated = allocationBean.getThreadAllocatedBytes(threadId) - before;
+
+		System.out.printf("ticks=%d  %.1f ns/op  %.3f B/op (总计 %d B)%n",
+			ticks, (double) elapsedNanos / ticks, (double) allocated / ticks, allocated);
+	}
+
+	/**
+	 * 一个模拟步：空闲的玩家按步数奇偶左右来回移动
+	 */
+	private static long step(GameManager gameManager, PlayerComponent[] players, int tick, long now) {
+		for (int p = 0; p < players.length; p++) {
+			PlayerComponent playerComponent = players[p];
+			if (!playerComponent.getMovement().isMoving()) {
+				if (((tick / 10) & 1) == 0) {
+					playerComponent.moveRight();
+				} else {
+					playerComponent.moveLeft();
+				}
+			}
+		}
+		now += 16;
+		gameManager.update(now);
+		return now;
+	}
+}
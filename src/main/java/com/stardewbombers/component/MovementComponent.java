@@ -1,14 +1,27 @@
 package com.stardewbombers.component;
 
 import javafx.geometry.Point2D;
-import com.stardewbombers.server.game.CollisionDetector;
+import com.stardewbombers.shared.game.CollisionDetector;
 import com.stardewbombers.shared.entity.Item;
 import com.stardewbombers.shared.entity.ItemManager;
+import com.stardewbombers.shared.log.GameLog;
+import com.stardewbombers.shared.log.GameLogger;
+import com.stardewbombers.shared.log.LogCategory;
+import java.util.Collections;
 import java.util.List;
 
+/**
+ * 移动组件
+ * 位置使用基本类型字段保存，每帧更新不分配对象；Point2D 只在 getPosition 等对外接口处按需生成
+ */
 public class MovementComponent {
-	private Point2D position;
-	private Point2D targetPosition;
+	private static final GameLogger LOG = GameLog.logger(LogCategory.ITEM);
+
+	private double x;
+	private double y;
+	private double targetX;
+	private double targetY;
+	private Point2D positionView; // getPosition 的缓存，位置变化后失效
 	private double moveSpeed; // 移动速度（像素/帧）
 	private boolean isMoving;
 	private double tileSize;
@@ -17,8 +30,11 @@ public class MovementComponent {
 	private List<Item> pickedUpItems; // 存储拾取的道具
 
 	public MovementComponent(Point2D startPosition, double tileSize) {
-		this.position = startPosition;
-		this.targetPosition = startPosition;
+		this.x = startPosition.getX();
+		this.y = startPosition.getY();
+		this.targetX = x;
+		this.targetY = y;
+		this.positionView = startPosition;
 		this.tileSize = tileSize;
 		this.moveSpeed = tileSize * 0.2; // 每帧移动20%的格子距离，实现平滑移动
 		this.isMoving = false;
@@ -26,7 +42,7 @@ public class MovementComponent {
 		this.itemManager = null;
 		this.pickedUpItems = new java.util.ArrayList<>();
 	}
-	
+
 	/**
 	 * 设置碰撞检测器
 	 * @param collisionDetector 碰撞检测器
@@ -34,7 +50,7 @@ public class MovementComponent {
 	public void setCollisionDetector(CollisionDetector collisionDetector) {
 		this.collisionDetector = collisionDetector;
 	}
-	
+
 	/**
 	 * 设置道具管理器
 	 * @param itemManager 道具管理器
@@ -43,115 +59,144 @@ public class MovementComponent {
 		this.itemManager = itemManager;
 	}
 
-	public Point2D getPosition() { return position; }
-	public Point2D getTargetPosition() { return targetPosition; }
+	public Point2D getPosition() {
+		Point2D view = positionView;
+		if (view == null || view.getX() != x || view.getY() != y) {
+			view = new Point2D(x, y);
+			positionView = view;
+		}
+		return view;
+	}
+	public Point2D getTargetPosition() { return new Point2D(targetX, targetY); }
+	public double getX() { return x; }
+	public double getY() { return y; }
+	public double getTargetX() { return targetX; }
+	public double getTargetY() { return targetY; }
 	public boolean isMoving() { return isMoving; }
 	public double getMoveSpeed() { return moveSpeed; }
 	public void setMoveSpeed(double speed) { this.moveSpeed = speed; }
 
-	// 设置目标位置（一个格子的距离）
-	public void moveUp() { 
-		if (!isMoving) {
-			Point2D newTarget = position.add(0, -tileSize);
-			if (canMoveTo(newTarget)) {
-				targetPosition = newTarget;
-				isMoving = true;
-			}
-		}
-	}
-	
-	public void moveDown() { 
-		if (!isMoving) {
-			Point2D newTarget = position.add(0, tileSize);
-			if (canMoveTo(newTarget)) {
-				targetPosition = newTarget;
-				isMoving = true;
-			}
-		}
+	/**
+	 * 直接设置位置（停止当前移动）
+	 */
+	public void setPosition(double x, double y) {
+		this.x = x;
+		this.y = y;
+		this.targetX = x;
+		this.targetY = y;
+		this.isMoving = false;
 	}
-	
-	public void moveLeft() { 
-		if (!isMoving) {
-			Point2D newTarget = position.add(-tileSize, 0);
-			if (canMoveTo(newTarget)) {
-				targetPosition = newTarget;
-				isMoving = true;
-			}
-		}
+
+	/**
+	 * 直接设置移动目标（不检查碰撞），客户端预测校正时用来继续服务器上正在进行的移动
+	 */
+	public void setTarget(double targetX, double targetY) {
+		this.targetX = targetX;
+		this.targetY = targetY;
+		this.isMoving = targetX != x || targetY != y;
 	}
-	
-	public void moveRight() { 
+
+	// 设置目标位置（一个格子的距离）
+	public void moveUp() { moveBy(0, -tileSize); }
+
+	public void moveDown() { moveBy(0, tileSize); }
+
+	public void moveLeft() { moveBy(-tileSize, 0); }
+
+	public void moveRight() { moveBy(tileSize, 0); }
+
+	private void moveBy(double dx, double dy) {
 		if (!isMoving) {
-			Point2D newTarget = position.add(tileSize, 0);
-			if (canMoveTo(newTarget)) {
-				targetPosition = newTarget;
+			double newTargetX = x + dx;
+			double newTargetY = y + dy;
+			if (canMoveTo(newTargetX, newTargetY)) {
+				targetX = newTargetX;
+				targetY = newTargetY;
 				isMoving = true;
 			}
 		}
 	}
-	
+
 	/**
 	 * 检查是否可以移动到目标位置
-	 * @param targetPos 目标位置
+	 * @param targetPosX 目标位置X
+	 * @param targetPosY 目标位置Y
 	 * @return 是否可以移动
 	 */
-	private boolean canMoveTo(Point2D targetPos) {
+	private boolean canMoveTo(double targetPosX, double targetPosY) {
 		// 如果没有碰撞检测器，允许移动（向后兼容）
 		if (collisionDetector == null) {
 			return true;
 		}
-		
+
 		// 检查目标位置是否可通行
-		return collisionDetector.canMoveTo(position, targetPos);
+		return collisionDetector.isPositionWalkable(targetPosX, targetPosY);
 	}
 
 	// 更新移动状态（每帧调用）
 	public void update() {
 		if (isMoving) {
 			// 计算到目标位置的距离
-			double dx = targetPosition.getX() - position.getX();
-			double dy = targetPosition.getY() - position.getY();
-			double distance = Math.sqrt(dx * dx + dy * dy);
-			
-			if (distance <= moveSpeed) {
-				// 已经接近目标位置，直接设置到目标位置
-				position = targetPosition;
-				isMoving = false;
+			double dx = targetX - x;
+			double dy = targetY - y;
+
+			if (dx == 0 || dy == 0) {
+				// 网格移动总是沿坐标轴，距离就是绝对值之和，不需要开方
+				double distance = Math.abs(dx) + Math.abs(dy);
+				if (distance <= moveSpeed) {
+					x = targetX;
+					y = targetY;
+					isMoving = false;
+				} else {
+					x += Math.signum(dx) * moveSpeed;
+					y += Math.signum(dy) * moveSpeed;
+				}
 			} else {
-				// 向目标位置移动
-				double moveX = (dx / distance) * moveSpeed;
-				double moveY = (dy / distance) * moveSpeed;
-				position = position.add(moveX, moveY);
+				double distance = Math.sqrt(dx * dx + dy * dy);
+				if (distance <= moveSpeed) {
+					// 已经接近目标位置，直接设置到目标位置
+					x = targetX;
+					y = targetY;
+					isMoving = false;
+				} else {
+					// 向目标位置移动
+					x += (dx / distance) * moveSpeed;
+					y += (dy / distance) * moveSpeed;
+				}
 			}
 		}
-		
+
 		// 检查道具拾取
 		checkItemPickup();
 	}
-	
+
 	/**
 	 * 检查道具拾取
 	 */
 	private void checkItemPickup() {
 		if (itemManager != null) {
 			double pickupRadius = tileSize * 0.6; // 拾取半径为格子大小的60%
-			List<Item> newPickedUpItems = itemManager.checkItemPickup(position, pickupRadius);
-			
+			List<Item> newPickedUpItems = itemManager.checkItemPickup(x, y, pickupRadius);
+
 			// 将新拾取的道具添加到列表中
-			this.pickedUpItems.addAll(newPickedUpItems);
-			
 			// 这里可以添加拾取道具后的处理逻辑
 			// 比如播放音效、显示提示等
 			if (!newPickedUpItems.isEmpty()) {
-				System.out.println("玩家拾取了 " + newPickedUpItems.size() + " 个道具");
+				this.pickedUpItems.addAll(newPickedUpItems);
+				if (LOG.isDebugEnabled()) {
+					LOG.debug("玩家拾取了 {} 个道具", newPickedUpItems.size());
+				}
 			}
 		}
 	}
-	
+
 	/**
 	 * 获取拾取的道具列表（供外部调用）
 	 */
 	public List<Item> getPickedUpItems() {
+		if (pickedUpItems.isEmpty()) {
+			return Collections.emptyList();
+		}
 		List<Item> result = new java.util.ArrayList<>(pickedUpItems);
 		pickedUpItems.clear(); // 清空列表，避免重复处理
 		return result;
@@ -6,9 +6,16 @@ import com.stardewbombers.shared.entity.Bomb;
 import com.stardewbombers.shared.entity.ExplosionEvent;
 import com.stardewbombers.shared.entity.Item;
 import com.stardewbombers.shared.enums.PowerUpType;
+import com.stardewbombers.shared.game.MatchEventBus;
+import com.stardewbombers.shared.game.TimerWheel;
+import com.stardewbombers.shared.log.GameLog;
+import com.stardewbombers.shared.log.GameLogger;
+import com.stardewbombers.shared.log.LogCategory;
 import java.util.List;
 
 public class PlayerComponent {
+	private static final GameLogger LOG = GameLog.logger(LogCategory.PLAYER);
+
 	private final Player player;
 	private final MovementComponent movement;
 	private final BombComponent bombs;
@@ -29,15 +36,15 @@ public class PlayerComponent {
 	public void moveRight() { if (player.isAlive()) movement.moveRight(); }
 
 	public boolean placeBomb(long nowMs) {
-		System.out.println("PlayerComponent.placeBomb() 调用 - 玩家存活状态: " + player.isAlive());
 		if (!player.isAlive()) {
-			System.out.println("玩家已死亡，无法放置炸弹");
+			LOG.debug("玩家 {} 已死亡，无法放置炸弹", player.getId());
 			return false;
 		}
 		Point2D pos = player.getPosition();
-		System.out.println("玩家位置: (" + pos.getX() + ", " + pos.getY() + ")");
 		boolean result = bombs.placeBomb(pos, nowMs);
-		System.out.println("BombComponent.placeBomb() 返回结果: " + result);
+		if (LOG.isDebugEnabled()) {
+			LOG.debug("玩家 {} 在 ({}, {}) 放置炸弹: {}", player.getId(), pos.getX(), pos.getY(), result);
+		}
 		return result;
 	}
 
@@ -45,10 +52,7 @@ public class PlayerComponent {
 	 * 处理爆炸伤害
 	 */
 	public boolean handleExplosionDamage(ExplosionEvent explosionEvent) {
-		System.out.println("处理爆炸伤害 - 玩家: " + player.getId() + " 炸弹: " + explosionEvent.getBomb().getOwnerId() + " 时间: " + explosionEvent.getExplosionTime());
-		
 		if (!player.isAlive()) {
-			System.out.println("玩家 " + player.getId() + " 已死亡，跳过伤害处理");
 			return false;
 		}
 		
@@ -57,11 +61,9 @@ public class PlayerComponent {
 		boolean inRange = bombs.isInExplosionRange(playerPos, explosionEvent.getBomb());
 		
 		if (inRange) {
-			System.out.println("玩家 " + player.getId() + " 在爆炸范围内，造成伤害");
+			LOG.debug("玩家 {} 在炸弹 {} 的爆炸范围内，造成伤害", player.getId(), explosionEvent.getOwnerId());
 			// 炸弹可以炸到包括自己在内的所有玩家
 			return player.takeDamage(1, explosionEvent.getExplosionTime());
-		} else {
-			System.out.println("玩家 " + player.getId() + " 不在爆炸范围内");
 		}
 		return false;
 	}
@@ -74,29 +76,43 @@ public class PlayerComponent {
 		return bombs.isInExplosionRange(playerPos, explosionEvent.getBomb());
 	}
 
+	/**
+	 * 设置时间轮，炸弹引信和玩家效果到期都登记到同一个时间轮
+	 */
+	public void setTimerWheel(TimerWheel timerWheel) {
+		player.setTimerWheel(timerWheel);
+		bombs.setTimerWheel(timerWheel);
+	}
+
+	/**
+	 * 设置对局事件总线，玩家的受伤和死亡事件会推送到这里
+	 */
+	public void setEventBus(MatchEventBus eventBus) {
+		player.setEventBus(eventBus);
+	}
+
 	public void tick(long nowMs) {
 		player.tick(nowMs);
 		bombs.tick(nowMs);
 		syncPosition(); // 每帧同步移动组件的位置到玩家实体
 		
 		// 处理道具拾取
-		handleItemPickup();
+		handleItemPickup(nowMs);
 	}
 
 	private void syncPosition() {
-		Point2D p = movement.getPosition();
-		player.setPosition(p);
+		player.setPosition(movement.getX(), movement.getY());
 	}
 	
 	/**
 	 * 处理道具拾取
 	 */
-	private void handleItemPickup() {
+	private void handleItemPickup(long nowMs) {
 		List<Item> pickedUpItems = movement.getPickedUpItems();
 		for (Item item : pickedUpItems) {
 			// 将道具类型转换为PowerUpType并应用效果
 			PowerUpType powerUpType = convertItemToPowerUpType(item.getType());
-			player.addPowerUp(powerUpType);
+			player.addPowerUp(powerUpType, nowMs);
 		}
 	}
 	
@@ -0,0 +1,341 @@
+package com.stardewbombers.loadtest;
+
+import com.stardewbombers.client.MusicManager;
+import com.stardewbombers.server.game.RoomManager;
+import com.stardewbombers.server.game.RoomScheduler;
+import com.stardewbombers.server.network.NetworkServer;
+import com.stardewbombers.shared.log.GameLog;
+import com.stardewbombers.shared.log.LogLevel;
+import com.stardewbombers.shared.util.LogHistogram;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 无界面的机器人压力测试
+ * 用与 NetworkClient 相同的协议建立大量模拟玩家（SwarmBot）：按 ramp 速率依次连接并加入房间，
+ * 之后按设定频率随机移动、放炸弹、发心跳，并应用和确认服务器快照。几个 I/O 线程各用一个 Selector
+ * 驱动一部分连接，几千个连接不需要几千个线程。
+ *
+ * 全部连接建立后进入测量阶段，结束时报告：
+ * 吞吐量（消息数/字节数每秒）、端到端延迟（其他玩家的移动从发出到收到）和心跳往返时间的分位数、
+ * 连接失败和断开数；内置服务器时还报告服务器 CPU（进程 CPU 减去压测线程的 CPU），折算到每个玩家。
+ *
+ * 运行：java -cp target/classes:依赖 com.stardewbombers.loadtest.BotSwarm bots=5000 ramp=1000 duration=120
+ * 参数见 LoadTestConfig。在本机压测时压测线程和服务器争用 CPU，容量规划应在另一台机器上运行压测。
+ */
+public class BotSwarm {
+    private static final long SELECT_TIMEOUT_MS = 2;        // I/O 线程检查定时动作的间隔
+    private static final long RAMP_TIMEOUT_MS = 60_000;     // 连接全部发出后等待加入完成的最长时间
+    private static final long SHUTDOWN_WAIT_MS = 5_000;
+    private static final long SNAPSHOT_POLL_MS = 50;
+    private static final long CAPTURE_LIMIT_BYTES = 16L * 1024 * 1024;
+
+    public static void main(String[] args) throws Exception {
+        LoadTestConfig config = LoadTestConfig.parse(args);
+        GameLog.setAllLevels(LogLevel.WARN);
+        MusicManager.setSoundEnabled(false);
+        new BotSwarm(config).run();
+    }
+
+    private final LoadTestConfig config;
+    private final SwarmStats stats = new SwarmStats();
+    private final List<Worker> workers = new ArrayList<>();
+    private FrameCapture capture;
+
+    public BotSwarm(LoadTestConfig config) {
+        this.config = config;
+    }
+
+    public void run() throws Exception {
+        System.out.println("机器人压力测试: " + config.describe());
+        NetworkServer server = null;
+        RoomScheduler scheduler = null;
+        InetSocketAddress address;
+        if (config.isEmbedded()) {
+            scheduler = new RoomScheduler();
+            RoomManager roomManager = new RoomManager(scheduler);
+            scheduler.start();
+            server = new NetworkServer();
+            server.setRoomManager(roomManager);
+            server.setIoMode(config.getIoMode());
+            server.start(0);
+            address = new InetSocketAddress("127.0.0.1", server.getLocalPort());
+        } else {
+            address = new InetSocketAddress(config.getHost(), config.getPort());
+        }
+
+        if (config.getCapture() != null) {
+            capture = new FrameCapture(config.getCapture(), CAPTURE_LIMIT_BYTES);
+        }
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < config.getThreads(); i++) {
+                Worker worker = new Worker(i, address, start);
+                workers.add(worker);
+            }
+            for (int i = 0; i < config.getBots(); i++) {
+                Worker worker = workers.get(i % workers.size());
+                worker.bots.add(new SwarmBot(i, config, stats, worker.latencies, capture));
+            }
+            for (Worker worker : workers) {
+                worker.thread.start();
+            }
+
+            awaitRamp(start);
+            runMeasurement(start, server);
+        } finally {
+            for (Worker worker : workers) {
+                worker.running = false;
+            }
+            for (Worker worker : workers) {
+                worker.thread.join(5_000);
+            }
+            if (server != null) {
+                // 等服务器处理完断开再停止
+                long deadline = System.currentTimeMillis() + SHUTDOWN_WAIT_MS;
+                while (server.getClientCount() > 0 && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(20);
+                }
+                server.stop();
+                scheduler.stop();
+            }
+            if (capture != null) {
+                capture.close();
+                System.out.println("录制: " + capture.describe() + " -> " + config.getCapture());
+            }
+        }
+    }
+
+    /**
+     * 等待所有机器人连接并加入（或失败），期间按报告间隔输出进度
+     */
+    private void awaitRamp(long start) throws InterruptedException {
+        long rampNanos = (long) config.getBots() * 1_000_000_000L / config.getRampPerSecond();
+        long deadline = start + rampNanos + RAMP_TIMEOUT_MS * 1_000_000L;
+        long nextReport = System.nanoTime() + config.getReportSeconds() * 1_000_000_000L;
+        while (settled() < config.getBots() && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+            if (System.nanoTime() >= nextReport) {
+                nextReport += config.getReportSeconds() * 1_000_000_000L;
+                System.out.printf("[%5.1fs] 建立连接 %d/%d，已加入 %d，失败 %d%n", (System.nanoTime() - start) / 1e9,
+                    stats.connected.sum(), config.getBots(), stats.joined.sum(),
+                    stats.connectFailures.sum() + stats.joinFailures.sum());
+            }
+        }
+        System.out.printf("建立连接阶段用时 %.1f 秒：加入 %d，连接失败 %d，加入失败 %d，加入耗时(ms) %s%n",
+            (System.nanoTime() - start) / 1e9, stats.joined.sum(), stats.connectFailures.sum(),
+            stats.joinFailures.sum(), describe(mergeLatencies().joinMs, 1));
+    }
+
+    private long settled() {
+        return stats.joined.sum() + stats.connectFailures.sum() + stats.joinFailures.sum();
+    }
+
+    /**
+     * 测量阶段：按报告间隔输出吞吐量，结束时输出汇总
+     */
+    private void runMeasurement(long start, NetworkServer server) throws InterruptedException {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        com.sun.management.OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean()
+            instanceof com.sun.management.OperatingSystemMXBean
+            ? (com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean() : null;
+        boolean cpuAvailable = server != null && os != null && threads.isThreadCpuTimeSupported();
+
+        long measureStart = System.nanoTime();
+        long processCpuStart = cpuAvailable ? os.getProcessCpuTime() : 0;
+        long swarmCpuStart = cpuAvailable ? swarmCpuNanos(threads) : 0;
+        long[] totalsStart = totals();
+        stats.setMeasuring(true);
+
+        long end = measureStart + config.getDurationSeconds() * 1_000_000_000L;
+        long[] previous = totalsStart;
+        long previousNanos = measureStart;
+        while (System.nanoTime() < end) {
+            Thread.sleep(Math.min(config.getReportSeconds() * 1000L,
+                Math.max(1, (end - System.nanoTime()) / 1_000_000L)));
+            long now = System.nanoTime();
+            long[] current = totals();
+            double seconds = (now - previousNanos) / 1e9;
+            System.out.printf("[%5.1fs] 在线 %d，发送 %.0f 条/秒，接收 %.0f 条/秒（%.1f MB/秒），断开 %d%n",
+                (now - start) / 1e9, stats.online(), (current[0] - previous[0]) / seconds,
+                (current[1] - previous[1]) / seconds, (current[3] - previous[3]) / seconds / (1024 * 1024),
+                stats.disconnects.sum());
+            previous = current;
+            previousNanos = now;
+        }
+        stats.setMeasuring(false);
+
+        long elapsed = System.nanoTime() - measureStart;
+        double seconds = elapsed / 1e9;
+        long[] totalsEnd = totals();
+        SwarmStats.Latencies latencies = mergeLatencies();
+        int players = Math.max(1, stats.online());
+        System.out.println("==== 汇总（测量 " + config.getDurationSeconds() + " 秒，在线 " + stats.online() + " 个机器人）====");
+        System.out.printf("发送: %.0f 条/秒，%.2f MB/秒；接收: %.0f 条/秒，%.2f MB/秒；快照 %.0f 个/秒%n",
+            (totalsEnd[0] - totalsStart[0]) / seconds, (totalsEnd[2] - totalsStart[2]) / seconds / (1024 * 1024),
+            (totalsEnd[1] - totalsStart[1]) / seconds, (totalsEnd[3] - totalsStart[3]) / seconds / (1024 * 1024),
+            (totalsEnd[4] - totalsStart[4]) / seconds);
+        System.out.println("端到端延迟(ms): " + describe(latencies.relayMs, 1));
+        System.out.println("心跳往返(ms):   " + describe(latencies.rttMicros, 1000));
+        System.out.printf("连接失败 %d，加入失败 %d，断开 %d，积压跳过的输入 %d%n", stats.connectFailures.sum(),
+            stats.joinFailures.sum(), stats.disconnects.sum(), stats.skippedSends.sum());
+        if (config.isCompress()) {
+            System.out.println("压缩（机器人发出）: " + stats.compression);
+            if (server != null) {
+                System.out.println("压缩（服务器发出）: " + server.getCompressionStats());
+            }
+        }
+        if (cpuAvailable) {
+            long serverCpu = (os.getProcessCpuTime() - processCpuStart) - (swarmCpuNanos(threads) - swarmCpuStart);
+            double cores = serverCpu / (double) elapsed;
+            System.out.printf("服务器 CPU: %.2f 核，每个玩家 %.3f 毫秒/秒（%.0f 个玩家/核）%n",
+                cores, cores * 1000 / players, cores > 0 ? players / cores : 0);
+        } else if (server == null) {
+            System.out.println("服务器 CPU: 外部服务器，请在服务器一侧查看");
+        }
+    }
+
+    /**
+     * 发送消息数、接收消息数、发送字节、接收字节、快照数
+     */
+    private long[] totals() {
+        return new long[] {stats.sentMessages.sum(), stats.receivedMessages.sum(), stats.sentBytes.sum(),
+            stats.receivedBytes.sum(), stats.snapshots.sum()};
+    }
+
+    /**
+     * 压测自身（I/O 线程和主线程）的 CPU 时间
+     */
+    private long swarmCpuNanos(ThreadMXBean threads) {
+        long total = threads.getCurrentThreadCpuTime();
+        for (Worker worker : workers) {
+            long cpu = threads.getThreadCpuTime(worker.thread.threadId());
+            if (cpu > 0) {
+                total += cpu;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 合并各 I/O 线程的直方图：直方图不是线程安全的，由各自的 I/O 线程复制一份再合并
+     */
+    private SwarmStats.Latencies mergeLatencies() throws InterruptedException {
+        SwarmStats.Latencies merged = new SwarmStats.Latencies();
+        for (Worker worker : workers) {
+            merged.merge(worker.snapshotLatencies());
+        }
+        return merged;
+    }
+
+    private static String describe(LogHistogram histogram, double divisor) {
+        if (histogram.getCount() == 0) {
+            return "无数据";
+        }
+        return String.format("p50 %.1f  p90 %.1f  p99 %.1f  p99.9 %.1f  max %.1f（%d 个样本）",
+            histogram.getValueAtPercentile(50) / divisor, histogram.getValueAtPercentile(90) / divisor,
+            histogram.getValueAtPercentile(99) / divisor, histogram.getValueAtPercentile(99.9) / divisor,
+            histogram.getMax() / divisor, histogram.getCount());
+    }
+
+    /**
+     * 一个 I/O 线程：按 ramp 计划发起自己负责的连接，处理就绪事件，执行定时动作
+     */
+    private final class Worker implements Runnable {
+        final List<SwarmBot> bots = new ArrayList<>();
+        final SwarmStats.Latencies latencies = new SwarmStats.Latencies();
+        final Thread thread;
+        private final InetSocketAddress address;
+        private final long start;
+        volatile boolean running = true;
+        private volatile Selector selector;
+        private volatile CompletableFuture<SwarmStats.Latencies> snapshotRequest;
+
+        Worker(int index, InetSocketAddress address, long start) {
+            this.address = address;
+            this.start = start;
+            this.thread = new Thread(this, "swarm-io-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            try (Selector selector = Selector.open()) {
+                this.selector = selector;
+                long nanosPerConnect = 1_000_000_000L / config.getRampPerSecond();
+                int started = 0;
+                while (running) {
+                    // 机器人按全局序号均匀分到各线程，第 i 个机器人在 start + i / ramp 时连接
+                    long now = System.nanoTime();
+                    while (started < bots.size()
+                            && now - start >= (long) (started * workers.size() + 1) * nanosPerConnect) {
+                        bots.get(started++).connect(selector, address);
+                    }
+                    selector.select(SELECT_TIMEOUT_MS);
+                    Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey key = it.next();
+                        it.remove();
+                        ((SwarmBot) key.attachment()).onReady();
+                    }
+                    now = System.nanoTime();
+                    for (int i = 0; i < started; i++) {
+                        bots.get(i).tick(now);
+                    }
+                    CompletableFuture<SwarmStats.Latencies> request = snapshotRequest;
+                    if (request != null) {
+                        snapshotRequest = null;
+                        request.complete(copyLatencies());
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println(thread.getName() + " 出错: " + e.getMessage());
+            } finally {
+                for (SwarmBot bot : bots) {
+                    bot.close();
+                }
+            }
+        }
+
+        /**
+         * 请求 I/O 线程在下一轮循环中复制一份延迟直方图（其他线程调用）；线程已经结束时直接复制
+         */
+        SwarmStats.Latencies snapshotLatencies() throws InterruptedException {
+            CompletableFuture<SwarmStats.Latencies> request = new CompletableFuture<>();
+            snapshotRequest = request;
+            Selector current = selector;
+            if (current != null) {
+                current.wakeup();
+            }
+            while (true) {
+                if (!thread.isAlive()) {
+                    return copyLatencies(); // 检测到线程结束之后可以看到它的所有写入
+                }
+                try {
+                    return request.get(SNAPSHOT_POLL_MS, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    // 继续等待，或者发现线程已经结束
+                } catch (ExecutionException e) {
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        }
+
+        private SwarmStats.Latencies copyLatencies() {
+            SwarmStats.Latencies copy = new SwarmStats.Latencies();
+            copy.merge(latencies);
+            return copy;
+        }
+    }
+}
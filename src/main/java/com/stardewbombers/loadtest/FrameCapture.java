@@ -0,0 +1,51 @@
+package com.stardewbombers.loadtest;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * 录制机器人收到的帧内容（varint 长度 + 内容，与 TCP 流中的帧格式相同），用于训练压缩字典（DictionaryTrainer）
+ * 所有 I/O 线程共用，达到字节上限后不再记录。
+ */
+final class FrameCapture implements AutoCloseable {
+    private final DataOutputStream out;
+    private final long limitBytes;
+    private long writtenBytes;
+    private long frames;
+    private IOException failure;
+
+    FrameCapture(String path, long limitBytes) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)));
+        this.limitBytes = limitBytes;
+    }
+
+    synchronized void record(byte[] data, int offset, int length) {
+        if (failure != null || writtenBytes + length > limitBytes) {
+            return;
+        }
+        try {
+            int value = length;
+            while ((value & ~0x7F) != 0) {
+                out.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+            out.write(data, offset, length);
+            writtenBytes += length;
+            frames++;
+        } catch (IOException e) {
+            failure = e;
+        }
+    }
+
+    synchronized String describe() {
+        return frames + " 帧，" + writtenBytes + " 字节" + (failure != null ? "（写入出错: " + failure.getMessage() + "）" : "");
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
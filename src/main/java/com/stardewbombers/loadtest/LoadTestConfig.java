@@ -0,0 +1,127 @@
+package com.stardewbombers.loadtest;
+
+import com.stardewbombers.server.network.IoMode;
+import com.stardewbombers.shared.protocol.codec.WireFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 压力测试参数
+ * 命令行使用 key=value 形式，例如：bots=5000 ramp=1000 duration=120 server=10.0.0.5:8888
+ *
+ * server=embedded（默认）在本进程内启动与 GameServer 相同配置的服务器（随机端口），可以统计服务器 CPU；
+ * 指定 host:port 时连接外部服务器，服务器 CPU 需要在服务器一侧查看。
+ * compress=true 时机器人请求压缩，报告双方发送方向的压缩率；capture=文件 录制收到的帧用于训练压缩字典（不能和压缩同时使用）。
+ */
+public class LoadTestConfig {
+    private String server = "embedded";
+    private IoMode ioMode = IoMode.NIO;   // 内置服务器的连接处理模式
+    private int bots = 1000;
+    private int rampPerSecond = 500;      // 每秒建立的连接数
+    private int durationSeconds = 60;     // 全部连接建立后的测量时长
+    private double movesPerSecond = 4.0;  // 每个机器人的平均移动频率（正常走一格约 0.25 秒）
+    private double bombsPerSecond = 0.25; // 每个机器人的平均放炸弹频率
+    private long pingIntervalMs = 1000;   // 机器人发心跳测量往返时间的间隔
+    private int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+    private int reportSeconds = 5;        // 进度输出间隔
+    private long seed = 20240601L;
+    private WireFormat format = WireFormat.BINARY;
+    private boolean compress;
+    private String capture;               // 录制收到的帧的文件，null 表示不录制
+
+    /**
+     * 解析命令行参数，未知参数抛出 IllegalArgumentException
+     */
+    public static LoadTestConfig parse(String[] args) {
+        LoadTestConfig config = new LoadTestConfig();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("参数格式应为 key=value: " + arg);
+            }
+            String key = arg.substring(0, eq).trim();
+            String value = arg.substring(eq + 1).trim();
+            switch (key) {
+                case "server": config.server = value; break;
+                case "io": config.ioMode = IoMode.parse(value, null); break;
+                case "bots": config.bots = Integer.parseInt(value); break;
+                case "ramp": config.rampPerSecond = Integer.parseInt(value); break;
+                case "duration": config.durationSeconds = Integer.parseInt(value); break;
+                case "moves": config.movesPerSecond = Double.parseDouble(value); break;
+                case "bombs": config.bombsPerSecond = Double.parseDouble(value); break;
+                case "ping": config.pingIntervalMs = Long.parseLong(value); break;
+                case "threads": config.threads = Integer.parseInt(value); break;
+                case "report": config.reportSeconds = Integer.parseInt(value); break;
+                case "seed": config.seed = Long.parseLong(value); break;
+                case "format": config.format = WireFormat.parse(value, null); break;
+                case "compress": config.compress = Boolean.parseBoolean(value); break;
+                case "capture": config.capture = value.isEmpty() ? null : value; break;
+                default: throw new IllegalArgumentException("未知参数: " + key);
+            }
+        }
+        if (config.ioMode == null || config.bots <= 0 || config.rampPerSecond <= 0 || config.durationSeconds <= 0
+            || config.movesPerSecond < 0 || config.bombsPerSecond < 0 || config.pingIntervalMs <= 0
+            || config.threads <= 0 || config.reportSeconds <= 0 || (!config.isEmbedded() && config.getPort() < 0)
+            || config.format == null || (config.compress && config.capture != null)) {
+            throw new IllegalArgumentException("压力测试参数无效: " + config.describe());
+        }
+        return config;
+    }
+
+    public boolean isEmbedded() {
+        return "embedded".equals(server);
+    }
+
+    /** 外部服务器的主机名 */
+    public String getHost() {
+        int colon = server.lastIndexOf(':');
+        return colon > 0 ? server.substring(0, colon) : server;
+    }
+
+    /** 外部服务器的端口，格式错误时返回 -1 */
+    public int getPort() {
+        int colon = server.lastIndexOf(':');
+        try {
+            return colon > 0 ? Integer.parseInt(server.substring(colon + 1)) : 8888;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public IoMode getIoMode() { return ioMode; }
+    public int getBots() { return bots; }
+    public int getRampPerSecond() { return rampPerSecond; }
+    public int getDurationSeconds() { return durationSeconds; }
+    public double getMovesPerSecond() { return movesPerSecond; }
+    public double getBombsPerSecond() { return bombsPerSecond; }
+    public long getPingIntervalMs() { return pingIntervalMs; }
+    public int getThreads() { return threads; }
+    public int getReportSeconds() { return reportSeconds; }
+    public long getSeed() { return seed; }
+    public WireFormat getFormat() { return format; }
+    public boolean isCompress() { return compress; }
+    public String getCapture() { return capture; }
+
+    /**
+     * 参数表（写入报告）
+     */
+    public Map<String, Object> describe() {
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("server", server);
+        params.put("io", ioMode);
+        params.put("bots", bots);
+        params.put("rampPerSecond", rampPerSecond);
+        params.put("durationSeconds", durationSeconds);
+        params.put("movesPerSecond", movesPerSecond);
+        params.put("bombsPerSecond", bombsPerSecond);
+        params.put("pingIntervalMs", pingIntervalMs);
+        params.put("threads", threads);
+        params.put("seed", seed);
+        params.put("format", format);
+        params.put("compress", compress);
+        if (capture != null) {
+            params.put("capture", capture);
+        }
+        return params;
+    }
+}
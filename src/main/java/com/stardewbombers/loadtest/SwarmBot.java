@@ -0,0 +1,370 @@
+package com.stardewbombers.loadtest;
+
+import com.stardewbombers.shared.protocol.HeartbeatMessage;
+import com.stardewbombers.shared.protocol.Message;
+import com.stardewbombers.shared.protocol.PlaceBombMessage;
+import com.stardewbombers.shared.protocol.PlayerJoinMessage;
+import com.stardewbombers.shared.protocol.PlayerMoveMessage;
+import com.stardewbombers.shared.protocol.ServerResponseMessage;
+import com.stardewbombers.shared.protocol.SnapshotAckMessage;
+import com.stardewbombers.shared.protocol.WorldSnapshotMessage;
+import com.stardewbombers.shared.protocol.codec.CompressingCodec;
+import com.stardewbombers.shared.protocol.codec.Frames;
+import com.stardewbombers.shared.protocol.codec.MessageCodec;
+import com.stardewbombers.shared.protocol.codec.WireFormat;
+import com.stardewbombers.shared.protocol.codec.WireReader;
+import com.stardewbombers.shared.protocol.codec.WireWriter;
+import com.stardewbombers.shared.protocol.snapshot.PlayerState;
+import com.stardewbombers.shared.protocol.snapshot.SnapshotDelta;
+import com.stardewbombers.shared.protocol.snapshot.SnapshotHistory;
+import com.stardewbombers.shared.protocol.snapshot.WorldSnapshot;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Random;
+import javafx.geometry.Point2D;
+
+/**
+ * 一个模拟玩家的连接（非阻塞，由所属 I/O 线程的 Selector 驱动）
+ * 协议与 NetworkClient 相同：握手 + PLAYER_JOIN，收到 SERVER_RESPONSE 后开始按泊松过程随机移动和放炸弹
+ * （移动和炸弹共用输入序号），回显服务器的心跳并定期发自己的心跳测量往返时间，
+ * 应用快照增量并确认，其他玩家转发来的移动/炸弹按消息时间戳统计端到端延迟。
+ *
+ * 只在所属 I/O 线程访问。
+ */
+final class SwarmBot {
+    private static final String[] DIRECTIONS = {"UP", "DOWN", "LEFT", "RIGHT"};
+    private static final int INITIAL_BUFFER = 8 * 1024;
+    private static final int MAX_BACKLOG = 256 * 1024; // 发送缓冲积压超过时暂停发送输入
+    private static final int HISTORY = 16;             // 快照历史（确认往返很短，不需要默认的 64 个）
+
+    enum State { WAITING, CONNECTING, JOINING, PLAYING, CLOSED }
+
+    private final int index;
+    private final LoadTestConfig config;
+    private final SwarmStats stats;
+    private final SwarmStats.Latencies latencies;
+    private final Random random;
+    private final MessageCodec codec;
+    private final FrameCapture capture; // 可以为 null
+    private final WireWriter payload = new WireWriter(256);
+    private final WireWriter outbox = new WireWriter(1024);
+    private final WireReader reader = new WireReader();
+    private final SnapshotHistory snapshots = new SnapshotHistory(HISTORY);
+    private ByteBuffer in = ByteBuffer.allocate(INITIAL_BUFFER);
+    private int outPosition;   // outbox 中已写出的字节数
+    private boolean handshaken;
+
+    private State state = State.WAITING;
+    private SocketChannel channel;
+    private SelectionKey key;
+    private String clientId = "";
+    private long connectStartNanos;
+    private long nextMoveNanos;
+    private long nextBombNanos;
+    private long nextPingNanos;
+    private long pingId;
+    private int inputSequence;
+
+    SwarmBot(int index, LoadTestConfig config, SwarmStats stats, SwarmStats.Latencies latencies, FrameCapture capture) {
+        this.index = index;
+        this.config = config;
+        this.stats = stats;
+        this.latencies = latencies;
+        this.capture = capture;
+        MessageCodec base = config.getFormat().newCodec();
+        this.codec = config.isCompress() ? new CompressingCodec(base, true, false, stats.compression) : base;
+        this.random = new Random(config.getSeed() * 31 + index);
+    }
+
+    State getState() {
+        return state;
+    }
+
+    /**
+     * 发起非阻塞连接，连接成功后发送握手和加入消息
+     */
+    void connect(Selector selector, InetSocketAddress address) {
+        connectStartNanos = System.nanoTime();
+        try {
+            channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            boolean connected = channel.connect(address);
+            key = channel.register(selector, connected ? SelectionKey.OP_READ : SelectionKey.OP_CONNECT, this);
+            state = State.CONNECTING;
+            if (connected) {
+                onConnected();
+            }
+        } catch (IOException e) {
+            stats.connectFailures.increment();
+            close();
+        }
+    }
+
+    /**
+     * Selector 报告就绪时调用
+     */
+    void onReady() {
+        try {
+            if (key.isConnectable()) {
+                channel.finishConnect();
+                onConnected();
+            }
+            if (key.isValid() && key.isReadable()) {
+                read();
+            }
+            if (key.isValid() && key.isWritable()) {
+                flush();
+            }
+        } catch (IOException e) {
+            fail();
+        }
+    }
+
+    /**
+     * 定时动作（I/O 线程每次循环调用）：按计划发送移动、炸弹和心跳
+     */
+    void tick(long now) {
+        if (state != State.PLAYING) {
+            return;
+        }
+        try {
+            boolean sent = false;
+            if (now >= nextMoveNanos) {
+                nextMoveNanos = now + nextInterval(config.getMovesPerSecond());
+                sent |= sendMove();
+            }
+            if (now >= nextBombNanos) {
+                nextBombNanos = now + nextInterval(config.getBombsPerSecond());
+                sent |= sendBomb();
+            }
+            if (now >= nextPingNanos) {
+                nextPingNanos = now + config.getPingIntervalMs() * 1_000_000L;
+                sent |= enqueue(new HeartbeatMessage(clientId, ++pingId, System.nanoTime(), false));
+            }
+            if (sent) {
+                flush();
+            }
+        } catch (IOException e) {
+            fail();
+        }
+    }
+
+    void close() {
+        state = State.CLOSED;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // 已经关闭
+            }
+        }
+    }
+
+    private void onConnected() throws IOException {
+        stats.connected.increment();
+        state = State.JOINING;
+        key.interestOps(SelectionKey.OP_READ);
+        byte[] preamble = config.getFormat().preamble(config.isCompress());
+        outbox.writeBytes(preamble, 0, preamble.length);
+        enqueue(new PlayerJoinMessage(clientId, "Bot_" + index));
+        flush();
+    }
+
+    private boolean sendMove() {
+        PlayerState self = findSelf();
+        Point2D position = self != null ? new Point2D(self.getX(), self.getY()) : null;
+        PlayerMoveMessage move = PlayerMoveMessage.obtain(clientId, position,
+            DIRECTIONS[random.nextInt(DIRECTIONS.length)], ++inputSequence);
+        move.setTimestamp(System.currentTimeMillis());
+        boolean queued = enqueue(move);
+        move.recycle();
+        return queued;
+    }
+
+    private boolean sendBomb() {
+        PlayerState self = findSelf();
+        PlaceBombMessage bomb = new PlaceBombMessage(clientId,
+            self != null ? new Point2D(self.getX(), self.getY()) : null,
+            self != null ? self.getBombPower() : 0, ++inputSequence);
+        bomb.setTimestamp(System.currentTimeMillis());
+        return enqueue(bomb);
+    }
+
+    private PlayerState findSelf() {
+        WorldSnapshot latest = snapshots.getLatest();
+        return latest != null ? latest.findPlayer(clientId) : null;
+    }
+
+    /**
+     * 编码成帧追加到发送缓冲；积压过多（服务器不读）时丢弃输入，握手和确认照常发送
+     */
+    private boolean enqueue(Message message) {
+        if (outbox.size() - outPosition > MAX_BACKLOG && state == State.PLAYING
+                && !(message instanceof SnapshotAckMessage)) {
+            stats.skippedSends.increment();
+            return false;
+        }
+        payload.reset();
+        codec.encode(message, payload);
+        Frames.appendFrame(outbox, payload);
+        stats.sentMessages.increment();
+        return true;
+    }
+
+    private void flush() throws IOException {
+        int pending = outbox.size() - outPosition;
+        if (pending > 0) {
+            int written = channel.write(ByteBuffer.wrap(outbox.array(), outPosition, pending));
+            outPosition += written;
+            stats.sentBytes.add(written);
+        }
+        if (outPosition == outbox.size()) {
+            outbox.reset();
+            outPosition = 0;
+            key.interestOps(SelectionKey.OP_READ);
+        } else {
+            key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+        }
+    }
+
+    private void read() throws IOException {
+        int count = channel.read(in);
+        if (count < 0) {
+            fail();
+            return;
+        }
+        stats.receivedBytes.add(count);
+        in.flip();
+        if (!handshaken) {
+            if (in.remaining() < WireFormat.PREAMBLE_SIZE) {
+                in.compact();
+                return;
+            }
+            byte[] preamble = new byte[WireFormat.PREAMBLE_SIZE];
+            in.get(preamble);
+            WireFormat.fromPreamble(preamble, 0);
+            if (codec instanceof CompressingCodec) {
+                ((CompressingCodec) codec).setInboundCompressed(WireFormat.isCompressed(preamble, 0));
+            }
+            handshaken = true;
+        }
+        boolean sent = false;
+        while (true) {
+            int start = in.position();
+            int length = Frames.readLength(in);
+            if (length < 0 || in.remaining() < length) {
+                in.position(start);
+                if (length > in.capacity() - Frames.MAX_LENGTH_BYTES) {
+                    grow(length + Frames.MAX_LENGTH_BYTES);
+                    if (sent) {
+                        flush();
+                    }
+                    return;
+                }
+                break;
+            }
+            if (capture != null) {
+                capture.record(in.array(), in.position(), length);
+            }
+            reader.reset(in.array(), in.position(), length);
+            Message message = codec.decode(reader);
+            in.position(in.position() + length);
+            stats.receivedMessages.increment();
+            sent |= handle(message);
+        }
+        in.compact();
+        if (sent) {
+            flush();
+        }
+    }
+
+    /**
+     * 帧比缓冲区大：换一个足够大的缓冲区，保留未处理的数据（调用时处于读模式）
+     */
+    private void grow(int capacity) {
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(capacity, in.capacity() * 2));
+        bigger.put(in);
+        in = bigger;
+    }
+
+    /**
+     * @return 是否有需要发送的回复
+     */
+    private boolean handle(Message message) {
+        switch (message.getType()) {
+            case SERVER_RESPONSE:
+                clientId = ((ServerResponseMessage) message).getClientId();
+                state = State.PLAYING;
+                stats.joined.increment();
+                latencies.joinMs.record((System.nanoTime() - connectStartNanos) / 1_000_000L);
+                long now = System.nanoTime();
+                nextMoveNanos = now + nextInterval(config.getMovesPerSecond());
+                nextBombNanos = now + nextInterval(config.getBombsPerSecond());
+                nextPingNanos = now + (long) (random.nextDouble() * config.getPingIntervalMs() * 1_000_000L);
+                return false;
+            case HEARTBEAT:
+                HeartbeatMessage heartbeat = (HeartbeatMessage) message;
+                if (!heartbeat.isReply()) {
+                    return enqueue(heartbeat.echo(clientId));
+                }
+                if (stats.isMeasuring()) {
+                    latencies.rttMicros.record((System.nanoTime() - heartbeat.getOriginNanos()) / 1000L);
+                }
+                return false;
+            case WORLD_SNAPSHOT:
+                stats.snapshots.increment();
+                return applySnapshot(((WorldSnapshotMessage) message).getDelta());
+            case PLAYER_MOVE:
+            case PLACE_BOMB:
+                if (stats.isMeasuring() && message.getTimestamp() > 0) {
+                    latencies.relayMs.record(Math.max(0, System.currentTimeMillis() - message.getTimestamp()));
+                }
+                return false;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * 与 NetworkClient 相同：应用到基准快照并确认，基准已丢失时忽略
+     */
+    private boolean applySnapshot(SnapshotDelta delta) {
+        WorldSnapshot baseline = delta.isFull() ? null : snapshots.get(delta.getBaselineSequence());
+        if (!delta.isFull() && baseline == null) {
+            return false;
+        }
+        WorldSnapshot snapshot = delta.apply(baseline);
+        snapshots.put(snapshot);
+        SnapshotAckMessage ack = SnapshotAckMessage.obtain(clientId, snapshot.getSequence());
+        boolean queued = enqueue(ack);
+        ack.recycle();
+        return queued;
+    }
+
+    private void fail() {
+        if (state == State.PLAYING) {
+            stats.disconnects.increment();
+        } else if (state == State.CONNECTING) {
+            stats.connectFailures.increment();
+        } else if (state != State.CLOSED) {
+            stats.joinFailures.increment();
+        }
+        close();
+    }
+
+    /**
+     * 泊松过程的下一个间隔（纳秒），rate 为 0 时不再发生
+     */
+    private long nextInterval(double ratePerSecond) {
+        if (ratePerSecond <= 0) {
+            return Long.MAX_VALUE / 2;
+        }
+        return (long) (-Math.log(1.0 - random.nextDouble()) / ratePerSecond * 1e9);
+    }
+}
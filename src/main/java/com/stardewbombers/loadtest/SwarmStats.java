@@ -0,0 +1,53 @@
+package com.stardewbombers.loadtest;
+
+import com.stardewbombers.shared.protocol.codec.CompressionStats;
+import com.stardewbombers.shared.util.LogHistogram;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 压力测试的统计
+ * 计数器所有 I/O 线程共用（LongAdder）；延迟直方图不是线程安全的，每个 I/O 线程一份（Latencies），报告时由各自的线程复制后合并。
+ * 往返和转发延迟只在测量阶段（全部连接建立之后）记录，加入耗时在建立连接阶段记录。
+ */
+final class SwarmStats {
+    final LongAdder connected = new LongAdder();        // TCP 连接建立
+    final LongAdder joined = new LongAdder();           // 收到服务器分配的 id 和房间
+    final LongAdder connectFailures = new LongAdder();  // 连接失败
+    final LongAdder joinFailures = new LongAdder();     // 连上但在加入前被关闭（房间已满、握手失败）
+    final LongAdder disconnects = new LongAdder();      // 加入后连接被服务器关闭或出错
+    final LongAdder sentMessages = new LongAdder();
+    final LongAdder sentBytes = new LongAdder();
+    final LongAdder receivedMessages = new LongAdder();
+    final LongAdder receivedBytes = new LongAdder();
+    final LongAdder snapshots = new LongAdder();
+    final LongAdder skippedSends = new LongAdder();     // 发送缓冲积压过多时跳过的输入
+    final CompressionStats compression = new CompressionStats(); // 机器人发送方向（compress=true 时）
+    private volatile boolean measuring;
+
+    boolean isMeasuring() {
+        return measuring;
+    }
+
+    void setMeasuring(boolean measuring) {
+        this.measuring = measuring;
+    }
+
+    int online() {
+        return (int) (joined.sum() - disconnects.sum());
+    }
+
+    /**
+     * 一个 I/O 线程记录的延迟
+     */
+    static final class Latencies {
+        final LogHistogram rttMicros = new LogHistogram();   // 心跳往返时间
+        final LogHistogram relayMs = new LogHistogram();     // 其他机器人的移动/炸弹从发出到收到（端到端）
+        final LogHistogram joinMs = new LogHistogram();      // 开始连接到收到服务器回复
+
+        void merge(Latencies other) {
+            rttMicros.merge(other.rttMicros);
+            relayMs.merge(other.relayMs);
+            joinMs.merge(other.joinMs);
+        }
+    }
+}
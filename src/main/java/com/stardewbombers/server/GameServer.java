@@ -1,22 +1,68 @@
 package com.stardewbombers.server;
 
+import com.stardewbombers.client.MusicManager;
+import com.stardewbombers.server.game.RoomManager;
+import com.stardewbombers.server.game.RoomScheduler;
+import com.stardewbombers.server.network.IoMode;
 import com.stardewbombers.server.network.NetworkServer;
+import com.stardewbombers.server.network.SendQueuePolicy;
 import java.util.Scanner;
 
 public class GameServer {
     public static void main(String[] args) {
+        MusicManager.setSoundEnabled(false); // 服务器没有声音设备，房间模拟中受伤和拾取道具会尝试播放音效
+        RoomScheduler scheduler = new RoomScheduler();
+        RoomManager roomManager = new RoomManager(scheduler);
+        scheduler.start();
+
         NetworkServer server = new NetworkServer();
+        server.setRoomManager(roomManager);
+        // 连接处理模式：-Dstardew.server.io=nio|blocking|virtual，NIO 事件循环线程数：-Dstardew.server.loops=N
+        server.setIoMode(IoMode.parse(System.getProperty("stardew.server.io"), IoMode.NIO));
+        String loops = System.getProperty("stardew.server.loops");
+        if (loops != null) {
+            server.setEventLoopCount(Integer.parseInt(loops.trim()));
+        }
+        // 每秒合并发送次数：-Dstardew.server.flushRate=N，0 表示每条消息立即发送
+        server.setFlushRate(Integer.getInteger("stardew.server.flushRate", server.getFlushRate()));
+        // 每个连接的发送队列：-Dstardew.server.sendQueue=最多消息数，-Dstardew.server.sendLagMs=排队超时断开（0 不限制）
+        server.setSendQueuePolicy(new SendQueuePolicy(
+            Integer.getInteger("stardew.server.sendQueue", SendQueuePolicy.DEFAULT_CAPACITY), true, true,
+            Long.getLong("stardew.server.sendLagMs", SendQueuePolicy.DEFAULT_LAG_LIMIT_MS)));
+        // 心跳：-Dstardew.server.heartbeatMs=间隔（0 关闭），-Dstardew.server.heartbeatTimeoutMs=超时断开
+        server.setHeartbeat(Long.getLong("stardew.server.heartbeatMs", server.getHeartbeatIntervalMs()),
+            Long.getLong("stardew.server.heartbeatTimeoutMs", server.getHeartbeatTimeoutMs()));
+        // 数据报通道：-Dstardew.server.udp=true，本机测试时可用 -Dstardew.net.udpLoss=0.1 模拟丢包
+        server.setUdpEnabled(Boolean.getBoolean("stardew.server.udp"));
+        // 是否同意客户端的压缩请求：-Dstardew.server.compress=false 关闭
+        server.setCompressionEnabled(!"false".equalsIgnoreCase(System.getProperty("stardew.server.compress")));
         server.start(8888);
 
         System.out.println("游戏服务器已启动！");
-        System.out.println("输入 'quit' 停止服务器");
+        System.out.println("输入 'rooms' 查看房间和调度统计，输入 'quit' 停止服务器");
 
         Scanner scanner = new Scanner(System.in);
-        while (!scanner.nextLine().equals("quit")) {
-            // 等待输入
+        String line;
+        while (!(line = scanner.nextLine()).equals("quit")) {
+            if (line.equals("rooms")) {
+                System.out.print(scheduler.describe());
+                roomManager.getRooms().forEach(System.out::println);
+                System.out.println("发送: " + server.getOutboundMessages() + " 条消息，" + server.getOutboundWrites() + " 次写入，"
+                    + "兴趣区域外跳过 " + server.getInterestSkipped() + " 条转发");
+                System.out.println("发送队列: 排队 " + server.getQueuedMessages() + " 条（最长 " + server.getMaxQueueDepth()
+                    + "），合并 " + server.getCollapsedMessages() + " 条，丢弃 " + server.getDroppedMessages()
+                    + " 条，慢客户端断开 " + server.getSlowDisconnects() + " 个");
+                System.out.println("往返时间(us): " + server.getRttHistogram() + "，抖动(us): " + server.getJitterHistogram()
+                    + "，超时断开 " + server.getIdleDisconnects() + " 个");
+                System.out.println("压缩: " + server.getCompressionStats());
+                if (server.getUdpPort() > 0) {
+                    System.out.println(server.describeUdp());
+                }
+            }
         }
 
         server.stop();
+        scheduler.stop();
         scanner.close();
         System.out.println("服务器已停止");
     }
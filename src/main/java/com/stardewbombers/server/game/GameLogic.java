@@ -1,4 +1,409 @@
 package com.stardewbombers.server.game;
 
+import com.stardewbombers.component.BombComponent;
+import com.stardewbombers.component.MovementComponent;
+import com.stardewbombers.component.PlayerComponent;
+import com.stardewbombers.shared.entity.Bomb;
+import com.stardewbombers.shared.entity.GameMap;
+import com.stardewbombers.shared.entity.Item;
+import com.stardewbombers.shared.entity.Player;
+import com.stardewbombers.shared.game.GameClock;
+import com.stardewbombers.shared.game.GameLoop;
+import com.stardewbombers.shared.game.GameManager;
+import com.stardewbombers.shared.protocol.snapshot.BombState;
+import com.stardewbombers.shared.protocol.snapshot.PlayerState;
+import com.stardewbombers.shared.protocol.snapshot.WorldSnapshot;
+import com.stardewbombers.shared.util.GameConfig;
+import javafx.geometry.Point2D;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单个房间的服务器端游戏逻辑
+ * 每个房间一份独立的 GameMap、GameManager 和固定步长循环，由房间调度器驱动 tick()
+ * 带序号输入的去重、排序和限速由 RoomInputQueue 负责，这里只缓存玩家还在移动时收到的输入，并记录实际执行到的序号。
+ *
+ * 非线程安全，由 GameRoom 保证同一时间只有一个线程访问。
+ */
 public class GameLogic {
+    // 出生点搜索的起点：四个角落（相对地图边缘内缩一格）
+    private static final int[][] SPAWN_CORNERS = {{1, 1}, {-2, -2}, {-2, 1}, {1, -2}};
+    private static final int[] DX = {1, -1, 0, 0};
+    private static final int[] DY = {0, 0, 1, -1};
+    private static final int MAX_PENDING_INPUTS = 8; // 移动中每个玩家最多缓存的输入，超出的拒绝（不记为已执行）
+
+    private final GameMap gameMap;
+    private final GameManager gameManager;
+    private final GameLoop gameLoop;
+    private final Map<String, PlayerComponent> players = new LinkedHashMap<>();
+    private final Map<String, PlayerInputs> inputs = new LinkedHashMap<>();
+    private final double tileSize;
+
+    public GameLogic(GameMap gameMap) {
+        this(gameMap, GameClock.SYSTEM);
+    }
+
+    public GameLogic(GameMap gameMap, GameClock clock) {
+        this.gameMap = gameMap;
+        this.tileSize = gameMap.getTileWidth();
+        this.gameManager = new GameManager(clock.millis());
+        this.gameManager.setGameMap(gameMap);
+        this.gameLoop = new GameLoop(gameManager, clock);
+    }
+
+    /**
+     * 加入玩家，按加入顺序分配四个角落附近的出生点
+     * @return 玩家组件，玩家已存在时返回已有的组件
+     */
+    public PlayerComponent addPlayer(String playerId) {
+        PlayerComponent existing = players.get(playerId);
+        if (existing != null) {
+            return existing;
+        }
+        Point2D spawn = findSpawn(players.size());
+        PlayerComponent playerComponent = new PlayerComponent(new Player(playerId, spawn),
+            new MovementComponent(spawn, tileSize),
+            new BombComponent(playerId, GameConfig.INITIAL_BOMB_COUNT, GameConfig.INITIAL_BOMB_POWER));
+        playerComponent.getMovement().setItemManager(gameMap.getItemManager());
+        players.put(playerId, playerComponent);
+        inputs.put(playerId, new PlayerInputs());
+        gameManager.addPlayer(playerComponent);
+        return playerComponent;
+    }
+
+    /**
+     * 移除玩家
+     */
+    public boolean removePlayer(String playerId) {
+        PlayerComponent playerComponent = players.remove(playerId);
+        if (playerComponent == null) {
+            return false;
+        }
+        inputs.remove(playerId);
+        playerComponent.getBombs().clearAllBombs();
+        gameManager.removePlayer(playerComponent);
+        return true;
+    }
+
+    /**
+     * 按方向移动一格（UP/DOWN/LEFT/RIGHT，不区分大小写）
+     */
+    public boolean movePlayer(String playerId, String direction) {
+        PlayerComponent playerComponent = players.get(playerId);
+        if (playerComponent == null || direction == null) {
+            return false;
+        }
+        return applyMove(playerComponent, direction);
+    }
+
+    /**
+     * 带序号的移动输入（客户端预测）：正在移动时先缓存，移动结束后按顺序执行，
+     * 所以客户端本地接受的每一步在服务器上也会执行。调用方（RoomInputQueue）保证序号递增且不重复。
+     * 执行后（无论是否被地形挡住）记为已处理，快照中的 lastInput 告诉客户端哪些输入已经生效。
+     * @param inputSequence 从1递增的输入序号，0 表示没有序号（等同于 movePlayer(playerId, direction)）
+     * @return 是否执行或缓存；缓存已满时拒绝，客户端由快照校正
+     */
+    public boolean movePlayer(String playerId, String direction, int inputSequence) {
+        if (inputSequence <= 0) {
+            return movePlayer(playerId, direction);
+        }
+        PlayerComponent playerComponent = players.get(playerId);
+        if (playerComponent == null || direction == null) {
+            return false;
+        }
+        PlayerInputs playerInputs = inputs.get(playerId);
+        if (playerInputs.pending.isEmpty() && !playerComponent.getMovement().isMoving()) {
+            playerInputs.lastInput = inputSequence;
+            return applyMove(playerComponent, direction);
+        }
+        return enqueue(playerInputs, new PendingInput(direction, inputSequence));
+    }
+
+    /**
+     * 带序号的放炸弹输入：前面还有缓存的移动时排在它们后面，移动执行完再放，
+     * 炸弹落在客户端按键时（已经预测走到）的格子上；否则立即放置。
+     * @param inputSequence 与移动共用的输入序号，0 表示没有序号（等同于 placeBomb(playerId)）
+     * @return 是否执行或缓存；缓存已满时拒绝
+     */
+    public boolean placeBomb(String playerId, int inputSequence) {
+        if (inputSequence <= 0) {
+            return placeBomb(playerId);
+        }
+        if (!players.containsKey(playerId)) {
+            return false;
+        }
+        PlayerInputs playerInputs = inputs.get(playerId);
+        if (playerInputs.pending.isEmpty()) {
+            playerInputs.lastInput = inputSequence;
+            return placeBomb(playerId);
+        }
+        return enqueue(playerInputs, new PendingInput(null, inputSequence));
+    }
+
+    private static boolean enqueue(PlayerInputs playerInputs, PendingInput input) {
+        if (playerInputs.pending.size() >= MAX_PENDING_INPUTS) {
+            return false;
+        }
+        playerInputs.pending.add(input);
+        return true;
+    }
+
+    /**
+     * 执行缓存的输入：每个已经停下的玩家执行排在前面的炸弹和一个移动
+     */
+    private void drainInputs() {
+        for (Map.Entry<String, PlayerInputs> entry : inputs.entrySet()) {
+            PlayerInputs playerInputs = entry.getValue();
+            if (playerInputs.pending.isEmpty()) {
+                continue;
+            }
+            PlayerComponent playerComponent = players.get(entry.getKey());
+            PendingInput input;
+            while (!playerComponent.getMovement().isMoving() && (input = playerInputs.pending.poll()) != null) {
+                playerInputs.lastInput = input.sequence;
+                if (input.isBomb()) {
+                    playerComponent.placeBomb(gameManager.getCurrentTimeMs());
+                } else {
+                    applyMove(playerComponent, input.direction);
+                    break;
+                }
+            }
+        }
+    }
+
+    private boolean applyMove(PlayerComponent playerComponent, String direction) {
+        switch (direction.toUpperCase()) {
+            case "UP": playerComponent.moveUp(); return true;
+            case "DOWN": playerComponent.moveDown(); return true;
+            case "LEFT": playerComponent.moveLeft(); return true;
+            case "RIGHT": playerComponent.moveRight(); return true;
+            default: return false;
+        }
+    }
+
+    /**
+     * 在玩家当前位置放置炸弹（使用房间的模拟时间）
+     */
+    public boolean placeBomb(String playerId) {
+        PlayerComponent playerComponent = players.get(playerId);
+        return playerComponent != null && playerComponent.placeBomb(gameManager.getCurrentTimeMs());
+    }
+
+    /**
+     * 开始对局：丢弃等待期间累积的时间
+     */
+    public void start() {
+        gameLoop.resync();
+    }
+
+    /**
+     * 按时钟推进模拟
+     * @return 本次执行的步数
+     */
+    public int tick() {
+        int steps = gameLoop.advance();
+        drainInputs();
+        return steps;
+    }
+
+    /**
+     * 记录当前模拟状态的快照（炸弹、道具按格子排序，已破坏格子取地图的破坏记录）
+     */
+    public WorldSnapshot captureSnapshot(long sequence) {
+        long nowMs = gameManager.getCurrentTimeMs();
+        PlayerState[] playerStates = new PlayerState[players.size()];
+        int bombTotal = 0;
+        int p = 0;
+        for (PlayerComponent playerComponent : players.values()) {
+            Player player = playerComponent.getPlayer();
+            playerStates[p++] = PlayerState.of(player.getId(), player.getX(), player.getY(), player.getHealth(),
+                player.getStatus().ordinal(), player.getBombCount(), player.getBombPower(), player.getSpeed(),
+                inputs.get(player.getId()).lastInput);
+            bombTotal += playerComponent.getBombs().getActiveBombs().size();
+        }
+
+        BombState[] bombStates = new BombState[bombTotal];
+        int b = 0;
+        for (PlayerComponent playerComponent : players.values()) {
+            for (Bomb bomb : playerComponent.getBombs().getActiveBombs()) {
+                long fuseEndMs = bomb.getFuseEndMs() > 0
+                    ? bomb.getFuseEndMs() : nowMs + Math.round(bomb.getFuseTime() * 1000);
+                bombStates[b++] = new BombState(gameMap.indexOf(bomb.getX(), bomb.getY()), bomb.getOwnerId(),
+                    bomb.getExplosionRadius(), bomb.getState().ordinal(), fuseEndMs,
+                    (int) Math.round(bomb.getTotalFuseTime() * 1000));
+            }
+        }
+        Arrays.sort(bombStates, Comparator.comparingInt(BombState::getCell));
+
+        int[] destroyed = new int[gameMap.getDestroyedCount()];
+        for (int i = 0; i < destroyed.length; i++) {
+            destroyed[i] = gameMap.getDestroyedCell(i);
+        }
+
+        // 道具按格子排序，打包成 (格子 << 8 | 类型) 后一次排序；同一格子只保留一个
+        List<Item> items = gameMap.getItemManager().getActiveItems();
+        long[] packed = new long[items.size()];
+        for (int i = 0; i < packed.length; i++) {
+            Item item = items.get(i);
+            int cell = gameMap.indexOf((int) (item.getPosition().getX() / tileSize),
+                (int) (item.getPosition().getY() / gameMap.getTileHeight()));
+            packed[i] = ((long) cell << 8) | item.getType().ordinal();
+        }
+        Arrays.sort(packed);
+        int[] itemCells = new int[packed.length];
+        byte[] itemTypes = new byte[packed.length];
+        int itemCount = 0;
+        for (long entry : packed) {
+            int cell = (int) (entry >> 8);
+            if (itemCount > 0 && itemCells[itemCount - 1] == cell) {
+                continue;
+            }
+            itemCells[itemCount] = cell;
+            itemTypes[itemCount++] = (byte) (entry & 0xFF);
+        }
+        return new WorldSnapshot(sequence, nowMs, playerStates, bombStates, destroyed,
+            Arrays.copyOf(itemCells, itemCount), Arrays.copyOf(itemTypes, itemCount));
+    }
+
+    public boolean isGameEnded() {
+        return gameManager.getGameEndDetector().isGameEnded();
+    }
+
+    public PlayerComponent getPlayer(String playerId) {
+        return players.get(playerId);
+    }
+
+    public Collection<PlayerComponent> getPlayers() {
+        return Collections.unmodifiableCollection(players.values());
+    }
+
+    public int getPlayerCount() {
+        return players.size();
+    }
+
+    public GameMap getGameMap() { return gameMap; }
+    public GameManager getGameManager() { return gameManager; }
+    public GameLoop getGameLoop() { return gameLoop; }
+
+    /**
+     * 从第 index 个角落开始逐圈向内搜索，找到第一个可通行、没有其他玩家、
+     * 并且在原地放炸弹后有路可逃的格子；都不满足时退而取第一个可通行的空格子
+     */
+    private Point2D findSpawn(int index) {
+        int width = gameMap.getWidth();
+        int height = gameMap.getHeight();
+        int[] corner = SPAWN_CORNERS[index % SPAWN_CORNERS.length];
+        int startX = clamp(corner[0] < 0 ? width + corner[0] : corner[0], width);
+        int startY = clamp(corner[1] < 0 ? height + corner[1] : corner[1], height);
+        int maxRadius = Math.max(width, height);
+        Point2D fallback = null;
+        for (int radius = 0; radius < maxRadius; radius++) {
+            for (int dy = -radius; dy <= radius; dy++) {
+                for (int dx = -radius; dx <= radius; dx++) {
+                    if (Math.max(Math.abs(dx), Math.abs(dy)) != radius) {
+                        continue; // 只检查这一圈
+                    }
+                    int x = startX + dx;
+                    int y = startY + dy;
+                    if (x >= 0 && x < width && y >= 0 && y < height
+                        && gameMap.isWalkableAt(gameMap.indexOf(x, y)) && !isOccupied(x, y)) {
+                        Point2D spawn = new Point2D(x * tileSize + tileSize / 2, y * tileSize + tileSize / 2);
+                        if (hasEscape(x, y)) {
+                            return spawn;
+                        }
+                        if (fallback == null) {
+                            fallback = spawn;
+                        }
+                    }
+                }
+            }
+        }
+        return fallback != null ? fallback
+            : new Point2D(startX * tileSize + tileSize / 2, startY * tileSize + tileSize / 2);
+    }
+
+    /**
+     * 从 (x, y) 出发几步之内能否走出初始炸弹威力的十字范围
+     * （被可破坏方块围住的角落会让玩家既不能移动，也不能放炸弹开路）
+     */
+    private boolean hasEscape(int x, int y) {
+        int power = GameConfig.INITIAL_BOMB_POWER;
+        int maxSteps = power + 2;
+        int width = gameMap.getWidth();
+        int[] queue = new int[width * gameMap.getHeight()];
+        int[] steps = new int[queue.length];
+        Arrays.fill(steps, -1);
+        int head = 0;
+        int tail = 0;
+        int start = gameMap.indexOf(x, y);
+        queue[tail++] = start;
+        steps[start] = 0;
+        while (head < tail) {
+            int cell = queue[head++];
+            int cx = cell % width;
+            int cy = cell / width;
+            boolean inCross = (cx == x && Math.abs(cy - y) <= power) || (cy == y && Math.abs(cx - x) <= power);
+            if (!inCross) {
+                return true;
+            }
+            if (steps[cell] >= maxSteps) {
+                continue;
+            }
+            for (int dir = 0; dir < 4; dir++) {
+                int nx = cx + DX[dir];
+                int ny = cy + DY[dir];
+                if (nx < 0 || ny < 0 || nx >= width || ny >= gameMap.getHeight()) {
+                    continue;
+                }
+                int next = gameMap.indexOf(nx, ny);
+                if (steps[next] < 0 && gameMap.isWalkableAt(next)) {
+                    steps[next] = steps[cell] + 1;
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isOccupied(int gridX, int gridY) {
+        for (PlayerComponent playerComponent : players.values()) {
+            if ((int) (playerComponent.getPlayer().getX() / tileSize) == gridX
+                && (int) (playerComponent.getPlayer().getY() / tileSize) == gridY) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+
+    /**
+     * 一个玩家的带序号输入：移动中缓存的移动、炸弹和实际执行到的序号
+     */
+    private static final class PlayerInputs {
+        final ArrayDeque<PendingInput> pending = new ArrayDeque<>();
+        int lastInput;   // 已执行的最大序号
+    }
+
+    private static final class PendingInput {
+        final String direction; // null 表示放炸弹
+        final int sequence;
+
+        PendingInput(String direction, int sequence) {
+            this.direction = direction;
+            this.sequence = sequence;
+        }
+
+        boolean isBomb() {
+            return direction == null;
+        }
+    }
 }
@@ -1,4 +1,326 @@
 package com.stardewbombers.server.game;
 
+import com.stardewbombers.component.PlayerComponent;
+import com.stardewbombers.shared.entity.GameMap;
+import com.stardewbombers.shared.entity.Player;
+import com.stardewbombers.shared.game.GameClock;
+import com.stardewbombers.shared.log.GameLog;
+import com.stardewbombers.shared.log.GameLogger;
+import com.stardewbombers.shared.log.LogCategory;
+import com.stardewbombers.shared.util.GameConfig;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 游戏房间
+ * 一场对局：独立的 GameLogic（地图、GameManager、玩家），以及 tick 耗时统计。
+ *
+ * 生命周期：WAITING（等待玩家）-> PLAYING（人满或等待超时且至少2人）-> ENDED（游戏结束或玩家走光）。
+ * 网络线程调用 addPlayer 等方法，调度线程调用 tick，方法之间用房间对象加锁互斥。
+ * 玩家输入用 submitInput 放入房间的输入队列（不需要房间锁），在每个 tick 开始时按序号统一执行。
+ * 设置了快照出口后，每个推进了模拟的 tick 都会向玩家发送状态快照（增量）。
+ * 兴趣区域在每个 tick 后按玩家位置更新，快照和网络层的位置相关事件只发给能看到事件格子的玩家。
+ * 网络线程转发消息时读取的玩家列表和兴趣区域接收者是房间锁内发布的只读快照，转发不需要等待房间锁。
+ */
 public class GameRoom {
+    private static final GameLogger LOG = GameLog.logger(LogCategory.ROOM);
+    public static final int MIN_PLAYERS_TO_START = 2;
+    public static final long DEFAULT_LOBBY_WAIT_MS = 10_000; // 至少2人时最多等待10秒开局
+    private static final int EWMA_SHIFT = 4; // 平均耗时的平滑系数 1/16
+
+    public enum State { WAITING, PLAYING, ENDED }
+
+    private final String roomId;
+    private final String mapName;
+    private final GameLogic logic;
+    private final GameClock clock;
+    private final int maxPlayers;
+    private final long lobbyWaitMs;
+    private final List<String> playerIds = new ArrayList<>();
+    private final RoomSnapshots snapshots;
+    private final InterestGrid interest;
+    private final RoomInputQueue inputs;
+    private volatile State state = State.WAITING;
+    private volatile RelayView relayView = RelayView.EMPTY; // 成员或订阅变化时在房间锁内重建后整体替换
+    private long readySinceMs = -1L; // 人数达到开局要求的时间
+
+    // tick 耗时统计（纳秒）
+    private volatile long avgStepNanos;
+    private volatile long maxStepNanos;
+    private volatile long lastTickNanos;
+    private volatile long totalTickNanos;
+    private volatile long stepCount;
+    private volatile int shard = -1;
+
+    public GameRoom(String roomId, String mapName, GameMap gameMap) {
+        this(roomId, mapName, gameMap, GameClock.SYSTEM, GameConfig.MAX_PLAYERS, DEFAULT_LOBBY_WAIT_MS);
+    }
+
+    public GameRoom(String roomId, String mapName, GameMap gameMap, GameClock clock, int maxPlayers, long lobbyWaitMs) {
+        this.roomId = roomId;
+        this.mapName = mapName;
+        this.clock = clock;
+        this.maxPlayers = maxPlayers;
+        this.lobbyWaitMs = lobbyWaitMs;
+        this.logic = new GameLogic(gameMap, clock);
+        this.snapshots = new RoomSnapshots(roomId);
+        this.interest = new InterestGrid(gameMap);
+        this.inputs = new RoomInputQueue(clock);
+        this.logic.getGameManager().addGameEndCallback(this::onGameEnd);
+    }
+
+    /**
+     * 加入房间，只有等待中且未满的房间可以加入；人满时立即开局
+     */
+    public synchronized boolean addPlayer(String playerId) {
+        if (state != State.WAITING || playerIds.size() >= maxPlayers || playerIds.contains(playerId)) {
+            return false;
+        }
+        playerIds.add(playerId);
+        inputs.addPlayer(playerId);
+        Player player = logic.addPlayer(playerId).getPlayer();
+        interest.updatePosition(playerId, player.getX(), player.getY());
+        publishRelayView();
+        if (playerIds.size() >= MIN_PLAYERS_TO_START && readySinceMs < 0) {
+            readySinceMs = clock.millis();
+        }
+        if (playerIds.size() >= maxPlayers) {
+            start();
+        }
+        return true;
+    }
+
+    /**
+     * 离开房间；对局中离开会作为存活玩家减少处理，房间空了就结束
+     */
+    public synchronized boolean removePlayer(String playerId) {
+        if (!playerIds.remove(playerId)) {
+            return false;
+        }
+        logic.removePlayer(playerId);
+        inputs.removePlayer(playerId);
+        snapshots.remove(playerId);
+        interest.remove(playerId);
+        publishRelayView();
+        if (playerIds.size() < MIN_PLAYERS_TO_START) {
+            readySinceMs = -1L;
+        }
+        if (playerIds.isEmpty()) {
+            state = State.ENDED;
+        }
+        return true;
+    }
+
+    /**
+     * 提交玩家输入（任意线程调用，不需要房间锁），在下一个 tick 开始时执行
+     * @return 玩家不在房间里、房间不在对局中或该玩家排队的输入已满时返回 false
+     */
+    public boolean submitInput(InputCommand command) {
+        return state == State.PLAYING && inputs.submit(command);
+    }
+
+    /**
+     * 开始对局
+     */
+    public synchronized void start() {
+        if (state != State.WAITING) {
+            return;
+        }
+        state = State.PLAYING;
+        logic.start();
+        LOG.info("房间 {} 开局，地图: {} 玩家: {}", roomId, mapName, playerIds.size());
+    }
+
+    /**
+     * 由调度器调用：等待中检查是否可以开局，对局中推进模拟并记录耗时
+     * @return 本次执行的模拟步数
+     */
+    public synchronized int tick() {
+        if (state != State.PLAYING) {
+            inputs.discard();
+        }
+        if (state == State.WAITING) {
+            if (readySinceMs >= 0 && clock.millis() - readySinceMs >= lobbyWaitMs) {
+                start();
+            }
+            return 0;
+        }
+        if (state != State.PLAYING) {
+            return 0;
+        }
+        long start = System.nanoTime();
+        inputs.drain(logic);
+        int steps = logic.tick();
+        long elapsed = System.nanoTime() - start;
+        lastTickNanos = elapsed;
+        if (steps > 0) {
+            recordSteps(elapsed, steps);
+            if (updateInterest()) {
+                publishRelayView();
+            }
+            snapshots.publish(logic, playerIds, interest);
+        }
+        return steps;
+    }
+
+    /**
+     * 设置快照出口，null 表示不发送快照
+     */
+    public void setSnapshotSink(SnapshotSink sink) {
+        snapshots.setSink(sink);
+    }
+
+    /**
+     * 玩家确认已应用的快照序号（网络线程调用，不需要房间锁）
+     */
+    public void acknowledgeSnapshot(String playerId, long sequence) {
+        snapshots.acknowledge(playerId, sequence);
+    }
+
+    public long getFullSnapshotCount() { return snapshots.getFullCount(); }
+    public long getDeltaSnapshotCount() { return snapshots.getDeltaCount(); }
+    public long getFilteredSnapshotCount() { return snapshots.getFilteredCount(); }
+    /** 以共享帧发送的快照数 */
+    public long getSharedSnapshotCount() { return snapshots.getSharedCount(); }
+
+    // 输入队列统计
+    public long getAcceptedInputCount() { return inputs.getAcceptedCount(); }
+    public long getDuplicateInputCount() { return inputs.getDuplicateCount(); }
+    public long getRateLimitedInputCount() { return inputs.getRateLimitedCount(); }
+    public long getOverflowInputCount() { return inputs.getOverflowCount(); }
+    /** 输入从到达到执行的平均等待（纳秒） */
+    public long getAvgInputDelayNanos() { return inputs.getAvgDelayNanos(); }
+
+    /**
+     * 能看到某个玩家所在格子的其他玩家（位置相关事件的接收者），按上一个 tick 后的位置计算；
+     * 玩家不在房间里时返回空列表。返回只读快照，不需要房间锁，网络线程每次转发都可以调用
+     */
+    public List<String> getInterestedPlayers(String sourcePlayerId) {
+        List<String> recipients = relayView.interested.get(sourcePlayerId);
+        return recipients != null ? recipients : List.of();
+    }
+
+    /** 玩家跨越兴趣区域边界的次数 */
+    public synchronized long getInterestRegionChanges() {
+        return interest.getRegionChanges();
+    }
+
+    /**
+     * @return 是否有玩家的订阅范围变化
+     */
+    private boolean updateInterest() {
+        // 区域没变时 updatePosition 只是一次查表
+        boolean changed = false;
+        for (PlayerComponent component : logic.getPlayers()) {
+            Player player = component.getPlayer();
+            changed |= interest.updatePosition(player.getId(), player.getX(), player.getY());
+        }
+        return changed;
+    }
+
+    /**
+     * 按当前成员和兴趣区域重建转发快照（持有房间锁时调用）
+     */
+    private void publishRelayView() {
+        Map<String, List<String>> interested = new HashMap<>();
+        for (PlayerComponent component : logic.getPlayers()) {
+            Player player = component.getPlayer();
+            List<String> subscribers = interest.subscribersAt(player.getX(), player.getY());
+            List<String> others = new ArrayList<>(subscribers.size());
+            for (String id : subscribers) {
+                if (!id.equals(player.getId())) {
+                    others.add(id);
+                }
+            }
+            interested.put(player.getId(), List.copyOf(others));
+        }
+        relayView = new RelayView(List.copyOf(playerIds), Map.copyOf(interested));
+    }
+
+    private void recordSteps(long elapsedNanos, int steps) {
+        long perStep = elapsedNanos / steps;
+        long avg = avgStepNanos;
+        avgStepNanos = avg == 0 ? perStep : avg + ((perStep - avg) >> EWMA_SHIFT);
+        if (perStep > maxStepNanos) {
+            maxStepNanos = perStep;
+        }
+        totalTickNanos += elapsedNanos;
+        stepCount += steps;
+    }
+
+    /**
+     * 房间出错时强制结束，由调度器在本轮 tick 中回收
+     */
+    public synchronized void abort() {
+        state = State.ENDED;
+    }
+
+    private void onGameEnd(String winnerId) {
+        // 在 tick 或 removePlayer 中触发，已持有房间锁
+        state = State.ENDED;
+        LOG.info("房间 {} 对局结束，获胜者: {}", roomId, winnerId != null ? winnerId : "平局");
+    }
+
+    public String getRoomId() { return roomId; }
+    public String getMapName() { return mapName; }
+    public State getState() { return state; }
+    public int getMaxPlayers() { return maxPlayers; }
+    public GameLogic getLogic() { return logic; }
+
+    public synchronized int getPlayerCount() {
+        return playerIds.size();
+    }
+
+    /**
+     * 房间玩家（只读快照，不需要房间锁）
+     */
+    public List<String> getPlayerIds() {
+        return relayView.playerIds;
+    }
+
+    public synchronized boolean isJoinable() {
+        return state == State.WAITING && playerIds.size() < maxPlayers;
+    }
+
+    public boolean isFinished() {
+        return state == State.ENDED;
+    }
+
+    /**
+     * 每个模拟步的平均耗时（指数滑动平均，纳秒），尚无数据时为0
+     */
+    public long getAvgStepNanos() { return avgStepNanos; }
+    public long getMaxStepNanos() { return maxStepNanos; }
+    public long getLastTickNanos() { return lastTickNanos; }
+    public long getTotalTickNanos() { return totalTickNanos; }
+    public long getStepCount() { return stepCount; }
+
+    int getShard() { return shard; }
+    void setShard(int shard) { this.shard = shard; }
+
+    @Override
+    public String toString() {
+        return String.format("GameRoom[%s map=%s state=%s players=%d avgStep=%.1fus maxStep=%.1fus"
+                + " inputs=%d dup=%d limited=%d overflow=%d inputDelay=%.1fms]",
+            roomId, mapName, state, getPlayerCount(), avgStepNanos / 1000.0, maxStepNanos / 1000.0,
+            inputs.getAcceptedCount(), inputs.getDuplicateCount(), inputs.getRateLimitedCount(),
+            inputs.getOverflowCount(), inputs.getAvgDelayNanos() / 1_000_000.0);
+    }
+
+    /**
+     * 转发用的只读快照：房间玩家，以及每个玩家所在区域的其他订阅者
+     */
+    private static final class RelayView {
+        static final RelayView EMPTY = new RelayView(List.of(), Map.of());
+
+        final List<String> playerIds;
+        final Map<String, List<String>> interested;
+
+        RelayView(List<String> playerIds, Map<String, List<String>> interested) {
+            this.playerIds = playerIds;
+            this.interested = interested;
+        }
+    }
 }
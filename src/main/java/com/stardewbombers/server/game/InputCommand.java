@@ -0,0 +1,43 @@
+package com.stardewbombers.server.game;
+
+/**
+ * 一条玩家输入命令（移动一格或放炸弹），与传输方式无关
+ * 网络层把收到的 PLAYER_MOVE/PLACE_BOMB 转成命令交给 GameRoom.submitInput，由房间 tick 统一执行。
+ * 命令的时间以服务器收到的时间为准（RoomInputQueue 记录），客户端时钟与服务器不同步，不用于判定。
+ * 不可变，可以跨线程传递。
+ */
+public final class InputCommand {
+    public enum Kind { MOVE, PLACE_BOMB }
+
+    private final Kind kind;
+    private final String playerId;
+    private final String direction;  // 只有 MOVE 有
+    private final int sequence;      // 客户端的输入序号（移动和炸弹共用），0 表示没有
+
+    private InputCommand(Kind kind, String playerId, String direction, int sequence) {
+        this.kind = kind;
+        this.playerId = playerId;
+        this.direction = direction;
+        this.sequence = sequence;
+    }
+
+    public static InputCommand move(String playerId, String direction, int sequence) {
+        return new InputCommand(Kind.MOVE, playerId, direction, sequence);
+    }
+
+    public static InputCommand placeBomb(String playerId, int sequence) {
+        return new InputCommand(Kind.PLACE_BOMB, playerId, null, sequence);
+    }
+
+    public Kind getKind() { return kind; }
+    public String getPlayerId() { return playerId; }
+    public String getDirection() { return direction; }
+    public int getSequence() { return sequence; }
+
+    @Override
+    public String toString() {
+        return kind == Kind.MOVE
+            ? String.format("Input[%s #%d MOVE %s]", playerId, sequence, direction)
+            : String.format("Input[%s #%d PLACE_BOMB]", playerId, sequence);
+    }
+}
@@ -0,0 +1,169 @@
+package com.stardewbombers.server.game;
+
+import com.stardewbombers.shared.entity.GameMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * 房间的兴趣区域（AOI）网格
+ * 地图按 regionCells × regionCells 个格子划分为区域，每个玩家订阅自己所在区域周围 radius 圈的区域，
+ * 只接收这些区域内格子上的事件和状态。玩家跨过区域边界时只增减新旧订阅范围的差集。
+ * 默认参数下 15x13 的地图只有 2x2 个区域，每个玩家都能看到整张地图，行为与不过滤相同。
+ *
+ * 非线程安全，由 GameRoom 的锁保护。
+ */
+public class InterestGrid {
+    public static final int DEFAULT_REGION_CELLS = 8;
+    public static final int DEFAULT_RADIUS = 1;
+
+    private final int width;        // 地图格子数
+    private final int height;
+    private final double tileWidth;
+    private final double tileHeight;
+    private final int regionCells;
+    private final int radius;
+    private final int regionsX;
+    private final int regionsY;
+    private final List<String>[] subscribers;
+    private final Map<String, Integer> playerRegions = new HashMap<>();
+    private long regionChanges;
+
+    public InterestGrid(GameMap gameMap) {
+        this(gameMap.getWidth(), gameMap.getHeight(), gameMap.getTileWidth(), gameMap.getTileHeight(),
+            DEFAULT_REGION_CELLS, DEFAULT_RADIUS);
+    }
+
+    public InterestGrid(int width, int height, double tileWidth, double tileHeight, int regionCells, int radius) {
+        if (regionCells <= 0 || radius < 0) {
+            throw new IllegalArgumentException("兴趣区域参数无效: regionCells=" + regionCells + " radius=" + radius);
+        }
+        this.width = width;
+        this.height = height;
+        this.tileWidth = tileWidth;
+        this.tileHeight = tileHeight;
+        this.regionCells = regionCells;
+        this.radius = radius;
+        this.regionsX = Math.max(1, (width + regionCells - 1) / regionCells);
+        this.regionsY = Math.max(1, (height + regionCells - 1) / regionCells);
+        @SuppressWarnings("unchecked")
+        List<String>[] lists = (List<String>[]) new List<?>[regionsX * regionsY];
+        for (int i = 0; i < lists.length; i++) {
+            lists[i] = new ArrayList<>(2);
+        }
+        this.subscribers = lists;
+    }
+
+    /**
+     * 玩家移动到世界坐标 (x, y)；区域不变时什么都不做
+     * @return 订阅范围是否变化
+     */
+    public boolean updatePosition(String playerId, double x, double y) {
+        int region = regionOfCell(cellX(x), cellY(y));
+        Integer old = playerRegions.put(playerId, region);
+        if (old != null && old == region) {
+            return false;
+        }
+        int oldX = old != null ? old % regionsX : Integer.MIN_VALUE / 2;
+        int oldY = old != null ? old / regionsX : Integer.MIN_VALUE / 2;
+        int newX = region % regionsX;
+        int newY = region / regionsX;
+        // 离开旧范围中不在新范围里的区域，进入新范围中不在旧范围里的区域
+        if (old != null) {
+            forEachInRange(oldX, oldY, r -> {
+                if (!inRange(newX, newY, r)) {
+                    subscribers[r].remove(playerId);
+                }
+            });
+        }
+        forEachInRange(newX, newY, r -> {
+            if (old == null || !inRange(oldX, oldY, r)) {
+                subscribers[r].add(playerId);
+            }
+        });
+        regionChanges++;
+        return true;
+    }
+
+    public void remove(String playerId) {
+        Integer old = playerRegions.remove(playerId);
+        if (old != null) {
+            forEachInRange(old % regionsX, old / regionsX, r -> subscribers[r].remove(playerId));
+        }
+    }
+
+    /**
+     * 订阅了格子 (cellX, cellY) 所在区域的玩家（返回内部列表的只读视图，不要在修改网格后继续使用）
+     */
+    public List<String> subscribersOfCell(int cellX, int cellY) {
+        return Collections.unmodifiableList(subscribers[regionOfCell(cellX, cellY)]);
+    }
+
+    public List<String> subscribersAt(double x, double y) {
+        return subscribersOfCell(cellX(x), cellY(y));
+    }
+
+    /**
+     * 玩家能否看到格子（还没有位置的玩家看不到任何格子）
+     */
+    public boolean canSeeCell(String playerId, int cellX, int cellY) {
+        Integer region = playerRegions.get(playerId);
+        return region != null && inRange(region % regionsX, region / regionsX, regionOfCell(cellX, cellY));
+    }
+
+    public boolean canSeeCellIndex(String playerId, int cellIndex) {
+        return canSeeCell(playerId, cellIndex % width, cellIndex / width);
+    }
+
+    public boolean canSee(String playerId, double x, double y) {
+        return canSeeCell(playerId, cellX(x), cellY(y));
+    }
+
+    /**
+     * 玩家的订阅范围是否覆盖整张地图（此时不需要过滤）
+     */
+    public boolean seesEverything(String playerId) {
+        Integer region = playerRegions.get(playerId);
+        if (region == null) {
+            return false;
+        }
+        int rx = region % regionsX;
+        int ry = region / regionsX;
+        return rx - radius <= 0 && ry - radius <= 0 && rx + radius >= regionsX - 1 && ry + radius >= regionsY - 1;
+    }
+
+    /** 玩家跨区域的次数（订阅范围的增量更新次数） */
+    public long getRegionChanges() { return regionChanges; }
+    public int getRegionCount() { return subscribers.length; }
+
+    private int cellX(double x) {
+        return clamp((int) Math.floor(x / tileWidth), width);
+    }
+
+    private int cellY(double y) {
+        return clamp((int) Math.floor(y / tileHeight), height);
+    }
+
+    private int regionOfCell(int cellX, int cellY) {
+        return clamp(cellY, height) / regionCells * regionsX + clamp(cellX, width) / regionCells;
+    }
+
+    private boolean inRange(int centerX, int centerY, int region) {
+        return Math.abs(region % regionsX - centerX) <= radius && Math.abs(region / regionsX - centerY) <= radius;
+    }
+
+    private void forEachInRange(int centerX, int centerY, IntConsumer action) {
+        for (int y = Math.max(0, centerY - radius); y <= Math.min(regionsY - 1, centerY + radius); y++) {
+            for (int x = Math.max(0, centerX - radius); x <= Math.min(regionsX - 1, centerX + radius); x++) {
+                action.accept(y * regionsX + x);
+            }
+        }
+    }
+
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+}
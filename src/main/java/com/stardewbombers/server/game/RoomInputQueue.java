@@ -0,0 +1,198 @@
+package com.stardewbombers.server.game;
+
+import com.stardewbombers.shared.game.GameClock;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 房间的输入命令队列
+ * 任意线程用 submit 提交命令：只记录到达时间并放入无锁队列，不需要房间锁；
+ * 房间 tick 开始时调度线程一次取出已到达的全部命令，按玩家分组、按序号排序，
+ * 去掉重复或过期的序号，经过每个玩家的令牌桶限速后交给 GameLogic 执行。
+ * 输入序号只在这里检查，GameLogic 按收到的顺序执行（玩家还在移动时先缓存）。
+ *
+ * 每个玩家排队中的命令数有上限，刷屏的客户端不会让队列无限增长。
+ * addPlayer/removePlayer/drain/discard 由 GameRoom 在房间锁内调用，submit 可以在任意线程调用。
+ */
+final class RoomInputQueue {
+    static final int MAX_QUEUED_PER_PLAYER = 32; // 两个 tick 之间每个玩家最多排队的命令
+    static final int RATE_PER_SECOND = 20;       // 持续输入速率上限（正常移动每秒只有几格）
+    static final int BURST = 10;                 // 允许的突发命令数
+    private static final long NANOS_PER_TOKEN = 1_000_000_000L / RATE_PER_SECOND;
+    private static final int EWMA_SHIFT = 4;
+
+    private static final Comparator<Queued> BY_SEQUENCE = Comparator.comparingInt(q -> q.command.getSequence());
+
+    private final GameClock clock;
+    private final ConcurrentLinkedQueue<Queued> queue = new ConcurrentLinkedQueue<>();
+    private final Map<String, PlayerSlot> slots = new ConcurrentHashMap<>();
+    private final List<PlayerSlot> touched = new ArrayList<>(); // 本次 drain 收到命令的玩家，按首次到达顺序
+
+    private final LongAdder overflow = new LongAdder();
+    private volatile long accepted;
+    private volatile long duplicates;
+    private volatile long rateLimited;
+    private volatile long avgDelayNanos; // 从到达到执行的平均等待（指数滑动平均）
+
+    RoomInputQueue(GameClock clock) {
+        this.clock = clock;
+    }
+
+    void addPlayer(String playerId) {
+        slots.put(playerId, new PlayerSlot(clock.nanoTime()));
+    }
+
+    void removePlayer(String playerId) {
+        slots.remove(playerId);
+    }
+
+    /**
+     * 提交一条命令（任意线程）
+     * @return 玩家不在房间里或排队的命令已满时返回 false
+     */
+    boolean submit(InputCommand command) {
+        PlayerSlot slot = slots.get(command.getPlayerId());
+        if (slot == null) {
+            return false;
+        }
+        if (slot.queued.incrementAndGet() > MAX_QUEUED_PER_PLAYER) {
+            slot.queued.decrementAndGet();
+            overflow.increment();
+            return false;
+        }
+        queue.add(new Queued(command, slot, clock.nanoTime()));
+        return true;
+    }
+
+    /**
+     * 执行到目前为止到达的命令（tick 开始时调用）
+     * @return 执行的命令数
+     */
+    int drain(GameLogic logic) {
+        Queued queued;
+        while ((queued = queue.poll()) != null) {
+            PlayerSlot slot = queued.slot;
+            slot.queued.decrementAndGet();
+            if (slot.batch.isEmpty()) {
+                touched.add(slot);
+            }
+            slot.batch.add(queued);
+        }
+        if (touched.isEmpty()) {
+            return 0;
+        }
+        long now = clock.nanoTime();
+        int executed = 0;
+        for (PlayerSlot slot : touched) {
+            // 同一连接上通常已经有序，只有多种传输方式混用时才需要排序
+            if (!isSorted(slot.batch)) {
+                slot.batch.sort(BY_SEQUENCE);
+            }
+            for (Queued entry : slot.batch) {
+                if (apply(logic, slot, entry, now)) {
+                    executed++;
+                }
+            }
+            slot.batch.clear();
+        }
+        touched.clear();
+        accepted += executed;
+        return executed;
+    }
+
+    /**
+     * 丢弃排队中的命令（房间不在对局中时调用）
+     */
+    void discard() {
+        Queued queued;
+        while ((queued = queue.poll()) != null) {
+            queued.slot.queued.decrementAndGet();
+        }
+    }
+
+    private boolean apply(GameLogic logic, PlayerSlot slot, Queued entry, long now) {
+        InputCommand command = entry.command;
+        int sequence = command.getSequence();
+        if (sequence > 0 && sequence <= slot.lastSequence) {
+            duplicates++;
+            return false;
+        }
+        if (!slot.tryAcquire(now)) {
+            rateLimited++;
+            return false;
+        }
+        if (sequence > 0) {
+            slot.lastSequence = sequence;
+        }
+        long delay = now - entry.receivedNanos;
+        long avg = avgDelayNanos;
+        avgDelayNanos = avg == 0 ? delay : avg + ((delay - avg) >> EWMA_SHIFT);
+        if (command.getKind() == InputCommand.Kind.MOVE) {
+            logic.movePlayer(command.getPlayerId(), command.getDirection(), sequence);
+        } else {
+            logic.placeBomb(command.getPlayerId(), sequence);
+        }
+        return true;
+    }
+
+    private static boolean isSorted(List<Queued> batch) {
+        for (int i = 1; i < batch.size(); i++) {
+            if (batch.get(i - 1).command.getSequence() > batch.get(i).command.getSequence()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long getAcceptedCount() { return accepted; }
+    long getDuplicateCount() { return duplicates; }
+    long getRateLimitedCount() { return rateLimited; }
+    long getOverflowCount() { return overflow.sum(); }
+    long getAvgDelayNanos() { return avgDelayNanos; }
+
+    /**
+     * 一个玩家的队列状态：queued 跨线程计数，其余字段只在 tick 中访问
+     */
+    private static final class PlayerSlot {
+        final AtomicInteger queued = new AtomicInteger();
+        final List<Queued> batch = new ArrayList<>();
+        int lastSequence;     // 已接受的最大序号
+        long tokens = BURST;  // 令牌桶
+        long refillNanos;     // 上次补充令牌的时间
+
+        PlayerSlot(long now) {
+            this.refillNanos = now;
+        }
+
+        boolean tryAcquire(long now) {
+            long earned = (now - refillNanos) / NANOS_PER_TOKEN;
+            if (earned > 0) {
+                tokens = Math.min(BURST, tokens + earned);
+                refillNanos = tokens == BURST ? now : refillNanos + earned * NANOS_PER_TOKEN;
+            }
+            if (tokens == 0) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+    }
+
+    private static final class Queued {
+        final InputCommand command;
+        final PlayerSlot slot;
+        final long receivedNanos;
+
+        Queued(InputCommand command, PlayerSlot slot, long receivedNanos) {
+            this.command = command;
+            this.slot = slot;
+            this.receivedNanos = receivedNanos;
+        }
+    }
+}
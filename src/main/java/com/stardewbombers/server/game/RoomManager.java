@@ -0,0 +1,214 @@
+package com.stardewbombers.server.game;
+
+import com.stardewbombers.shared.entity.GameMap;
+import com.stardewbombers.shared.log.GameLog;
+import com.stardewbombers.shared.log.GameLogger;
+import com.stardewbombers.shared.log.LogCategory;
+import com.stardewbombers.shared.util.MapLoader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
+
+/**
+ * 房间管理器
+ * 一个服务器进程同时承载多个对局：负责匹配（加入等待中的房间或新建房间）、
+ * 记录玩家所在房间，并通过 RoomScheduler 的准入控制限制房间总数。
+ *
+ * 地图文件只解析一次，作为模板缓存，每个房间使用模板的副本。
+ * 设置了延迟来源（网络层的心跳测量）后，匹配优先选择玩家平均往返时间与新玩家最接近的房间。
+ */
+public class RoomManager {
+    private static final GameLogger LOG = GameLog.logger(LogCategory.ROOM);
+    public static final String[] DEFAULT_MAPS = {"cave_map", "home_map", "farm_map"};
+
+    private final RoomScheduler scheduler;
+    private final String[] mapNames;
+    private final Map<String, GameRoom> rooms = new ConcurrentHashMap<>();
+    private final Map<String, GameRoom> playerRooms = new ConcurrentHashMap<>();
+    private final Map<String, GameMap> mapTemplates = new ConcurrentHashMap<>();
+    private final AtomicInteger roomSequence = new AtomicInteger();
+    private volatile SnapshotSink snapshotSink;
+    private volatile ToLongFunction<String> latencyProvider; // 玩家往返时间（微秒），未知时为负数
+
+    public RoomManager(RoomScheduler scheduler) {
+        this(scheduler, DEFAULT_MAPS);
+    }
+
+    public RoomManager(RoomScheduler scheduler, String[] mapNames) {
+        this.scheduler = scheduler;
+        this.mapNames = mapNames.clone();
+        scheduler.setFinishedListener(this::onRoomFinished);
+    }
+
+    /**
+     * 匹配：加入等待中且未满的房间（知道延迟时选延迟最接近的，否则取第一个），没有则按地图轮换新建一个
+     * @return 加入的房间；服务器已满（准入控制拒绝）时返回 null
+     */
+    public synchronized GameRoom joinAnyRoom(String playerId) {
+        GameRoom current = playerRooms.get(playerId);
+        if (current != null && !current.isFinished()) {
+            return current;
+        }
+        GameRoom closest = closestLatencyRoom(playerId);
+        if (closest != null && closest.addPlayer(playerId)) {
+            playerRooms.put(playerId, closest);
+            return closest;
+        }
+        for (GameRoom room : rooms.values()) {
+            if (room.isJoinable() && room.addPlayer(playerId)) {
+                playerRooms.put(playerId, room);
+                return room;
+            }
+        }
+        String mapName = mapNames[Math.floorMod(roomSequence.get(), mapNames.length)];
+        GameRoom room = createRoom(mapName);
+        if (room == null || !room.addPlayer(playerId)) {
+            return null;
+        }
+        playerRooms.put(playerId, room);
+        return room;
+    }
+
+    /**
+     * 平均往返时间与玩家最接近的可加入房间；没有延迟来源、玩家还没有测量结果或房间里都没有测量结果时返回 null
+     */
+    private GameRoom closestLatencyRoom(String playerId) {
+        ToLongFunction<String> provider = latencyProvider;
+        long rtt = provider != null ? provider.applyAsLong(playerId) : -1L;
+        if (rtt < 0) {
+            return null;
+        }
+        GameRoom best = null;
+        long bestDistance = Long.MAX_VALUE;
+        for (GameRoom room : rooms.values()) {
+            if (!room.isJoinable()) {
+                continue;
+            }
+            long total = 0;
+            int measured = 0;
+            for (String id : room.getPlayerIds()) {
+                long playerRtt = provider.applyAsLong(id);
+                if (playerRtt >= 0) {
+                    total += playerRtt;
+                    measured++;
+                }
+            }
+            if (measured > 0 && Math.abs(total / measured - rtt) < bestDistance) {
+                best = room;
+                bestDistance = Math.abs(total / measured - rtt);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 设置玩家往返时间（微秒）的来源，返回负数表示未知
+     */
+    public void setLatencyProvider(ToLongFunction<String> latencyProvider) {
+        this.latencyProvider = latencyProvider;
+    }
+
+    /**
+     * 加入指定房间
+     */
+    public synchronized boolean joinRoom(String roomId, String playerId) {
+        GameRoom room = rooms.get(roomId);
+        if (room == null || playerRooms.containsKey(playerId) || !room.addPlayer(playerId)) {
+            return false;
+        }
+        playerRooms.put(playerId, room);
+        return true;
+    }
+
+    /**
+     * 新建房间
+     * @return 新房间；地图加载失败或超出调度预算时返回 null
+     */
+    public GameRoom createRoom(String mapName) {
+        GameMap gameMap;
+        try {
+            gameMap = loadTemplate(mapName).copy();
+        } catch (IOException e) {
+            LOG.error("加载地图失败: {}", mapName, e);
+            return null;
+        }
+        String roomId = "room_" + roomSequence.incrementAndGet();
+        GameRoom room = new GameRoom(roomId, mapName, gameMap);
+        room.setSnapshotSink(snapshotSink);
+        if (!scheduler.assign(room)) {
+            return null;
+        }
+        rooms.put(roomId, room);
+        LOG.info("创建房间 {}，地图: {}", roomId, mapName);
+        return room;
+    }
+
+    /**
+     * 玩家离开（断线）
+     */
+    public synchronized void leave(String playerId) {
+        GameRoom room = playerRooms.remove(playerId);
+        if (room != null) {
+            room.removePlayer(playerId);
+        }
+    }
+
+    public GameRoom getRoomOf(String playerId) {
+        return playerRooms.get(playerId);
+    }
+
+    public GameRoom getRoom(String roomId) {
+        return rooms.get(roomId);
+    }
+
+    public Collection<GameRoom> getRooms() {
+        return Collections.unmodifiableCollection(rooms.values());
+    }
+
+    /**
+     * 设置之后创建的房间以及现有房间的快照出口
+     */
+    public void setSnapshotSink(SnapshotSink sink) {
+        this.snapshotSink = sink;
+        for (GameRoom room : rooms.values()) {
+            room.setSnapshotSink(sink);
+        }
+    }
+
+    public RoomScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * 房间结束后回收：移除房间和玩家映射
+     */
+    private void onRoomFinished(GameRoom room) {
+        rooms.remove(room.getRoomId());
+        List<String> playerIds = new ArrayList<>(room.getPlayerIds());
+        for (String playerId : playerIds) {
+            playerRooms.remove(playerId, room);
+        }
+        LOG.info("回收房间 {}，共 {} 步，平均每步 {}us", room.getRoomId(), room.getStepCount(),
+            room.getAvgStepNanos() / 1000);
+    }
+
+    private GameMap loadTemplate(String mapName) throws IOException {
+        GameMap template = mapTemplates.get(mapName);
+        if (template == null) {
+            synchronized (mapTemplates) {
+                template = mapTemplates.get(mapName);
+                if (template == null) {
+                    template = MapLoader.loadMap(mapName);
+                    mapTemplates.put(mapName, template);
+                }
+            }
+        }
+        return template;
+    }
+}
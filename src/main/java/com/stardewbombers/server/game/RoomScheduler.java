@@ -0,0 +1,239 @@
+package com.stardewbombers.server.game;
+
+import com.stardewbombers.shared.game.GameLoop;
+import com.stardewbombers.shared.log.GameLog;
+import com.stardewbombers.shared.log.GameLogger;
+import com.stardewbombers.shared.log.LogCategory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 房间调度器
+ * 房间分配到固定数量的分片上（默认每个CPU核心一个），每个分片有自己的单线程调度器，按固定频率依次 tick 其中的房间，
+ * 同一个房间始终在同一个线程上运行。
+ *
+ * 准入控制：每个分片每次 tick 的预算为 周期 × 目标利用率；分片负载取其中房间平均单步耗时之和
+ * 与实测一轮 tick 平均耗时中的较大者，新房间按已测得的平均房间耗时估算，放不下时拒绝创建。
+ */
+public class RoomScheduler {
+    private static final GameLogger LOG = GameLog.logger(LogCategory.ROOM);
+    public static final double DEFAULT_TARGET_UTILIZATION = 0.7;
+    public static final long DEFAULT_ROOM_COST_NANOS = 100_000; // 还没有测量数据时假设每个房间每步0.1ms
+
+    private final Shard[] shards;
+    private final int tickRate;
+    private final long periodNanos;
+    private final long budgetNanos;
+    private volatile Consumer<GameRoom> finishedListener = room -> { };
+    private volatile boolean running;
+
+    public RoomScheduler() {
+        this(Runtime.getRuntime().availableProcessors(), GameLoop.DEFAULT_TICK_RATE, DEFAULT_TARGET_UTILIZATION);
+    }
+
+    /**
+     * @param shardCount 分片（线程）数量
+     * @param tickRate 每秒 tick 次数
+     * @param targetUtilization 每个分片允许占用的周期比例（0-1）
+     */
+    public RoomScheduler(int shardCount, int tickRate, double targetUtilization) {
+        if (shardCount <= 0 || tickRate <= 0 || targetUtilization <= 0 || targetUtilization > 1) {
+            throw new IllegalArgumentException("调度器参数无效: shards=" + shardCount
+                + " tickRate=" + tickRate + " utilization=" + targetUtilization);
+        }
+        this.tickRate = tickRate;
+        this.periodNanos = 1_000_000_000L / tickRate;
+        this.budgetNanos = (long) (periodNanos * targetUtilization);
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+        }
+    }
+
+    /**
+     * 设置房间结束时的回调（在分片线程中调用）
+     */
+    public void setFinishedListener(Consumer<GameRoom> listener) {
+        this.finishedListener = listener;
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        for (Shard shard : shards) {
+            shard.executor.scheduleAtFixedRate(shard, 0, periodNanos, TimeUnit.NANOSECONDS);
+        }
+        LOG.info("房间调度器启动: {} 个分片, {}Hz, 每分片预算 {}us", shards.length, tickRate, budgetNanos / 1000);
+    }
+
+    public synchronized void stop() {
+        running = false;
+        for (Shard shard : shards) {
+            shard.executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 为房间分配分片（准入控制）
+     * @return 是否接纳；所有分片的剩余预算都不足时返回 false
+     */
+    public synchronized boolean assign(GameRoom room) {
+        long estimate = estimateRoomCost();
+        Shard best = null;
+        long bestLoad = Long.MAX_VALUE;
+        for (Shard shard : shards) {
+            long load = shard.estimatedLoad(estimate);
+            if (load < bestLoad) {
+                bestLoad = load;
+                best = shard;
+            }
+        }
+        if (best == null || bestLoad + estimate > budgetNanos) {
+            LOG.warn("房间 {} 被拒绝: 最低分片负载 {}us + 估算 {}us 超出预算 {}us",
+                room.getRoomId(), bestLoad / 1000, estimate / 1000, budgetNanos / 1000);
+            return false;
+        }
+        room.setShard(best.index);
+        best.rooms.add(room);
+        return true;
+    }
+
+    /**
+     * 从分片中移除房间
+     */
+    public synchronized void unassign(GameRoom room) {
+        int index = room.getShard();
+        if (index >= 0 && index < shards.length) {
+            shards[index].rooms.remove(room);
+        }
+        room.setShard(-1);
+    }
+
+    /**
+     * 当前还能接纳的房间数（按平均房间耗时估算）
+     */
+    public synchronized int estimateFreeCapacity() {
+        long estimate = estimateRoomCost();
+        int capacity = 0;
+        for (Shard shard : shards) {
+            long free = budgetNanos - shard.estimatedLoad(estimate);
+            if (free > 0) {
+                capacity += (int) (free / estimate);
+            }
+        }
+        return capacity;
+    }
+
+    /**
+     * 新房间的估算单步耗时：已测量房间的平均值，没有数据时使用默认值
+     */
+    long estimateRoomCost() {
+        long total = 0;
+        int measured = 0;
+        for (Shard shard : shards) {
+            for (GameRoom room : shard.rooms) {
+                long cost = room.getAvgStepNanos();
+                if (cost > 0) {
+                    total += cost;
+                    measured++;
+                }
+            }
+        }
+        return measured == 0 ? DEFAULT_ROOM_COST_NANOS : Math.max(1L, total / measured);
+    }
+
+    public int getShardCount() { return shards.length; }
+    public long getPeriodNanos() { return periodNanos; }
+    public long getBudgetNanos() { return budgetNanos; }
+
+    public int getRoomCount() {
+        int count = 0;
+        for (Shard shard : shards) {
+            count += shard.rooms.size();
+        }
+        return count;
+    }
+
+    /**
+     * 各分片统计（用于服务器控制台和监控）
+     */
+    public String describe() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("调度器: %d 分片, 周期 %dus, 预算 %dus, 估算房间耗时 %.1fus, 剩余容量约 %d 个房间%n",
+            shards.length, periodNanos / 1000, budgetNanos / 1000, estimateRoomCost() / 1000.0, estimateFreeCapacity()));
+        for (Shard shard : shards) {
+            sb.append(String.format("  分片%d: 房间 %d, 上次 %.1fus, 平均 %.1fus, 最大 %.1fus, 超时 %d/%d%n",
+                shard.index, shard.rooms.size(), shard.lastPassNanos / 1000.0, shard.avgPassNanos / 1000.0,
+                shard.maxPassNanos / 1000.0, shard.overruns, shard.passes));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 一个分片：由自己的单线程调度器按固定频率 tick 的一组房间
+     */
+    private final class Shard implements Runnable {
+        private final int index;
+        private final ScheduledExecutorService executor;
+        private final List<GameRoom> rooms = new CopyOnWriteArrayList<>();
+        private volatile long lastPassNanos;
+        private volatile long avgPassNanos; // 一轮 tick 耗时的滑动平均
+        private volatile long maxPassNanos;
+        private volatile long passes;
+        private volatile long overruns; // 一轮 tick 超过整个周期的次数
+
+        Shard(int index) {
+            this.index = index;
+            this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "room-shard-" + index);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+
+        long estimatedLoad(long defaultCost) {
+            long load = 0;
+            for (GameRoom room : rooms) {
+                long cost = room.getAvgStepNanos();
+                load += cost > 0 ? cost : defaultCost;
+            }
+            return Math.max(load, avgPassNanos);
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            for (GameRoom room : rooms) {
+                try {
+                    room.tick();
+                } catch (Throwable e) {
+                    // 任何异常都不能抛出分片任务（否则定时任务停止，分片上所有房间都会卡住），出错的房间直接结束并回收
+                    LOG.error("房间 {} tick 失败，结束该房间", room.getRoomId(), e);
+                    room.abort();
+                }
+                if (room.isFinished()) {
+                    rooms.remove(room);
+                    room.setShard(-1);
+                    finishedListener.accept(room);
+                }
+            }
+            long elapsed = System.nanoTime() - start;
+            lastPassNanos = elapsed;
+            long avg = avgPassNanos;
+            avgPassNanos = avg == 0 ? elapsed : avg + ((elapsed - avg) >> 4);
+            if (elapsed > maxPassNanos) {
+                maxPassNanos = elapsed;
+            }
+            passes++;
+            if (elapsed > periodNanos) {
+                overruns++;
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.stardewbombers.server.game;
+
+import com.stardewbombers.shared.protocol.Message;
+import com.stardewbombers.shared.protocol.WorldSnapshotMessage;
+import com.stardewbombers.shared.protocol.codec.SharedFrame;
+import com.stardewbombers.shared.protocol.snapshot.SnapshotDelta;
+import com.stardewbombers.shared.protocol.snapshot.SnapshotHistory;
+import com.stardewbombers.shared.protocol.snapshot.WorldSnapshot;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 房间的快照发布：每个 tick 记录一次权威状态，按每个玩家最后确认的快照计算增量发送
+ * 确认的快照已不在历史中（或从未确认）时发送完整快照。
+ * 设置了兴趣区域后，每个玩家只收到自己可见范围内的玩家、炸弹和道具，所以每个玩家保存自己收到的视图历史；
+ * 能看到全部内容的玩家视图就是完整状态本身，同一次发布中基准也相同的玩家共用一个增量。
+ * 共用的增量从第二个玩家起以 SharedFrame 发送（只编码一次）；独立帧不驻留字符串，很小的增量按连接编码反而更省流量，
+ * 所以独立帧小于 SHARED_FRAME_MIN_BYTES 时仍发送原消息。
+ *
+ * publish 在房间锁内由调度线程调用；acknowledge 来自网络线程，确认序号用并发 Map 保存。
+ */
+class RoomSnapshots {
+    static final int SHARED_FRAME_MIN_BYTES = 256;
+
+    private final String roomId;
+    private final Map<String, SnapshotHistory> views = new HashMap<>();
+    private final Map<String, Long> acked = new ConcurrentHashMap<>();
+    private final Map<WorldSnapshot, SharedDelta> deltaCache = new IdentityHashMap<>();
+    private long nextSequence;
+    private volatile SnapshotSink sink;
+
+    private volatile long fullCount;
+    private volatile long deltaCount;
+    private volatile long filteredCount;
+    private volatile long sharedCount;
+
+    RoomSnapshots(String roomId) {
+        this.roomId = roomId;
+    }
+
+    void setSink(SnapshotSink sink) {
+        this.sink = sink;
+    }
+
+    /**
+     * 记录当前状态并发给房间内的玩家
+     * @param interest 兴趣区域，null 表示所有玩家都能看到全部内容
+     */
+    void publish(GameLogic logic, List<String> playerIds, InterestGrid interest) {
+        SnapshotSink target = sink;
+        if (target == null || playerIds.isEmpty()) {
+            return;
+        }
+        WorldSnapshot current = logic.captureSnapshot(nextSequence++);
+        deltaCache.clear();
+        for (String playerId : playerIds) {
+            WorldSnapshot view = current;
+            if (interest != null && !interest.seesEverything(playerId)) {
+                view = current.filter(
+                    player -> player.getId().equals(playerId)
+                        || interest.canSee(playerId, player.getX(), player.getY()),
+                    cell -> interest.canSeeCellIndex(playerId, cell));
+                if (view != current) {
+                    filteredCount++;
+                }
+            }
+            SnapshotHistory history = views.computeIfAbsent(playerId, id -> new SnapshotHistory());
+            Long ackedSequence = acked.get(playerId);
+            WorldSnapshot baseline = ackedSequence != null ? history.get(ackedSequence) : null;
+            history.put(view);
+            Message message;
+            if (view == current) {
+                // 基准按对象比较：不同玩家的同序号基准可能是不同的过滤视图
+                WorldSnapshot key = baseline != null ? baseline : WorldSnapshot.EMPTY;
+                SharedDelta shared = deltaCache.get(key);
+                if (shared == null) {
+                    shared = new SharedDelta(new WorldSnapshotMessage(roomId, SnapshotDelta.diff(baseline, current)));
+                    deltaCache.put(key, shared);
+                    message = shared.message;
+                } else {
+                    message = shared.share();
+                    if (message instanceof SharedFrame) {
+                        sharedCount++;
+                    }
+                }
+            } else {
+                message = new WorldSnapshotMessage(roomId, SnapshotDelta.diff(baseline, view));
+            }
+            if (baseline == null) {
+                fullCount++;
+            } else {
+                deltaCount++;
+            }
+            target.send(playerId, message);
+        }
+    }
+
+    /**
+     * 玩家确认已应用某个快照；乱序到达的旧确认不会让基准后退，不存在的序号在发布时按完整快照处理
+     */
+    void acknowledge(String playerId, long sequence) {
+        if (sequence >= 0) {
+            acked.merge(playerId, sequence, Math::max);
+        }
+    }
+
+    void remove(String playerId) {
+        acked.remove(playerId);
+        views.remove(playerId);
+    }
+
+    long getFullCount() { return fullCount; }
+    long getDeltaCount() { return deltaCount; }
+    /** 按兴趣区域裁剪过的快照数 */
+    long getFilteredCount() { return filteredCount; }
+    /** 以共享帧发送（没有单独编码）的快照数 */
+    long getSharedCount() { return sharedCount; }
+
+    /**
+     * 一次发布中多个玩家共用的增量
+     */
+    private static final class SharedDelta {
+        final WorldSnapshotMessage message;
+        Message outgoing; // 第二个玩家起发送的消息，第一次共用时决定
+
+        SharedDelta(WorldSnapshotMessage message) {
+            this.message = message;
+        }
+
+        Message share() {
+            if (outgoing == null) {
+                SharedFrame frame = new SharedFrame(message);
+                outgoing = frame.size() >= SHARED_FRAME_MIN_BYTES ? frame : message;
+            }
+            return outgoing;
+        }
+    }
+}
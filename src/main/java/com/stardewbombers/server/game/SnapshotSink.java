@@ -0,0 +1,13 @@
+package com.stardewbombers.server.game;
+
+import com.stardewbombers.shared.protocol.Message;
+
+/**
+ * 房间快照的发送出口，由网络层实现（按玩家 id 找到连接并发送）
+ * 在调度线程上调用，实现不应阻塞太久。
+ * 消息是 WorldSnapshotMessage，或者多个玩家共用增量时包装它的 SharedFrame（已经编码好，直接发送即可）。
+ */
+@FunctionalInterface
+public interface SnapshotSink {
+    void send(String playerId, Message message);
+}
@@ -0,0 +1,42 @@
+package com.stardewbombers.server.network;
+
+import com.stardewbombers.shared.protocol.Message;
+import com.stardewbombers.shared.util.LatencyTracker;
+
+/**
+ * 服务器端的一个客户端连接
+ * 阻塞模式（每个连接一个线程的 ClientHandler）和 NIO 模式（NioConnection）共用，
+ * NetworkServer 的转发和广播只通过这个接口发送消息。
+ */
+public interface ClientConnection {
+    String getClientId();
+
+    /**
+     * 发送一条消息（按连接握手时选择的格式编码），可以在任意线程调用，不会阻塞
+     * 消息进入有界发送队列（见 SendQueuePolicy），服务器合并发送时由 flushOutbound 写出；
+     * 客户端跟不上时可能丢弃非关键消息，或者断开连接。
+     */
+    void sendMessage(Message message);
+
+    /**
+     * 把发送队列中的消息编码成一批帧一次写出，可以在任意线程调用
+     */
+    void flushOutbound();
+
+    /**
+     * 断开连接，可以重复调用
+     */
+    void disconnect();
+
+    boolean isConnected();
+
+    /**
+     * 发送队列中等待写出的消息数
+     */
+    int getQueueDepth();
+
+    /**
+     * 心跳测得的往返时间和抖动，以及最近收到数据的时间
+     */
+    LatencyTracker getLatency();
+}
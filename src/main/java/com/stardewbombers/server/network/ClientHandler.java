@@ -1,24 +1,47 @@
 package com.stardewbombers.server.network;
 
+import com.stardewbombers.shared.protocol.Message;
+import com.stardewbombers.shared.protocol.codec.Frames;
+import com.stardewbombers.shared.protocol.codec.MessageCodec;
+import com.stardewbombers.shared.protocol.codec.SharedFrame;
+import com.stardewbombers.shared.protocol.codec.WireFormat;
+import com.stardewbombers.shared.protocol.codec.WireReader;
+import com.stardewbombers.shared.protocol.codec.WireWriter;
+import com.stardewbombers.shared.util.LatencyTracker;
+
 import java.io.*;
 import java.net.Socket;
+import java.util.concurrent.Semaphore;
 
-public class ClientHandler implements Runnable {
+/**
+ * 阻塞模式下的客户端连接：读线程运行 run，握手后另起一个发送线程负责写出
+ * sendMessage 和 flushOutbound 只排队和唤醒发送线程，一个客户端写阻塞时不会拖住调用者（转发、广播、合并发送线程）。
+ */
+public class ClientHandler implements Runnable, ClientConnection {
+    private static final int WRITE_BATCH_BYTES = 32 * 1024; // 一次写出的最大批量
     private String clientId;
     private Socket socket;
-    private PrintWriter out;
-    private BufferedReader in;
+    private DataOutputStream out;
+    private DataInputStream in;
     private NetworkServer server;
-    private boolean connected = true;
+    private volatile boolean connected = true;
+    private final OutboundQueue outbound; // 握手完成前的消息也留在这里
+    private final Semaphore writeSignal = new Semaphore(0);
+    private final LatencyTracker latency = new LatencyTracker();
+    // 以下字段只在发送线程访问（codec 在发送线程启动前设置）
+    private MessageCodec codec;
+    private final WireWriter writer = new WireWriter();
+    private final WireWriter batch = new WireWriter();
 
     public ClientHandler(String clientId, Socket socket, NetworkServer server) {
         this.clientId = clientId;
         this.socket = socket;
         this.server = server;
+        this.outbound = new OutboundQueue(server.getSendQueuePolicy());
 
         try {
-            out = new PrintWriter(socket.getOutputStream(), true);
-            in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
         } catch (IOException e) {
             System.err.println("初始化客户端处理器失败: " + e.getMessage());
             disconnect();
@@ -28,10 +51,13 @@ public class ClientHandler implements Runnable {
     @Override
     public void run() {
         try {
-            String receivedMessage;
-            while (connected && (receivedMessage = in.readLine()) != null) {
+            MessageCodec receiveCodec = handshake();
+            WireReader reader = new WireReader();
+            byte[] frame;
+            while (connected && (frame = Frames.readFrame(in)) != null) {
+                reader.reset(frame, 0, frame.length);
                 // 交给服务器处理
-                server.handleClientMessage(clientId, receivedMessage);
+                server.handleClientMessage(clientId, receiveCodec.decode(reader));
             }
         } catch (IOException e) {
             System.err.println("客户端 " + clientId + " 通信错误: " + e.getMessage());
@@ -40,19 +66,138 @@ public class ClientHandler implements Runnable {
         }
     }
 
-    public void sendMessage(String json) {
-        if (connected && out != null) {
-            out.println(json);
+    /**
+     * 读取客户端握手，回复同样格式的握手，然后启动发送线程写出握手前排队的消息
+     */
+    private MessageCodec handshake() throws IOException {
+        byte[] preamble = new byte[WireFormat.PREAMBLE_SIZE];
+        in.readFully(preamble);
+        WireFormat format = WireFormat.fromPreamble(preamble, 0);
+        boolean compressed = WireFormat.isCompressed(preamble, 0);
+        codec = server.newCodec(format, compressed);
+        out.write(server.replyPreamble(format, compressed));
+        out.flush();
+        Thread writerThread = server.newConnectionThread(this::writeLoop);
+        writerThread.setName(Thread.currentThread().getName() + "-send");
+        writerThread.start();
+        writeSignal.release();
+        return codec;
+    }
+
+    /**
+     * 发送线程：等待唤醒，每次把队列中的消息一批写出
+     */
+    private void writeLoop() {
+        try {
+            while (connected) {
+                writeSignal.acquire();
+                writeSignal.drainPermits();
+                if (connected && !outbound.isEmpty()) {
+                    writeOutbound();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            if (connected) { // 主动断开时关闭 socket 导致的异常不用报告
+                System.err.println("发送给客户端 " + clientId + " 失败: " + e.getMessage());
+                disconnect();
+            }
+        }
+    }
+
+    @Override
+    public String getClientId() {
+        return clientId;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return connected;
+    }
+
+    @Override
+    public void sendMessage(Message message) {
+        if (!connected || out == null) {
+            return;
+        }
+        if (!server.recordOffer(clientId, outbound.offer(message))) {
+            // 调用者可能正在遍历房间玩家，不在这里移除客户端：关闭 socket，由读线程退出时清理
+            closeSocket();
+            return;
+        }
+        if (!server.isCoalescing()) {
+            flushOutbound();
+        }
+    }
+
+    @Override
+    public void flushOutbound() {
+        // 握手完成前发送线程还没启动，信号留到启动后处理
+        if (connected && !outbound.isEmpty()) {
+            writeSignal.release();
+        }
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return outbound.size();
+    }
+
+    @Override
+    public LatencyTracker getLatency() {
+        return latency;
+    }
+
+    /**
+     * 把队列中的消息编码成帧拼在一起写出并 flush（发送线程）
+     */
+    private void writeOutbound() throws IOException {
+        batch.reset();
+        int count = 0;
+        Message message;
+        while ((message = outbound.poll()) != null) {
+            if (message instanceof SharedFrame && codec.supportsSharedFrames()) {
+                // 已经编码好的共享帧（含长度前缀）直接复制
+                batch.writeBytes(((SharedFrame) message).frame());
+            } else {
+                writer.reset();
+                codec.encode(message, writer);
+                if (writer.size() > Frames.MAX_FRAME_BYTES) {
+                    // 编解码器状态已经前进，不能跳过这条消息，只能断开
+                    throw new IOException(message.getType() + " 消息过长: " + writer.size() + " 字节");
+                }
+                Frames.appendFrame(batch, writer);
+            }
+            count++;
+            if (batch.size() >= WRITE_BATCH_BYTES) {
+                out.write(batch.array(), 0, batch.size());
+                batch.reset();
+            }
         }
+        out.write(batch.array(), 0, batch.size());
+        out.flush();
+        server.recordWrite(count);
     }
 
+    @Override
     public void disconnect() {
+        boolean wasConnected = connected;
+        closeSocket();
+        if (wasConnected) {
+            server.onCodecClosed(clientId, codec);
+        }
+        server.removeClient(clientId);
+    }
+
+    private void closeSocket() {
         connected = false;
+        outbound.clear();
+        writeSignal.release(); // 让发送线程退出
         try {
             if (socket != null) socket.close();
         } catch (IOException e) {
             System.err.println("关闭客户端连接出错: " + e.getMessage());
         }
-        server.removeClient(clientId);
     }
 }
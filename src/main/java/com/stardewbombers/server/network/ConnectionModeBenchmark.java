@@ -0,0 +1,254 @@
+package com.stardewbombers.server.network;
+
+import com.stardewbombers.shared.protocol.Message;
+import com.stardewbombers.shared.protocol.MessageType;
+import com.stardewbombers.shared.protocol.PlayerMoveMessage;
+import com.stardewbombers.shared.protocol.codec.Frames;
+import com.stardewbombers.shared.protocol.codec.MessageCodec;
+import com.stardewbombers.shared.protocol.codec.WireFormat;
+import com.stardewbombers.shared.protocol.codec.WireReader;
+import com.stardewbombers.shared.protocol.codec.WireWriter;
+import com.stardewbombers.shared.util.LogHistogram;
+import com.stardewbombers.shared.util.PinningMonitor;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import javafx.geometry.Point2D;
+
+/**
+ * 连接处理模式基准测试：平台线程（BLOCKING）、虚拟线程（VIRTUAL）和 NIO 事件循环（NIO）
+ * 对每种模式启动一个回显服务器，建立 N 个连接后进行若干轮"所有连接各发一条 PlayerMoveMessage 并等待回显"，
+ * 报告建立连接耗时、服务器线程数、堆占用、吞吐量和往返延迟分布。
+ *
+ * 客户端一侧用单线程 Selector 驱动所有连接，线程数的差异只来自服务器。
+ * 平台线程模式在连接很多时受系统线程数限制（ulimit -u），可能无法建立全部连接。
+ *
+ * 运行：java -cp target/classes:依赖 com.stardewbombers.server.network.ConnectionModeBenchmark [连接数] [轮数] [模式,...]
+ * 例如：... ConnectionModeBenchmark 10000 20 blocking,virtual,nio
+ */
+public class ConnectionModeBenchmark {
+    private static final long CONNECT_TIMEOUT_MS = 60_000;
+    private static final long ROUND_TIMEOUT_MS = 30_000;
+
+    public static void main(String[] args) throws Exception {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        String[] modes = (args.length > 2 ? args[2] : "blocking,virtual,nio").split(",");
+
+        System.out.printf("连接数 %d，每种模式 %d 轮回显%n", connections, rounds);
+        System.out.printf("%-8s %10s %8s %10s %12s %10s %10s %10s %8s%n",
+            "模式", "建连(ms)", "线程", "堆(MB)", "消息/秒", "p50(us)", "p99(us)", "max(us)", "钉住");
+        for (String name : modes) {
+            IoMode mode = IoMode.parse(name, null);
+            if (mode == null) {
+                System.out.println("未知模式: " + name);
+                continue;
+            }
+            System.gc();
+            runMode(mode, connections, rounds);
+        }
+    }
+
+    private static void runMode(IoMode mode, int connections, int rounds) throws Exception {
+        PrintStream originalOut = System.out;
+        EchoServer server = new EchoServer();
+        server.setIoMode(mode);
+        server.setFlushRate(0); // 比较的是连接处理模式，回显逐条立即发送，不受合并发送周期影响
+        server.setHeartbeat(0, 0); // 建立大量连接期间客户端不发数据，不能按超时断开
+        List<SocketChannel> channels = new ArrayList<>();
+        Selector selector = Selector.open();
+        String result;
+        try {
+            // 服务器在每个连接上打印日志，测试期间丢弃标准输出
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            server.start(0);
+            InetSocketAddress address = new InetSocketAddress("127.0.0.1", server.getLocalPort());
+
+            long connectStart = System.nanoTime();
+            for (int i = 0; i < connections; i++) {
+                SocketChannel channel;
+                try {
+                    channel = SocketChannel.open(address);
+                } catch (IOException e) {
+                    System.err.println(mode + " 模式建立第 " + (i + 1) + " 个连接失败: " + e.getMessage());
+                    break;
+                }
+                ClientState state = new ClientState(i);
+                state.handshake(channel);
+                channel.configureBlocking(false);
+                channel.register(selector, SelectionKey.OP_READ, state);
+                channels.add(channel);
+            }
+            waitForClients(server, channels.size());
+            long connectMs = (System.nanoTime() - connectStart) / 1_000_000L;
+
+            ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+            MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+            System.gc();
+            int threadCount = threads.getThreadCount();
+            long heapMb = memory.getHeapMemoryUsage().getUsed() / (1024 * 1024);
+
+            LogHistogram latency = new LogHistogram();
+            long start = System.nanoTime();
+            for (int round = 0; round < rounds; round++) {
+                runRound(selector, channels, round, latency);
+            }
+            long elapsed = System.nanoTime() - start;
+            double messagesPerSecond = latency.getCount() / (elapsed / 1e9);
+            PinningMonitor pinning = server.getPinningMonitor();
+            result = String.format("%-8s %10d %8d %10d %12.0f %10.1f %10.1f %10.1f %8s",
+                mode.name().toLowerCase(), connectMs, threadCount, heapMb, messagesPerSecond,
+                latency.getValueAtPercentile(50) / 1000.0, latency.getValueAtPercentile(99) / 1000.0,
+                latency.getMax() / 1000.0, pinning != null ? Long.toString(pinning.getPinnedCount()) : "-");
+        } finally {
+            for (SocketChannel channel : channels) {
+                channel.close();
+            }
+            selector.close();
+            server.stop();
+            System.setOut(originalOut);
+        }
+        System.out.println(result);
+        if (channels.size() < connections) {
+            System.out.println("  （只建立了 " + channels.size() + " 个连接）");
+        }
+    }
+
+    /**
+     * 一轮：每个连接发送一条移动消息，等待所有回显到达
+     */
+    private static void runRound(Selector selector, List<SocketChannel> channels, int round,
+                                 LogHistogram latency) throws IOException {
+        for (SocketChannel channel : channels) {
+            ClientState state = (ClientState) channel.keyFor(selector).attachment();
+            state.send(channel, round);
+        }
+        int pending = channels.size();
+        long deadline = System.currentTimeMillis() + ROUND_TIMEOUT_MS;
+        while (pending > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new IOException("第 " + round + " 轮超时，还有 " + pending + " 条回显未收到");
+            }
+            selector.select(100);
+            Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+            while (it.hasNext()) {
+                SelectionKey key = it.next();
+                it.remove();
+                pending -= ((ClientState) key.attachment()).read((SocketChannel) key.channel(), latency);
+            }
+        }
+    }
+
+    private static void waitForClients(NetworkServer server, int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT_MS;
+        while (server.getClientCount() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * 客户端连接的状态：自己的编解码器，记录发送时间，按帧解析回显计算往返延迟
+     */
+    private static final class ClientState {
+        private final String senderId;
+        private final MessageCodec codec = WireFormat.BINARY.newCodec();
+        private final WireWriter payload = new WireWriter();
+        private final WireWriter frame = new WireWriter();
+        private final WireReader reader = new WireReader();
+        private final ByteBuffer buffer = ByteBuffer.allocate(256);
+        private boolean handshaken;
+        private long sentNanos;
+
+        ClientState(int index) {
+            this.senderId = "bench_" + index;
+        }
+
+        void handshake(SocketChannel channel) throws IOException {
+            ByteBuffer preamble = ByteBuffer.wrap(WireFormat.BINARY.preamble());
+            while (preamble.hasRemaining()) {
+                channel.write(preamble);
+            }
+        }
+
+        void send(SocketChannel channel, int round) throws IOException {
+            Point2D position = new Point2D(40 + round % 15 * 8, 40 + round % 11 * 8);
+            payload.reset();
+            frame.reset();
+            PlayerMoveMessage move = PlayerMoveMessage.obtain(senderId, position, round % 2 == 0 ? "RIGHT" : "DOWN", 0);
+            codec.encode(move, payload);
+            move.recycle();
+            Frames.appendFrame(frame, payload);
+            ByteBuffer bytes = ByteBuffer.wrap(frame.array(), 0, frame.size());
+            sentNanos = System.nanoTime();
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+        }
+
+        int read(SocketChannel channel, LogHistogram latency) throws IOException {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("服务器关闭了连接");
+            }
+            long now = System.nanoTime();
+            buffer.flip();
+            if (!handshaken) {
+                if (buffer.remaining() < WireFormat.PREAMBLE_SIZE) {
+                    buffer.compact();
+                    return 0;
+                }
+                byte[] preamble = new byte[WireFormat.PREAMBLE_SIZE];
+                buffer.get(preamble);
+                WireFormat.fromPreamble(preamble, 0);
+                handshaken = true;
+            }
+            int frames = 0;
+            while (true) {
+                int start = buffer.position();
+                int length = Frames.readLength(buffer);
+                if (length < 0 || buffer.remaining() < length) {
+                    buffer.position(start);
+                    break;
+                }
+                reader.reset(buffer.array(), buffer.position(), length);
+                Message echo = codec.decode(reader);
+                if (echo.getType() == MessageType.SERVER_RESPONSE || echo.getType() == MessageType.HEARTBEAT) {
+                    // 连接时服务器回复的分配信息，以及心跳（基准测试关闭了心跳，这里只是防御）
+                    buffer.position(buffer.position() + length);
+                    continue;
+                }
+                if (!senderId.equals(echo.getSenderId())) {
+                    throw new IOException("回显内容不正确: " + echo.getSenderId());
+                }
+                buffer.position(buffer.position() + length);
+                latency.record(now - sentNanos);
+                frames++;
+            }
+            buffer.compact();
+            return frames;
+        }
+    }
+
+    /**
+     * 回显服务器：把收到的消息原样发回发送者
+     */
+    private static final class EchoServer extends NetworkServer {
+        @Override
+        public void handleClientMessage(String clientId, Message message) {
+            ClientConnection connection = getClient(clientId);
+            if (connection != null) {
+                connection.sendMessage(message);
+            }
+        }
+    }
+}
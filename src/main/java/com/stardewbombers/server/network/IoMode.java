@@ -0,0 +1,27 @@
+package com.stardewbombers.server.network;
+
+/**
+ * 服务器的连接处理模式
+ */
+public enum IoMode {
+    /** 每个客户端一个线程，阻塞读写（ClientHandler） */
+    BLOCKING,
+    /** 少量事件循环线程，通过 Selector 非阻塞读写（NioEventLoop） */
+    NIO,
+    /** 与 BLOCKING 相同的每连接一个线程、阻塞读写，但使用虚拟线程（需要 Java 21） */
+    VIRTUAL;
+
+    /**
+     * 按名称解析（不区分大小写），无法识别时返回默认值
+     */
+    public static IoMode parse(String name, IoMode defaultMode) {
+        if (name != null) {
+            for (IoMode mode : values()) {
+                if (mode.name().equalsIgnoreCase(name.trim())) {
+                    return mode;
+                }
+            }
+        }
+        return defaultMode;
+    }
+}
@@ -1,26 +1,517 @@
 package com.stardewbombers.server.network;
 
+import com.stardewbombers.server.game.GameRoom;
+import com.stardewbombers.server.game.InputCommand;
+import com.stardewbombers.server.game.RoomManager;
+import com.stardewbombers.shared.log.GameLog;
+import com.stardewbombers.shared.log.GameLogger;
+import com.stardewbombers.shared.log.LogCategory;
+import com.stardewbombers.shared.game.GameLoop;
+import com.stardewbombers.shared.protocol.HeartbeatMessage;
 import com.stardewbombers.shared.protocol.Message;
-import com.stardewbombers.shared.util.JsonUtil;
+import com.stardewbombers.shared.protocol.MessageDispatcher;
+import com.stardewbombers.shared.protocol.MessageType;
+import com.stardewbombers.shared.protocol.PlaceBombMessage;
+import com.stardewbombers.shared.protocol.PlayerMoveMessage;
+import com.stardewbombers.shared.protocol.ServerResponseMessage;
+import com.stardewbombers.shared.protocol.SnapshotAckMessage;
+import com.stardewbombers.shared.protocol.codec.BinaryMessageCodec;
+import com.stardewbombers.shared.protocol.codec.CompressingCodec;
+import com.stardewbombers.shared.protocol.codec.CompressionStats;
+import com.stardewbombers.shared.protocol.codec.MessageCodec;
+import com.stardewbombers.shared.protocol.codec.SharedFrame;
+import com.stardewbombers.shared.protocol.codec.WireFormat;
+import com.stardewbombers.shared.util.ConnectionThreads;
+import com.stardewbombers.shared.util.LatencyTracker;
+import com.stardewbombers.shared.util.LogHistogram;
+import com.stardewbombers.shared.util.PinningMonitor;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * 游戏服务器网络层
+ * 三种连接处理模式（IoMode）：
+ * BLOCKING - 每个客户端一个 ClientHandler 平台线程，阻塞读写；
+ * VIRTUAL - 同样每个客户端一个 ClientHandler，但运行在虚拟线程上，同时启动钉住检测（PinningMonitor）；
+ * NIO - 固定数量的事件循环线程（NioEventLoop），每个线程用一个 Selector 处理多个连接，
+ *       空闲或慢速连接只占用少量缓冲区而不是线程栈。
+ * 各模式的协议相同（握手后是长度前缀的帧，见 WireFormat），收到的消息解码后交给 handleClientMessage，
+ * 按类型分发到 getDispatcher() 中注册的处理器；没有注册处理器的类型转发给同一房间的其他客户端。
+ * 有房间管理器时，移动和放炸弹由房间的权威模拟执行，房间每个 tick 通过快照（WorldSnapshotMessage）
+ * 把结果发回客户端，客户端用 SNAPSHOT_ACK 确认增量的基准。
+ *
+ * 发送合并：sendMessage 只把消息放进连接的发送队列，发送线程每个服务器 tick（默认 60Hz）把每个连接
+ * 排队的消息编码成一批帧一次写出，同一 tick 内产生的小消息（转发的移动、快照等）共用一次系统调用和 TCP 段。
+ * setFlushRate(0) 恢复为每条消息立即发送。
+ *
+ * 心跳：每个连接定期收到 HEARTBEAT ping 并回显，服务器据此测量往返时间和抖动（LatencyTracker），
+ * 同时回显客户端发来的 ping。超过超时时间没有收到客户端任何数据的连接（空闲或半开）会被断开。
+ *
+ * 数据报通道（setUdpEnabled，默认关闭）：在同一端口号上监听 UDP（UdpEndpoint），完成配对的客户端的快照和
+ * 转发的移动改走数据报，客户端的移动输入和快照确认也从数据报收到；其余消息仍走 TCP。
+ */
 public class NetworkServer {
+    private static final GameLogger LOG = GameLog.logger(LogCategory.NETWORK);
+    /** 发生在地图某个位置上的事件，按兴趣区域转发 */
+    private static final Set<MessageType> POSITIONAL_TYPES = EnumSet.of(MessageType.PLAYER_MOVE,
+        MessageType.PLACE_BOMB, MessageType.BOMB_EXPLODE, MessageType.COLLECT_POWERUP,
+        MessageType.PLANT_SEED, MessageType.HARVEST_CROP, MessageType.WATER_CROP);
+
     private ServerSocket serverSocket;
-    private boolean running = false;
-    private Map<String, ClientHandler> clients = new ConcurrentHashMap<>();
+    private ServerSocketChannel serverChannel;
+    private volatile boolean running = false;
+    private Map<String, ClientConnection> clients = new ConcurrentHashMap<>();
     private Thread serverThread;
+    private RoomManager roomManager; // 为null时所有客户端在同一个大厅中互相转发
+    private final AtomicLong clientSequence = new AtomicLong();
+    private IoMode ioMode = IoMode.BLOCKING;
+    private int eventLoopCount = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private NioEventLoop[] eventLoops = new NioEventLoop[0];
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private ThreadFactory connectionThreads;
+    private PinningMonitor pinningMonitor;
+    private final MessageDispatcher<String> dispatcher = new MessageDispatcher<>();
+    private int flushRate = GameLoop.DEFAULT_TICK_RATE; // 每秒合并发送的次数，0 表示立即发送
+    private ScheduledExecutorService flusher;
+    private final LongAdder outboundWrites = new LongAdder();
+    private final LongAdder outboundMessages = new LongAdder();
+    private final LongAdder interestSkipped = new LongAdder();
+    private SendQueuePolicy sendQueuePolicy = SendQueuePolicy.DEFAULT;
+    private final LongAdder droppedMessages = new LongAdder();
+    private final LongAdder collapsedMessages = new LongAdder();
+    private final LongAdder slowDisconnects = new LongAdder();
+    private long heartbeatIntervalMs = HeartbeatMessage.DEFAULT_INTERVAL_MS; // 0 表示不发心跳
+    private long heartbeatTimeoutMs = HeartbeatMessage.DEFAULT_TIMEOUT_MS;
+    private ScheduledExecutorService heartbeat;
+    private final LongAdder idleDisconnects = new LongAdder();
+    /** 可以走数据报通道的消息：只关心最新值，丢失后由下一条补上 */
+    private static final Set<MessageType> DATAGRAM_TYPES = EnumSet.of(MessageType.PLAYER_MOVE,
+        MessageType.WORLD_SNAPSHOT);
+    private boolean udpEnabled;
+    private double udpLossRate = -1; // 小于 0 时使用 Datagrams.DEFAULT_LOSS_RATE
+    private volatile UdpEndpoint udp;
+    private boolean compressionEnabled = true; // 是否同意客户端的压缩请求（压缩服务器发出的帧）
+    private final CompressionStats compressionStats = new CompressionStats();
+
+    public NetworkServer() {
+        dispatcher.setFallback(this::relayMessage);
+        dispatcher.register(MessageType.HEARTBEAT, this::onHeartbeat);
+    }
+
+    /**
+     * 设置房间管理器：新连接自动匹配到房间，消息只在同一房间内转发，房间快照发给对应的客户端
+     */
+    public void setRoomManager(RoomManager roomManager) {
+        this.roomManager = roomManager;
+        roomManager.setLatencyProvider(this::getSmoothedRttMicros);
+        roomManager.setSnapshotSink((playerId, message) -> {
+            ClientConnection client = clients.get(playerId);
+            if (client != null) {
+                sendPreferDatagram(client, message);
+            }
+        });
+        dispatcher.register(MessageType.SNAPSHOT_ACK, (String clientId, SnapshotAckMessage ack) -> {
+            GameRoom room = roomManager.getRoomOf(clientId);
+            if (room != null) {
+                room.acknowledgeSnapshot(clientId, ack.getSequence());
+            }
+        });
+        // 输入放入房间的输入队列（不占用房间锁，下一个 tick 执行），再照旧转发（还没有按快照渲染的客户端靠转发显示其他玩家）
+        dispatcher.register(MessageType.PLAYER_MOVE, (String clientId, PlayerMoveMessage move) -> {
+            GameRoom room = roomManager.getRoomOf(clientId);
+            if (room != null) {
+                room.submitInput(InputCommand.move(clientId, move.getDirection(), move.getInputSequence()));
+            }
+            relayMessage(clientId, move);
+        });
+        dispatcher.register(MessageType.PLACE_BOMB, (String clientId, PlaceBombMessage bomb) -> {
+            GameRoom room = roomManager.getRoomOf(clientId);
+            if (room != null) {
+                room.submitInput(InputCommand.placeBomb(clientId, bomb.getInputSequence()));
+            }
+            relayMessage(clientId, bomb);
+        });
+    }
+
+    public RoomManager getRoomManager() {
+        return roomManager;
+    }
+
+    /**
+     * 设置连接处理模式（在 start 之前调用）
+     */
+    public void setIoMode(IoMode ioMode) {
+        this.ioMode = ioMode;
+    }
+
+    public IoMode getIoMode() {
+        return ioMode;
+    }
+
+    /**
+     * 设置 NIO 模式的事件循环线程数（在 start 之前调用）
+     */
+    public void setEventLoopCount(int eventLoopCount) {
+        if (eventLoopCount <= 0) {
+            throw new IllegalArgumentException("事件循环线程数必须大于0: " + eventLoopCount);
+        }
+        this.eventLoopCount = eventLoopCount;
+    }
+
+    /**
+     * 设置每秒合并发送的次数（在 start 之前调用），0 表示每条消息立即发送
+     */
+    public void setFlushRate(int flushRate) {
+        if (flushRate < 0) {
+            throw new IllegalArgumentException("发送频率不能为负: " + flushRate);
+        }
+        this.flushRate = flushRate;
+    }
+
+    public int getFlushRate() {
+        return flushRate;
+    }
+
+    /**
+     * 是否合并发送：为 true 时连接的 sendMessage 只排队，由发送线程按 tick 写出
+     */
+    boolean isCoalescing() {
+        return flushRate > 0;
+    }
+
+    /**
+     * 设置是否同意客户端的压缩请求（在 start 之前调用）
+     * 不同意时服务器发出的帧不压缩，请求压缩的客户端发来的帧照常解压。
+     */
+    public void setCompressionEnabled(boolean compressionEnabled) {
+        this.compressionEnabled = compressionEnabled;
+    }
+
+    public boolean isCompressionEnabled() {
+        return compressionEnabled;
+    }
+
+    /**
+     * 所有压缩连接发送方向的统计
+     */
+    public CompressionStats getCompressionStats() {
+        return compressionStats;
+    }
+
+    /**
+     * 按客户端握手创建连接的编解码器：客户端声明压缩时它发来的帧带压缩层，服务器同意时发出的帧也压缩
+     */
+    MessageCodec newCodec(WireFormat format, boolean clientCompressed) {
+        MessageCodec codec = format.newCodec();
+        if (!clientCompressed) {
+            return codec;
+        }
+        return new CompressingCodec(codec, compressionEnabled, true, compressionStats);
+    }
+
+    /**
+     * 回复客户端的握手
+     */
+    byte[] replyPreamble(WireFormat format, boolean clientCompressed) {
+        return format.preamble(clientCompressed && compressionEnabled);
+    }
+
+    /**
+     * 连接关闭时在调试日志中记录压缩连接的压缩率（全部连接的合计见 getCompressionStats）
+     */
+    void onCodecClosed(String clientId, MessageCodec codec) {
+        if (codec instanceof CompressingCodec) {
+            CompressingCodec compressing = (CompressingCodec) codec;
+            if (compressing.getPlainBytes() > 0 && LOG.isDebugEnabled()) {
+                LOG.debug("客户端 {} 压缩率 {}%（压缩前 {} 字节，发出 {} 字节）", clientId,
+                    String.format("%.1f", compressing.getCompressionRatio() * 100), compressing.getPlainBytes(),
+                    compressing.getWireBytes());
+            }
+        }
+    }
+
+    /**
+     * 是否开启数据报通道（在 start 之前调用）
+     */
+    public void setUdpEnabled(boolean udpEnabled) {
+        this.udpEnabled = udpEnabled;
+    }
+
+    /**
+     * 设置数据报通道的模拟丢包率（0~1，在 start 之前调用），用于在本机测试
+     */
+    public void setUdpLossRate(double udpLossRate) {
+        if (udpLossRate < 0 || udpLossRate >= 1) {
+            throw new IllegalArgumentException("丢包率应在 [0, 1) 之间: " + udpLossRate);
+        }
+        this.udpLossRate = udpLossRate;
+    }
+
+    /**
+     * 数据报通道的端口，没有开启时为 -1
+     */
+    public int getUdpPort() {
+        UdpEndpoint endpoint = udp;
+        return endpoint != null ? endpoint.getPort() : -1;
+    }
+
+    /**
+     * 数据报通道的统计，没有开启时为空字符串
+     */
+    public String describeUdp() {
+        UdpEndpoint endpoint = udp;
+        if (endpoint == null) {
+            return "";
+        }
+        return String.format("数据报: 发出 %d 个（%d 字节，模拟丢弃 %d），收到 %d 个（乱序/重复 %d，无效 %d），"
+                + "丢包率 %.1f%%，改走 TCP %d 条",
+            endpoint.getPacketsSent(), endpoint.getBytesSent(), endpoint.getSimulatedDrops(),
+            endpoint.getPacketsReceived(), endpoint.getStalePackets(), endpoint.getInvalidPackets(),
+            endpoint.getLossRatio() * 100, endpoint.getTcpFallbacks());
+    }
+
+    /**
+     * 设置心跳间隔和超时（在 start 之前调用），间隔为 0 时不发心跳也不检查超时
+     */
+    public void setHeartbeat(long intervalMs, long timeoutMs) {
+        if (intervalMs < 0 || (intervalMs > 0 && timeoutMs <= intervalMs)) {
+            throw new IllegalArgumentException("心跳参数无效: interval=" + intervalMs + " timeout=" + timeoutMs);
+        }
+        this.heartbeatIntervalMs = intervalMs;
+        this.heartbeatTimeoutMs = timeoutMs;
+    }
+
+    public long getHeartbeatIntervalMs() {
+        return heartbeatIntervalMs;
+    }
+
+    public long getHeartbeatTimeoutMs() {
+        return heartbeatTimeoutMs;
+    }
+
+    /**
+     * 连接的延迟统计，连接不存在时返回 null
+     */
+    public LatencyTracker getLatency(String clientId) {
+        ClientConnection client = clients.get(clientId);
+        return client != null ? client.getLatency() : null;
+    }
+
+    /**
+     * 连接的平滑往返时间（微秒），连接不存在或还没有样本时为 -1
+     */
+    public long getSmoothedRttMicros(String clientId) {
+        LatencyTracker latency = getLatency(clientId);
+        return latency != null ? latency.getSmoothedRttMicros() : -1L;
+    }
+
+    /**
+     * 所有当前连接的往返时间分布（微秒）
+     */
+    public LogHistogram getRttHistogram() {
+        LogHistogram total = new LogHistogram();
+        for (ClientConnection client : clients.values()) {
+            total.merge(client.getLatency().getRttHistogram());
+        }
+        return total;
+    }
+
+    /**
+     * 所有当前连接的抖动分布（相邻两次往返时间之差，微秒）
+     */
+    public LogHistogram getJitterHistogram() {
+        LogHistogram total = new LogHistogram();
+        for (ClientConnection client : clients.values()) {
+            total.merge(client.getLatency().getJitterHistogram());
+        }
+        return total;
+    }
+
+    /** 因超时没有收到数据被断开的连接数 */
+    public long getIdleDisconnects() {
+        return idleDisconnects.sum();
+    }
+
+    /**
+     * 设置每个连接发送队列的限制和慢客户端策略（在 start 之前调用）
+     */
+    public void setSendQueuePolicy(SendQueuePolicy sendQueuePolicy) {
+        if (sendQueuePolicy == null) {
+            throw new IllegalArgumentException("发送队列策略不能为空");
+        }
+        this.sendQueuePolicy = sendQueuePolicy;
+    }
+
+    public SendQueuePolicy getSendQueuePolicy() {
+        return sendQueuePolicy;
+    }
+
+    /**
+     * 连接把消息放入发送队列后调用，记录合并和丢弃；返回 false 表示客户端过慢，连接应断开
+     */
+    boolean recordOffer(String clientId, OutboundQueue.Offer result) {
+        switch (result) {
+            case COLLAPSED:
+                collapsedMessages.increment();
+                return true;
+            case DROPPED_OLDEST:
+                droppedMessages.increment();
+                return true;
+            case OVERFLOW:
+            case LAGGING:
+                slowDisconnects.increment();
+                droppedMessages.increment();
+                if (result == OutboundQueue.Offer.OVERFLOW) {
+                    LOG.warn("客户端 {} 接收过慢（发送队列已满），断开连接", clientId);
+                } else {
+                    LOG.warn("客户端 {} 接收过慢（排队超过 {}ms），断开连接", clientId, sendQueuePolicy.getLagLimitMs());
+                }
+                return false;
+            case CLOSED:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * 连接每写出一批（一次系统调用）时调用
+     */
+    void recordWrite(int messages) {
+        outboundWrites.increment();
+        outboundMessages.add(messages);
+    }
+
+    /**
+     * 写出的批次数（近似系统调用次数）
+     */
+    public long getOutboundWrites() {
+        return outboundWrites.sum();
+    }
+
+    public long getOutboundMessages() {
+        return outboundMessages.sum();
+    }
+
+    /** 因发送队列已满被丢弃的消息数（包括断开时被拒绝的那条） */
+    public long getDroppedMessages() {
+        return droppedMessages.sum();
+    }
+
+    /** 被同一来源的较新更新替换的消息数 */
+    public long getCollapsedMessages() {
+        return collapsedMessages.sum();
+    }
+
+    /** 因接收过慢被断开的连接数 */
+    public long getSlowDisconnects() {
+        return slowDisconnects.sum();
+    }
+
+    /**
+     * 所有连接发送队列中等待写出的消息总数
+     */
+    public int getQueuedMessages() {
+        int total = 0;
+        for (ClientConnection client : clients.values()) {
+            total += client.getQueueDepth();
+        }
+        return total;
+    }
+
+    /**
+     * 最长的发送队列长度
+     */
+    public int getMaxQueueDepth() {
+        int max = 0;
+        for (ClientConnection client : clients.values()) {
+            max = Math.max(max, client.getQueueDepth());
+        }
+        return max;
+    }
+
+    /**
+     * 因接收者不在兴趣区域内而没有转发的消息数
+     */
+    public long getInterestSkipped() {
+        return interestSkipped.sum();
+    }
+
+    /**
+     * 收到消息的分发表（消息来源是客户端 id），在 start 之前注册处理器
+     */
+    public MessageDispatcher<String> getDispatcher() {
+        return dispatcher;
+    }
+
+    public int getClientCount() {
+        return clients.size();
+    }
+
+    public ClientConnection getClient(String clientId) {
+        return clients.get(clientId);
+    }
+
+    /**
+     * 实际监听的端口（start 传入0时由系统分配），未启动时返回 -1
+     */
+    public int getLocalPort() {
+        if (serverChannel != null && serverChannel.socket().isBound()) {
+            return serverChannel.socket().getLocalPort();
+        }
+        return serverSocket != null ? serverSocket.getLocalPort() : -1;
+    }
+
+    /**
+     * 虚拟线程模式的钉住检测，其他模式为 null
+     */
+    public PinningMonitor getPinningMonitor() {
+        return pinningMonitor;
+    }
 
     public void start(int port) {
+        startFlusher();
+        startHeartbeat();
+        if (ioMode == IoMode.NIO) {
+            startNio(port);
+        } else {
+            startBlocking(port);
+        }
+        if (running && udpEnabled) {
+            startUdp(getLocalPort());
+        }
+    }
+
+    private void startBlocking(int port) {
+        boolean virtual = ioMode == IoMode.VIRTUAL;
+        connectionThreads = ConnectionThreads.factory(virtual, virtual ? "client-vt-" : "client-");
+        if (virtual) {
+            pinningMonitor = new PinningMonitor();
+            pinningMonitor.start();
+        }
         try {
             serverSocket = new ServerSocket(port);
             running = true;
 
-            System.out.println("服务器启动，监听端口: " + port);
+            System.out.println("服务器启动（" + (virtual ? "虚拟线程" : "平台线程") + "），监听端口: " + port);
 
             // 启动服务器监听线程
             serverThread = new Thread(this::acceptClients);
@@ -31,21 +522,153 @@ public class NetworkServer {
         }
     }
 
+    /**
+     * 在 TCP 监听的端口号上开启数据报通道；失败时只记录，继续只用 TCP
+     */
+    private void startUdp(int port) {
+        try {
+            UdpEndpoint endpoint = new UdpEndpoint(this, port);
+            if (udpLossRate >= 0) {
+                endpoint.setLossRate(udpLossRate);
+            }
+            endpoint.start();
+            udp = endpoint;
+            System.out.println("数据报通道已开启，端口: " + endpoint.getPort());
+        } catch (IOException e) {
+            System.err.println("开启数据报通道失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 启动合并发送线程：每个周期让所有连接写出排队的消息
+     */
+    private void startFlusher() {
+        if (!isCoalescing() || flusher != null) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "net-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long periodNanos = 1_000_000_000L / flushRate;
+        flusher.scheduleAtFixedRate(this::flushClients, periodNanos, periodNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 启动心跳线程：每个间隔断开超时的连接，给其余连接发 ping
+     */
+    private void startHeartbeat() {
+        if (heartbeatIntervalMs <= 0 || heartbeat != null) {
+            return;
+        }
+        heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "net-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeat.scheduleAtFixedRate(this::heartbeatClients, heartbeatIntervalMs, heartbeatIntervalMs,
+            TimeUnit.MILLISECONDS);
+    }
+
+    private void heartbeatClients() {
+        long now = System.nanoTime();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(heartbeatTimeoutMs);
+        for (ClientConnection client : clients.values()) {
+            try {
+                LatencyTracker latency = client.getLatency();
+                if (latency.getIdleNanos(now) > timeoutNanos) {
+                    LOG.info("客户端 {} 超过 {}ms 没有数据，断开连接", client.getClientId(), heartbeatTimeoutMs);
+                    idleDisconnects.increment();
+                    client.disconnect();
+                    continue;
+                }
+                client.sendMessage(new HeartbeatMessage("server", latency.nextPingId(), now, false));
+                client.flushOutbound(); // 不等合并发送的下一个周期，排队时间不计入往返时间
+            } catch (RuntimeException e) {
+                // 周期任务抛出异常会被取消，这里只记录
+                LOG.warn("发送心跳给客户端 {} 失败: {}", client.getClientId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 客户端的 ping 立即回显；回显的是服务器自己的 ping 时记录往返时间
+     */
+    private void onHeartbeat(String clientId, HeartbeatMessage message) {
+        ClientConnection client = clients.get(clientId);
+        if (client == null) {
+            return;
+        }
+        if (message.isReply()) {
+            client.getLatency().onEcho(message.getPingId(), message.getOriginNanos(), System.nanoTime());
+        } else {
+            client.sendMessage(message.echo("server"));
+            client.flushOutbound();
+        }
+    }
+
+    private void flushClients() {
+        UdpEndpoint endpoint = udp;
+        if (endpoint != null) {
+            endpoint.flush();
+        }
+        for (ClientConnection client : clients.values()) {
+            try {
+                client.flushOutbound();
+            } catch (RuntimeException e) {
+                // 周期任务抛出异常会被取消，这里只记录
+                LOG.warn("刷出客户端 {} 的消息失败: {}", client.getClientId(), e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 阻塞模式下为连接创建线程（平台线程或虚拟线程，与连接的读线程相同）
+     */
+    Thread newConnectionThread(Runnable task) {
+        return connectionThreads.newThread(task);
+    }
+
+    private void startNio(int port) {
+        try {
+            serverChannel = ServerSocketChannel.open();
+            serverChannel.bind(new InetSocketAddress(port), 1024);
+            eventLoops = new NioEventLoop[eventLoopCount];
+            for (int i = 0; i < eventLoops.length; i++) {
+                eventLoops[i] = new NioEventLoop("nio-loop-" + i);
+                eventLoops[i].start();
+            }
+            running = true;
+
+            System.out.println("服务器启动（NIO，" + eventLoops.length + " 个事件循环），监听端口: " + port);
+
+            // 接受连接的线程阻塞在 accept 上，连接建立后交给事件循环
+            serverThread = new Thread(this::acceptNioClients, "nio-acceptor");
+            serverThread.start();
+
+        } catch (IOException e) {
+            System.err.println("启动服务器失败: " + e.getMessage());
+        }
+    }
+
     private void acceptClients() {
         while (running) {
             try {
                 Socket clientSocket = serverSocket.accept();
-                String clientId = "client_" + System.currentTimeMillis();
+                clientSocket.setTcpNoDelay(true); // 已经按 tick 合并，不需要 Nagle 再延迟
+                String clientId = "client_" + System.currentTimeMillis() + "_" + clientSequence.incrementAndGet();
 
                 // 为每个客户端创建处理器
                 ClientHandler handler = new ClientHandler(clientId, clientSocket, this);
-                clients.put(clientId, handler);
+                if (!registerClient(handler)) {
+                    continue;
+                }
 
                 // 启动客户端处理线程
-                Thread clientThread = new Thread(handler);
+                Thread clientThread = connectionThreads.newThread(handler);
                 clientThread.start();
-
-                System.out.println("新客户端连接: " + clientId);
+                LOG.info("新客户端连接: {}", clientId);
 
             } catch (IOException e) {
                 if (running) {
@@ -55,38 +678,176 @@ public class NetworkServer {
         }
     }
 
-    public void broadcastMessage(Message message) {
-        String json = JsonUtil.toJson(message);
+    /**
+     * 当前连接最少的事件循环；从轮转位置开始查找，连接数相同时轮流分配（只在接受线程调用）
+     */
+    private NioEventLoop leastLoadedLoop() {
+        int start = Math.floorMod(nextLoop.getAndIncrement(), eventLoops.length);
+        NioEventLoop best = eventLoops[start];
+        for (int i = 1; i < eventLoops.length; i++) {
+            NioEventLoop loop = eventLoops[(start + i) % eventLoops.length];
+            if (loop.getConnectionCount() < best.getConnectionCount()) {
+                best = loop;
+            }
+        }
+        return best;
+    }
 
-        for (ClientHandler client : clients.values()) {
-            client.sendMessage(json);
+        private void acceptNioClients() {
+        while (running) {
+            try {
+                SocketChannel channel = serverChannel.accept();
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                String clientId = "client_" + System.currentTimeMillis() + "_" + clientSequence.incrementAndGet();
+
+                NioConnection connection = new NioConnection(clientId, channel, this);
+                if (!registerClient(connection)) {
+                    continue;
+                }
+                NioEventLoop loop = leastLoadedLoop();
+                loop.register(connection);
+                LOG.info("新客户端连接: {} ({})", clientId, loop.getName());
+
+            } catch (IOException e) {
+                if (running) {
+                    System.err.println("接受客户端连接出错: " + e.getMessage());
+                }
+            }
         }
+    }
 
-        System.out.println("广播消息给 " + clients.size() + " 个客户端");
+    /**
+     * 登记新连接并分配房间，回复分配的 id 和房间；服务器房间已满时断开连接并返回 false
+     */
+    private boolean registerClient(ClientConnection connection) {
+        String clientId = connection.getClientId();
+        clients.put(clientId, connection);
+        GameRoom room = null;
+        if (roomManager != null) {
+            room = roomManager.joinAnyRoom(clientId);
+            if (room == null) {
+                LOG.warn("服务器房间已满，拒绝客户端: {}", clientId);
+                connection.disconnect();
+                return false;
+            }
+            LOG.info("客户端 {} 加入房间 {}", clientId, room.getRoomId());
+        }
+        ServerResponseMessage response = new ServerResponseMessage(clientId,
+            room != null ? room.getRoomId() : null, room != null ? room.getMapName() : null);
+        UdpEndpoint endpoint = udp;
+        if (endpoint != null) {
+            response.setUdpPort(endpoint.getPort());
+            response.setUdpToken(endpoint.register(clientId));
+        }
+        connection.sendMessage(response);
+        return true;
+    }
+
+    /**
+     * 发给所有客户端：二进制消息只编码一次（SharedFrame），各连接直接写出同一份字节
+     */
+    public void broadcastMessage(Message message) {
+        Message outgoing = clients.size() > 1 && BinaryMessageCodec.supports(message.getType())
+            ? new SharedFrame(message) : message;
+        for (ClientConnection client : clients.values()) {
+            client.sendMessage(outgoing);
+        }
+        LOG.debug("广播消息 {} 给 {} 个客户端", message.getType(), clients.size());
     }
 
     public void removeClient(String clientId) {
         clients.remove(clientId);
-        System.out.println("移除客户端: " + clientId);
+        UdpEndpoint endpoint = udp;
+        if (endpoint != null) {
+            endpoint.remove(clientId);
+        }
+        if (roomManager != null) {
+            roomManager.leave(clientId);
+        }
+        LOG.info("移除客户端: {}", clientId);
+    }
+
+    public void handleClientMessage(String clientId, Message message) {
+        ClientConnection client = clients.get(clientId);
+        if (client != null) {
+            client.getLatency().onReceive(System.nanoTime());
+        }
+        LOG.debug("收到客户端 {} 的消息: {}", clientId, message.getType());
+        dispatcher.dispatch(clientId, message);
     }
 
-    public void handleClientMessage(String clientId, String messageJson) {
-        System.out.println("收到客户端 " + clientId + " 的消息: " + messageJson);
+    /**
+     * 默认处理：转发给同一房间（没有房间管理器时是所有）的其他客户端
+     * 房间内发生在某个格子上的事件（移动、放炸弹等）只转发给兴趣区域覆盖发送者位置的玩家，
+     * 其余消息（GAME_END、PLAYER_DEATH 等全局事件）照旧发给整个房间。
+     */
+    private void relayMessage(String clientId, Message message) {
+        if (roomManager != null) {
+            GameRoom room = roomManager.getRoomOf(clientId);
+            if (room == null) {
+                // 对局结束后玩家已经离开房间（RoomManager.onRoomFinished），消息不再转发给任何人
+                LOG.debug("客户端 {} 不在房间中，丢弃消息: {}", clientId, message.getType());
+                return;
+            }
+            List<String> roomPlayers = room.getPlayerIds();
+            List<String> recipients = roomPlayers;
+            if (POSITIONAL_TYPES.contains(message.getType())) {
+                recipients = room.getInterestedPlayers(clientId);
+                interestSkipped.add(Math.max(0, roomPlayers.size() - 1 - recipients.size()));
+            }
+            // 只转发给同一房间的其他客户端
+            for (String playerId : recipients) {
+                ClientConnection handler = clients.get(playerId);
+                if (handler != null && !playerId.equals(clientId)) {
+                    sendPreferDatagram(handler, message);
+                }
+            }
+            return;
+        }
 
-        // 转发给其他客户端
-        for (Map.Entry<String, ClientHandler> entry : clients.entrySet()) {
+        // 没有房间管理器：所有客户端在同一个大厅中，转发给其他客户端
+        for (Map.Entry<String, ClientConnection> entry : clients.entrySet()) {
             if (!entry.getKey().equals(clientId)) {
-                entry.getValue().sendMessage(messageJson);
+                sendPreferDatagram(entry.getValue(), message);
             }
         }
     }
 
+    /**
+     * 移动和快照在客户端完成数据报配对后走 UDP，否则走 TCP
+     */
+    private void sendPreferDatagram(ClientConnection client, Message message) {
+        UdpEndpoint endpoint = udp;
+        if (endpoint != null && DATAGRAM_TYPES.contains(message.getType())
+            && endpoint.send(client.getClientId(), message)) {
+            return;
+        }
+        client.sendMessage(message);
+    }
+
     public void stop() {
         running = false;
         try {
             if (serverSocket != null) serverSocket.close();
+            if (serverChannel != null) serverChannel.close();
         } catch (IOException e) {
             System.err.println("关闭服务器出错: " + e.getMessage());
         }
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        if (udp != null) {
+            udp.close();
+        }
+        if (heartbeat != null) {
+            heartbeat.shutdownNow();
+        }
+        for (NioEventLoop loop : eventLoops) {
+            loop.stop();
+        }
+        if (pinningMonitor != null) {
+            pinningMonitor.stop();
+        }
     }
 }
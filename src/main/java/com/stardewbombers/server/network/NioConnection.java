@@ -0,0 +1,367 @@
+package com.stardewbombers.server.network;
+
+import com.stardewbombers.shared.log.GameLog;
+import com.stardewbombers.shared.log.GameLogger;
+import com.stardewbombers.shared.log.LogCategory;
+import com.stardewbombers.shared.protocol.Message;
+import com.stardewbombers.shared.protocol.codec.Frames;
+import com.stardewbombers.shared.protocol.codec.MessageCodec;
+import com.stardewbombers.shared.protocol.codec.ProtocolException;
+import com.stardewbombers.shared.protocol.codec.SharedFrame;
+import com.stardewbombers.shared.protocol.codec.WireFormat;
+import com.stardewbombers.shared.protocol.codec.WireReader;
+import com.stardewbombers.shared.protocol.codec.WireWriter;
+import com.stardewbombers.shared.util.LatencyTracker;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * NIO 模式下的客户端连接
+ * 协议与阻塞模式相同：握手（WireFormat）之后是长度前缀的帧。
+ *
+ * 读：由事件循环线程调用，数据先读进循环共用的缓冲区，切出完整的帧解码后交给 NetworkServer.handleClientMessage；
+ * 只有收到半帧时才把剩余部分复制到连接自己的缓冲区。
+ * 写：sendMessage 可以在任意线程调用，消息进入有界发送队列（OutboundQueue），由事件循环在刷出时编码（编解码器的发送状态只在循环线程访问），
+ * 一次写出多帧；写不完时保留剩余字节并注册 OP_WRITE，可写后继续。握手完成前的消息留在队列中。
+ * 二进制连接遇到 SharedFrame 时不再编码，直接把它的只读缓冲区和前后编码好的帧一起聚集写出（gathering write）。
+ * 服务器合并发送时 sendMessage 只排队，刷出由发送线程每个 tick 通过 flushOutbound 触发。
+ */
+final class NioConnection implements ClientConnection {
+    private static final GameLogger LOG = GameLog.logger(LogCategory.NETWORK);
+    private static final int INITIAL_PARTIAL_BYTES = 1024;
+    private static final int MAX_READS_PER_EVENT = 4; // 一次可读事件最多连续读几次，避免一个连接占满循环
+    private static final int WRITE_BATCH_BYTES = 32 * 1024; // 一次写出的最大批量
+
+    private final String clientId;
+    private final SocketChannel channel;
+    private final NetworkServer server;
+    private final OutboundQueue outbound;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final LatencyTracker latency = new LatencyTracker();
+    private final Runnable flushTask = this::flush;
+    private volatile NioEventLoop loop;
+    private SelectionKey key;          // 以下字段只在事件循环线程访问
+    private ByteBuffer partial;        // 未收完的半帧（写模式），没有时为 null
+    private ByteBuffer pendingWrite;   // 上次没有写完的字节（读模式），没有时为 null
+    private MessageCodec codec;        // 握手完成前为 null
+
+    NioConnection(String clientId, SocketChannel channel, NetworkServer server) {
+        this.clientId = clientId;
+        this.channel = channel;
+        this.server = server;
+        this.outbound = new OutboundQueue(server.getSendQueuePolicy());
+    }
+
+    @Override
+    public String getClientId() {
+        return clientId;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return !closed.get();
+    }
+
+    SocketChannel channel() {
+        return channel;
+    }
+
+    void attach(NioEventLoop loop, SelectionKey key) {
+        this.loop = loop;
+        this.key = key;
+    }
+
+    @Override
+    public void sendMessage(Message message) {
+        if (closed.get()) {
+            return;
+        }
+        if (!server.recordOffer(clientId, outbound.offer(message))) {
+            disconnect();
+            return;
+        }
+        if (!server.isCoalescing()) {
+            flushOutbound();
+        }
+    }
+
+    @Override
+    public void flushOutbound() {
+        NioEventLoop current = loop;
+        if (current != null && !outbound.isEmpty() && flushScheduled.compareAndSet(false, true)) {
+            current.execute(flushTask);
+        }
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return outbound.size();
+    }
+
+    @Override
+    public LatencyTracker getLatency() {
+        return latency;
+    }
+
+    @Override
+    public void disconnect() {
+        NioEventLoop current = loop;
+        if (current != null) {
+            current.execute(this::close);
+        } else {
+            close();
+        }
+    }
+
+    /**
+     * 可读事件（事件循环线程）
+     */
+    void onReadable() {
+        try {
+            for (int reads = 0; reads < MAX_READS_PER_EVENT && !closed.get(); reads++) {
+                ByteBuffer buffer = partial;
+                if (buffer == null) {
+                    buffer = loop.readBuffer();
+                    buffer.clear();
+                }
+                int n = channel.read(buffer);
+                if (n < 0) {
+                    close();
+                    return;
+                }
+                boolean filled = !buffer.hasRemaining();
+                buffer.flip();
+                decodeFrames(buffer);
+                if (closed.get()) {
+                    return;
+                }
+                keepRemainder(buffer);
+                if (n == 0 || !filled) {
+                    return;
+                }
+            }
+        } catch (ProtocolException e) {
+            LOG.warn("客户端 {} 协议错误: {}，断开连接", clientId, e.getMessage());
+            close();
+        } catch (IOException e) {
+            LOG.debug("客户端 {} 读取出错: {}", clientId, e.getMessage());
+            close();
+        }
+    }
+
+    /**
+     * 处理握手和完整的帧，buffer 的 position 停在剩余的半帧开头
+     */
+    private void decodeFrames(ByteBuffer buffer) throws ProtocolException {
+        byte[] frameBytes = loop.frameBytes();
+        WireReader reader = loop.reader();
+        while (!closed.get()) {
+            if (codec == null) {
+                if (buffer.remaining() < WireFormat.PREAMBLE_SIZE) {
+                    return;
+                }
+                buffer.get(frameBytes, 0, WireFormat.PREAMBLE_SIZE);
+                onHandshake(WireFormat.fromPreamble(frameBytes, 0), WireFormat.isCompressed(frameBytes, 0));
+                continue;
+            }
+            int start = buffer.position();
+            int length = Frames.readLength(buffer);
+            if (length < 0) {
+                return;
+            }
+            if (buffer.remaining() < length) {
+                buffer.position(start);
+                return;
+            }
+            buffer.get(frameBytes, 0, length);
+            reader.reset(frameBytes, 0, length);
+            dispatch(codec.decode(reader));
+        }
+    }
+
+    /**
+     * 收到客户端握手：回复同样格式的握手（是否压缩由服务器决定），开始发送排队的消息
+     */
+    private void onHandshake(WireFormat format, boolean compressed) {
+        codec = server.newCodec(format, compressed);
+        pendingWrite = ByteBuffer.wrap(server.replyPreamble(format, compressed));
+        LOG.debug("客户端 {} 使用 {} 格式{}", clientId, format, compressed ? "（压缩）" : "");
+        flush();
+    }
+
+    private void dispatch(Message message) {
+        try {
+            server.handleClientMessage(clientId, message);
+        } catch (RuntimeException e) {
+            LOG.error("处理客户端 " + clientId + " 的消息失败", e);
+        }
+    }
+
+    /**
+     * 保存剩余的半帧：共用缓冲区中的剩余部分复制到连接自己的缓冲区，自己的缓冲区压缩或按需扩容
+     */
+    private void keepRemainder(ByteBuffer buffer) {
+        if (!buffer.hasRemaining()) {
+            partial = null;
+            return;
+        }
+        int maxBytes = Frames.MAX_FRAME_BYTES + Frames.MAX_LENGTH_BYTES;
+        if (buffer != partial) {
+            int capacity = Math.min(maxBytes, Math.max(INITIAL_PARTIAL_BYTES, buffer.remaining() * 2));
+            partial = ByteBuffer.allocate(capacity);
+            partial.put(buffer);
+            return;
+        }
+        partial.compact();
+        if (!partial.hasRemaining()) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.min(maxBytes, partial.capacity() * 2));
+            partial.flip();
+            larger.put(partial);
+            partial = larger;
+        }
+    }
+
+    /**
+     * 编码并写出发送队列（事件循环线程）
+     */
+    void flush() {
+        flushScheduled.set(false);
+        if (closed.get() || key == null) {
+            return;
+        }
+        try {
+            if (pendingWrite != null) {
+                channel.write(pendingWrite);
+                server.recordWrite(0);
+                if (pendingWrite.hasRemaining()) {
+                    setWriteInterest(true);
+                    return;
+                }
+                pendingWrite = null;
+            }
+            if (codec == null) {
+                return;
+            }
+            WireWriter batch = loop.batchWriter();
+            WireWriter payload = loop.payloadWriter();
+            ByteBuffer[] gather = loop.gatherBuffers();
+            boolean shareFrames = codec.supportsSharedFrames();
+            while (true) {
+                batch.reset();
+                int segments = 0;
+                int segmentStart = 0; // batch 中还没有放进 gather 的部分从这里开始
+                int sharedBytes = 0;
+                int count = 0;
+                Message message;
+                while (batch.size() + sharedBytes < WRITE_BATCH_BYTES && segments < gather.length - 2
+                    && (message = outbound.poll()) != null) {
+                    count++;
+                    if (shareFrames && message instanceof SharedFrame) {
+                        if (batch.size() > segmentStart) {
+                            gather[segments++] = ByteBuffer.wrap(batch.array(), segmentStart, batch.size() - segmentStart);
+                            segmentStart = batch.size();
+                        }
+                        ByteBuffer frame = ((SharedFrame) message).frame();
+                        sharedBytes += frame.remaining();
+                        gather[segments++] = frame;
+                        continue;
+                    }
+                    payload.reset();
+                    codec.encode(message, payload);
+                    if (payload.size() > Frames.MAX_FRAME_BYTES) {
+                        // 编解码器状态已经前进，不能跳过这条消息，只能断开
+                        LOG.error("发给客户端 " + clientId + " 的 " + message.getType() + " 消息过长: " + payload.size() + " 字节，断开连接");
+                        clearGather(gather, segments);
+                        close();
+                        return;
+                    }
+                    Frames.appendFrame(batch, payload);
+                }
+                if (batch.size() > segmentStart) {
+                    // batch 扩容后前面的段仍指向旧数组，旧数组的内容不变，可以照常写出
+                    gather[segments++] = ByteBuffer.wrap(batch.array(), segmentStart, batch.size() - segmentStart);
+                }
+                if (segments == 0) {
+                    setWriteInterest(false);
+                    return;
+                }
+                channel.write(gather, 0, segments);
+                server.recordWrite(count);
+                boolean complete = !gather[segments - 1].hasRemaining();
+                if (!complete) {
+                    // 内核发送缓冲区已满，剩余字节合并保存（batch 会被其他连接复用），等可写后继续
+                    pendingWrite = ByteBuffer.allocate(remaining(gather, segments));
+                    for (int i = 0; i < segments; i++) {
+                        pendingWrite.put(gather[i]);
+                    }
+                    pendingWrite.flip();
+                }
+                clearGather(gather, segments);
+                if (!complete) {
+                    setWriteInterest(true);
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            LOG.debug("客户端 {} 写入出错: {}", clientId, e.getMessage());
+            close();
+        } catch (RuntimeException e) {
+            LOG.error("编码发给客户端 " + clientId + " 的消息失败", e);
+            close();
+        }
+    }
+
+    private static int remaining(ByteBuffer[] buffers, int count) {
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            total += buffers[i].remaining();
+        }
+        return total;
+    }
+
+    private static void clearGather(ByteBuffer[] buffers, int count) {
+        for (int i = 0; i < count; i++) {
+            buffers[i] = null;
+        }
+    }
+
+    private void setWriteInterest(boolean enabled) {
+        if (key == null || !key.isValid()) {
+            return;
+        }
+        int ops = key.interestOps();
+        int updated = enabled ? ops | SelectionKey.OP_WRITE : ops & ~SelectionKey.OP_WRITE;
+        if (updated != ops) {
+            key.interestOps(updated);
+        }
+    }
+
+    /**
+     * 关闭连接并通知服务器（只执行一次）
+     */
+    void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        if (key != null) {
+            key.cancel();
+            if (loop != null) {
+                loop.onClosed();
+            }
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOG.debug("关闭客户端 {} 出错: {}", clientId, e.getMessage());
+        }
+        outbound.clear();
+        partial = null;
+        pendingWrite = null;
+        server.onCodecClosed(clientId, codec);
+        server.removeClient(clientId);
+    }
+}
@@ -0,0 +1,173 @@
+package com.stardewbombers.server.network;
+
+import com.stardewbombers.shared.log.GameLog;
+import com.stardewbombers.shared.log.GameLogger;
+import com.stardewbombers.shared.log.LogCategory;
+import com.stardewbombers.shared.protocol.codec.Frames;
+import com.stardewbombers.shared.protocol.codec.WireReader;
+import com.stardewbombers.shared.protocol.codec.WireWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * NIO 事件循环：一个线程、一个 Selector，负责分配给它的所有连接的读写
+ *
+ * 其他线程只通过 execute 提交任务（注册连接、刷出发送队列、断开），任务在循环线程中执行，
+ * 所以连接的 Channel 和 SelectionKey 只被这一个线程访问。
+ * 读缓冲区和编解码用的缓冲区由循环内所有连接共用，连接只有在收到半帧或没写完时才持有自己的缓冲区，
+ * 空闲连接不占用缓冲区。
+ */
+final class NioEventLoop implements Runnable {
+    private static final GameLogger LOG = GameLog.logger(LogCategory.NETWORK);
+    static final int READ_BUFFER_SIZE = 64 * 1024;
+    static final int GATHER_SEGMENTS = 64; // 一次聚集写出的最大缓冲区数
+
+    private final String name;
+    private final Selector selector;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean wakeupPending = new AtomicBoolean();
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    private final byte[] frameBytes = new byte[Frames.MAX_FRAME_BYTES];
+    private final WireReader reader = new WireReader();
+    private final WireWriter payloadWriter = new WireWriter(1024);
+    private final WireWriter batchWriter = new WireWriter(64 * 1024);
+    private final ByteBuffer[] gatherBuffers = new ByteBuffer[GATHER_SEGMENTS];
+    private volatile Thread thread;
+    private volatile boolean running;
+    private final AtomicInteger connectionCount = new AtomicInteger(); // 接受线程分配时加一，关闭时减一
+
+    NioEventLoop(String name) throws IOException {
+        this.name = name;
+        this.selector = Selector.open();
+    }
+
+    void start() {
+        running = true;
+        Thread loopThread = new Thread(this, name);
+        loopThread.setDaemon(true);
+        thread = loopThread;
+        loopThread.start();
+    }
+
+    /**
+     * 停止循环，关闭所有连接
+     */
+    void stop() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * 在循环线程中执行任务（当前就是循环线程时也排队，保证顺序）
+     */
+    void execute(Runnable task) {
+        tasks.add(task);
+        if (Thread.currentThread() != thread && wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    void register(NioConnection connection) {
+        connectionCount.incrementAndGet(); // 立即计入，下一个新连接的分配就能看到
+        execute(() -> {
+            try {
+                connection.attach(this, connection.channel().register(selector, SelectionKey.OP_READ, connection));
+                connection.flush(); // 注册之前已经排队的消息
+            } catch (IOException e) {
+                LOG.warn("注册连接 {} 失败: {}", connection.getClientId(), e.getMessage());
+                connectionCount.decrementAndGet(); // 没有注册成功，close 不会回调 onClosed
+                connection.close();
+            }
+        });
+    }
+
+    void onClosed() {
+        connectionCount.decrementAndGet();
+    }
+
+    /**
+     * 分配给这个循环且尚未关闭的连接数，用于把新连接分配给最空闲的循环
+     */
+    int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    String getName() {
+        return name;
+    }
+
+    ByteBuffer readBuffer() { return readBuffer; }
+    byte[] frameBytes() { return frameBytes; }
+    WireReader reader() { return reader; }
+    WireWriter payloadWriter() { return payloadWriter; }
+    WireWriter batchWriter() { return batchWriter; }
+    /** 聚集写出用的缓冲区数组，用完后槽位应置为 null，避免持有共享帧 */
+    ByteBuffer[] gatherBuffers() { return gatherBuffers; }
+
+    @Override
+    public void run() {
+        while (running) {
+            try {
+                selector.select();
+                wakeupPending.set(false);
+                processSelectedKeys();
+                runTasks();
+            } catch (IOException | RuntimeException e) {
+                LOG.error("事件循环 " + name + " 出错", e);
+            }
+        }
+        closeAll();
+    }
+
+    private void processSelectedKeys() {
+        Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+        while (it.hasNext()) {
+            SelectionKey key = it.next();
+            it.remove();
+            NioConnection connection = (NioConnection) key.attachment();
+            if (!key.isValid()) {
+                connection.close();
+                continue;
+            }
+            if (key.isReadable()) {
+                connection.onReadable();
+            }
+            if (key.isValid() && key.isWritable()) {
+                connection.flush();
+            }
+        }
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                LOG.error("事件循环任务执行失败", e);
+            }
+        }
+    }
+
+    private void closeAll() {
+        runTasks();
+        for (SelectionKey key : selector.keys()) {
+            Object attachment = key.attachment();
+            if (attachment instanceof NioConnection) {
+                ((NioConnection) attachment).close();
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            LOG.warn("关闭 Selector 出错: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.stardewbombers.server.network;
+
+import com.stardewbombers.shared.protocol.Message;
+import com.stardewbombers.shared.protocol.MessageType;
+import java.util.ArrayDeque;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 一个连接的有界发送队列，按 SendQueuePolicy 合并、丢弃消息或判定连接过慢
+ * offer 可以在任意线程调用，poll 由写出线程（阻塞模式的发送线程或 NIO 事件循环）调用。
+ * 消息在编码前才出队，丢弃和替换不会影响编解码器的状态。
+ *
+ * 用 ReentrantLock 而不是 synchronized，虚拟线程在锁内不会钉住载体线程。
+ */
+final class OutboundQueue {
+    /** 可以丢弃的非关键状态更新：丢了之后下一条会带上最新状态（快照按客户端确认的基准计算增量） */
+    private static final Set<MessageType> DROPPABLE = EnumSet.of(MessageType.WORLD_SNAPSHOT,
+        MessageType.PLAYER_MOVE, MessageType.HEARTBEAT);
+
+    enum Offer {
+        QUEUED,
+        COLLAPSED,      // 替换了队列中同一来源的旧更新
+        DROPPED_OLDEST, // 队列已满，丢弃了最早的非关键消息
+        OVERFLOW,       // 队列已满且没有可丢弃的消息，应断开
+        LAGGING,        // 最早的消息排队超过延迟上限，或者超过上限没有写出任何消息，应断开
+        CLOSED          // 之前已经判定过慢，连接正在关闭
+    }
+
+    private static final class Slot {
+        Message message;
+        final long queuedNanos;
+        final Object collapseKey;
+
+        Slot(Message message, long queuedNanos, Object collapseKey) {
+            this.message = message;
+            this.queuedNanos = queuedNanos;
+            this.collapseKey = collapseKey;
+        }
+    }
+
+    private final SendQueuePolicy policy;
+    private final long lagLimitNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<Slot> slots;
+    private final Map<Object, Slot> latest = new HashMap<>(); // 合并键 -> 队列中还没写出的那条
+    private volatile int size;
+    private long progressNanos; // 最近一次出队（或队列从空变为非空）的时间
+    private boolean rejected;   // 判定过慢后不再接收消息，断开只统计一次
+
+    OutboundQueue(SendQueuePolicy policy) {
+        this.policy = policy;
+        this.lagLimitNanos = policy.getLagLimitMs() * 1_000_000L;
+        this.slots = new ArrayDeque<>(Math.min(policy.getCapacity(), 64));
+    }
+
+    Offer offer(Message message) {
+        long now = System.nanoTime();
+        Object key = policy.isCollapseUpdates() ? collapseKey(message) : null;
+        lock.lock();
+        try {
+            if (rejected) {
+                return Offer.CLOSED;
+            }
+            Slot head = slots.peekFirst();
+            if (head == null) {
+                progressNanos = now;
+            } else if (lagLimitNanos > 0
+                && (now - head.queuedNanos > lagLimitNanos || now - progressNanos > lagLimitNanos)) {
+                // 只看队首不够：队列满时丢弃的正是队首，完全不读的客户端队首一直是新的
+                rejected = true;
+                return Offer.LAGGING;
+            }
+            if (key != null) {
+                Slot queued = latest.get(key);
+                if (queued != null) {
+                    queued.message = message;
+                    return Offer.COLLAPSED;
+                }
+            }
+            Offer result = Offer.QUEUED;
+            if (slots.size() >= policy.getCapacity()) {
+                if (!policy.isDropOldest() || !dropOldest()) {
+                    rejected = true;
+                    return Offer.OVERFLOW;
+                }
+                result = Offer.DROPPED_OLDEST;
+            }
+            Slot slot = new Slot(message, now, key);
+            slots.addLast(slot);
+            if (key != null) {
+                latest.put(key, slot);
+            }
+            size = slots.size();
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 取出最早的消息，队列为空时返回 null
+     */
+    Message poll() {
+        if (size == 0) {
+            return null;
+        }
+        lock.lock();
+        try {
+            Slot slot = slots.pollFirst();
+            if (slot == null) {
+                return null;
+            }
+            if (slot.collapseKey != null) {
+                latest.remove(slot.collapseKey, slot);
+            }
+            size = slots.size();
+            progressNanos = System.nanoTime();
+            return slot.message;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        lock.lock();
+        try {
+            slots.clear();
+            latest.clear();
+            size = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 丢弃最早的一条非关键消息（持有锁）
+     */
+    private boolean dropOldest() {
+        Iterator<Slot> iterator = slots.iterator();
+        while (iterator.hasNext()) {
+            Slot slot = iterator.next();
+            if (DROPPABLE.contains(slot.message.getType())) {
+                iterator.remove();
+                if (slot.collapseKey != null) {
+                    latest.remove(slot.collapseKey, slot);
+                }
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 后一条会完整取代前一条的消息的合并键：快照（每个连接只在一个房间，增量都相对已确认的基准）
+     * 用消息类型，同一玩家的移动用玩家 id；其他消息返回 null
+     */
+    private static Object collapseKey(Message message) {
+        switch (message.getType()) {
+            case WORLD_SNAPSHOT:
+                return MessageType.WORLD_SNAPSHOT;
+            case PLAYER_MOVE:
+                return message.getSenderId();
+            default:
+                return null;
+        }
+    }
+}
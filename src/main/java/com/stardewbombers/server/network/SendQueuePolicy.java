@@ -0,0 +1,45 @@
+package com.stardewbombers.server.network;
+
+/**
+ * 每个连接发送队列的限制和慢客户端处理策略（不可变）
+ *
+ * 队列满时先丢弃最早的非关键状态更新（快照、转发的移动、心跳）；开启合并时，同一来源较新的位置更新
+ * 直接替换队列中还没写出的旧更新。队列满且没有可丢弃的消息，或最早的消息排队超过延迟上限时断开连接。
+ */
+public final class SendQueuePolicy {
+    public static final int DEFAULT_CAPACITY = 256;
+    public static final long DEFAULT_LAG_LIMIT_MS = 5_000;
+    public static final SendQueuePolicy DEFAULT = new SendQueuePolicy(DEFAULT_CAPACITY, true, true, DEFAULT_LAG_LIMIT_MS);
+
+    private final int capacity;
+    private final boolean collapseUpdates;
+    private final boolean dropOldest;
+    private final long lagLimitMs;
+
+    /**
+     * @param capacity 队列最多容纳的消息数
+     * @param collapseUpdates 是否用较新的位置更新替换排队中的旧更新
+     * @param dropOldest 队列满时是否丢弃最早的非关键消息（否则直接断开）
+     * @param lagLimitMs 最早的消息排队超过这个时间就断开，0 表示不限制
+     */
+    public SendQueuePolicy(int capacity, boolean collapseUpdates, boolean dropOldest, long lagLimitMs) {
+        if (capacity <= 0 || lagLimitMs < 0) {
+            throw new IllegalArgumentException("发送队列参数无效: capacity=" + capacity + " lagLimitMs=" + lagLimitMs);
+        }
+        this.capacity = capacity;
+        this.collapseUpdates = collapseUpdates;
+        this.dropOldest = dropOldest;
+        this.lagLimitMs = lagLimitMs;
+    }
+
+    public int getCapacity() { return capacity; }
+    public boolean isCollapseUpdates() { return collapseUpdates; }
+    public boolean isDropOldest() { return dropOldest; }
+    public long getLagLimitMs() { return lagLimitMs; }
+
+    @Override
+    public String toString() {
+        return String.format("SendQueuePolicy[capacity=%d collapse=%s dropOldest=%s lagLimit=%dms]",
+            capacity, collapseUpdates, dropOldest, lagLimitMs);
+    }
+}
@@ -0,0 +1,334 @@
+package com.stardewbombers.server.network;
+
+import com.stardewbombers.shared.log.GameLog;
+import com.stardewbombers.shared.log.GameLogger;
+import com.stardewbombers.shared.log.LogCategory;
+import com.stardewbombers.shared.protocol.Message;
+import com.stardewbombers.shared.protocol.MessageType;
+import com.stardewbombers.shared.protocol.datagram.AckWindow;
+import com.stardewbombers.shared.protocol.datagram.Datagrams;
+import com.stardewbombers.shared.protocol.codec.ProtocolException;
+import com.stardewbombers.shared.protocol.codec.SharedFrame;
+import com.stardewbombers.shared.protocol.codec.WireReader;
+import com.stardewbombers.shared.protocol.codec.WireWriter;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 服务器的数据报通道（可选，见 Datagrams）
+ * 与 TCP 监听同一个端口号。每个连接登记时分配随机令牌，随 SERVER_RESPONSE 发给客户端；
+ * 收到带令牌的 HELLO 后记下客户端的地址并回复，之后这个连接的快照和转发的移动改走 UDP，
+ * 其余消息、以及放不进一个包的大消息（例如开局的完整快照）仍走 TCP。
+ *
+ * 发送：send 只把消息放进会话的待发列表（同一来源的较新移动、较新的快照替换旧的），
+ * 服务器合并发送时由 flush 每个 tick 打包写出，否则立即写出。
+ * 接收：一个线程阻塞接收；乱序或重复的包整体丢弃，客户端在每个包中重发未确认的输入，按输入序号去掉已经收到的。
+ */
+final class UdpEndpoint {
+    private static final GameLogger LOG = GameLog.logger(LogCategory.NETWORK);
+
+    private final NetworkServer server;
+    private final DatagramChannel channel;
+    private final Map<Long, Session> byToken = new ConcurrentHashMap<>();
+    private final Map<String, Session> byClient = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final LongAdder packetsSent = new LongAdder();
+    private final LongAdder packetsReceived = new LongAdder();
+    private final LongAdder bytesSent = new LongAdder();
+    private final LongAdder simulatedDrops = new LongAdder();
+    private final LongAdder stalePackets = new LongAdder();
+    private final LongAdder tcpFallbacks = new LongAdder();
+    private final LongAdder invalidPackets = new LongAdder();
+    private volatile double lossRate = Datagrams.DEFAULT_LOSS_RATE;
+    private volatile boolean running;
+    private Thread receiveThread;
+
+    UdpEndpoint(NetworkServer server, int port) throws IOException {
+        this.server = server;
+        this.channel = DatagramChannel.open();
+        channel.bind(new InetSocketAddress(port));
+    }
+
+    void start() {
+        running = true;
+        receiveThread = new Thread(this::receiveLoop, "udp-receive");
+        receiveThread.setDaemon(true);
+        receiveThread.start();
+    }
+
+    int getPort() {
+        return channel.socket().getLocalPort();
+    }
+
+    /**
+     * 设置模拟丢包率（0~1），对发出的包生效
+     */
+    void setLossRate(double lossRate) {
+        this.lossRate = lossRate;
+    }
+
+    /**
+     * 登记连接，返回它的令牌
+     */
+    long register(String clientId) {
+        Session session;
+        do {
+            session = new Session(clientId, random.nextLong());
+        } while (session.token == 0 || byToken.putIfAbsent(session.token, session) != null);
+        byClient.put(clientId, session);
+        return session.token;
+    }
+
+    void remove(String clientId) {
+        Session session = byClient.remove(clientId);
+        if (session != null) {
+            byToken.remove(session.token);
+        }
+    }
+
+    /**
+     * 经数据报通道发送；连接还没有完成 HELLO 时返回 false，由调用方改走 TCP
+     */
+    boolean send(String clientId, Message message) {
+        Session session = byClient.get(clientId);
+        if (session == null || session.address == null) {
+            return false;
+        }
+        session.offer(message);
+        if (!server.isCoalescing()) {
+            session.flush();
+        }
+        return true;
+    }
+
+    /**
+     * 写出所有会话的待发消息（合并发送线程）
+     */
+    void flush() {
+        for (Session session : byClient.values()) {
+            session.flush();
+        }
+    }
+
+    void close() {
+        running = false;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOG.debug("关闭数据报通道出错: {}", e.getMessage());
+        }
+        byClient.clear();
+        byToken.clear();
+    }
+
+    private void receiveLoop() {
+        ByteBuffer buffer = ByteBuffer.allocate(Datagrams.MAX_PACKET_BYTES);
+        WireReader reader = new WireReader();
+        WireReader frame = new WireReader();
+        while (running) {
+            try {
+                buffer.clear();
+                SocketAddress from = channel.receive(buffer);
+                packetsReceived.increment();
+                reader.reset(buffer.array(), 0, buffer.position());
+                onPacket(from, reader, frame);
+            } catch (ProtocolException e) {
+                invalidPackets.increment();
+            } catch (IOException e) {
+                if (running) {
+                    LOG.warn("数据报接收出错: {}", e.getMessage());
+                }
+            } catch (RuntimeException e) {
+                LOG.error("处理数据报失败", e);
+            }
+        }
+    }
+
+    private void onPacket(SocketAddress from, WireReader in, WireReader frame) throws ProtocolException, IOException {
+        int kind = in.readByte();
+        Session session = byToken.get(in.readVarLong());
+        if (session == null) {
+            invalidPackets.increment();
+            return;
+        }
+        if (kind == Datagrams.HELLO) {
+            if (!from.equals(session.address)) {
+                LOG.debug("客户端 {} 的数据报地址: {}", session.clientId, from);
+                session.address = from; // 令牌只通过 TCP 发出，地址变化（NAT 重新映射）时以最新的 HELLO 为准
+            }
+            WireWriter reply = new WireWriter(16);
+            Datagrams.writeHello(reply, session.token);
+            transmit(from, reply);
+            return;
+        }
+        if (kind != Datagrams.DATA || !from.equals(session.address)) {
+            invalidPackets.increment();
+            return;
+        }
+        int sequence = in.readVarInt();
+        int ack = in.readVarInt();
+        int bits = in.readVarInt();
+        if (!session.onReceive(sequence, ack, bits)) {
+            stalePackets.increment();
+            return;
+        }
+        while (in.remaining() > 0) {
+            Message message = Datagrams.readMessage(in, frame);
+            if (session.isFresh(message)) {
+                server.handleClientMessage(session.clientId, message);
+            }
+        }
+    }
+
+    private void transmit(SocketAddress to, WireWriter packet) throws IOException {
+        if (Datagrams.simulateLoss(lossRate)) {
+            simulatedDrops.increment();
+            return;
+        }
+        channel.send(ByteBuffer.wrap(packet.array(), 0, packet.size()), to);
+        packetsSent.increment();
+        bytesSent.add(packet.size());
+    }
+
+    long getPacketsSent() { return packetsSent.sum(); }
+    long getPacketsReceived() { return packetsReceived.sum(); }
+    long getBytesSent() { return bytesSent.sum(); }
+    long getSimulatedDrops() { return simulatedDrops.sum(); }
+    /** 乱序或重复被丢弃的包 */
+    long getStalePackets() { return stalePackets.sum(); }
+    /** 放不进一个包改走 TCP 的消息 */
+    long getTcpFallbacks() { return tcpFallbacks.sum(); }
+    long getInvalidPackets() { return invalidPackets.sum(); }
+
+    /**
+     * 所有会话的丢包率（按对方确认统计），没有会话时为 0
+     */
+    double getLossRatio() {
+        long acked = 0;
+        long lost = 0;
+        for (Session session : byClient.values()) {
+            synchronized (session) {
+                acked += session.acks.getAckedCount();
+                lost += session.acks.getLostCount();
+            }
+        }
+        return acked + lost == 0 ? 0.0 : (double) lost / (acked + lost);
+    }
+
+    /**
+     * 一个连接的数据报状态，发送和确认在会话锁内
+     */
+    private final class Session {
+        final String clientId;
+        final long token;
+        volatile SocketAddress address;   // 收到 HELLO 之前为 null
+        final AckWindow acks = new AckWindow();
+        private final List<Message> pending = new ArrayList<>();
+        private final WireWriter packet = new WireWriter(Datagrams.MAX_PACKET_BYTES);
+        private final WireWriter scratch = new WireWriter(Datagrams.MAX_PACKET_BYTES);
+        private final WireWriter frameScratch = new WireWriter(Datagrams.MAX_PACKET_BYTES);
+        private int lastInputSequence;     // 收到的最大输入序号（序号从 1 开始），只在接收线程访问
+
+        Session(String clientId, long token) {
+            this.clientId = clientId;
+            this.token = token;
+        }
+
+        synchronized boolean onReceive(int sequence, int ack, int bits) {
+            acks.onAck(ack, bits, System.nanoTime());
+            return acks.onReceive(sequence);
+        }
+
+        /**
+         * 客户端重发的输入（移动、放炸弹）只处理一次；其他消息和没有序号（0）的输入照常处理
+         * （客户端不经数据报发送没有序号的输入）
+         */
+        boolean isFresh(Message message) {
+            int sequence = Datagrams.inputSequence(message);
+            if (sequence == 0) {
+                return true;
+            }
+            if (sequence <= lastInputSequence) {
+                return false;
+            }
+            lastInputSequence = sequence;
+            return true;
+        }
+
+        synchronized void offer(Message message) {
+            for (int i = 0; i < pending.size(); i++) {
+                if (supersedes(message, pending.get(i))) {
+                    pending.set(i, message);
+                    return;
+                }
+            }
+            pending.add(message);
+        }
+
+        private boolean supersedes(Message newer, Message older) {
+            if (newer.getType() != older.getType()) {
+                return false;
+            }
+            return newer.getType() == MessageType.WORLD_SNAPSHOT
+                || (newer.getType() == MessageType.PLAYER_MOVE && newer.getSenderId() != null
+                    && newer.getSenderId().equals(older.getSenderId()));
+        }
+
+        /**
+         * 把待发消息打包写出，一个包放不下时分成多个；单条消息超过包的上限时改走 TCP
+         */
+        synchronized void flush() {
+            SocketAddress to = address;
+            if (pending.isEmpty() || to == null) {
+                return;
+            }
+            try {
+                packet.reset();
+                for (Message message : pending) {
+                    scratch.reset();
+                    if (message instanceof SharedFrame) {
+                        scratch.writeBytes(((SharedFrame) message).frame()); // 已经是长度 + 独立帧
+                    } else {
+                        Datagrams.appendMessage(scratch, message, frameScratch);
+                    }
+                    if (Datagrams.MAX_HEADER_BYTES + scratch.size() > Datagrams.MAX_PACKET_BYTES) {
+                        fallBackToTcp(message);
+                        continue;
+                    }
+                    if (packet.size() + scratch.size() > Datagrams.MAX_PACKET_BYTES) {
+                        transmit(to, packet);
+                        packet.reset();
+                    }
+                    if (packet.size() == 0) {
+                        Datagrams.writeDataHeader(packet, token, acks.nextSequence(System.nanoTime()), acks);
+                    }
+                    packet.writeBytes(scratch.array(), 0, scratch.size());
+                }
+                if (packet.size() > 0) {
+                    transmit(to, packet);
+                }
+            } catch (IOException e) {
+                LOG.debug("发给客户端 {} 的数据报出错: {}", clientId, e.getMessage());
+            } finally {
+                pending.clear();
+            }
+        }
+
+        private void fallBackToTcp(Message message) {
+            tcpFallbacks.increment();
+            ClientConnection client = server.getClient(clientId);
+            if (client != null) {
+                client.sendMessage(message);
+            }
+        }
+    }
+}
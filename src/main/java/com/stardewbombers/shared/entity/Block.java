@@ -5,6 +5,9 @@ import com.stardewbombers.shared.enums.BlockType;
 /**
  * 地图块实体类
  * 表示游戏地图上的一个方块
+ *
+ * 由 GameMap.getBlock 返回的方块是地图紧凑存储的视图：读写都直接作用于地图数组，
+ * 独立构造的方块仍然使用自身字段保存状态
  */
 public class Block {
     private int x;
@@ -13,6 +16,7 @@ public class Block {
     private boolean isDestroyed;
     private boolean hasBomb;
     private boolean hasPowerUp;
+    private final GameMap map; // 非空时为地图视图
     
     public Block(int x, int y, BlockType type) {
         this.x = x;
@@ -21,6 +25,16 @@ public class Block {
         this.isDestroyed = false;
         this.hasBomb = false;
         this.hasPowerUp = false;
+        this.map = null;
+    }
+    
+    /**
+     * 创建地图存储的视图（由GameMap懒加载）
+     */
+    Block(GameMap map, int x, int y) {
+        this.x = x;
+        this.y = y;
+        this.map = map;
     }
     
     // Getters and Setters
@@ -41,41 +55,60 @@ public class Block {
     }
     
     public BlockType getType() {
-        return type;
+        return map != null ? map.getBlockType(x, y) : type;
     }
     
     public void setType(BlockType type) {
-        this.type = type;
+        if (map != null) {
+            map.setBlockTypeOnly(x, y, type);
+        } else {
+            this.type = type;
+        }
     }
     
     public boolean isDestroyed() {
-        return isDestroyed;
+        return map != null ? map.hasFlag(x, y, GameMap.FLAG_DESTROYED) : isDestroyed;
     }
     
     public void setDestroyed(boolean destroyed) {
-        this.isDestroyed = destroyed;
+        if (map != null) {
+            map.setFlag(x, y, GameMap.FLAG_DESTROYED, destroyed);
+        } else {
+            this.isDestroyed = destroyed;
+        }
     }
     
     public boolean hasBomb() {
-        return hasBomb;
+        return map != null ? map.hasFlag(x, y, GameMap.FLAG_HAS_BOMB) : hasBomb;
     }
     
     public void setHasBomb(boolean hasBomb) {
-        this.hasBomb = hasBomb;
+        if (map != null) {
+            map.setFlag(x, y, GameMap.FLAG_HAS_BOMB, hasBomb);
+        } else {
+            this.hasBomb = hasBomb;
+        }
     }
     
     public boolean hasPowerUp() {
-        return hasPowerUp;
+        return map != null ? map.hasFlag(x, y, GameMap.FLAG_HAS_POWERUP) : hasPowerUp;
     }
     
     public void setHasPowerUp(boolean hasPowerUp) {
-        this.hasPowerUp = hasPowerUp;
+        if (map != null) {
+            map.setFlag(x, y, GameMap.FLAG_HAS_POWERUP, hasPowerUp);
+        } else {
+            this.hasPowerUp = hasPowerUp;
+        }
     }
     
     /**
      * 检查方块是否可以被玩家穿过
      */
     public boolean isWalkable() {
+        if (map != null) {
+            return map.isWalkable(x, y);
+        }
         // 如果方块被破坏了，它变成了地板，应该是可通行的
         if (isDestroyed) {
             return true;
@@ -88,6 +121,9 @@ public class Block {
      * 检查方块是否可以被炸弹破坏
      */
     public boolean isDestructible() {
+        if (map != null) {
+            return map.isDestructible(x, y);
+        }
         return type.isExplorable() && !isDestroyed;
     }
     
@@ -95,13 +131,17 @@ public class Block {
      * 检查方块被破坏后是否有奖励
      */
     public boolean hasReward() {
-        return type.isTreat();
+        return getType().isTreat();
     }
     
     /**
      * 破坏方块
      */
     public void destroy() {
+        if (map != null) {
+            map.markDestroyed(x, y);
+            return;
+        }
         if (isDestructible()) {
             this.isDestroyed = true;
             this.type = BlockType.FLOOR; // 破坏后变成地板
@@ -111,7 +151,7 @@ public class Block {
     @Override
     public String toString() {
         return String.format("Block[x=%d, y=%d, type=%s, destroyed=%s]", 
-                           x, y, type.getName(), isDestroyed);
+                           x, y, getType().getName(), isDestroyed());
     }
     
     @Override
@@ -1,10 +1,15 @@
 package com.stardewbombers.shared.entity;
 
+import com.stardewbombers.shared.log.GameLog;
+import com.stardewbombers.shared.log.GameLogger;
+import com.stardewbombers.shared.log.LogCategory;
+
 /**
  * 炸弹实体类
  * 负责炸弹的基本属性和状态管理
  */
 public class Bomb {
+    private static final GameLogger LOG = GameLog.logger(LogCategory.BOMB);
 
     // 炸弹状态枚举
     public enum BombState {
@@ -25,6 +30,7 @@ public class Bomb {
     private BombState state;             // 炸弹状态
     private double fuseTime;             // 剩余引信时间
     private double totalFuseTime;        // 总引信时间
+    private long fuseEndMs = -1L;        // 由时间轮调度时的引信结束时间，-1 表示按 fuseTime 递减
     private String ownerId;              // 炸弹拥有者ID
     private int explosionRadius;         // 爆炸范围（可配置）
 
@@ -81,35 +87,52 @@ public class Bomb {
     }
 
     /**
-     * 爆炸
+     * 爆炸（使用系统时间）
      */
     public void explode() {
+        explode(System.currentTimeMillis());
+    }
+
+    /**
+     * 爆炸
+     * @param nowMs 当前模拟时间
+     */
+    public void explode(long nowMs) {
         // 一次性保护：防止重复爆炸
         if (state == BombState.EXPLODING || state == BombState.EXPLODED) {
-            System.out.println("炸弹 " + ownerId + " 已经爆炸过，跳过重复爆炸 (当前状态: " + state + ")");
+            LOG.debug("炸弹 {} 已经爆炸过，跳过重复爆炸 (当前状态: {})", ownerId, state);
             return;
         }
         
         if (state != BombState.TICKING) {
-            System.out.println("炸弹 " + ownerId + " 不在倒计时状态，跳过爆炸 (当前状态: " + state + ")");
+            LOG.debug("炸弹 {} 不在倒计时状态，跳过爆炸 (当前状态: {})", ownerId, state);
             return;
         }
         
-        System.out.println("炸弹 " + ownerId + " 开始爆炸 at " + System.currentTimeMillis());
+        if (LOG.isDebugEnabled()) {
+            LOG.debug("炸弹 {} 开始爆炸 at {}", ownerId, nowMs);
+        }
         state = BombState.EXPLODING;
-        explosionStartTime = System.currentTimeMillis();
+        explosionStartTime = nowMs;
     }
 
     /**
-     * 获取爆炸进度（0.0 - 1.0）
+     * 获取爆炸进度（0.0 - 1.0，使用系统时间）
      */
     public double getExplosionProgress() {
+        return getExplosionProgress(System.currentTimeMillis());
+    }
+
+    /**
+     * 获取爆炸进度（0.0 - 1.0）
+     * @param nowMs 当前模拟时间
+     */
+    public double getExplosionProgress(long nowMs) {
         if (state != BombState.EXPLODING) {
             return 0.0;
         }
 
-        long currentTime = System.currentTimeMillis();
-        double elapsed = (currentTime - explosionStartTime) / 1000.0;
+        double elapsed = (nowMs - explosionStartTime) / 1000.0;
         return Math.min(elapsed / explosionDuration, 1.0);
     }
 
@@ -123,6 +146,22 @@ public class Bomb {
         return 1.0 - (fuseTime / totalFuseTime);
     }
 
+    /**
+     * 获取引信进度（0.0 - 1.0）
+     * 引信由时间轮调度时按结束时间计算，否则同 getFuseProgress()
+     * @param nowMs 当前模拟时间
+     */
+    public double getFuseProgress(long nowMs) {
+        if (state != BombState.TICKING) {
+            return 0.0;
+        }
+        if (fuseEndMs < 0) {
+            return getFuseProgress();
+        }
+        double remaining = Math.max(0L, fuseEndMs - nowMs) / 1000.0;
+        return 1.0 - (remaining / totalFuseTime);
+    }
+
     /**
      * 检查炸弹是否可以爆炸
      */
@@ -156,6 +195,7 @@ public class Bomb {
     public int getExplosionRadius() { return explosionRadius; }
     public double getExplosionDuration() { return explosionDuration; }
     public long getExplosionStartTime() { return explosionStartTime; }
+    public long getFuseEndMs() { return fuseEndMs; }
     public boolean isHasExploded() { return hasExploded; }
 
     public void setX(int x) { this.x = x; }
@@ -164,8 +204,17 @@ public class Bomb {
     public void setFuseTime(double fuseTime) { this.fuseTime = fuseTime; }
     public void setHasExploded(boolean hasExploded) { this.hasExploded = hasExploded; }
     public void setExplosionStartTime(long explosionStartTime) { this.explosionStartTime = explosionStartTime; }
+    public void setFuseEndMs(long fuseEndMs) { this.fuseEndMs = fuseEndMs; }
     public void setExplosionRadius(int explosionRadius) { this.explosionRadius = explosionRadius; }
 
+    /**
+     * 设置总引信时间（放置后、开始计时前调用），剩余引信时间同时重置
+     */
+    public void setTotalFuseTime(double totalFuseTime) {
+        this.totalFuseTime = totalFuseTime;
+        this.fuseTime = totalFuseTime;
+    }
+
     /**
      * 更新炸弹位置（用于逻辑同步）
      */
@@ -0,0 +1,309 @@
+package com.stardewbombers.shared.entity;
+
+import java.util.Arrays;
+
+/**
+ * 按格子分桶的空间索引
+ * 每个格子维护一个双向链表（用数组实现），插入/移动/删除都是 O(1)，
+ * 查询只访问相关格子的桶，不需要遍历全部实体。
+ *
+ * 遍历某个格子的写法（不分配对象）：
+ * <pre>
+ * for (int slot = index.first(cell); slot != CellIndex.NONE; slot = index.next(slot)) {
+ *     T entity = index.get(slot);
+ * }
+ * </pre>
+ */
+public class CellIndex<T> {
+    public static final int NONE = -1;
+
+    private final int width;
+    private final int height;
+    private final double cellWidth;
+    private final double cellHeight;
+    private final int[] heads;
+    // 实体到槽位的开放寻址表（按引用比较，线性探测），存 槽位+1，0 表示空；不装箱
+    private int[] slotTable = new int[32];
+    private int count;
+
+    private Object[] entries = new Object[16];
+    private int[] nextSlot = new int[16];
+    private int[] prevSlot = new int[16];
+    private int[] cellOfSlot = new int[16];
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int used;
+
+    public CellIndex(int width, int height, double cellWidth, double cellHeight) {
+        this.width = width;
+        this.height = height;
+        this.cellWidth = cellWidth;
+        this.cellHeight = cellHeight;
+        this.heads = new int[width * height];
+        Arrays.fill(heads, NONE);
+    }
+
+    /**
+     * 世界坐标所在的格子下标，超出地图返回 NONE
+     */
+    public int cellAt(double worldX, double worldY) {
+        if (worldX < 0 || worldY < 0) {
+            return NONE;
+        }
+        int x = (int) (worldX / cellWidth);
+        int y = (int) (worldY / cellHeight);
+        return cellOf(x, y);
+    }
+
+    /**
+     * 网格坐标对应的格子下标，超出地图返回 NONE
+     */
+    public int cellOf(int gridX, int gridY) {
+        if (gridX < 0 || gridX >= width || gridY < 0 || gridY >= height) {
+            return NONE;
+        }
+        return gridY * width + gridX;
+    }
+
+    /**
+     * 插入实体（已存在时等同于 move）
+     */
+    public void insert(T entity, int cell) {
+        int existing = findSlot(entity);
+        if (existing != NONE) {
+            moveSlot(existing, cell);
+            return;
+        }
+        int slot = allocateSlot();
+        entries[slot] = entity;
+        cellOfSlot[slot] = NONE;
+        prevSlot[slot] = NONE;
+        nextSlot[slot] = NONE;
+        putSlot(slot);
+        link(slot, cell);
+    }
+
+    /**
+     * 按世界坐标插入实体
+     */
+    public void insertAt(T entity, double worldX, double worldY) {
+        insert(entity, cellAt(worldX, worldY));
+    }
+
+    /**
+     * 移动实体到新格子（未登记的实体会被插入）
+     */
+    public void move(T entity, int cell) {
+        int slot = findSlot(entity);
+        if (slot == NONE) {
+            insert(entity, cell);
+        } else {
+            moveSlot(slot, cell);
+        }
+    }
+
+    /**
+     * 按世界坐标移动实体
+     */
+    public void moveTo(T entity, double worldX, double worldY) {
+        move(entity, cellAt(worldX, worldY));
+    }
+
+    /**
+     * 移除实体
+     */
+    public boolean remove(T entity) {
+        int slot = findSlot(entity);
+        if (slot == NONE) {
+            return false;
+        }
+        removeSlot(slot);
+        unlink(slot);
+        entries[slot] = null;
+        freeSlots = ensureCapacity(freeSlots, freeCount + 1);
+        freeSlots[freeCount++] = slot;
+        return true;
+    }
+
+    /**
+     * 清空索引
+     */
+    public void clear() {
+        Arrays.fill(heads, NONE);
+        Arrays.fill(entries, 0, used, null);
+        Arrays.fill(slotTable, 0);
+        count = 0;
+        used = 0;
+        freeCount = 0;
+    }
+
+    /**
+     * 实体当前所在格子，未登记或在地图外返回 NONE
+     */
+    public int cellOfEntity(T entity) {
+        int slot = findSlot(entity);
+        return slot == NONE ? NONE : cellOfSlot[slot];
+    }
+
+    public boolean contains(T entity) {
+        return findSlot(entity) != NONE;
+    }
+
+    public boolean isEmpty(int cell) {
+        return cell == NONE || heads[cell] == NONE;
+    }
+
+    /**
+     * 格子中的第一个槽位，没有则返回 NONE
+     */
+    public int first(int cell) {
+        return cell == NONE ? NONE : heads[cell];
+    }
+
+    /**
+     * 同一格子中的下一个槽位
+     */
+    public int next(int slot) {
+        return nextSlot[slot];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T get(int slot) {
+        return (T) entries[slot];
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    private void moveSlot(int slot, int cell) {
+        if (cellOfSlot[slot] == cell) {
+            return;
+        }
+        unlink(slot);
+        link(slot, cell);
+    }
+
+    private void link(int slot, int cell) {
+        cellOfSlot[slot] = cell;
+        prevSlot[slot] = NONE;
+        if (cell == NONE) {
+            nextSlot[slot] = NONE;
+            return;
+        }
+        int head = heads[cell];
+        nextSlot[slot] = head;
+        if (head != NONE) {
+            prevSlot[head] = slot;
+        }
+        heads[cell] = slot;
+    }
+
+    private void unlink(int slot) {
+        int cell = cellOfSlot[slot];
+        if (cell != NONE) {
+            int prev = prevSlot[slot];
+            int next = nextSlot[slot];
+            if (prev != NONE) {
+                nextSlot[prev] = next;
+            } else {
+                heads[cell] = next;
+            }
+            if (next != NONE) {
+                prevSlot[next] = prev;
+            }
+        }
+        cellOfSlot[slot] = NONE;
+        prevSlot[slot] = NONE;
+        nextSlot[slot] = NONE;
+    }
+
+    private static int hash(Object entity) {
+        int h = System.identityHashCode(entity) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * 实体所在槽位，未登记返回 NONE
+     */
+    private int findSlot(Object entity) {
+        int mask = slotTable.length - 1;
+        for (int i = hash(entity) & mask; ; i = (i + 1) & mask) {
+            int stored = slotTable[i];
+            if (stored == 0) {
+                return NONE;
+            }
+            if (entries[stored - 1] == entity) {
+                return stored - 1;
+            }
+        }
+    }
+
+    /**
+     * 登记槽位（实体已写入 entries[slot]），负载超过一半时扩容
+     */
+    private void putSlot(int slot) {
+        if ((count + 1) * 2 > slotTable.length) {
+            int[] old = slotTable;
+            slotTable = new int[old.length * 2];
+            for (int stored : old) {
+                if (stored != 0) {
+                    place(stored);
+                }
+            }
+        }
+        place(slot + 1);
+        count++;
+    }
+
+    private void place(int stored) {
+        int mask = slotTable.length - 1;
+        int i = hash(entries[stored - 1]) & mask;
+        while (slotTable[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        slotTable[i] = stored;
+    }
+
+    /**
+     * 注销槽位（须在清空 entries[slot] 之前调用），后续探测链上的项前移填补空位
+     */
+    private void removeSlot(int slot) {
+        int mask = slotTable.length - 1;
+        int i = hash(entries[slot]) & mask;
+        while (slotTable[i] != slot + 1) {
+            i = (i + 1) & mask;
+        }
+        for (int j = (i + 1) & mask; slotTable[j] != 0; j = (j + 1) & mask) {
+            int home = hash(entries[slotTable[j] - 1]) & mask;
+            boolean between = i <= j ? (i < home && home <= j) : (i < home || home <= j);
+            if (!between) {
+                slotTable[i] = slotTable[j];
+                i = j;
+            }
+        }
+        slotTable[i] = 0;
+        count--;
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            return freeSlots[--freeCount];
+        }
+        if (used == entries.length) {
+            int capacity = entries.length * 2;
+            entries = Arrays.copyOf(entries, capacity);
+            nextSlot = Arrays.copyOf(nextSlot, capacity);
+            prevSlot = Arrays.copyOf(prevSlot, capacity);
+            cellOfSlot = Arrays.copyOf(cellOfSlot, capacity);
+        }
+        return used++;
+    }
+
+    private static int[] ensureCapacity(int[] array, int size) {
+        return size <= array.length ? array : Arrays.copyOf(array, Math.max(size, array.length * 2));
+    }
+}
@@ -1,6 +1,7 @@
 package com.stardewbombers.shared.entity;
 
 import javafx.geometry.Point2D;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -9,18 +10,57 @@ import java.util.List;
  */
 public class ExplosionEvent {
     private final Bomb bomb;
-    private final List<Point2D> affectedPositions;
+    private List<Point2D> affectedPositions;
     private final long explosionTime;
+    private final int[] affectedCells;  // 格子下标（index = y * mapWidth + x），可能为null；只读，可能与同一步的其他事件共用
+    private final int cellsFrom;
+    private final int cellsTo;
+    private final int mapWidth;
+    private final int gridSize;
 
     public ExplosionEvent(Bomb bomb, List<Point2D> affectedPositions, long explosionTime) {
         this.bomb = bomb;
         this.affectedPositions = affectedPositions;
         this.explosionTime = explosionTime;
+        this.affectedCells = null;
+        this.cellsFrom = 0;
+        this.cellsTo = 0;
+        this.mapWidth = 0;
+        this.gridSize = 0;
+    }
+
+    /**
+     * 由爆炸引擎的格子结果创建，范围为 affectedCells 的 [from, to) 段，世界坐标列表在首次访问时才生成
+     */
+    public ExplosionEvent(Bomb bomb, int[] affectedCells, int from, int to, int mapWidth, int gridSize,
+                          long explosionTime) {
+        this.bomb = bomb;
+        this.affectedCells = affectedCells;
+        this.cellsFrom = from;
+        this.cellsTo = to;
+        this.mapWidth = mapWidth;
+        this.gridSize = gridSize;
+        this.explosionTime = explosionTime;
     }
 
     public Bomb getBomb() { return bomb; }
-    public List<Point2D> getAffectedPositions() { return affectedPositions; }
     public long getExplosionTime() { return explosionTime; }
     public String getOwnerId() { return bomb.getOwnerId(); }
-}
+    public int getAffectedCellCount() { return cellsTo - cellsFrom; }
+    public int getAffectedCell(int i) { return affectedCells[cellsFrom + i]; }
 
+    /**
+     * 受影响格子左上角的世界坐标
+     */
+    public List<Point2D> getAffectedPositions() {
+        if (affectedPositions == null) {
+            List<Point2D> positions = new ArrayList<>(cellsTo - cellsFrom);
+            for (int i = cellsFrom; i < cellsTo; i++) {
+                int cell = affectedCells[i];
+                positions.add(new Point2D((cell % mapWidth) * gridSize, (cell / mapWidth) * gridSize));
+            }
+            affectedPositions = positions;
+        }
+        return affectedPositions;
+    }
+}
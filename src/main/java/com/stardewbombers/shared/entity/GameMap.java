@@ -2,60 +2,219 @@ package com.stardewbombers.shared.entity;
 
 import com.stardewbombers.shared.enums.BlockType;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import javafx.geometry.Point2D;
 
 /**
  * 游戏地图类
  * 包含整个地图的数据和操作
+ *
+ * 方块数据使用紧凑的基本类型数组存储（按行优先，index = y * width + x）：
+ * types 保存 BlockType 的序号，flags 保存破坏/炸弹/道具状态以及预先计算好的可通行/可破坏位，
+ * 因此 isWalkable / isDestructible 只需一次数组读取。Block 对象仅在 getBlock 时懒加载为视图。
  */
 public class GameMap {
+    // flags 位定义
+    static final byte FLAG_DESTROYED = 1;
+    static final byte FLAG_HAS_BOMB = 1 << 1;
+    static final byte FLAG_HAS_POWERUP = 1 << 2;
+    static final byte FLAG_WALKABLE = 1 << 3;      // 由类型和破坏状态推导
+    static final byte FLAG_DESTRUCTIBLE = 1 << 4;  // 由类型和破坏状态推导
+    private static final byte DERIVED_MASK = FLAG_WALKABLE | FLAG_DESTRUCTIBLE;
+
+    private static final BlockType[] TYPES = BlockType.values();
+
     private int width;
     private int height;
     private int tileWidth;
     private int tileHeight;
-    private Block[][] blocks;
-    private List<Block> destructibleBlocks;
+    private final byte[] types;
+    private final byte[] flags;
+    private Block[] blockViews; // 懒加载的方块视图
+    private int destructibleCount;
     private ItemManager itemManager;
+    private final CellIndex<Bomb> bombIndex; // 按格子索引的炸弹
+    private int[] destroyedLog = new int[16]; // 按破坏顺序记录的格子下标，只追加
+    private int destroyedLogSize;
     
     public GameMap(int width, int height, int tileWidth, int tileHeight) {
         this.width = width;
         this.height = height;
         this.tileWidth = tileWidth;
         this.tileHeight = tileHeight;
-        this.blocks = new Block[width][height];
-        this.destructibleBlocks = new ArrayList<>();
-        this.itemManager = new ItemManager();
+        this.types = new byte[width * height];
+        this.flags = new byte[width * height];
+        this.destructibleCount = 0;
+        this.itemManager = new ItemManager(newCellIndex());
+        this.bombIndex = newCellIndex();
         
         // 初始化所有方块为地板
-        for (int x = 0; x < width; x++) {
-            for (int y = 0; y < height; y++) {
-                blocks[x][y] = new Block(x, y, BlockType.FLOOR);
-            }
+        Arrays.fill(types, (byte) BlockType.FLOOR.ordinal());
+        Arrays.fill(flags, deriveFlags(BlockType.FLOOR, (byte) 0));
+    }
+    
+    /**
+     * 根据类型和破坏状态计算推导位
+     */
+    private static byte deriveFlags(BlockType type, byte stateFlags) {
+        byte result = (byte) (stateFlags & ~DERIVED_MASK);
+        boolean destroyed = (stateFlags & FLAG_DESTROYED) != 0;
+        if (destroyed || type.isWalkable()) {
+            result |= FLAG_WALKABLE;
+        }
+        if (!destroyed && type.isExplorable()) {
+            result |= FLAG_DESTRUCTIBLE;
         }
+        return result;
     }
     
     /**
-     * 设置指定位置的方块类型
+     * 复制地形（方块类型和破坏状态），不复制炸弹和道具
+     * 用于从加载好的地图模板为每个房间创建独立的地图，避免重复解析地图文件
+     */
+    public GameMap copy() {
+        GameMap copy = new GameMap(width, height, tileWidth, tileHeight);
+        System.arraycopy(types, 0, copy.types, 0, types.length);
+        for (int i = 0; i < flags.length; i++) {
+            copy.flags[i] = (byte) (flags[i] & ~(FLAG_HAS_BOMB | FLAG_HAS_POWERUP));
+        }
+        copy.destructibleCount = destructibleCount;
+        copy.destroyedLog = Arrays.copyOf(destroyedLog, destroyedLog.length);
+        copy.destroyedLogSize = destroyedLogSize;
+        return copy;
+    }
+
+    /**
+     * 网格坐标转换为数组下标
+     */
+    public int indexOf(int x, int y) {
+        return y * width + x;
+    }
+    
+    /**
+     * 设置指定位置的方块类型（重置该格子的所有状态）
      */
     public void setBlock(int x, int y, BlockType type) {
         if (isValidPosition(x, y)) {
-            Block block = new Block(x, y, type);
-            blocks[x][y] = block;
+            int index = indexOf(x, y);
+            if ((flags[index] & FLAG_DESTRUCTIBLE) != 0) {
+                destructibleCount--;
+            }
+            types[index] = (byte) type.ordinal();
+            flags[index] = deriveFlags(type, (byte) 0);
             
-            // 如果是可破坏的方块，添加到列表中
+            // 如果是可破坏的方块，计入数量
             if (type.isExplorable()) {
-                destructibleBlocks.add(block);
+                destructibleCount++;
             }
         }
     }
     
     /**
-     * 获取指定位置的方块
+     * 只修改方块类型，保留破坏/炸弹/道具状态（供Block视图使用）
+     */
+    void setBlockTypeOnly(int x, int y, BlockType type) {
+        if (isValidPosition(x, y)) {
+            int index = indexOf(x, y);
+            updateCell(index, type, flags[index]);
+        }
+    }
+    
+    /**
+     * 读取状态位（供Block视图使用）
+     */
+    boolean hasFlag(int x, int y, byte flag) {
+        return isValidPosition(x, y) && (flags[indexOf(x, y)] & flag) != 0;
+    }
+    
+    /**
+     * 设置状态位（供Block视图使用）
+     */
+    void setFlag(int x, int y, byte flag, boolean value) {
+        if (isValidPosition(x, y)) {
+            int index = indexOf(x, y);
+            byte state = (byte) (value ? flags[index] | flag : flags[index] & ~flag);
+            updateCell(index, TYPES[types[index]], state);
+        }
+    }
+    
+    /**
+     * 写入格子并维护可破坏方块数量
+     */
+    private void updateCell(int index, BlockType type, byte stateFlags) {
+        boolean wasDestructible = (flags[index] & FLAG_DESTRUCTIBLE) != 0;
+        types[index] = (byte) type.ordinal();
+        flags[index] = deriveFlags(type, stateFlags);
+        boolean isDestructible = (flags[index] & FLAG_DESTRUCTIBLE) != 0;
+        if (wasDestructible != isDestructible) {
+            destructibleCount += isDestructible ? 1 : -1;
+        }
+    }
+    
+    /**
+     * 标记方块为已破坏并变为地板（不生成道具）
+     */
+    boolean markDestroyed(int x, int y) {
+        if (!isDestructible(x, y)) {
+            return false;
+        }
+        int index = indexOf(x, y);
+        updateCell(index, BlockType.FLOOR, (byte) (flags[index] | FLAG_DESTROYED));
+        if (destroyedLogSize == destroyedLog.length) {
+            destroyedLog = Arrays.copyOf(destroyedLog, destroyedLog.length * 2);
+        }
+        destroyedLog[destroyedLogSize++] = index;
+        return true;
+    }
+
+    /**
+     * 按格子下标标记为已破坏（不生成道具），客户端用来同步服务器快照中的破坏记录
+     */
+    public boolean applyDestroyed(int index) {
+        return markDestroyed(index % width, index / width);
+    }
+
+    /**
+     * 已破坏的格子数（破坏记录的长度）
+     */
+    public int getDestroyedCount() {
+        return destroyedLogSize;
+    }
+
+    /**
+     * 第 i 个被破坏的格子下标（按破坏顺序，0 <= i < getDestroyedCount()）
+     * 记录只追加，所以"上次看到的数量"之后的部分就是新破坏的格子，快照增量只需要发送这一段。
+     */
+    public int getDestroyedCell(int i) {
+        return destroyedLog[i];
+    }
+    
+    /**
+     * 获取指定位置的方块（懒加载的视图对象）
      */
     public Block getBlock(int x, int y) {
+        if (!isValidPosition(x, y)) {
+            return null;
+        }
+        if (blockViews == null) {
+            blockViews = new Block[width * height];
+        }
+        int index = indexOf(x, y);
+        Block view = blockViews[index];
+        if (view == null) {
+            view = new Block(this, x, y);
+            blockViews[index] = view;
+        }
+        return view;
+    }
+    
+    /**
+     * 获取指定位置的方块类型
+     */
+    public BlockType getBlockType(int x, int y) {
         if (isValidPosition(x, y)) {
-            return blocks[x][y];
+            return TYPES[types[indexOf(x, y)]];
         }
         return null;
     }
@@ -71,26 +230,37 @@ public class GameMap {
      * 检查位置是否可通行
      */
     public boolean isWalkable(int x, int y) {
-        Block block = getBlock(x, y);
-        return block != null && block.isWalkable();
+        return isValidPosition(x, y) && (flags[y * width + x] & FLAG_WALKABLE) != 0;
     }
     
     /**
      * 检查位置是否可破坏
      */
     public boolean isDestructible(int x, int y) {
-        Block block = getBlock(x, y);
-        return block != null && block.isDestructible();
+        return isValidPosition(x, y) && (flags[y * width + x] & FLAG_DESTRUCTIBLE) != 0;
+    }
+    
+    /**
+     * 按数组下标检查是否可通行（调用方保证下标有效）
+     */
+    public boolean isWalkableAt(int index) {
+        return (flags[index] & FLAG_WALKABLE) != 0;
+    }
+    
+    /**
+     * 按数组下标检查是否可破坏（调用方保证下标有效）
+     */
+    public boolean isDestructibleAt(int index) {
+        return (flags[index] & FLAG_DESTRUCTIBLE) != 0;
     }
     
     /**
      * 破坏指定位置的方块
      */
     public boolean destroyBlock(int x, int y) {
-        Block block = getBlock(x, y);
-        if (block != null && block.isDestructible()) {
+        if (isDestructible(x, y)) {
             // 检查方块是否有奖励，如果有则尝试生成道具
-            if (block.hasReward()) {
+            if (TYPES[types[indexOf(x, y)]].isTreat()) {
                 // 计算方块的世界坐标中心位置
                 double worldX = x * tileWidth + tileWidth / 2.0;
                 double worldY = y * tileHeight + tileHeight / 2.0;
@@ -100,18 +270,32 @@ public class GameMap {
                 itemManager.trySpawnItem(itemPosition, true);
             }
             
-            block.destroy();
-            destructibleBlocks.remove(block);
+            markDestroyed(x, y);
             return true;
         }
         return false;
     }
     
     /**
-     * 获取所有可破坏的方块
+     * 获取所有可破坏的方块（按需扫描生成，调试用；只需要数量时使用 getDestructibleBlockCount）
      */
     public List<Block> getDestructibleBlocks() {
-        return new ArrayList<>(destructibleBlocks);
+        List<Block> result = new ArrayList<>(destructibleCount);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if ((flags[indexOf(x, y)] & FLAG_DESTRUCTIBLE) != 0) {
+                    result.add(getBlock(x, y));
+                }
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 获取剩余可破坏方块数量
+     */
+    public int getDestructibleBlockCount() {
+        return destructibleCount;
     }
     
     /**
@@ -143,10 +327,37 @@ public class GameMap {
     }
     
     /**
-     * 获取所有方块
+     * 获取所有方块（视图对象，按[x][y]索引）
      */
     public Block[][] getBlocks() {
-        return blocks;
+        Block[][] result = new Block[width][height];
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                result[x][y] = getBlock(x, y);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * 创建与地图格子对齐的空间索引（例如GameManager用于索引玩家）
+     */
+    public <T> CellIndex<T> newCellIndex() {
+        return new CellIndex<>(width, height, tileWidth, tileHeight);
+    }
+    
+    /**
+     * 获取炸弹的格子索引
+     */
+    public CellIndex<Bomb> getBombIndex() {
+        return bombIndex;
+    }
+    
+    /**
+     * 检查格子上是否有炸弹
+     */
+    public boolean hasBombAt(int x, int y) {
+        return isValidPosition(x, y) && !bombIndex.isEmpty(indexOf(x, y));
     }
     
     /**
@@ -163,11 +374,11 @@ public class GameMap {
         StringBuilder sb = new StringBuilder();
         for (int y = 0; y < height; y++) {
             for (int x = 0; x < width; x++) {
-                Block block = blocks[x][y];
-                if (block.isDestroyed()) {
+                int index = indexOf(x, y);
+                if ((flags[index] & FLAG_DESTROYED) != 0) {
                     sb.append(".");
                 } else {
-                    switch (block.getType()) {
+                    switch (TYPES[types[index]]) {
                         case FLOOR:
                             sb.append(" ");
                             break;
@@ -1,8 +1,12 @@
 package com.stardewbombers.shared.entity;
 
 import com.stardewbombers.shared.enums.PowerUpType;
+import com.stardewbombers.shared.log.GameLog;
+import com.stardewbombers.shared.log.GameLogger;
+import com.stardewbombers.shared.log.LogCategory;
 import javafx.geometry.Point2D;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Random;
@@ -12,18 +16,56 @@ import java.util.Random;
  * 负责管理地图上的道具生成、更新和拾取
  */
 public class ItemManager {
+    private static final GameLogger LOG = GameLog.logger(LogCategory.ITEM);
     private List<Item> items;
     private Random random;
     private static final double DROP_PROBABILITY = 0.5; // 50%掉落概率
     private static final double BOOTS_WEIGHT = 4.0; // boots权重
     private static final double LIFE_ELIXIR_WEIGHT = 1.0; // life_elixir权重
-    private static final double TOTAL_WEIGHT = BOOTS_WEIGHT + LIFE_ELIXIR_WEIGHT;
+    private double dropProbability = DROP_PROBABILITY;
+    private double bootsWeight = BOOTS_WEIGHT;
+    private double totalWeight = BOOTS_WEIGHT + LIFE_ELIXIR_WEIGHT;
+    private int spawnedCount; // 累计生成的道具数
+    private int pickedUpCount; // 累计被拾取的道具数
+    private final CellIndex<Item> itemIndex; // 按格子索引的道具，为null时退化为线性扫描
     
     public ItemManager() {
+        this(null);
+    }
+    
+    /**
+     * 使用格子索引的道具管理器（由GameMap创建），拾取检测只访问玩家附近的格子
+     */
+    public ItemManager(CellIndex<Item> itemIndex) {
         this.items = new ArrayList<>();
         this.random = new Random();
+        this.itemIndex = itemIndex;
     }
     
+    /**
+     * 设置掉落表（平衡调整和批量模拟使用），默认 50% 掉落、boots:Life_Elixir = 4:1
+     */
+    public void setDropTable(double dropProbability, double bootsWeight, double lifeElixirWeight) {
+        if (dropProbability < 0 || dropProbability > 1 || bootsWeight < 0 || lifeElixirWeight < 0
+            || bootsWeight + lifeElixirWeight <= 0) {
+            throw new IllegalArgumentException("掉落表参数无效: p=" + dropProbability
+                + " boots=" + bootsWeight + " elixir=" + lifeElixirWeight);
+        }
+        this.dropProbability = dropProbability;
+        this.bootsWeight = bootsWeight;
+        this.totalWeight = bootsWeight + lifeElixirWeight;
+    }
+
+    /**
+     * 替换随机数生成器（固定种子可复现掉落）
+     */
+    public void setRandom(Random random) {
+        this.random = random;
+    }
+
+    public int getSpawnedCount() { return spawnedCount; }
+    public int getPickedUpCount() { return pickedUpCount; }
+
     /**
      * 尝试在指定位置生成道具
      * @param position 生成位置
@@ -36,11 +78,15 @@ public class ItemManager {
         }
         
         // 50%概率掉落道具
-        if (random.nextDouble() < DROP_PROBABILITY) {
+        if (random.nextDouble() < dropProbability) {
             PowerUpType itemType = generateRandomItemType();
             Item item = new Item(itemType, position);
             items.add(item);
-            System.out.println("生成道具: " + itemType + " 位置: (" + position.getX() + ", " + position.getY() + ")");
+            spawnedCount++;
+            if (itemIndex != null) {
+                itemIndex.insertAt(item, position.getX(), position.getY());
+            }
+            LOG.debug("生成道具: {} 位置: {}", itemType, position);
             return true;
         }
         
@@ -52,9 +98,9 @@ public class ItemManager {
      * boots:Life_Elixir = 4:1
      */
     private PowerUpType generateRandomItemType() {
-        double randomValue = random.nextDouble() * TOTAL_WEIGHT;
+        double randomValue = random.nextDouble() * totalWeight;
         
-        if (randomValue < BOOTS_WEIGHT) {
+        if (randomValue < bootsWeight) {
             return PowerUpType.BOOTS;
         } else {
             return PowerUpType.LIFE_ELIXIR;
@@ -68,6 +114,9 @@ public class ItemManager {
      * @return 拾取的道具列表
      */
     public List<Item> checkItemPickup(Point2D playerPosition, double pickupRadius) {
+        if (itemIndex != null) {
+            return checkItemPickup(playerPosition.getX(), playerPosition.getY(), pickupRadius);
+        }
         List<Item> pickedUpItems = new ArrayList<>();
         Iterator<Item> iterator = items.iterator();
         
@@ -78,9 +127,9 @@ public class ItemManager {
                 if (distance <= pickupRadius) {
                     item.collect();
                     pickedUpItems.add(item);
+                    pickedUpCount++;
                     iterator.remove();
-                    System.out.println("玩家拾取道具: " + item.getType() + " 位置: (" + 
-                                     item.getPosition().getX() + ", " + item.getPosition().getY() + ")");
+                    LOG.info("玩家拾取道具: {} 位置: {}", item.getType(), item.getPosition());
                 }
             }
         }
@@ -88,6 +137,52 @@ public class ItemManager {
         return pickedUpItems;
     }
     
+    /**
+     * 检查玩家是否拾取了道具（基本类型坐标，没有拾取时不分配对象）
+     * 有格子索引时只检查拾取半径覆盖的格子
+     */
+    public List<Item> checkItemPickup(double px, double py, double pickupRadius) {
+        if (items.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (itemIndex == null) {
+            return checkItemPickup(new Point2D(px, py), pickupRadius);
+        }
+        List<Item> pickedUpItems = null;
+        int minCell = itemIndex.cellAt(Math.max(0, px - pickupRadius), Math.max(0, py - pickupRadius));
+        int maxCell = itemIndex.cellAt(px + pickupRadius, py + pickupRadius);
+        int width = itemIndex.getWidth();
+        int minX = minCell == CellIndex.NONE ? 0 : minCell % width;
+        int minY = minCell == CellIndex.NONE ? 0 : minCell / width;
+        int maxX = maxCell == CellIndex.NONE ? width - 1 : maxCell % width;
+        int maxY = maxCell == CellIndex.NONE ? itemIndex.getHeight() - 1 : maxCell / width;
+        double radiusSq = pickupRadius * pickupRadius;
+        
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                int slot = itemIndex.first(itemIndex.cellOf(x, y));
+                while (slot != CellIndex.NONE) {
+                    Item item = itemIndex.get(slot);
+                    slot = itemIndex.next(slot); // 先取下一个，当前项可能被移除
+                    double dx = item.getPosition().getX() - px;
+                    double dy = item.getPosition().getY() - py;
+                    if (!item.isCollected() && dx * dx + dy * dy <= radiusSq) {
+                        item.collect();
+                        itemIndex.remove(item);
+                        items.remove(item);
+                        if (pickedUpItems == null) {
+                            pickedUpItems = new ArrayList<>();
+                        }
+                        pickedUpItems.add(item);
+                        pickedUpCount++;
+                        LOG.info("玩家拾取道具: {} 位置: {}", item.getType(), item.getPosition());
+                    }
+                }
+            }
+        }
+        return pickedUpItems != null ? pickedUpItems : Collections.<Item>emptyList();
+    }
+    
     /**
      * 获取所有未拾取的道具
      */
@@ -117,6 +212,9 @@ public class ItemManager {
             Item item = iterator.next();
             if (item.getPosition().equals(position)) {
                 iterator.remove();
+                if (itemIndex != null) {
+                    itemIndex.remove(item);
+                }
                 return true;
             }
         }
@@ -128,6 +226,9 @@ public class ItemManager {
      */
     public void clearAllItems() {
         items.clear();
+        if (itemIndex != null) {
+            itemIndex.clear();
+        }
     }
     
     /**
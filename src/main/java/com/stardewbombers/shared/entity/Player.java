@@ -6,15 +6,24 @@ import java.util.Map;
 import java.util.List;
 import com.stardewbombers.shared.enums.PowerUpType;
 import com.stardewbombers.shared.util.GameConfig;
+import com.stardewbombers.shared.game.MatchEventBus;
+import com.stardewbombers.shared.game.TimerWheel;
+import com.stardewbombers.shared.log.GameLog;
+import com.stardewbombers.shared.log.GameLogger;
+import com.stardewbombers.shared.log.LogCategory;
 import com.stardewbombers.shared.entity.Item;
 import com.stardewbombers.client.MusicManager;
 
 public class Player {
+	private static final GameLogger LOG = GameLog.logger(LogCategory.PLAYER);
+
 	public enum Status { NORMAL, INVINCIBLE, DEAD }
 
 	private final String id;
 	private int health;
-	private Point2D position;
+	private double x;
+	private double y;
+	private Point2D positionView; // getPosition 的缓存，位置变化后失效
 	private double speed;
 	private Status status;
 	private long invincibleUntilMs;
@@ -23,11 +32,27 @@ public class Player {
 	private int bombPower;
 	private long bootsEffectEndTime; // boots效果结束时间
 	private double originalSpeed; // 原始速度
+	private TimerWheel timerWheel; // 不为null时无敌和boots到期由时间轮触发，tick不再轮询
+	private MatchEventBus eventBus; // 受伤和死亡事件推送到对局事件总线，可以为null
+	private final TimerWheel.Timer invincibleTimer = new TimerWheel.Timer() {
+		@Override
+		protected void onTimer(long nowMs) {
+			endInvincible();
+		}
+	};
+	private final TimerWheel.Timer bootsTimer = new TimerWheel.Timer() {
+		@Override
+		protected void onTimer(long nowMs) {
+			endBootsEffect();
+		}
+	};
 
 	public Player(String id, Point2D spawnPosition) {
 		this.id = id;
 		this.health = GameConfig.PLAYER_MAX_HP;
-		this.position = spawnPosition;
+		this.x = spawnPosition.getX();
+		this.y = spawnPosition.getY();
+		this.positionView = spawnPosition;
 		this.speed = GameConfig.PLAYER_BASE_SPEED;
 		this.status = Status.NORMAL;
 		this.invincibleUntilMs = 0L;
@@ -40,28 +65,88 @@ public class Player {
 
 	public String getId() { return id; }
 	public int getHealth() { return health; }
-	public Point2D getPosition() { return position; }
+	public Point2D getPosition() {
+		Point2D view = positionView;
+		if (view == null || view.getX() != x || view.getY() != y) {
+			view = new Point2D(x, y);
+			positionView = view;
+		}
+		return view;
+	}
+	public double getX() { return x; }
+	public double getY() { return y; }
 	public double getSpeed() { return speed; }
 	public Status getStatus() { return status; }
 	public int getBombCount() { return bombCount; }
 	public int getBombPower() { return bombPower; }
 
-	public void setPosition(Point2D newPos) { this.position = newPos; }
+	public void setPosition(Point2D newPos) {
+		this.x = newPos.getX();
+		this.y = newPos.getY();
+		this.positionView = newPos;
+	}
+	public void setPosition(double x, double y) {
+		this.x = x;
+		this.y = y;
+	}
 	public void setSpeed(double speed) { this.speed = speed; }
 
 	public boolean isAlive() { return status != Status.DEAD; }
 
+	/**
+	 * 设置时间轮（由GameManager在加入玩家时设置，传null则恢复为每次tick轮询）
+	 */
+	public void setTimerWheel(TimerWheel timerWheel) {
+		if (this.timerWheel != null) {
+			this.timerWheel.cancel(invincibleTimer);
+			this.timerWheel.cancel(bootsTimer);
+		}
+		this.timerWheel = timerWheel;
+		if (status == Status.INVINCIBLE) {
+			schedule(invincibleTimer, invincibleUntilMs);
+		}
+		if (bootsEffectEndTime > 0) {
+			schedule(bootsTimer, bootsEffectEndTime);
+		}
+	}
+
+	/**
+	 * 设置对局事件总线（由GameManager在加入玩家时设置）
+	 */
+	public void setEventBus(MatchEventBus eventBus) {
+		this.eventBus = eventBus;
+	}
+
 	public void tick(long nowMs) {
+		if (timerWheel != null) {
+			return; // 到期事件由时间轮触发
+		}
 		if (status == Status.INVINCIBLE && nowMs >= invincibleUntilMs) {
-			status = Status.NORMAL;
-			invincibleUntilMs = 0L;
+			endInvincible();
 		}
 		
 		// 检查boots效果是否结束
 		if (bootsEffectEndTime > 0 && nowMs >= bootsEffectEndTime) {
-			speed = originalSpeed;
-			bootsEffectEndTime = 0L;
-			System.out.println("玩家 " + id + " 的boots加速效果结束");
+			endBootsEffect();
+		}
+	}
+
+	private void endInvincible() {
+		if (status == Status.INVINCIBLE) {
+			status = Status.NORMAL;
+			invincibleUntilMs = 0L;
+		}
+	}
+
+	private void endBootsEffect() {
+		speed = originalSpeed;
+		bootsEffectEndTime = 0L;
+		LOG.info("玩家 {} 的boots加速效果结束", id);
+	}
+
+	private void schedule(TimerWheel.Timer timer, long deadlineMs) {
+		if (timerWheel != null) {
+			timerWheel.schedule(timer, deadlineMs);
 		}
 	}
 
@@ -69,24 +154,38 @@ public class Player {
 		if (!isAlive()) return false;
 		if (status == Status.INVINCIBLE) return false;
 		this.health -= Math.max(0, amount);
-		System.out.println("玩家 " + id + " 受到 " + amount + " 点伤害，剩余生命值: " + this.health);
+		if (LOG.isInfoEnabled()) {
+			LOG.info("玩家 {} 受到 {} 点伤害，剩余生命值: {}", id, amount, this.health);
+		}
 		// 播放受伤音效
 		MusicManager.playDamageSound();
 
 		if (this.health <= 0) {
 			this.health = 0;
 			this.status = Status.DEAD;
-			System.out.println("玩家 " + id + " 已死亡！");
+			LOG.info("玩家 {} 已死亡！", id);
+			if (eventBus != null) {
+				eventBus.publishPlayerDamaged(this, amount, nowMs);
+				eventBus.publishPlayerDeath(this, nowMs);
+			}
 			return true;
 		}
 		this.status = Status.INVINCIBLE;
 		this.invincibleUntilMs = nowMs + GameConfig.INVINCIBLE_MS_AFTER_HIT;
+		schedule(invincibleTimer, invincibleUntilMs);
+		if (eventBus != null) {
+			eventBus.publishPlayerDamaged(this, amount, nowMs);
+		}
 		return true;
 	}
 
 	public void addPowerUp(PowerUpType type) {
+		addPowerUp(type, System.currentTimeMillis());
+	}
+
+	public void addPowerUp(PowerUpType type, long nowMs) {
 		powerUps.merge(type, 1, Integer::sum);
-		long currentTime = System.currentTimeMillis();
+		long currentTime = nowMs;
 		
 		switch (type) {
 			case SPEED_BOOST:
@@ -98,6 +197,7 @@ public class Player {
 			case SHIELD:
 				this.status = Status.INVINCIBLE;
 				this.invincibleUntilMs = currentTime + GameConfig.INVINCIBLE_MS_AFTER_HIT;
+				schedule(invincibleTimer, invincibleUntilMs);
 				// 播放加速音效（和捡靴子一样的音效）
 				MusicManager.playSpeedupSound();
 				
@@ -118,7 +218,8 @@ public class Player {
 				// boots效果：增加速度，持续10秒
 				this.speed = this.originalSpeed * 1.5; // 增加50%速度
 				this.bootsEffectEndTime = currentTime + 10000; // 10秒
-				System.out.println("玩家 " + id + " 获得boots加速效果，持续10秒");
+				schedule(bootsTimer, bootsEffectEndTime);
+				LOG.info("玩家 {} 获得boots加速效果，持续10秒", id);
 				// 播放加速音效（和捡靴子一样的音效）
 				MusicManager.playSpeedupSound();
 				
@@ -127,13 +228,13 @@ public class Player {
 				// 生命药水效果：恢复1点生命
 				if (this.health < GameConfig.PLAYER_MAX_HP) {
 					this.health = Math.min(this.health + 1, GameConfig.PLAYER_MAX_HP);
-					System.out.println("玩家 " + id + " 使用生命药水，恢复1点生命，当前生命值: " + this.health);
+					LOG.info("玩家 {} 使用生命药水，恢复1点生命，当前生命值: {}", id, this.health);
 
 					// 播放加速音效（和捡靴子一样的音效）
 				MusicManager.playSpeedupSound();
 				
 				} else {
-					System.out.println("玩家 " + id + " 生命值已满，无法使用生命药水");
+					LOG.info("玩家 {} 生命值已满，无法使用生命药水", id);
 				}
 				break;
 			default:
@@ -1,4 +1,4 @@
-package com.stardewbombers.server.game;
+package com.stardewbombers.shared.game;
 
 import com.stardewbombers.shared.entity.GameMap;
 import com.stardewbombers.shared.entity.Block;
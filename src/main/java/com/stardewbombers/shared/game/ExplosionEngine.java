@@ -0,0 +1,308 @@
+package com.stardewbombers.shared.game;
+
+import com.stardewbombers.shared.entity.Bomb;
+import com.stardewbombers.shared.entity.CellIndex;
+import com.stardewbombers.shared.entity.GameMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 爆炸引擎
+ * 统一计算爆炸范围：从炸弹所在格子向上下左右发射射线，长度为炸弹威力（Bomb.explosionRadius），
+ * 遇到不可破坏的实心方块停止（不包含该格），遇到可破坏方块时包含该格后停止。
+ *
+ * 同一步内被波及的炸弹会通过工作队列连锁引爆（通过地图的炸弹格子索引查找）。所有受影响格子写入可复用的格子掩码
+ * （用代数标记避免每步清零），整个过程不为每个格子分配对象。
+ */
+public class ExplosionEngine {
+    // 上、下、左、右
+    private static final int[] DX = {0, 0, -1, 1};
+    private static final int[] DY = {-1, 1, 0, 0};
+
+    private GameMap gameMap;
+    private int width;
+    private int height;
+
+    // 格子掩码：cellStamp[index] == generation 表示本次结算中该格被波及
+    private int[] cellStamp;
+    private int generation;
+    private int[] affectedCells;
+    private int affectedCount;
+
+    // 连锁引爆的工作队列与结果
+    private Bomb[] queue = new Bomb[16];
+    private final List<Bomb> detonated = new ArrayList<>();
+    private int[] blastCells = new int[64];
+    private int[] blastStart = new int[17];
+    private boolean blastCellsTaken; // 本步的格子数组已交给调用方，下一次结算换用新数组
+
+    /**
+     * 连锁引爆：由拥有炸弹的一方取消引信定时器并登记爆炸结束
+     */
+    public interface ChainDetonator {
+        /**
+         * @return 是否引爆；找不到炸弹的所属玩家时返回 false，该炸弹不参与本次连锁
+         */
+        boolean detonate(Bomb bomb, long nowMs);
+    }
+
+    public ExplosionEngine(GameMap gameMap) {
+        setGameMap(gameMap);
+    }
+
+    /**
+     * 设置地图（地图尺寸变化时重新分配缓冲区）
+     */
+    public void setGameMap(GameMap gameMap) {
+        this.gameMap = gameMap;
+        int newWidth = gameMap != null ? gameMap.getWidth() : 0;
+        int newHeight = gameMap != null ? gameMap.getHeight() : 0;
+        if (cellStamp == null || newWidth * newHeight != cellStamp.length) {
+            int cells = newWidth * newHeight;
+            cellStamp = new int[cells];
+            affectedCells = new int[cells];
+            generation = 0;
+        }
+        this.width = newWidth;
+        this.height = newHeight;
+        this.affectedCount = 0;
+    }
+
+    /**
+     * 结算本步的爆炸
+     * @param triggered 引信到时的炸弹
+     * @param detonator 引爆被波及的炸弹（连锁）
+     * @param nowMs 当前模拟时间
+     * @return 本步实际爆炸的炸弹数量（含连锁），通过 getDetonated / takeBlastCells 读取结果
+     */
+    public int resolve(List<Bomb> triggered, ChainDetonator detonator, long nowMs) {
+        detonated.clear();
+        affectedCount = 0;
+        if (gameMap == null || triggered.isEmpty()) {
+            return 0;
+        }
+        if (blastCellsTaken) {
+            blastCells = new int[blastCells.length];
+            blastCellsTaken = false;
+        }
+        nextGeneration();
+        CellIndex<Bomb> bombIndex = gameMap.getBombIndex();
+
+        int head = 0;
+        int tail = 0;
+        for (Bomb bomb : triggered) {
+            queue = ensureCapacity(queue, tail + 1);
+            queue[tail++] = bomb;
+        }
+
+        int cellCount = 0;
+        while (head < tail) {
+            Bomb bomb = queue[head++];
+            int index = detonated.size();
+            detonated.add(bomb);
+            if (blastStart.length < index + 2) {
+                blastStart = Arrays.copyOf(blastStart, (index + 2) * 2);
+            }
+            blastStart[index] = cellCount;
+
+            int bx = bomb.getX();
+            int by = bomb.getY();
+            if (gameMap.isValidPosition(bx, by)) {
+                cellCount = addCell(gameMap.indexOf(bx, by), cellCount);
+                for (int dir = 0; dir < 4; dir++) {
+                    for (int step = 1; step <= bomb.getExplosionRadius(); step++) {
+                        int cx = bx + DX[dir] * step;
+                        int cy = by + DY[dir] * step;
+                        if (!gameMap.isValidPosition(cx, cy)) {
+                            break;
+                        }
+                        int cell = gameMap.indexOf(cx, cy);
+                        boolean destructible = gameMap.isDestructibleAt(cell);
+                        if (!destructible && !gameMap.isWalkableAt(cell)) {
+                            break; // 不可破坏的实心方块挡住爆炸
+                        }
+                        cellCount = addCell(cell, cellCount);
+                        if (destructible) {
+                            break; // 可破坏方块被炸掉，但挡住后面的格子
+                        }
+                    }
+                }
+            }
+            blastStart[index + 1] = cellCount;
+
+            // 连锁：只查询被波及格子的炸弹索引，仍在倒计时的炸弹加入队列
+            for (int i = blastStart[index]; i < cellCount; i++) {
+                for (int slot = bombIndex.first(blastCells[i]); slot != CellIndex.NONE; slot = bombIndex.next(slot)) {
+                    Bomb chained = bombIndex.get(slot);
+                    if (chained.getState() == Bomb.BombState.TICKING) {
+                        // 找不到所属玩家时不引爆，不能绕过时间轮（否则原来的引信还会再触发一次）
+                        if (!detonator.detonate(chained, nowMs)) {
+                            continue;
+                        }
+                        queue = ensureCapacity(queue, tail + 1);
+                        queue[tail++] = chained;
+                    }
+                }
+            }
+        }
+
+        Arrays.fill(queue, 0, tail, null);
+        return detonated.size();
+    }
+
+    /**
+     * 将格子加入当前炸弹的范围，并登记到本步的总掩码
+     */
+    private int addCell(int cell, int cellCount) {
+        blastCells = ensureCapacity(blastCells, cellCount + 1);
+        blastCells[cellCount] = cell;
+        if (cellStamp[cell] != generation) {
+            cellStamp[cell] = generation;
+            affectedCells[affectedCount++] = cell;
+        }
+        return cellCount + 1;
+    }
+
+    private void nextGeneration() {
+        generation++;
+        if (generation == Integer.MAX_VALUE) {
+            Arrays.fill(cellStamp, 0);
+            generation = 1;
+        }
+    }
+
+    private static int[] ensureCapacity(int[] array, int size) {
+        return size <= array.length ? array : Arrays.copyOf(array, Math.max(size, array.length * 2));
+    }
+
+    private static Bomb[] ensureCapacity(Bomb[] array, int size) {
+        return size <= array.length ? array : Arrays.copyOf(array, Math.max(size, array.length * 2));
+    }
+
+    /**
+     * 本步爆炸的炸弹（按引爆顺序，含连锁）
+     */
+    public List<Bomb> getDetonated() {
+        return detonated;
+    }
+
+    /**
+     * 取走本步所有爆炸的范围格子（数组下标），按引爆顺序排列，第 i 个炸弹占 [getBlastStart(i), getBlastEnd(i))
+     * 取走后引擎不再修改该数组，下一次结算换用新数组，因此本步的所有爆炸事件可以共用它而不必各自复制
+     */
+    public int[] takeBlastCells() {
+        blastCellsTaken = true;
+        return blastCells;
+    }
+
+    public int getBlastStart(int i) {
+        return blastStart[i];
+    }
+
+    public int getBlastEnd(int i) {
+        return blastStart[i + 1];
+    }
+
+    /**
+     * 本步被任意爆炸波及的格子数量
+     */
+    public int getAffectedCount() {
+        return affectedCount;
+    }
+
+    /**
+     * 本步被波及的第 i 个格子（数组下标）
+     */
+    public int getAffectedCell(int i) {
+        return affectedCells[i];
+    }
+
+    /**
+     * 检查格子是否在本步的爆炸范围内
+     */
+    public boolean isAffected(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height
+            && cellStamp[y * width + x] == generation && affectedCount > 0;
+    }
+
+    /**
+     * 按当前地图计算单个炸弹的爆炸范围（不修改掩码，供显示和单独判定使用）
+     * @param out 输出格子坐标，依次为 x0, y0, x1, y1 ...
+     * @return 格子数量
+     */
+    public static int computeBlast(GameMap map, Bomb bomb, int[] out) {
+        int bx = bomb.getX();
+        int by = bomb.getY();
+        int count = 0;
+        out[count * 2] = bx;
+        out[count * 2 + 1] = by;
+        count++;
+        for (int dir = 0; dir < 4; dir++) {
+            for (int step = 1; step <= bomb.getExplosionRadius(); step++) {
+                int cx = bx + DX[dir] * step;
+                int cy = by + DY[dir] * step;
+                if (cx < 0 || cy < 0) {
+                    break;
+                }
+                if (map != null) {
+                    if (!map.isValidPosition(cx, cy)) {
+                        break;
+                    }
+                    boolean destructible = map.isDestructible(cx, cy);
+                    if (!destructible && !map.isWalkable(cx, cy)) {
+                        break;
+                    }
+                    out[count * 2] = cx;
+                    out[count * 2 + 1] = cy;
+                    count++;
+                    if (destructible) {
+                        break;
+                    }
+                } else {
+                    out[count * 2] = cx;
+                    out[count * 2 + 1] = cy;
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 单个炸弹最多波及的格子数，用于分配 computeBlast 的输出数组
+     */
+    public static int maxBlastCells(Bomb bomb) {
+        return 1 + 4 * Math.max(0, bomb.getExplosionRadius());
+    }
+
+    /**
+     * 检查网格位置是否在炸弹当前的爆炸范围内
+     */
+    public static boolean isInBlast(GameMap map, Bomb bomb, int gridX, int gridY) {
+        int bx = bomb.getX();
+        int by = bomb.getY();
+        if (gridX == bx && gridY == by) {
+            return true;
+        }
+        if (gridX != bx && gridY != by) {
+            return false;
+        }
+        int distance = Math.abs(gridX - bx) + Math.abs(gridY - by);
+        if (distance > bomb.getExplosionRadius()) {
+            return false;
+        }
+        if (map == null) {
+            return gridX >= 0 && gridY >= 0;
+        }
+        int sx = Integer.signum(gridX - bx);
+        int sy = Integer.signum(gridY - by);
+        // 目标之前的格子必须都能让爆炸穿过
+        for (int step = 1; step < distance; step++) {
+            if (!map.isWalkable(bx + sx * step, by + sy * step)) {
+                return false;
+            }
+        }
+        return map.isWalkable(gridX, gridY) || map.isDestructible(gridX, gridY);
+    }
+}
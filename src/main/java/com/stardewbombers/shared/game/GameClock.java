@@ -0,0 +1,35 @@
+package com.stardewbombers.shared.game;
+
+/**
+ * 游戏时钟
+ * 模拟循环通过它读取时间，便于替换为手动推进的时钟（无头运行/测试）
+ */
+public interface GameClock {
+
+    /**
+     * 系统时钟（真实时间）
+     */
+    GameClock SYSTEM = new GameClock() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+
+        @Override
+        public long millis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    /**
+     * 单调递增的纳秒时间，只用于计算时间差
+     */
+    long nanoTime();
+
+    /**
+     * 毫秒时间，用作模拟时间的起点
+     */
+    default long millis() {
+        return nanoTime() / 1_000_000L;
+    }
+}
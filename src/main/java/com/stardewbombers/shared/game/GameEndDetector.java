@@ -2,40 +2,88 @@ package com.stardewbombers.shared.game;
 
 import com.stardewbombers.component.PlayerComponent;
 import com.stardewbombers.shared.entity.Player;
+import com.stardewbombers.shared.log.GameLog;
+import com.stardewbombers.shared.log.GameLogger;
+import com.stardewbombers.shared.log.LogCategory;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Map;
 import java.util.function.Consumer;
 
 /**
  * 游戏结束检测器
- * 负责检测游戏结束条件并触发相应的回调
+ * 订阅对局事件总线上的死亡事件，增量维护存活/死亡玩家，
+ * 在最后一个关键死亡（或玩家离开）发生时以 O(1) 判定游戏结束，不再每帧扫描所有玩家。
  */
-public class GameEndDetector {
+public class GameEndDetector implements MatchEventBus.Listener {
+    private static final GameLogger LOG = GameLog.logger(LogCategory.GAME);
     private final List<PlayerComponent> players;
+    private final List<PlayerComponent> alivePlayers = new ArrayList<>();
+    private final List<PlayerComponent> deadPlayers = new ArrayList<>();
+    private final List<PlayerComponent> alivePlayersView = Collections.unmodifiableList(alivePlayers);
+    private final List<PlayerComponent> deadPlayersView = Collections.unmodifiableList(deadPlayers);
+    private final Map<Player, PlayerComponent> componentsByPlayer = new IdentityHashMap<>();
     private final List<Consumer<String>> gameEndCallbacks;
+    private final MatchEventBus eventBus;
     private boolean gameEnded = false;
-    
-    public GameEndDetector() {
+    private int holdDepth; // >0 时推迟判定，用于同一步内多个玩家同时死亡
+    private boolean evaluationPending;
+
+    private GameEndDetector(MatchEventBus eventBus) {
         this.players = new ArrayList<>();
         this.gameEndCallbacks = new ArrayList<>();
+        this.eventBus = eventBus;
+    }
+
+    /**
+     * 使用独立的事件总线创建检测器
+     */
+    public static GameEndDetector create() {
+        return create(new MatchEventBus());
+    }
+
+    /**
+     * 创建检测器并订阅事件总线（构造完成后才订阅，避免总线拿到未初始化完的对象）
+     * @param eventBus 对局事件总线，检测器会订阅其中的死亡事件并在游戏结束时发布结束事件
+     */
+    public static GameEndDetector create(MatchEventBus eventBus) {
+        GameEndDetector detector = new GameEndDetector(eventBus);
+        eventBus.subscribe(detector);
+        return detector;
     }
-    
+
     /**
      * 添加玩家
      */
     public void addPlayer(PlayerComponent playerComponent) {
-        if (!players.contains(playerComponent)) {
-            players.add(playerComponent);
+        if (componentsByPlayer.containsKey(playerComponent.getPlayer())) {
+            return;
+        }
+        players.add(playerComponent);
+        componentsByPlayer.put(playerComponent.getPlayer(), playerComponent);
+        if (playerComponent.getPlayer().isAlive()) {
+            alivePlayers.add(playerComponent);
+        } else {
+            deadPlayers.add(playerComponent);
         }
     }
-    
+
     /**
-     * 移除玩家
+     * 移除玩家（离开对局），存活玩家离开也可能导致游戏结束
      */
     public void removePlayer(PlayerComponent playerComponent) {
+        if (componentsByPlayer.remove(playerComponent.getPlayer()) == null) {
+            return;
+        }
         players.remove(playerComponent);
+        deadPlayers.remove(playerComponent);
+        if (alivePlayers.remove(playerComponent)) {
+            requestEvaluation();
+        }
     }
-    
+
     /**
      * 添加游戏结束回调
      * @param callback 当游戏结束时调用的回调函数，参数为获胜玩家ID
@@ -43,109 +91,127 @@ public class GameEndDetector {
     public void addGameEndCallback(Consumer<String> callback) {
         gameEndCallbacks.add(callback);
     }
-    
+
+    @Override
+    public void onPlayerDeath(Player player, long nowMs) {
+        PlayerComponent playerComponent = componentsByPlayer.get(player);
+        if (playerComponent != null && alivePlayers.remove(playerComponent)) {
+            deadPlayers.add(playerComponent);
+            requestEvaluation();
+        }
+    }
+
+    /**
+     * 推迟判定：同一步内的多个死亡应作为同时发生处理（例如两名玩家被同一次爆炸炸死应为平局）
+     * 必须与 releaseEvaluation 成对调用
+     */
+    public void holdEvaluation() {
+        holdDepth++;
+    }
+
     /**
-     * 检查游戏是否应该结束
-     * 当只有一个或没有玩家存活时，游戏结束
+     * 结束推迟，如期间有死亡或离开则立即判定
+     */
+    public void releaseEvaluation() {
+        if (holdDepth > 0 && --holdDepth == 0 && evaluationPending) {
+            checkGameEnd();
+        }
+    }
+
+    private void requestEvaluation() {
+        if (holdDepth > 0) {
+            evaluationPending = true;
+        } else {
+            checkGameEnd();
+        }
+    }
+
+    /**
+     * 按当前存活人数判定游戏是否结束（O(1)）
+     * 当只有一个或没有玩家存活时，游戏结束；死亡和离开时会自动调用
      */
     public void checkGameEnd() {
+        evaluationPending = false;
         if (gameEnded) {
             return; // 游戏已经结束，不再检查
         }
-        
-        List<PlayerComponent> alivePlayers = new ArrayList<>();
-        String lastAlivePlayerId = null;
-        
-        // 统计存活玩家
-        for (PlayerComponent playerComponent : players) {
-            if (playerComponent.getPlayer().isAlive()) {
-                alivePlayers.add(playerComponent);
-                lastAlivePlayerId = playerComponent.getPlayer().getId();
-            }
-        }
-        
+
+        int aliveCount = alivePlayers.size();
+
         // 检查游戏结束条件
-        if (alivePlayers.size() <= 1) {
+        if (aliveCount <= 1) {
             gameEnded = true;
-            
-            // 确定获胜者
-            String winnerId = null;
-            if (alivePlayers.size() == 1) {
-                winnerId = lastAlivePlayerId;
-            }
-            // 如果所有玩家都死亡，winnerId为null（平局）
-            
+
+            // 确定获胜者；如果所有玩家都死亡，winnerId为null（平局）
+            String winnerId = aliveCount == 1 ? alivePlayers.get(0).getPlayer().getId() : null;
+
             // 触发游戏结束回调
             for (Consumer<String> callback : gameEndCallbacks) {
                 try {
                     callback.accept(winnerId);
                 } catch (Exception e) {
-                    System.err.println("游戏结束回调执行失败: " + e.getMessage());
-                    e.printStackTrace();
+                    LOG.error("游戏结束回调执行失败: {}", e.getMessage(), e);
                 }
             }
-            
-            System.out.println("游戏结束！获胜者: " + (winnerId != null ? winnerId : "平局"));
+            eventBus.publishGameEnd(winnerId);
+
+            LOG.info("游戏结束！获胜者: {}", winnerId != null ? winnerId : "平局");
         }
     }
-    
+
     /**
-     * 重置游戏状态
+     * 重置游戏状态，按玩家当前状态重新统计存活人数
      */
     public void reset() {
         gameEnded = false;
+        evaluationPending = false;
+        alivePlayers.clear();
+        deadPlayers.clear();
+        for (PlayerComponent playerComponent : players) {
+            if (playerComponent.getPlayer().isAlive()) {
+                alivePlayers.add(playerComponent);
+            } else {
+                deadPlayers.add(playerComponent);
+            }
+        }
     }
-    
+
     /**
      * 获取存活玩家数量
      */
     public int getAlivePlayerCount() {
-        int count = 0;
-        for (PlayerComponent playerComponent : players) {
-            if (playerComponent.getPlayer().isAlive()) {
-                count++;
-            }
-        }
-        return count;
+        return alivePlayers.size();
     }
-    
+
     /**
      * 获取所有玩家
      */
     public List<PlayerComponent> getPlayers() {
         return new ArrayList<>(players);
     }
-    
+
     /**
      * 检查游戏是否已结束
      */
     public boolean isGameEnded() {
         return gameEnded;
     }
-    
+
     /**
-     * 获取存活玩家列表
+     * 获取存活玩家列表（只读视图，随事件更新）
      */
     public List<PlayerComponent> getAlivePlayers() {
-        List<PlayerComponent> alivePlayers = new ArrayList<>();
-        for (PlayerComponent playerComponent : players) {
-            if (playerComponent.getPlayer().isAlive()) {
-                alivePlayers.add(playerComponent);
-            }
-        }
-        return alivePlayers;
+        return alivePlayersView;
     }
-    
+
     /**
-     * 获取死亡玩家列表
+     * 获取死亡玩家列表（只读视图，随事件更新）
      */
     public List<PlayerComponent> getDeadPlayers() {
-        List<PlayerComponent> deadPlayers = new ArrayList<>();
-        for (PlayerComponent playerComponent : players) {
-            if (!playerComponent.getPlayer().isAlive()) {
-                deadPlayers.add(playerComponent);
-            }
-        }
-        return deadPlayers;
+        return deadPlayersView;
+    }
+
+    public MatchEventBus getEventBus() {
+        return eventBus;
     }
 }
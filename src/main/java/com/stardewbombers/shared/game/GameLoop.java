@@ -0,0 +1,162 @@
+package com.stardewbombers.shared.game;
+
+/**
+ * 固定步长的游戏循环
+ * 按固定频率推进 GameManager.update，与渲染帧率无关，不依赖 JavaFX
+ *
+ * 用法：
+ * - 客户端/服务器每帧调用 advance()，根据时钟补齐落后的步数（有上限）
+ * - 无头模拟直接调用 step() / runSteps()，不受真实时间限制
+ */
+public class GameLoop implements Runnable {
+    public static final int DEFAULT_TICK_RATE = 60;     // 默认60Hz
+    public static final int DEFAULT_MAX_CATCH_UP = 5;   // 每次最多补5步
+
+    private final GameManager gameManager;
+    private final GameClock clock;
+    private final int tickRate;
+    private final long stepNanos;
+    private final int maxCatchUpSteps;
+    private final long originMs;
+
+    private long lastNanos;
+    private long accumulatorNanos;
+    private long tickCount;
+    private long droppedSteps;
+    private volatile boolean running;
+
+    public GameLoop(GameManager gameManager) {
+        this(gameManager, GameClock.SYSTEM, DEFAULT_TICK_RATE, DEFAULT_MAX_CATCH_UP);
+    }
+
+    public GameLoop(GameManager gameManager, GameClock clock) {
+        this(gameManager, clock, DEFAULT_TICK_RATE, DEFAULT_MAX_CATCH_UP);
+    }
+
+    public GameLoop(GameManager gameManager, GameClock clock, int tickRate, int maxCatchUpSteps) {
+        if (tickRate <= 0) {
+            throw new IllegalArgumentException("tickRate必须大于0: " + tickRate);
+        }
+        if (maxCatchUpSteps <= 0) {
+            throw new IllegalArgumentException("maxCatchUpSteps必须大于0: " + maxCatchUpSteps);
+        }
+        this.gameManager = gameManager;
+        this.clock = clock;
+        this.tickRate = tickRate;
+        this.stepNanos = 1_000_000_000L / tickRate;
+        this.maxCatchUpSteps = maxCatchUpSteps;
+        this.originMs = clock.millis();
+        this.lastNanos = clock.nanoTime();
+    }
+
+    /**
+     * 根据时钟推进模拟，返回本次执行的步数
+     * 落后超过 maxCatchUpSteps 时丢弃多余的时间（避免卡顿后"死亡螺旋"）
+     */
+    public int advance() {
+        long now = clock.nanoTime();
+        accumulatorNanos += Math.max(0L, now - lastNanos);
+        lastNanos = now;
+
+        int steps = 0;
+        while (accumulatorNanos >= stepNanos && steps < maxCatchUpSteps) {
+            step();
+            accumulatorNanos -= stepNanos;
+            steps++;
+        }
+
+        if (accumulatorNanos >= stepNanos) {
+            long skipped = accumulatorNanos / stepNanos;
+            droppedSteps += skipped;
+            accumulatorNanos -= skipped * stepNanos;
+        }
+        return steps;
+    }
+
+    /**
+     * 执行一个固定步长
+     */
+    public void step() {
+        tickCount++;
+        gameManager.update(getSimulationTimeMs());
+    }
+
+    /**
+     * 连续执行指定步数（无头快进）
+     */
+    public void runSteps(int steps) {
+        for (int i = 0; i < steps; i++) {
+            step();
+        }
+    }
+
+    /**
+     * 快进直到游戏结束或达到步数上限，返回实际执行的步数
+     */
+    public long runUntilGameEnd(long maxSteps) {
+        long executed = 0;
+        while (executed < maxSteps && !gameManager.getGameEndDetector().isGameEnded()) {
+            step();
+            executed++;
+        }
+        return executed;
+    }
+
+    /**
+     * 丢弃累积的时间（例如暂停恢复后），避免一次性补帧
+     */
+    public void resync() {
+        lastNanos = clock.nanoTime();
+        accumulatorNanos = 0L;
+    }
+
+    /**
+     * 以真实时间驱动的阻塞循环（服务器线程使用），调用 stop() 退出
+     */
+    @Override
+    public void run() {
+        running = true;
+        resync();
+        while (running) {
+            advance();
+            long sleepNanos = stepNanos - accumulatorNanos;
+            if (sleepNanos > 0) {
+                try {
+                    Thread.sleep(sleepNanos / 1_000_000L, (int) (sleepNanos % 1_000_000L));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    running = false;
+                }
+            }
+        }
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 当前模拟时间（毫秒），起点为创建循环时时钟的毫秒值
+     * 按步数和频率换算，不用截断过的 stepNanos（60Hz 时 10800 步正好是 180000ms）
+     */
+    public long getSimulationTimeMs() {
+        return originMs + tickCount * 1000L / tickRate;
+    }
+
+    /**
+     * 两个步长之间的插值系数（0.0 - 1.0），供渲染平滑使用
+     */
+    public double getAlpha() {
+        return (double) accumulatorNanos / stepNanos;
+    }
+
+    public long getTickCount() { return tickCount; }
+    public long getDroppedSteps() { return droppedSteps; }
+    public int getTickRate() { return tickRate; }
+    public long getStepNanos() { return stepNanos; }
+    public GameClock getClock() { return clock; }
+}
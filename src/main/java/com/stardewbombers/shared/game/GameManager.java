@@ -2,11 +2,14 @@ package com.stardewbombers.shared.game;
 
 import javafx.geometry.Point2D;
 import com.stardewbombers.shared.entity.Bomb;
-import com.stardewbombers.shared.entity.Block;
+import com.stardewbombers.shared.entity.CellIndex;
 import com.stardewbombers.shared.entity.ExplosionEvent;
 import com.stardewbombers.shared.entity.GameMap;
+import com.stardewbombers.component.BombComponent;
 import com.stardewbombers.component.PlayerComponent;
-import com.stardewbombers.server.game.CollisionDetector;
+import com.stardewbombers.shared.log.GameLog;
+import com.stardewbombers.shared.log.GameLogger;
+import com.stardewbombers.shared.log.LogCategory;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.function.Consumer;
@@ -16,15 +19,39 @@ import java.util.function.Consumer;
  * 处理爆炸事件、伤害计算、碰撞检测等游戏逻辑
  */
 public class GameManager {
+    private static final GameLogger EXPLOSION_LOG = GameLog.logger(LogCategory.EXPLOSION);
+    private static final GameLogger MAP_LOG = GameLog.logger(LogCategory.MAP);
     private final List<PlayerComponent> players = new ArrayList<>();
     private final List<ExplosionEvent> activeExplosions = new ArrayList<>();
+    private static final long EXPLOSION_EFFECT_MS = 2000; // 爆炸效果持续2秒
     private final int gridSize = 40; // 与TILE_SIZE保持一致
     private GameMap gameMap;
     private CollisionDetector collisionDetector;
     private final GameEndDetector gameEndDetector;
+    private final ExplosionEngine explosionEngine;
+    private final List<BombComponent> bombSources = new ArrayList<>();
+    private final ExplosionEngine.ChainDetonator chainDetonator = this::detonateChained;
+    private final List<Bomb> triggeredBombs = new ArrayList<>(); // 本步引信到时的炸弹（复用）
+    private CellIndex<PlayerComponent> playerIndex; // 按格子索引的玩家，随地图创建
+    private long currentTimeMs; // 最近一次update的模拟时间
+    private final TimerWheel timerWheel; // 引信、爆炸结束、效果到期等定时事件
+    private final MatchEventBus eventBus = new MatchEventBus(); // 受伤、死亡、离开、结束等对局事件
 
+    /**
+     * 模拟时间从系统时钟的当前时间开始（与使用 GameClock.SYSTEM 的 GameLoop 一致）
+     */
     public GameManager() {
-        this.gameEndDetector = new GameEndDetector();
+        this(GameClock.SYSTEM.millis());
+    }
+
+    /**
+     * @param startMs 模拟时间的起点，之后 update 传入的时间从这里开始（时间轮从这里开始推进）
+     */
+    public GameManager(long startMs) {
+        this.currentTimeMs = startMs;
+        this.timerWheel = new TimerWheel(startMs);
+        this.gameEndDetector = GameEndDetector.create(eventBus);
+        this.explosionEngine = new ExplosionEngine(null);
     }
 
     /**
@@ -33,10 +60,14 @@ public class GameManager {
     public void setGameMap(GameMap gameMap) {
         this.gameMap = gameMap;
         this.collisionDetector = new CollisionDetector(gameMap);
+        this.explosionEngine.setGameMap(gameMap);
+        this.playerIndex = gameMap.newCellIndex();
         
-        // 为所有现有玩家设置碰撞检测器
+        // 为所有现有玩家设置碰撞检测器，并登记到新地图的索引
         for (PlayerComponent player : players) {
             player.getMovement().setCollisionDetector(collisionDetector);
+            player.getBombs().setGameMap(gameMap);
+            indexPlayer(player);
         }
     }
     
@@ -46,10 +77,14 @@ public class GameManager {
     public void setGameMap(GameMap gameMap, double scale) {
         this.gameMap = gameMap;
         this.collisionDetector = new CollisionDetector(gameMap, scale);
+        this.explosionEngine.setGameMap(gameMap);
+        this.playerIndex = gameMap.newCellIndex();
         
-        // 为所有现有玩家设置碰撞检测器
+        // 为所有现有玩家设置碰撞检测器，并登记到新地图的索引
         for (PlayerComponent player : players) {
             player.getMovement().setCollisionDetector(collisionDetector);
+            player.getBombs().setGameMap(gameMap);
+            indexPlayer(player);
         }
     }
 
@@ -60,6 +95,13 @@ public class GameManager {
         return gameMap;
     }
 
+    /**
+     * 获取玩家的格子索引
+     */
+    public CellIndex<PlayerComponent> getPlayerIndex() {
+        return playerIndex;
+    }
+
     /**
      * 获取碰撞检测器
      */
@@ -72,12 +114,26 @@ public class GameManager {
      */
     public void addPlayer(PlayerComponent playerComponent) {
         players.add(playerComponent);
+        bombSources.add(playerComponent.getBombs());
+        playerComponent.setTimerWheel(timerWheel);
+        playerComponent.setEventBus(eventBus);
         gameEndDetector.addPlayer(playerComponent);
         
         // 为新玩家设置碰撞检测器
         if (collisionDetector != null) {
             playerComponent.getMovement().setCollisionDetector(collisionDetector);
         }
+        if (gameMap != null) {
+            playerComponent.getBombs().setGameMap(gameMap);
+            indexPlayer(playerComponent);
+        }
+    }
+
+    /**
+     * 按玩家当前位置更新格子索引（同一格子内移动为空操作）
+     */
+    private void indexPlayer(PlayerComponent playerComponent) {
+        playerIndex.moveTo(playerComponent, playerComponent.getPlayer().getX(), playerComponent.getPlayer().getY());
     }
 
     /**
@@ -85,97 +141,111 @@ public class GameManager {
      */
     public void removePlayer(PlayerComponent playerComponent) {
         players.remove(playerComponent);
+        bombSources.remove(playerComponent.getBombs());
+        // 离开的玩家的炸弹不再结算：从地图索引和时间轮中清除，不会被连锁引爆
+        playerComponent.getBombs().clearAllBombs();
+        playerComponent.setTimerWheel(null);
+        if (playerIndex != null) {
+            playerIndex.remove(playerComponent);
+        }
+        playerComponent.setEventBus(null);
         gameEndDetector.removePlayer(playerComponent);
+        eventBus.publishPlayerLeft(playerComponent.getPlayer());
     }
 
     /**
-     * 处理爆炸事件
+     * 处理爆炸事件（使用当前模拟时间）
      */
     public void handleExplosion(Bomb bomb) {
-        System.out.println("=== GameManager处理爆炸事件 ===");
-        System.out.println("炸弹: " + bomb.getOwnerId() + " 位置: (" + bomb.getX() + ", " + bomb.getY() + ") 时间: " + System.currentTimeMillis());
-        
-        // 创建爆炸事件
-        List<Point2D> affectedPositions = calculateExplosionRange(bomb);
-        ExplosionEvent explosionEvent = new ExplosionEvent(bomb, affectedPositions, System.currentTimeMillis());
-        activeExplosions.add(explosionEvent);
-
-        // 处理对玩家的伤害
-        for (PlayerComponent playerComponent : players) {
-            playerComponent.handleExplosionDamage(explosionEvent);
+        handleExplosion(bomb, currentTimeMs);
+    }
+
+    /**
+     * 处理爆炸事件（单个炸弹，包含它引发的连锁爆炸）
+     */
+    public void handleExplosion(Bomb bomb, long nowMs) {
+        triggeredBombs.clear();
+        triggeredBombs.add(bomb);
+        resolveExplosions(nowMs);
+    }
+
+    /**
+     * 结算 triggeredBombs 中的爆炸：
+     * 由ExplosionEngine计算所有爆炸（含连锁）的格子掩码，再对玩家和地图各做一次线性处理
+     */
+    private void resolveExplosions(long nowMs) {
+        if (triggeredBombs.isEmpty() || gameMap == null) {
+            triggeredBombs.clear();
+            return;
         }
+        int count = explosionEngine.resolve(triggeredBombs, chainDetonator, nowMs);
+        triggeredBombs.clear();
 
-        // 处理对地图方块的破坏
-        if (gameMap != null) {
-            handleMapDamage(explosionEvent);
+        List<Bomb> detonated = explosionEngine.getDetonated();
+        int[] blastCells = explosionEngine.takeBlastCells();
+        for (int i = 0; i < count; i++) {
+            Bomb bomb = detonated.get(i);
+            if (EXPLOSION_LOG.isDebugEnabled()) {
+                EXPLOSION_LOG.debug("处理爆炸事件 炸弹: {} 位置: ({}, {}) 时间: {}",
+                    bomb.getOwnerId(), bomb.getX(), bomb.getY(), nowMs);
+            }
+            ExplosionEvent explosion = new ExplosionEvent(bomb, blastCells, explosionEngine.getBlastStart(i),
+                explosionEngine.getBlastEnd(i), gameMap.getWidth(), gridSize, nowMs);
+            activeExplosions.add(explosion);
+            timerWheel.schedule(new ExplosionExpiry(explosion), nowMs + EXPLOSION_EFFECT_MS + 1);
         }
-        
-        System.out.println("=== GameManager爆炸事件处理完成 ===");
+
+        // 处理对玩家的伤害：只查询被波及格子中的玩家（每个格子只出现一次，同一步最多受到一次伤害）
+        // 同一次结算中的死亡视为同时发生，结算完后再判定游戏结束
+        gameEndDetector.holdEvaluation();
+        try {
+            for (int i = 0; i < explosionEngine.getAffectedCount(); i++) {
+                int cell = explosionEngine.getAffectedCell(i);
+                for (int slot = playerIndex.first(cell); slot != CellIndex.NONE; slot = playerIndex.next(slot)) {
+                    PlayerComponent playerComponent = playerIndex.get(slot);
+                    if (playerComponent.getPlayer().isAlive()) {
+                        EXPLOSION_LOG.debug("玩家 {} 在爆炸范围内，造成伤害", playerComponent.getPlayer().getId());
+                        playerComponent.getPlayer().takeDamage(1, nowMs);
+                    }
+                }
+            }
+        } finally {
+            gameEndDetector.releaseEvaluation();
+        }
+
+        // 处理对地图方块的破坏
+        handleMapDamage();
     }
 
     /**
      * 处理爆炸对地图方块的破坏
      */
-    private void handleMapDamage(ExplosionEvent explosionEvent) {
-        System.out.println("=== 开始处理地图方块破坏 ===");
-        for (Point2D pos : explosionEvent.getAffectedPositions()) {
-            // 将世界坐标转换为网格坐标
-            int gridX = (int) (pos.getX() / gridSize);
-            int gridY = (int) (pos.getY() / gridSize);
-            
-            // 检查方块状态
-            Block block = gameMap.getBlock(gridX, gridY);
-            if (block != null) {
-                System.out.printf("检查位置(%d,%d): %s, 可破坏=%s, 已破坏=%s%n", 
-                    gridX, gridY, block.getType().getName(), 
-                    block.isDestructible(), block.isDestroyed());
-                
-                // 破坏方块
+    private void handleMapDamage() {
+        int width = gameMap.getWidth();
+        for (int i = 0; i < explosionEngine.getAffectedCount(); i++) {
+            int cell = explosionEngine.getAffectedCell(i);
+            if (gameMap.isDestructibleAt(cell)) {
+                int gridX = cell % width;
+                int gridY = cell / width;
                 boolean destroyed = gameMap.destroyBlock(gridX, gridY);
-                System.out.printf("破坏结果: %s%n", destroyed ? "成功" : "失败");
-            } else {
-                System.out.printf("位置(%d,%d)没有方块%n", gridX, gridY);
+                if (MAP_LOG.isDebugEnabled()) {
+                    MAP_LOG.debug("破坏位置({},{}): {}", gridX, gridY, destroyed ? "成功" : "失败");
+                }
             }
         }
-        System.out.println("=== 地图方块破坏处理完成 ===");
     }
 
     /**
-     * 计算爆炸范围（固定十字形，以炸弹所在格子为中心，总共5个格子）
+     * 由所属玩家的炸弹组件引爆被波及的炸弹；离开的玩家的炸弹已经在 removePlayer 中清除，找不到时不引爆
      */
-    private List<Point2D> calculateExplosionRange(Bomb bomb) {
-        List<Point2D> affectedPositions = new ArrayList<>();
-        
-        // 将炸弹坐标对齐到格子中心
-        int col = (int)(bomb.getWorldX() / gridSize);
-        int row = (int)(bomb.getWorldY() / gridSize);
-        
-        // 直接使用格子坐标计算左上角位置
-        double centerX = col * gridSize;
-        double centerY = row * gridSize;
-
-        // 中心点（炸弹所在格子）
-        affectedPositions.add(new Point2D(centerX, centerY));
-
-        // 上下左右各1格（固定十字形，总共5个格子），但需要检查边界
-        // 上
-        if (row > 0) {
-            affectedPositions.add(new Point2D(centerX, centerY - gridSize));
-        }
-        // 下
-        if (row < gameMap.getHeight() - 1) {
-            affectedPositions.add(new Point2D(centerX, centerY + gridSize));
-        }
-        // 左
-        if (col > 0) {
-            affectedPositions.add(new Point2D(centerX - gridSize, centerY));
-        }
-        // 右
-        if (col < gameMap.getWidth() - 1) {
-            affectedPositions.add(new Point2D(centerX + gridSize, centerY));
+    private boolean detonateChained(Bomb bomb, long nowMs) {
+        for (BombComponent source : bombSources) {
+            if (source.getOwnerId().equals(bomb.getOwnerId())) {
+                source.detonate(bomb, nowMs);
+                return true;
+            }
         }
-
-        return affectedPositions;
+        return false;
     }
 
     /**
@@ -202,26 +272,54 @@ public class GameManager {
     }
 
     /**
-     * 更新游戏状态
+     * 更新游戏状态（一个模拟步长）
+     * 由 GameLoop 以固定频率调用，nowMs 为模拟时间而非系统时间
      */
     public void update(long nowMs) {
+        this.currentTimeMs = nowMs;
+
+        // 触发本步到期的定时事件（引信、爆炸结束、无敌和加速效果结束、爆炸效果过期）
+        timerWheel.advance(nowMs);
+
         // 更新所有玩家
-        for (PlayerComponent playerComponent : players) {
+        for (int i = 0; i < players.size(); i++) {
+            PlayerComponent playerComponent = players.get(i);
+            playerComponent.getMovement().update();
+
+            // 取出本步开始爆炸的炸弹；PlayerComponent.tick 内对同一 nowMs 的再次调用不会重复上报
+            List<Bomb> exploded = playerComponent.getBombs().tick(nowMs);
+            if (!exploded.isEmpty()) {
+                triggeredBombs.addAll(exploded);
+            }
             playerComponent.tick(nowMs);
-            
-            // 检查炸弹爆炸
-            List<Bomb> explodedBombs = playerComponent.getBombs().tick(nowMs);
-            for (Bomb bomb : explodedBombs) {
-                handleExplosion(bomb);
+            if (playerIndex != null) {
+                indexPlayer(playerComponent);
             }
         }
 
-        // 检查游戏结束条件
-        gameEndDetector.checkGameEnd();
+        // 统一结算本步所有爆炸（含连锁）；游戏结束由死亡事件触发，不再每帧检查
+        resolveExplosions(nowMs);
+    }
+
+    /**
+     * 获取对局事件总线（UI、网络、统计等订阅受伤、死亡和游戏结束事件）
+     */
+    public MatchEventBus getEventBus() {
+        return eventBus;
+    }
+
+    /**
+     * 获取时间轮（其他需要定时事件的系统可以登记到同一个时间轮）
+     */
+    public TimerWheel getTimerWheel() {
+        return timerWheel;
+    }
 
-        // 清理过期的爆炸效果
-        activeExplosions.removeIf(explosion -> 
-            nowMs - explosion.getExplosionTime() > 2000); // 爆炸效果持续2秒
+    /**
+     * 获取当前模拟时间（最近一次update传入的时间）
+     */
+    public long getCurrentTimeMs() {
+        return currentTimeMs;
     }
 
     /**
@@ -231,6 +329,18 @@ public class GameManager {
         return new ArrayList<>(players);
     }
 
+    /**
+     * 查找炸弹对应的活跃爆炸事件
+     */
+    public ExplosionEvent findExplosion(Bomb bomb) {
+        for (ExplosionEvent explosion : activeExplosions) {
+            if (explosion.getBomb() == bomb) {
+                return explosion;
+            }
+        }
+        return null;
+    }
+
     /**
      * 获取活跃爆炸
      */
@@ -258,4 +368,20 @@ public class GameManager {
     public void resetGame() {
         gameEndDetector.reset();
     }
+
+    /**
+     * 爆炸效果过期时从活跃列表中移除
+     */
+    private final class ExplosionExpiry extends TimerWheel.Timer {
+        private final ExplosionEvent explosion;
+
+        ExplosionExpiry(ExplosionEvent explosion) {
+            this.explosion = explosion;
+        }
+
+        @Override
+        protected void onTimer(long nowMs) {
+            activeExplosions.remove(explosion);
+        }
+    }
 }
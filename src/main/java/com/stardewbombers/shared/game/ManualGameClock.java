@@ -0,0 +1,36 @@
+package com.stardewbombers.shared.game;
+
+/**
+ * 手动推进的游戏时钟
+ * 只有调用 advance 时时间才会前进，用于无头模拟和测试
+ */
+public class ManualGameClock implements GameClock {
+    private long nanos;
+
+    public ManualGameClock() {
+        this(0L);
+    }
+
+    public ManualGameClock(long startMs) {
+        this.nanos = startMs * 1_000_000L;
+    }
+
+    @Override
+    public long nanoTime() {
+        return nanos;
+    }
+
+    /**
+     * 前进指定毫秒
+     */
+    public void advanceMillis(long ms) {
+        nanos += ms * 1_000_000L;
+    }
+
+    /**
+     * 前进指定纳秒
+     */
+    public void advanceNanos(long deltaNanos) {
+        nanos += deltaNanos;
+    }
+}
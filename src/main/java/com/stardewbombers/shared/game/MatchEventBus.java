@@ -0,0 +1,116 @@
+package com.stardewbombers.shared.game;
+
+import com.stardewbombers.shared.entity.Player;
+import com.stardewbombers.shared.log.GameLog;
+import com.stardewbombers.shared.log.GameLogger;
+import com.stardewbombers.shared.log.LogCategory;
+import java.util.Arrays;
+
+/**
+ * 对局事件总线
+ * 受伤、死亡、离开和游戏结束等事件由产生方直接推送给订阅者（UI、网络、统计、GameEndDetector），
+ * 订阅者不需要每帧轮询玩家状态。
+ *
+ * 事件在产生事件的线程（模拟线程）中同步分发；订阅者若要在其他线程处理（如JavaFX、网络发送），需要自行转交。
+ * 订阅者数组写时复制，分发时不分配对象。
+ */
+public class MatchEventBus {
+    private static final GameLogger LOG = GameLog.logger(LogCategory.GAME);
+    private static final Listener[] NO_LISTENERS = new Listener[0];
+
+    private volatile Listener[] listeners = NO_LISTENERS;
+
+    /**
+     * 事件订阅者，只需实现关心的事件
+     */
+    public interface Listener {
+        /**
+         * 玩家受到伤害（未死亡时 health > 0）
+         */
+        default void onPlayerDamaged(Player player, int amount, long nowMs) {}
+
+        /**
+         * 玩家死亡
+         */
+        default void onPlayerDeath(Player player, long nowMs) {}
+
+        /**
+         * 玩家离开对局（断线或被移出），不论是否存活
+         */
+        default void onPlayerLeft(Player player) {}
+
+        /**
+         * 游戏结束，winnerId 为 null 表示平局
+         */
+        default void onGameEnd(String winnerId) {}
+    }
+
+    public synchronized void subscribe(Listener listener) {
+        Listener[] current = listeners;
+        for (Listener existing : current) {
+            if (existing == listener) {
+                return;
+            }
+        }
+        Listener[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = listener;
+        listeners = updated;
+    }
+
+    public synchronized void unsubscribe(Listener listener) {
+        Listener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                Listener[] updated = new Listener[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                listeners = updated;
+                return;
+            }
+        }
+    }
+
+    public int getListenerCount() {
+        return listeners.length;
+    }
+
+    public void publishPlayerDamaged(Player player, int amount, long nowMs) {
+        for (Listener listener : listeners) {
+            try {
+                listener.onPlayerDamaged(player, amount, nowMs);
+            } catch (RuntimeException e) {
+                LOG.error("受伤事件处理失败: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    public void publishPlayerDeath(Player player, long nowMs) {
+        for (Listener listener : listeners) {
+            try {
+                listener.onPlayerDeath(player, nowMs);
+            } catch (RuntimeException e) {
+                LOG.error("死亡事件处理失败: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    public void publishPlayerLeft(Player player) {
+        for (Listener listener : listeners) {
+            try {
+                listener.onPlayerLeft(player);
+            } catch (RuntimeException e) {
+                LOG.error("离开事件处理失败: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    public void publishGameEnd(String winnerId) {
+        for (Listener listener : listeners) {
+            try {
+                listener.onGameEnd(winnerId);
+            } catch (RuntimeException e) {
+                LOG.error("游戏结束事件处理失败: {}", e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.stardewbombers.shared.game;
+
+/**
+ * 分层时间轮
+ * 炸弹引信、爆炸结束、无敌和加速效果到期等截止时间登记到这里，
+ * 每一步只处理真正到期的事件，不再逐个轮询所有实体。
+ *
+ * 共 4 层，每层 64 个槽；第 0 层每槽一个刻度（默认 1ms），上层每槽覆盖下层一整圈，
+ * 时间推进到上层槽的起点时把其中的定时器重新分配到下层。超过最大跨度的定时器放在溢出链表中。
+ * 定时器是侵入式双向链表节点，登记/取消都是 O(1) 且不分配对象，同一个 Timer 可以反复调度。
+ *
+ * 非线程安全，只应在模拟线程中使用。
+ */
+public class TimerWheel {
+    private static final int WHEEL_BITS = 6;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final long HORIZON_TICKS = 1L << (WHEEL_BITS * LEVELS);
+    private static final int OVERFLOW = LEVELS;
+
+    private final long tickMs;
+    private final Timer[][] heads = new Timer[LEVELS + 1][];
+    private final Timer[][] tails = new Timer[LEVELS + 1][];
+    private final int[] levelCounts = new int[LEVELS + 1];
+    private long currentTick;
+    private int size;
+
+    /**
+     * 定时器节点，子类实现 onTimer
+     */
+    public abstract static class Timer {
+        private TimerWheel wheel;
+        private Timer prev;
+        private Timer next;
+        private int level;
+        private int slot;
+        private long deadlineMs;
+
+        /**
+         * 到期回调，nowMs 为触发时传入 advance 的时间
+         */
+        protected abstract void onTimer(long nowMs);
+
+        public boolean isScheduled() { return wheel != null; }
+        public long getDeadlineMs() { return deadlineMs; }
+    }
+
+    public TimerWheel(long startMs) {
+        this(startMs, 1L);
+    }
+
+    /**
+     * @param startMs 起始时间
+     * @param tickMs 第 0 层每个槽的时间粒度（毫秒），定时器最多晚 tickMs-1 毫秒触发
+     */
+    public TimerWheel(long startMs, long tickMs) {
+        if (tickMs <= 0) {
+            throw new IllegalArgumentException("tickMs必须为正数: " + tickMs);
+        }
+        this.tickMs = tickMs;
+        this.currentTick = Math.floorDiv(startMs, tickMs);
+        for (int level = 0; level < LEVELS; level++) {
+            heads[level] = new Timer[WHEEL_SIZE];
+            tails[level] = new Timer[WHEEL_SIZE];
+        }
+        heads[OVERFLOW] = new Timer[1];
+        tails[OVERFLOW] = new Timer[1];
+    }
+
+    /**
+     * 登记定时器；已登记的定时器会改到新的截止时间
+     * 截止时间早于当前时间时，在下一次 advance 中触发
+     */
+    public void schedule(Timer timer, long deadlineMs) {
+        if (timer.wheel != null) {
+            timer.wheel.cancel(timer);
+        }
+        timer.deadlineMs = deadlineMs;
+        timer.wheel = this;
+        size++;
+        place(timer);
+    }
+
+    /**
+     * 取消定时器
+     * @return 定时器之前是否在本时间轮中等待
+     */
+    public boolean cancel(Timer timer) {
+        if (timer.wheel != this) {
+            return false;
+        }
+        unlink(timer);
+        timer.wheel = null;
+        size--;
+        return true;
+    }
+
+    /**
+     * 推进到 nowMs，按截止时间顺序触发所有到期的定时器
+     * 回调中可以登记或取消其他定时器，新登记且已到期的定时器在本次调用中一并触发
+     * @return 触发的定时器数量
+     */
+    public int advance(long nowMs) {
+        long target = Math.floorDiv(nowMs, tickMs);
+        if (target < currentTick) {
+            return 0;
+        }
+        int fired = fireSlot(nowMs);
+        while (currentTick < target) {
+            if (size == levelCounts[OVERFLOW]) {
+                // 各层都是空的：直接跳到目标时间或最早的溢出定时器处，不逐个刻度走
+                currentTick = size == 0 ? target : Math.min(target, earliestOverflowTick());
+                if (size > 0) {
+                    replaceOverflow();
+                }
+            } else {
+                currentTick++;
+                cascade();
+            }
+            fired += fireSlot(nowMs);
+        }
+        return fired;
+    }
+
+    /**
+     * 等待中的定时器数量
+     */
+    public int size() {
+        return size;
+    }
+
+    public long getTickMs() {
+        return tickMs;
+    }
+
+    /**
+     * 当前时间（已推进到的刻度起点）
+     */
+    public long getCurrentTimeMs() {
+        return currentTick * tickMs;
+    }
+
+    private int fireSlot(long nowMs) {
+        int fired = 0;
+        int slot = (int) (currentTick & WHEEL_MASK);
+        Timer[] levelHeads = heads[0];
+        Timer timer;
+        while ((timer = levelHeads[slot]) != null) {
+            unlink(timer);
+            timer.wheel = null;
+            size--;
+            fired++;
+            timer.onTimer(nowMs);
+        }
+        return fired;
+    }
+
+    /**
+     * 到达某层槽的起点时，把该槽的定时器重新分配到下层（从高层到低层）
+     */
+    private void cascade() {
+        if ((currentTick & (HORIZON_TICKS / WHEEL_SIZE - 1)) == 0 && levelCounts[OVERFLOW] > 0) {
+            replaceOverflow();
+        }
+        for (int level = LEVELS - 1; level >= 1; level--) {
+            long levelMask = (1L << (WHEEL_BITS * level)) - 1;
+            if ((currentTick & levelMask) != 0) {
+                continue;
+            }
+            int slot = (int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+            Timer timer = heads[level][slot];
+            if (timer == null) {
+                continue;
+            }
+            heads[level][slot] = null;
+            tails[level][slot] = null;
+            while (timer != null) {
+                Timer next = timer.next;
+                levelCounts[level]--;
+                timer.prev = null;
+                timer.next = null;
+                place(timer);
+                timer = next;
+            }
+        }
+    }
+
+    private void replaceOverflow() {
+        Timer timer = heads[OVERFLOW][0];
+        heads[OVERFLOW][0] = null;
+        tails[OVERFLOW][0] = null;
+        levelCounts[OVERFLOW] = 0;
+        while (timer != null) {
+            Timer next = timer.next;
+            timer.prev = null;
+            timer.next = null;
+            place(timer);
+            timer = next;
+        }
+    }
+
+    private long earliestOverflowTick() {
+        long earliest = Long.MAX_VALUE;
+        for (Timer timer = heads[OVERFLOW][0]; timer != null; timer = timer.next) {
+            earliest = Math.min(earliest, deadlineTick(timer.deadlineMs));
+        }
+        return earliest;
+    }
+
+    private long deadlineTick(long deadlineMs) {
+        // 向上取整，保证触发时 nowMs >= deadlineMs
+        return Math.floorDiv(deadlineMs, tickMs) + (Math.floorMod(deadlineMs, tickMs) == 0 ? 0 : 1);
+    }
+
+    private void place(Timer timer) {
+        long tick = Math.max(deadlineTick(timer.deadlineMs), currentTick);
+        long delta = tick - currentTick;
+        if (delta >= HORIZON_TICKS) {
+            link(timer, OVERFLOW, 0);
+            return;
+        }
+        int level = 0;
+        while (delta >= (1L << (WHEEL_BITS * (level + 1)))) {
+            level++;
+        }
+        link(timer, level, (int) ((tick >>> (WHEEL_BITS * level)) & WHEEL_MASK));
+    }
+
+    private void link(Timer timer, int level, int slot) {
+        timer.level = level;
+        timer.slot = slot;
+        timer.next = null;
+        Timer tail = tails[level][slot];
+        timer.prev = tail;
+        if (tail == null) {
+            heads[level][slot] = timer;
+        } else {
+            tail.next = timer;
+        }
+        tails[level][slot] = timer;
+        levelCounts[level]++;
+    }
+
+    private void unlink(Timer timer) {
+        int level = timer.level;
+        int slot = timer.slot;
+        if (timer.prev == null) {
+            heads[level][slot] = timer.next;
+        } else {
+            timer.prev.next = timer.next;
+        }
+        if (timer.next == null) {
+            tails[level][slot] = timer.prev;
+        } else {
+            timer.next.prev = timer.prev;
+        }
+        timer.prev = null;
+        timer.next = null;
+        levelCounts[level]--;
+    }
+}
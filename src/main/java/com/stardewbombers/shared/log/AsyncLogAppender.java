@@ -0,0 +1,237 @@
+package com.stardewbombers.shared.log;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步日志输出器
+ * 记录写入预先分配好的环形缓冲区，由一个后台守护线程格式化并输出。
+ * 写入方只做一次 CAS 占位和字段赋值，不加锁也不做 IO；缓冲区满时直接丢弃并计数，
+ * 因此游戏 tick 线程永远不会被日志阻塞。
+ */
+public final class AsyncLogAppender implements Runnable {
+    private static final DateTimeFormatter TIME_FORMAT =
+        DateTimeFormatter.ofPattern("HH:mm:ss.SSS").withZone(ZoneId.systemDefault());
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final int capacity;
+    private final int mask;
+    private final Record[] records;
+    private final AtomicLongArray published;      // 槽位写完后记为 序号+1
+    private final AtomicLong claimed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile long consumed;               // 下一个待输出的序号
+    private final PrintStream out;
+    private final PrintStream err;
+    private final StringBuilder line = new StringBuilder(256);
+    private volatile boolean running = true;
+    private Thread worker;
+
+    /**
+     * @param capacity 环形缓冲区大小，会向上取整为 2 的幂
+     */
+    public AsyncLogAppender(int capacity, PrintStream out, PrintStream err) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.capacity = size;
+        this.mask = size - 1;
+        this.records = new Record[size];
+        for (int i = 0; i < size; i++) {
+            records[i] = new Record();
+        }
+        this.published = new AtomicLongArray(size);
+        this.out = out;
+        this.err = err;
+    }
+
+    /**
+     * 启动后台输出线程
+     */
+    public synchronized void start() {
+        if (worker == null) {
+            worker = new Thread(this, "game-log-appender");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    /**
+     * 写入一条记录，缓冲区满时丢弃并返回 false
+     */
+    boolean append(LogCategory category, LogLevel level, String pattern, int argCount,
+                   Object a, Object b, Object c, Object d, Throwable error) {
+        long seq;
+        do {
+            seq = claimed.get();
+            if (seq - consumed >= capacity) {
+                dropped.incrementAndGet();
+                return false;
+            }
+        } while (!claimed.compareAndSet(seq, seq + 1));
+
+        int slot = (int) seq & mask;
+        Record record = records[slot];
+        record.timeMs = System.currentTimeMillis();
+        record.threadName = Thread.currentThread().getName();
+        record.category = category;
+        record.level = level;
+        record.pattern = pattern;
+        record.argCount = argCount;
+        record.a = a;
+        record.b = b;
+        record.c = c;
+        record.d = d;
+        record.error = error;
+        published.lazySet(slot, seq + 1);
+        return true;
+    }
+
+    @Override
+    public void run() {
+        while (running || consumed < claimed.get()) {
+            if (!drainOne()) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    /**
+     * 等待已写入的记录全部输出（最多等待 timeoutMs 毫秒）
+     */
+    public void flush(long timeoutMs) {
+        long target = claimed.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        while (consumed < target && System.nanoTime() < deadline) {
+            if (worker == null || !worker.isAlive()) {
+                // 后台线程没有运行时由调用方自己输出
+                synchronized (this) {
+                    drainOne();
+                }
+            } else {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+        out.flush();
+        err.flush();
+    }
+
+    /**
+     * 停止后台线程，剩余记录会先输出完
+     */
+    public void shutdown(long timeoutMs) {
+        running = false;
+        Thread thread = worker;
+        if (thread != null) {
+            try {
+                thread.join(timeoutMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        out.flush();
+        err.flush();
+    }
+
+    /**
+     * 因缓冲区已满被丢弃的记录数
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * 当前等待输出的记录数
+     */
+    public long getPendingCount() {
+        return claimed.get() - consumed;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private boolean drainOne() {
+        long seq = consumed;
+        int slot = (int) seq & mask;
+        if (published.get(slot) != seq + 1) {
+            return false;
+        }
+        Record record = records[slot];
+        format(record);
+        PrintStream stream = record.level.ordinal() >= LogLevel.WARN.ordinal() ? err : out;
+        stream.println(line);
+        if (record.error != null) {
+            record.error.printStackTrace(stream);
+        }
+        record.clear();
+        consumed = seq + 1;
+        return true;
+    }
+
+    /**
+     * 格式：时间 级别 [分类] 线程 - 消息
+     */
+    private void format(Record record) {
+        StringBuilder sb = line;
+        sb.setLength(0);
+        TIME_FORMAT.formatTo(Instant.ofEpochMilli(record.timeMs), sb);
+        sb.append(' ').append(record.level.name());
+        sb.append(" [").append(record.category.getKey()).append("] ");
+        sb.append(record.threadName).append(" - ");
+
+        String pattern = record.pattern;
+        int argIndex = 0;
+        int start = 0;
+        while (argIndex < record.argCount) {
+            int hole = pattern.indexOf("{}", start);
+            if (hole < 0) {
+                break;
+            }
+            sb.append(pattern, start, hole);
+            sb.append(record.arg(argIndex++));
+            start = hole + 2;
+        }
+        sb.append(pattern, start, pattern.length());
+    }
+
+    /**
+     * 环形缓冲区中的一个槽位，重复使用
+     */
+    private static final class Record {
+        long timeMs;
+        String threadName;
+        LogCategory category;
+        LogLevel level;
+        String pattern;
+        int argCount;
+        Object a;
+        Object b;
+        Object c;
+        Object d;
+        Throwable error;
+
+        Object arg(int index) {
+            switch (index) {
+                case 0: return a;
+                case 1: return b;
+                case 2: return c;
+                default: return d;
+            }
+        }
+
+        void clear() {
+            threadName = null;
+            pattern = null;
+            a = null;
+            b = null;
+            c = null;
+            d = null;
+            error = null;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.stardewbombers.shared.log;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 游戏日志入口
+ * 每个分类一个 GameLogger，级别可以在运行时修改；所有输出经由同一个异步环形缓冲区。
+ *
+ * 用法：
+ * <pre>
+ * private static final GameLogger LOG = GameLog.logger(LogCategory.BOMB);
+ * </pre>
+ * 级别配置：-Dstardew.log.level=INFO 设置默认级别，-Dstardew.log.bomb=DEBUG 设置单个分类。
+ * 缓冲区大小：-Dstardew.log.buffer=8192
+ */
+public final class GameLog {
+    public static final LogLevel DEFAULT_LEVEL = LogLevel.INFO;
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+    private static final Map<LogCategory, GameLogger> LOGGERS = new EnumMap<>(LogCategory.class);
+    private static final AsyncLogAppender APPENDER;
+
+    static {
+        LogLevel defaultLevel = LogLevel.parse(System.getProperty("stardew.log.level"), DEFAULT_LEVEL);
+        for (LogCategory category : LogCategory.values()) {
+            LogLevel level = LogLevel.parse(System.getProperty("stardew.log." + category.getKey()), defaultLevel);
+            LOGGERS.put(category, new GameLogger(category, level));
+        }
+        int bufferSize = Integer.getInteger("stardew.log.buffer", DEFAULT_BUFFER_SIZE);
+        APPENDER = new AsyncLogAppender(bufferSize, System.out, System.err);
+        APPENDER.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> APPENDER.shutdown(500), "game-log-shutdown"));
+    }
+
+    private GameLog() {
+    }
+
+    /**
+     * 获取分类对应的日志记录器
+     */
+    public static GameLogger logger(LogCategory category) {
+        return LOGGERS.get(category);
+    }
+
+    /**
+     * 运行时修改某个分类的级别
+     */
+    public static void setLevel(LogCategory category, LogLevel level) {
+        LOGGERS.get(category).setLevel(level);
+    }
+
+    /**
+     * 运行时修改所有分类的级别
+     */
+    public static void setAllLevels(LogLevel level) {
+        for (GameLogger logger : LOGGERS.values()) {
+            logger.setLevel(level);
+        }
+    }
+
+    public static LogLevel getLevel(LogCategory category) {
+        return LOGGERS.get(category).getLevel();
+    }
+
+    /**
+     * 等待缓冲区中的日志输出完毕，一般在退出前或测试输出对比前调用
+     */
+    public static void flush() {
+        APPENDER.flush(1000);
+    }
+
+    /**
+     * 因缓冲区已满被丢弃的日志条数
+     */
+    public static long getDroppedCount() {
+        return APPENDER.getDroppedCount();
+    }
+
+    static AsyncLogAppender appender() {
+        return APPENDER;
+    }
+}
@@ -0,0 +1,95 @@
+package com.stardewbombers.shared.log;
+
+/**
+ * 某个分类的日志记录器，通过 GameLog.logger 获取
+ *
+ * 级别保存在一个 volatile 字段中，关闭时每次调用只有一次读取和比较。
+ * 消息使用 {} 占位符，格式化在后台线程进行；参数是基本类型时会装箱，
+ * 热路径上应先用 isXxxEnabled 判断：
+ * <pre>
+ * if (LOG.isDebugEnabled()) {
+ *     LOG.debug("炸弹 {} 位置: ({}, {})", ownerId, gridX, gridY);
+ * }
+ * </pre>
+ * 参数会在稍后才被格式化，只应传入不可变对象（字符串、装箱数字、枚举、Point2D 等）。
+ */
+public final class GameLogger {
+    private final LogCategory category;
+    private volatile int threshold;
+
+    GameLogger(LogCategory category, LogLevel level) {
+        this.category = category;
+        this.threshold = level.ordinal();
+    }
+
+    public LogCategory getCategory() { return category; }
+    public LogLevel getLevel() { return LogLevel.values()[threshold]; }
+
+    void setLevel(LogLevel level) {
+        this.threshold = level.ordinal();
+    }
+
+    public boolean isEnabled(LogLevel level) {
+        return level.ordinal() >= threshold;
+    }
+
+    public boolean isTraceEnabled() { return threshold <= 0; }
+    public boolean isDebugEnabled() { return threshold <= 1; }
+    public boolean isInfoEnabled() { return threshold <= 2; }
+    public boolean isWarnEnabled() { return threshold <= 3; }
+    public boolean isErrorEnabled() { return threshold <= 4; }
+
+    // 固定参数个数的重载避免可变参数数组分配
+
+    public void trace(String message) { log(LogLevel.TRACE, message, 0, null, null, null, null); }
+    public void trace(String pattern, Object a) { log(LogLevel.TRACE, pattern, 1, a, null, null, null); }
+    public void trace(String pattern, Object a, Object b) { log(LogLevel.TRACE, pattern, 2, a, b, null, null); }
+    public void trace(String pattern, Object a, Object b, Object c) { log(LogLevel.TRACE, pattern, 3, a, b, c, null); }
+    public void trace(String pattern, Object a, Object b, Object c, Object d) { log(LogLevel.TRACE, pattern, 4, a, b, c, d); }
+
+    public void debug(String message) { log(LogLevel.DEBUG, message, 0, null, null, null, null); }
+    public void debug(String pattern, Object a) { log(LogLevel.DEBUG, pattern, 1, a, null, null, null); }
+    public void debug(String pattern, Object a, Object b) { log(LogLevel.DEBUG, pattern, 2, a, b, null, null); }
+    public void debug(String pattern, Object a, Object b, Object c) { log(LogLevel.DEBUG, pattern, 3, a, b, c, null); }
+    public void debug(String pattern, Object a, Object b, Object c, Object d) { log(LogLevel.DEBUG, pattern, 4, a, b, c, d); }
+
+    public void info(String message) { log(LogLevel.INFO, message, 0, null, null, null, null); }
+    public void info(String pattern, Object a) { log(LogLevel.INFO, pattern, 1, a, null, null, null); }
+    public void info(String pattern, Object a, Object b) { log(LogLevel.INFO, pattern, 2, a, b, null, null); }
+    public void info(String pattern, Object a, Object b, Object c) { log(LogLevel.INFO, pattern, 3, a, b, c, null); }
+    public void info(String pattern, Object a, Object b, Object c, Object d) { log(LogLevel.INFO, pattern, 4, a, b, c, d); }
+
+    public void warn(String message) { log(LogLevel.WARN, message, 0, null, null, null, null); }
+    public void warn(String pattern, Object a) { log(LogLevel.WARN, pattern, 1, a, null, null, null); }
+    public void warn(String pattern, Object a, Object b) { log(LogLevel.WARN, pattern, 2, a, b, null, null); }
+    public void warn(String pattern, Object a, Object b, Object c) { log(LogLevel.WARN, pattern, 3, a, b, c, null); }
+    public void warn(String pattern, Object a, Object b, Object c, Object d) { log(LogLevel.WARN, pattern, 4, a, b, c, d); }
+
+    public void error(String message) { log(LogLevel.ERROR, message, 0, null, null, null, null); }
+    public void error(String pattern, Object a) { log(LogLevel.ERROR, pattern, 1, a, null, null, null); }
+    public void error(String pattern, Object a, Object b) { log(LogLevel.ERROR, pattern, 2, a, b, null, null); }
+
+    /**
+     * 记录错误和异常堆栈
+     */
+    public void error(String message, Throwable error) {
+        if (isErrorEnabled()) {
+            GameLog.appender().append(category, LogLevel.ERROR, message, 0, null, null, null, null, error);
+        }
+    }
+
+    /**
+     * 记录带一个参数的错误消息和异常堆栈
+     */
+    public void error(String pattern, Object a, Throwable error) {
+        if (isErrorEnabled()) {
+            GameLog.appender().append(category, LogLevel.ERROR, pattern, 1, a, null, null, null, error);
+        }
+    }
+
+    private void log(LogLevel level, String pattern, int argCount, Object a, Object b, Object c, Object d) {
+        if (level.ordinal() >= threshold) {
+            GameLog.appender().append(category, level, pattern, argCount, a, b, c, d, null);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.stardewbombers.shared.log;
+
+/**
+ * 日志分类，每个分类可以单独设置级别
+ * 启动时可通过系统属性配置，例如 -Dstardew.log.bomb=DEBUG，-Dstardew.log.level 设置所有分类的默认级别
+ */
+public enum LogCategory {
+    BOMB("bomb"),
+    EXPLOSION("explosion"),
+    PLAYER("player"),
+    ITEM("item"),
+    MAP("map"),
+    GAME("game"),
+    ROOM("room"),
+    NETWORK("network");
+
+    private final String key;
+
+    LogCategory(String key) {
+        this.key = key;
+    }
+
+    /**
+     * 输出和系统属性中使用的名称
+     */
+    public String getKey() {
+        return key;
+    }
+}
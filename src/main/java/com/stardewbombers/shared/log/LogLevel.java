@@ -0,0 +1,28 @@
+package com.stardewbombers.shared.log;
+
+/**
+ * 日志级别，按严重程度从低到高排列
+ */
+public enum LogLevel {
+    TRACE,
+    DEBUG,
+    INFO,
+    WARN,
+    ERROR,
+    OFF;
+
+    /**
+     * 解析级别名称（忽略大小写），无法识别时返回默认值
+     */
+    public static LogLevel parse(String name, LogLevel defaultLevel) {
+        if (name == null) {
+            return defaultLevel;
+        }
+        for (LogLevel level : values()) {
+            if (level.name().equalsIgnoreCase(name.trim())) {
+                return level;
+            }
+        }
+        return defaultLevel;
+    }
+}
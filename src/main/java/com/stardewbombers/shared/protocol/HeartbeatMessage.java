@@ -0,0 +1,40 @@
+package com.stardewbombers.shared.protocol;
+
+/**
+ * 心跳：双方定期发送 ping，收到后立即原样回显（reply 为 true）
+ * originNanos 是发送方的本地单调时间（System.nanoTime），只由发送方解释，收到回显时据此计算往返时间，不需要双方时钟同步。
+ * 任何一方超过超时时间没有收到对方的任何数据，就认为连接已经断开（对方崩溃或网络中断留下的半开连接）。
+ */
+public class HeartbeatMessage extends Message {
+    public static final long DEFAULT_INTERVAL_MS = 1_000;
+    public static final long DEFAULT_TIMEOUT_MS = 5_000;
+
+    private long pingId;
+    private long originNanos;
+    private boolean reply;
+
+    public HeartbeatMessage() {
+        super(MessageType.HEARTBEAT, "");
+    }
+
+    public HeartbeatMessage(String senderId, long pingId, long originNanos, boolean reply) {
+        super(MessageType.HEARTBEAT, senderId);
+        this.pingId = pingId;
+        this.originNanos = originNanos;
+        this.reply = reply;
+    }
+
+    /**
+     * 对这个 ping 的回显
+     */
+    public HeartbeatMessage echo(String senderId) {
+        return new HeartbeatMessage(senderId, pingId, originNanos, true);
+    }
+
+    public long getPingId() { return pingId; }
+    public void setPingId(long pingId) { this.pingId = pingId; }
+    public long getOriginNanos() { return originNanos; }
+    public void setOriginNanos(long originNanos) { this.originNanos = originNanos; }
+    public boolean isReply() { return reply; }
+    public void setReply(boolean reply) { this.reply = reply; }
+}
@@ -1,12 +1,16 @@
 package com.stardewbombers.shared.protocol;
 
-import java.util.UUID;
-
+/**
+ * 消息基类
+ * 消息本身不带全局唯一 id：同一连接上的消息由编解码器按顺序编号（getFrameSequence），
+ * 时间戳由产生消息的一方设置（例如快照使用所在 tick 的模拟时间），没有设置时编码时取当前时间。
+ * 高频消息可以用 MessagePool 回收复用，见 PlayerMoveMessage.obtain。
+ */
 public abstract class Message {
-    private String messageId = UUID.randomUUID().toString();
     private MessageType type;
     private String senderId;
-    private long timestamp = System.currentTimeMillis();
+    private long timestamp;     // 0 表示未设置
+    private long frameSequence; // 接收方连接上的帧序号（从1开始），0 表示不是从连接上收到的
 
     public Message(MessageType type, String senderId) {
         this.type = type;
@@ -19,5 +23,7 @@ public abstract class Message {
     public String getSenderId() { return senderId; }
     public void setSenderId(String senderId) { this.senderId = senderId; }
     public long getTimestamp() { return timestamp; }
-    public String getMessageId() { return messageId; }
+    public void setTimestamp(long timestamp) { this.timestamp = timestamp; }
+    public long getFrameSequence() { return frameSequence; }
+    public void setFrameSequence(long frameSequence) { this.frameSequence = frameSequence; }
 }
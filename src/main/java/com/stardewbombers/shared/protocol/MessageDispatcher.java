@@ -0,0 +1,45 @@
+package com.stardewbombers.shared.protocol;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * 按消息类型分发收到的消息
+ * 处理器放在 EnumMap 里（内部是按 MessageType 序号索引的数组），分发只是一次数组访问；没有注册处理器的类型交给默认处理器。
+ * 注册应在开始收消息之前完成，分发可以在多个线程同时进行。
+ *
+ * @param <C> 消息来源（服务器端是客户端 id，客户端是连接本身等）
+ */
+public final class MessageDispatcher<C> {
+    public interface Handler<C, T extends Message> {
+        void handle(C source, T message);
+    }
+
+    private final Map<MessageType, Handler<C, Message>> handlers = new EnumMap<>(MessageType.class);
+    private volatile Handler<C, Message> fallback;
+
+    /**
+     * 注册某个类型的处理器（替换已有的），T 必须是该类型对应的消息类
+     */
+    @SuppressWarnings("unchecked")
+    public <T extends Message> void register(MessageType type, Handler<C, T> handler) {
+        handlers.put(type, (Handler<C, Message>) handler);
+    }
+
+    /**
+     * 设置没有注册处理器的类型使用的默认处理器，为 null 时忽略这些消息
+     */
+    public void setFallback(Handler<C, Message> fallback) {
+        this.fallback = fallback;
+    }
+
+    public void dispatch(C source, Message message) {
+        Handler<C, Message> handler = handlers.get(message.getType());
+        if (handler == null) {
+            handler = fallback;
+        }
+        if (handler != null) {
+            handler.handle(source, message);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.stardewbombers.shared.protocol;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 按线程缓存的消息对象池（高频消息用，例如 60Hz 的移动和快照确认）
+ * 线程取出消息、填充字段、同步发送（编码完成）后放回，之后同一线程可以再次取出，稳定状态下不再分配。
+ * 放回后调用方不能再持有这条消息；放进发送队列异步发送或转发给其他连接的消息不能放回。
+ * 每个线程最多缓存 capacity 个，超出的交给垃圾回收。
+ */
+public final class MessagePool<T extends Message> {
+    public static final int DEFAULT_CAPACITY = 16;
+
+    private final Supplier<T> factory;
+    private final int capacity;
+    private final ThreadLocal<ArrayDeque<T>> free = ThreadLocal.withInitial(ArrayDeque::new);
+    private final LongAdder created = new LongAdder();
+
+    public MessagePool(Supplier<T> factory) {
+        this(factory, DEFAULT_CAPACITY);
+    }
+
+    public MessagePool(Supplier<T> factory, int capacity) {
+        this.factory = factory;
+        this.capacity = capacity;
+    }
+
+    /**
+     * 取出一条消息（当前线程没有缓存时新建），字段由调用方重新设置
+     */
+    public T acquire() {
+        T message = free.get().poll();
+        if (message == null) {
+            created.increment();
+            message = factory.get();
+        }
+        return message;
+    }
+
+    /**
+     * 放回当前线程的缓存，清除时间戳和帧序号；重复放回同一条消息会被忽略
+     */
+    public void release(T message) {
+        ArrayDeque<T> queue = free.get();
+        if (queue.size() >= capacity || queue.contains(message)) {
+            return;
+        }
+        message.setTimestamp(0);
+        message.setFrameSequence(0);
+        queue.push(message);
+    }
+
+    /** 累计新建的消息数（稳定状态下不再增长） */
+    public long getCreatedCount() {
+        return created.sum();
+    }
+}
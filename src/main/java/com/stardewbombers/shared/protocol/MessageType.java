@@ -24,5 +24,9 @@ public enum MessageType {
 
     // 服务器响应
     SERVER_RESPONSE,
-    ERROR_MESSAGE
+    ERROR_MESSAGE,
+
+    // 状态同步（序号是协议的一部分，新类型只能加在末尾）
+    WORLD_SNAPSHOT,
+    SNAPSHOT_ACK
 }
@@ -0,0 +1,50 @@
+package com.stardewbombers.shared.protocol;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 消息类型到消息类的对应表（EnumMap，按 MessageType 序号索引）
+ * 解码时根据类型创建空消息再填充字段；还没有对应消息类的类型不能在网络上传输。
+ */
+public final class MessageTypes {
+    private static final MessageType[] TYPES = MessageType.values();
+    private static final Map<MessageType, Supplier<? extends Message>> FACTORIES = new EnumMap<>(MessageType.class);
+
+    static {
+        register(MessageType.PLAYER_JOIN, PlayerJoinMessage::new);
+        register(MessageType.HEARTBEAT, HeartbeatMessage::new);
+        register(MessageType.PLAYER_MOVE, PlayerMoveMessage::new);
+        register(MessageType.PLACE_BOMB, PlaceBombMessage::new);
+        register(MessageType.SERVER_RESPONSE, ServerResponseMessage::new);
+        register(MessageType.WORLD_SNAPSHOT, WorldSnapshotMessage::new);
+        register(MessageType.SNAPSHOT_ACK, SnapshotAckMessage::new);
+    }
+
+    private MessageTypes() {
+    }
+
+    public static void register(MessageType type, Supplier<? extends Message> factory) {
+        FACTORIES.put(type, factory);
+    }
+
+    public static boolean isRegistered(MessageType type) {
+        return FACTORIES.containsKey(type);
+    }
+
+    /**
+     * 按序号取消息类型，序号越界时返回 null
+     */
+    public static MessageType byOrdinal(int ordinal) {
+        return ordinal >= 0 && ordinal < TYPES.length ? TYPES[ordinal] : null;
+    }
+
+    /**
+     * 创建指定类型的空消息，类型没有注册时返回 null
+     */
+    public static Message newMessage(MessageType type) {
+        Supplier<? extends Message> factory = FACTORIES.get(type);
+        return factory != null ? factory.get() : null;
+    }
+}
@@ -5,6 +5,7 @@ import javafx.geometry.Point2D;
 public class PlaceBombMessage extends Message {
     private Point2D position;
     private int explosionRange;
+    private int inputSequence; // 与 PLAYER_MOVE 共用的输入序号，0 表示没有
 
     public PlaceBombMessage() {
         super(MessageType.PLACE_BOMB, "");
@@ -16,8 +17,15 @@ public class PlaceBombMessage extends Message {
         this.explosionRange = explosionRange;
     }
 
+    public PlaceBombMessage(String playerId, Point2D position, int explosionRange, int inputSequence) {
+        this(playerId, position, explosionRange);
+        this.inputSequence = inputSequence;
+    }
+
     public Point2D getPosition() { return position; }
     public void setPosition(Point2D position) { this.position = position; }
     public int getExplosionRange() { return explosionRange; }
     public void setExplosionRange(int explosionRange) { this.explosionRange = explosionRange; }
+    public int getInputSequence() { return inputSequence; }
+    public void setInputSequence(int inputSequence) { this.inputSequence = inputSequence; }
 }
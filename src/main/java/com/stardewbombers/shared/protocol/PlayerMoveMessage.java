@@ -3,8 +3,11 @@ package com.stardewbombers.shared.protocol;
 import javafx.geometry.Point2D;
 
 public class PlayerMoveMessage extends Message {
+    private static final MessagePool<PlayerMoveMessage> POOL = new MessagePool<>(PlayerMoveMessage::new);
+
     private Point2D position;
     private String direction;
+    private int inputSequence; // 客户端预测的输入序号（从1递增），0 表示没有
 
     // 默认构造函数（JSON反序列化需要）
     public PlayerMoveMessage() {
@@ -17,9 +20,40 @@ public class PlayerMoveMessage extends Message {
         this.direction = direction;
     }
 
+    public PlayerMoveMessage(String playerId, Point2D position, String direction, int inputSequence) {
+        this(playerId, position, direction);
+        this.inputSequence = inputSequence;
+    }
+
+    /**
+     * 从当前线程的对象池取一条移动消息，同步发送后用 recycle 放回
+     */
+    public static PlayerMoveMessage obtain(String playerId, Point2D position, String direction, int inputSequence) {
+        PlayerMoveMessage message = POOL.acquire();
+        message.setSenderId(playerId);
+        message.position = position;
+        message.direction = direction;
+        message.inputSequence = inputSequence;
+        return message;
+    }
+
+    /**
+     * 放回当前线程的对象池（只用于 obtain 取出、已经发送完的消息）
+     */
+    public void recycle() {
+        position = null;
+        POOL.release(this);
+    }
+
+    public static MessagePool<PlayerMoveMessage> pool() {
+        return POOL;
+    }
+
     // Getter和Setter
     public Point2D getPosition() { return position; }
     public void setPosition(Point2D position) { this.position = position; }
     public String getDirection() { return direction; }
     public void setDirection(String direction) { this.direction = direction; }
+    public int getInputSequence() { return inputSequence; }
+    public void setInputSequence(int inputSequence) { this.inputSequence = inputSequence; }
 }
@@ -0,0 +1,36 @@
+package com.stardewbombers.shared.protocol;
+
+/**
+ * 服务器接受连接后发给该客户端的回复：服务器分配的玩家 id、所在房间和地图
+ * 快照中的玩家以这个 id 标识，客户端据此找到自己的状态。
+ * 服务器开启数据报通道时还带有 UDP 端口和这个连接的令牌，客户端用令牌把数据报与 TCP 连接配对（见 Datagrams）。
+ */
+public class ServerResponseMessage extends Message {
+    private String clientId;
+    private String roomId;   // 没有房间时为 null
+    private String mapName;  // 没有房间时为 null
+    private int udpPort;     // 0 表示没有数据报通道
+    private long udpToken;
+
+    public ServerResponseMessage() {
+        super(MessageType.SERVER_RESPONSE, "");
+    }
+
+    public ServerResponseMessage(String clientId, String roomId, String mapName) {
+        super(MessageType.SERVER_RESPONSE, "server");
+        this.clientId = clientId;
+        this.roomId = roomId;
+        this.mapName = mapName;
+    }
+
+    public String getClientId() { return clientId; }
+    public void setClientId(String clientId) { this.clientId = clientId; }
+    public String getRoomId() { return roomId; }
+    public void setRoomId(String roomId) { this.roomId = roomId; }
+    public String getMapName() { return mapName; }
+    public void setMapName(String mapName) { this.mapName = mapName; }
+    public int getUdpPort() { return udpPort; }
+    public void setUdpPort(int udpPort) { this.udpPort = udpPort; }
+    public long getUdpToken() { return udpToken; }
+    public void setUdpToken(long udpToken) { this.udpToken = udpToken; }
+}
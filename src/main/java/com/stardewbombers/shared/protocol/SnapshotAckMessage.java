@@ -0,0 +1,39 @@
+package com.stardewbombers.shared.protocol;
+
+/**
+ * 客户端确认已收到并应用的快照序号，服务器之后以它为基准计算增量
+ */
+public class SnapshotAckMessage extends Message {
+    private static final MessagePool<SnapshotAckMessage> POOL = new MessagePool<>(SnapshotAckMessage::new);
+
+    private long sequence;
+
+    public SnapshotAckMessage() {
+        super(MessageType.SNAPSHOT_ACK, "");
+    }
+
+    public SnapshotAckMessage(String playerId, long sequence) {
+        super(MessageType.SNAPSHOT_ACK, playerId);
+        this.sequence = sequence;
+    }
+
+    /**
+     * 从当前线程的对象池取一条确认消息，同步发送后用 recycle 放回
+     */
+    public static SnapshotAckMessage obtain(String playerId, long sequence) {
+        SnapshotAckMessage message = POOL.acquire();
+        message.setSenderId(playerId);
+        message.sequence = sequence;
+        return message;
+    }
+
+    /**
+     * 放回当前线程的对象池（只用于 obtain 取出、已经发送完的消息）
+     */
+    public void recycle() {
+        POOL.release(this);
+    }
+
+    public long getSequence() { return sequence; }
+    public void setSequence(long sequence) { this.sequence = sequence; }
+}
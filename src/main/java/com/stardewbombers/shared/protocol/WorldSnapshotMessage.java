@@ -0,0 +1,24 @@
+package com.stardewbombers.shared.protocol;
+
+import com.stardewbombers.shared.protocol.snapshot.SnapshotDelta;
+
+/**
+ * 服务器发给客户端的房间状态：相对客户端最后确认的快照的增量（或完整快照）
+ * 客户端应用后回复 SnapshotAckMessage。时间戳是快照所在 tick 的模拟时间，同一 tick 发给各玩家的消息相同。
+ */
+public class WorldSnapshotMessage extends Message {
+    private SnapshotDelta delta;
+
+    public WorldSnapshotMessage() {
+        super(MessageType.WORLD_SNAPSHOT, "");
+    }
+
+    public WorldSnapshotMessage(String roomId, SnapshotDelta delta) {
+        super(MessageType.WORLD_SNAPSHOT, roomId);
+        this.delta = delta;
+        setTimestamp(delta.getTimeMs());
+    }
+
+    public SnapshotDelta getDelta() { return delta; }
+    public void setDelta(SnapshotDelta delta) { this.delta = delta; }
+}
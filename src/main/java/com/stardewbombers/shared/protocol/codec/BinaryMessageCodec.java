@@ -0,0 +1,266 @@
+package com.stardewbombers.shared.protocol.codec;
+
+import com.stardewbombers.shared.protocol.HeartbeatMessage;
+import com.stardewbombers.shared.protocol.Message;
+import com.stardewbombers.shared.protocol.MessageType;
+import com.stardewbombers.shared.protocol.MessageTypes;
+import com.stardewbombers.shared.protocol.PlaceBombMessage;
+import com.stardewbombers.shared.protocol.PlayerJoinMessage;
+import com.stardewbombers.shared.protocol.PlayerMoveMessage;
+import com.stardewbombers.shared.protocol.ServerResponseMessage;
+import com.stardewbombers.shared.protocol.SnapshotAckMessage;
+import javafx.geometry.Point2D;
+
+/**
+ * 二进制编解码器
+ *
+ * 帧内容：类型序号和独立标记（varint，序号左移一位，最低位为标记）、发送者 id（驻留）、
+ * 时间戳（与上一条消息的差值，zigzag varint），然后是消息体。
+ * 独立帧（encodeStandalone）不依赖连接状态：字符串都完整发送、时间戳是绝对值，解码时也不改变连接的驻留表和时间戳基准，
+ * 所以同一份字节可以原样发给多个连接（SharedFrame）。
+ * 坐标按 1/POSITION_SCALE 像素量化为整数，方向等重复出现的字符串同样驻留。
+ * 一条 PlayerMoveMessage 通常只有 8~10 字节，JSON 需要一百多字节。
+ *
+ * 消息体的编解码按类型序号放在表中，新增消息类型时在 MessageTypes 和这里各注册一次。
+ */
+public final class BinaryMessageCodec implements MessageCodec {
+    /** 坐标量化精度：每像素的单位数 */
+    public static final int POSITION_SCALE = 8;
+    /** 帧头中表示独立帧的位 */
+    private static final int STANDALONE_FLAG = 1;
+
+    /**
+     * 一种消息体的编解码，strings 是连接对应方向的字符串驻留表
+     */
+    interface BodyCodec<T extends Message> {
+        void write(T message, WireWriter out, StringTable strings);
+
+        void read(T message, WireReader in, StringTable strings) throws ProtocolException;
+    }
+
+    private static final BodyCodec<?>[] BODIES = new BodyCodec<?>[MessageType.values().length];
+
+    static {
+        register(MessageType.PLAYER_JOIN, new BodyCodec<PlayerJoinMessage>() {
+            @Override
+            public void write(PlayerJoinMessage message, WireWriter out, StringTable strings) {
+                strings.write(out, message.getPlayerName());
+            }
+
+            @Override
+            public void read(PlayerJoinMessage message, WireReader in, StringTable strings) throws ProtocolException {
+                message.setPlayerName(strings.read(in));
+            }
+        });
+        register(MessageType.HEARTBEAT, new BodyCodec<HeartbeatMessage>() {
+            @Override
+            public void write(HeartbeatMessage message, WireWriter out, StringTable strings) {
+                out.writeVarLong(message.getPingId());
+                out.writeSignedVarLong(message.getOriginNanos());
+                out.writeByte(message.isReply() ? 1 : 0);
+            }
+
+            @Override
+            public void read(HeartbeatMessage message, WireReader in, StringTable strings) throws ProtocolException {
+                message.setPingId(in.readVarLong());
+                message.setOriginNanos(in.readSignedVarLong());
+                message.setReply(in.readByte() != 0);
+            }
+        });
+        register(MessageType.PLAYER_MOVE, new BodyCodec<PlayerMoveMessage>() {
+            @Override
+            public void write(PlayerMoveMessage message, WireWriter out, StringTable strings) {
+                writePoint(out, message.getPosition());
+                strings.write(out, message.getDirection());
+                out.writeVarInt(message.getInputSequence());
+            }
+
+            @Override
+            public void read(PlayerMoveMessage message, WireReader in, StringTable strings) throws ProtocolException {
+                message.setPosition(readPoint(in));
+                message.setDirection(strings.read(in));
+                message.setInputSequence(in.readVarInt());
+            }
+        });
+        register(MessageType.PLACE_BOMB, new BodyCodec<PlaceBombMessage>() {
+            @Override
+            public void write(PlaceBombMessage message, WireWriter out, StringTable strings) {
+                writePoint(out, message.getPosition());
+                out.writeVarInt(message.getExplosionRange());
+                out.writeVarInt(message.getInputSequence());
+            }
+
+            @Override
+            public void read(PlaceBombMessage message, WireReader in, StringTable strings) throws ProtocolException {
+                message.setPosition(readPoint(in));
+                message.setExplosionRange(in.readVarInt());
+                message.setInputSequence(in.readVarInt());
+            }
+        });
+        register(MessageType.SERVER_RESPONSE, new BodyCodec<ServerResponseMessage>() {
+            @Override
+            public void write(ServerResponseMessage message, WireWriter out, StringTable strings) {
+                strings.write(out, message.getClientId());
+                strings.write(out, message.getRoomId());
+                strings.write(out, message.getMapName());
+                out.writeVarInt(message.getUdpPort());
+                out.writeVarLong(message.getUdpToken());
+            }
+
+            @Override
+            public void read(ServerResponseMessage message, WireReader in, StringTable strings) throws ProtocolException {
+                message.setClientId(strings.read(in));
+                message.setRoomId(strings.read(in));
+                message.setMapName(strings.read(in));
+                message.setUdpPort(in.readVarInt());
+                message.setUdpToken(in.readVarLong());
+            }
+        });
+        register(MessageType.WORLD_SNAPSHOT, new SnapshotBodyCodec());
+        register(MessageType.SNAPSHOT_ACK, new BodyCodec<SnapshotAckMessage>() {
+            @Override
+            public void write(SnapshotAckMessage message, WireWriter out, StringTable strings) {
+                out.writeVarLong(message.getSequence());
+            }
+
+            @Override
+            public void read(SnapshotAckMessage message, WireReader in, StringTable strings) throws ProtocolException {
+                message.setSequence(in.readVarLong());
+            }
+        });
+    }
+
+    static <T extends Message> void register(MessageType type, BodyCodec<T> body) {
+        BODIES[type.ordinal()] = body;
+    }
+
+    /** 独立帧用的字符串表：容量为 0，不分配编号也不保存内容，可以多线程共用 */
+    private static final StringTable STANDALONE_STRINGS = new StringTable(0);
+
+    /**
+     * 该类型的消息是否有二进制编码
+     */
+    public static boolean supports(MessageType type) {
+        return BODIES[type.ordinal()] != null;
+    }
+
+    private final StringTable outStrings = new StringTable();
+    private final StringTable inStrings = new StringTable();
+    private long lastSentTimestamp;
+    private long lastReceivedTimestamp;
+    private long receivedFrames;
+
+    @Override
+    public WireFormat getFormat() {
+        return WireFormat.BINARY;
+    }
+
+    @Override
+    public void encode(Message message, WireWriter out) {
+        if (message instanceof SharedFrame) {
+            ((SharedFrame) message).copyPayloadTo(out);
+            return;
+        }
+        BodyCodec<Message> body = bodyFor(message);
+        out.writeVarInt(message.getType().ordinal() << 1);
+        outStrings.write(out, message.getSenderId());
+        long timestamp = timestampOf(message);
+        out.writeSignedVarLong(timestamp - lastSentTimestamp);
+        lastSentTimestamp = timestamp;
+        body.write(message, out, outStrings);
+    }
+
+    /**
+     * 编码为独立帧：不读也不改任何连接的编码状态，线程安全
+     * 字符串不驻留，比连接内的编码稍长，换来一次编码可以发给所有连接。
+     */
+    public static void encodeStandalone(Message message, WireWriter out) {
+        BodyCodec<Message> body = bodyFor(message);
+        out.writeVarInt(message.getType().ordinal() << 1 | STANDALONE_FLAG);
+        STANDALONE_STRINGS.write(out, message.getSenderId());
+        out.writeSignedVarLong(timestampOf(message));
+        body.write(message, out, STANDALONE_STRINGS);
+    }
+
+    @Override
+    public Message decode(WireReader in) throws ProtocolException {
+        int header = in.readVarInt();
+        boolean standalone = (header & STANDALONE_FLAG) != 0;
+        StringTable strings = standalone ? STANDALONE_STRINGS : inStrings;
+        Message message = newMessage(header >>> 1);
+        message.setSenderId(strings.read(in));
+        if (standalone) {
+            message.setTimestamp(in.readSignedVarLong());
+        } else {
+            lastReceivedTimestamp += in.readSignedVarLong();
+            message.setTimestamp(lastReceivedTimestamp);
+        }
+        message.setFrameSequence(++receivedFrames);
+        bodyFor(message).read(message, in, strings);
+        return message;
+    }
+
+    /**
+     * 解码一个独立帧（数据报等没有连接状态的场合），不是独立帧时抛出 ProtocolException；线程安全
+     */
+    public static Message decodeStandalone(WireReader in) throws ProtocolException {
+        int header = in.readVarInt();
+        if ((header & STANDALONE_FLAG) == 0) {
+            throw new ProtocolException("需要独立帧");
+        }
+        Message message = newMessage(header >>> 1);
+        message.setSenderId(STANDALONE_STRINGS.read(in));
+        message.setTimestamp(in.readSignedVarLong());
+        bodyFor(message).read(message, in, STANDALONE_STRINGS);
+        return message;
+    }
+
+    private static Message newMessage(int ordinal) throws ProtocolException {
+        MessageType type = MessageTypes.byOrdinal(ordinal);
+        Message message = type != null && BODIES[ordinal] != null ? MessageTypes.newMessage(type) : null;
+        if (message == null) {
+            throw new ProtocolException("不支持的消息类型: " + ordinal);
+        }
+        return message;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BodyCodec<Message> bodyFor(Message message) {
+        MessageType type = message.getType();
+        BodyCodec<Message> body = (BodyCodec<Message>) BODIES[type.ordinal()];
+        if (body == null) {
+            throw new IllegalArgumentException("消息类型没有二进制编码: " + type);
+        }
+        return body;
+    }
+
+    private static long timestampOf(Message message) {
+        return message.getTimestamp() != 0 ? message.getTimestamp() : System.currentTimeMillis();
+    }
+
+    /**
+     * 坐标：是否存在（1 字节），然后 x、y 的量化值（zigzag varint）
+     */
+    static void writePoint(WireWriter out, Point2D point) {
+        if (point == null) {
+            out.writeBoolean(false);
+            return;
+        }
+        out.writeBoolean(true);
+        out.writeSignedVarInt(quantize(point.getX()));
+        out.writeSignedVarInt(quantize(point.getY()));
+    }
+
+    static Point2D readPoint(WireReader in) throws ProtocolException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+        double x = in.readSignedVarInt() / (double) POSITION_SCALE;
+        double y = in.readSignedVarInt() / (double) POSITION_SCALE;
+        return new Point2D(x, y);
+    }
+
+    static int quantize(double value) {
+        return (int) Math.round(value * POSITION_SCALE);
+    }
+}
@@ -0,0 +1,208 @@
+package com.stardewbombers.shared.protocol.codec;
+
+import com.stardewbombers.shared.protocol.Message;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 压缩层：包在一个连接的编解码器外面，用 Deflater/Inflater 压缩帧内容
+ *
+ * 压缩方向由各自发送方的握手决定（WireFormat.preamble(compressed)）：客户端请求压缩时自己发出的帧带压缩层，
+ * 服务器同意时它发出的帧也带压缩层。压缩的帧以 DEFLATE_MARKER 开头，原样发送的帧不加任何字节：
+ * 0xFF 不会是二进制帧的第一个字节（类型序号远小于 64）也不会出现在 UTF-8 的 JSON 中。
+ * 整个连接共用一个 deflate 流（SYNC_FLUSH，去掉每帧末尾固定的 00 00 FF FF），后面的帧可以引用前面帧的内容；
+ * 流开始前载入预置字典（训练自录制的会话，见 DictionaryTrainer），第一帧就能引用常见的类型名、字段名和坐标。
+ *
+ * 自适应：小于 MIN_COMPRESS_BYTES 的帧原样发送（二进制编码的移动、心跳只有几个字节，压缩省不下什么）；最近的压缩率（EWMA）
+ * 高于 SKIP_RATIO 时接下来 SKIP_FRAMES 帧暂停压缩，再重新尝试。原样发送的帧不进入 deflate 流，两端保持一致。
+ *
+ * 每个方向各有一个 deflate 状态（约 256KB 本地内存），只建议在带宽受限（移动网络）的连接上开启；
+ * 本地内存在编解码器不再被引用后由 Deflater/Inflater 的 Cleaner 释放。
+ * 字典是协议的一部分，修改后需要提升 WireFormat.PROTOCOL_VERSION。
+ */
+public final class CompressingCodec implements MessageCodec {
+    /** 小于该字节数的帧不压缩 */
+    public static final int MIN_COMPRESS_BYTES = 64;
+    static final int DEFLATE_MARKER = 0xFF;
+    private static final double SKIP_RATIO = 0.9;
+    private static final int SKIP_FRAMES = 256;
+    private static final byte[] SYNC_TRAILER = {0, 0, (byte) 0xFF, (byte) 0xFF};
+    private static final String DICTIONARY_RESOURCE = "/protocol/deflate-dictionary.bin";
+    private static final byte[] DICTIONARY = loadDictionary();
+
+    private final MessageCodec inner;
+    private final CompressionStats stats;   // 可以为 null
+    // 发送方向
+    private final Deflater deflater;        // 不压缩发送方向时为 null
+    private final WireWriter plain = new WireWriter();
+    private final byte[] chunk = new byte[4096];
+    private double recentRatio = 0.5;
+    private int skipRemaining;
+    private long plainBytes;
+    private long wireBytes;
+    // 接收方向
+    private volatile boolean inboundCompressed;
+    private Inflater inflater;
+    private byte[] inflateInput = new byte[1024];
+    private final byte[] inflated = new byte[Frames.MAX_FRAME_BYTES];
+    private final WireReader inflatedReader = new WireReader();
+
+    /**
+     * @param compressOutbound 发出的帧是否带压缩层（本方握手声明的）
+     * @param inboundCompressed 收到的帧是否带压缩层（对方握手声明的，还不知道时之后用 setInboundCompressed 设置）
+     * @param stats 共用的统计，可以为 null
+     */
+    public CompressingCodec(MessageCodec inner, boolean compressOutbound, boolean inboundCompressed,
+                            CompressionStats stats) {
+        this.inner = inner;
+        this.stats = stats;
+        this.inboundCompressed = inboundCompressed;
+        if (compressOutbound) {
+            deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            if (DICTIONARY.length > 0) {
+                deflater.setDictionary(DICTIONARY);
+            }
+        } else {
+            deflater = null;
+        }
+    }
+
+    /**
+     * 收到对方握手后设置接收方向（在第一次 decode 之前，由接收线程调用）
+     */
+    public void setInboundCompressed(boolean inboundCompressed) {
+        this.inboundCompressed = inboundCompressed;
+    }
+
+    @Override
+    public WireFormat getFormat() {
+        return inner.getFormat();
+    }
+
+    /**
+     * 共享帧的字节没有压缩层，发送方向压缩时不能直接写出
+     */
+    @Override
+    public boolean supportsSharedFrames() {
+        return deflater == null && inner.supportsSharedFrames();
+    }
+
+    @Override
+    public void encode(Message message, WireWriter out) {
+        if (deflater == null) {
+            inner.encode(message, out);
+            return;
+        }
+        plain.reset();
+        inner.encode(message, plain);
+        int length = plain.size();
+        int start = out.size();
+        if (length < MIN_COMPRESS_BYTES || skipRemaining > 0) {
+            if (length >= MIN_COMPRESS_BYTES) {
+                skipRemaining--;
+            }
+            out.writeBytes(plain.array(), 0, length);
+            record(length, out.size() - start, false);
+            return;
+        }
+        out.writeByte(DEFLATE_MARKER);
+        deflater.setInput(plain.array(), 0, length);
+        int written;
+        do {
+            written = deflater.deflate(chunk, 0, chunk.length, Deflater.SYNC_FLUSH);
+            out.writeBytes(chunk, 0, written);
+        } while (written == chunk.length);
+        out.truncate(out.size() - SYNC_TRAILER.length);
+        int wire = out.size() - start;
+        record(length, wire, true);
+        recentRatio += ((double) wire / length - recentRatio) / 16;
+        if (recentRatio > SKIP_RATIO) {
+            skipRemaining = SKIP_FRAMES;
+            recentRatio = 0.5;
+        }
+    }
+
+    @Override
+    public Message decode(WireReader in) throws ProtocolException {
+        if (!inboundCompressed) {
+            return inner.decode(in);
+        }
+        if (in.remaining() == 0 || (in.array()[in.position()] & 0xFF) != DEFLATE_MARKER) {
+            return inner.decode(in);
+        }
+        in.skip(1);
+        int length = in.remaining();
+        if (inflateInput.length < length + SYNC_TRAILER.length) {
+            inflateInput = new byte[Math.max(inflateInput.length * 2, length + SYNC_TRAILER.length)];
+        }
+        System.arraycopy(in.array(), in.position(), inflateInput, 0, length);
+        System.arraycopy(SYNC_TRAILER, 0, inflateInput, length, SYNC_TRAILER.length);
+        in.skip(length);
+        if (inflater == null) {
+            inflater = new Inflater(true);
+            if (DICTIONARY.length > 0) {
+                inflater.setDictionary(DICTIONARY);
+            }
+        }
+        inflater.setInput(inflateInput, 0, length + SYNC_TRAILER.length);
+        int total = 0;
+        try {
+            while (!inflater.needsInput()) {
+                if (total == inflated.length) {
+                    throw new ProtocolException("解压后的帧过长");
+                }
+                int count = inflater.inflate(inflated, total, inflated.length - total);
+                if (count == 0 && !inflater.needsInput()) {
+                    throw new ProtocolException("压缩数据不完整");
+                }
+                total += count;
+            }
+        } catch (DataFormatException e) {
+            throw new ProtocolException("压缩数据错误: " + e.getMessage());
+        }
+        inflatedReader.reset(inflated, 0, total);
+        return inner.decode(inflatedReader);
+    }
+
+    private void record(int plainLength, int wireLength, boolean compressed) {
+        plainBytes += plainLength;
+        wireBytes += wireLength;
+        if (stats != null) {
+            stats.record(plainLength, wireLength, compressed);
+        }
+    }
+
+    /** 发送方向压缩前的字节数（发送线程读取） */
+    public long getPlainBytes() {
+        return plainBytes;
+    }
+
+    /** 发送方向实际发出的字节数 */
+    public long getWireBytes() {
+        return wireBytes;
+    }
+
+    /**
+     * 这个连接发送方向的压缩率（发出字节数 / 压缩前字节数），没有数据时为 1
+     */
+    public double getCompressionRatio() {
+        return plainBytes == 0 ? 1.0 : (double) wireBytes / plainBytes;
+    }
+
+    private static byte[] loadDictionary() {
+        try (InputStream in = CompressingCodec.class.getResourceAsStream(DICTIONARY_RESOURCE)) {
+            if (in == null) {
+                return new byte[0];
+            }
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            in.transferTo(bytes);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException("无法读取压缩字典 " + DICTIONARY_RESOURCE, e);
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.stardewbombers.shared.protocol.codec;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 压缩统计，多个连接的 CompressingCodec 共用（例如服务器的全部连接），可以在任意线程读取
+ * 只统计发送方向：压缩前的帧内容字节数和实际发出的字节数。
+ */
+public final class CompressionStats {
+    private final LongAdder plainBytes = new LongAdder();
+    private final LongAdder wireBytes = new LongAdder();
+    private final LongAdder compressedFrames = new LongAdder();
+    private final LongAdder rawFrames = new LongAdder();
+
+    void record(int plain, int wire, boolean compressed) {
+        plainBytes.add(plain);
+        wireBytes.add(wire);
+        (compressed ? compressedFrames : rawFrames).increment();
+    }
+
+    public long getPlainBytes() { return plainBytes.sum(); }
+    public long getWireBytes() { return wireBytes.sum(); }
+    public long getCompressedFrames() { return compressedFrames.sum(); }
+    /** 太小或暂停压缩时原样发送的帧数 */
+    public long getRawFrames() { return rawFrames.sum(); }
+
+    /**
+     * 发出字节数与压缩前字节数之比，没有数据时为 1
+     */
+    public double getRatio() {
+        long plain = plainBytes.sum();
+        return plain == 0 ? 1.0 : (double) wireBytes.sum() / plain;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("压缩前 %d 字节，发出 %d 字节（%.1f%%），压缩 %d 帧，原样 %d 帧",
+            getPlainBytes(), getWireBytes(), getRatio() * 100, getCompressedFrames(), getRawFrames());
+    }
+}
@@ -0,0 +1,128 @@
+package com.stardewbombers.shared.protocol.codec;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 从录制的帧训练 CompressingCodec 的预置字典
+ * 录制文件由压力测试的 capture 参数生成（varint 长度 + 帧内容）。统计片段在多少帧中出现（同一帧内的重复由 deflate 自己处理），
+ * 按 出现帧数 × (长度 - 3) 打分，依次选出前后两半都不在已选片段中的片段，直到字典大小；分数最高的放在字典末尾，离数据最近，距离编码最短。
+ *
+ * 字典是协议的一部分：更换后服务器和客户端必须一起更新（并提升 WireFormat.PROTOCOL_VERSION）。
+ *
+ * 运行：java -cp target/classes com.stardewbombers.shared.protocol.codec.DictionaryTrainer 输出文件 录制文件...
+ */
+public class DictionaryTrainer {
+    private static final int DICTIONARY_BYTES = 4096;
+    private static final int MAX_SAMPLE_FRAMES = 20_000;   // 每个录制文件最多取样的帧数（均匀抽取）
+    private static final int[] LENGTHS = {4, 6, 8, 12, 16, 24, 32};
+    private static final int PRUNE_THRESHOLD = 2_000_000;  // 候选过多时去掉只出现过一次的
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("用法: DictionaryTrainer 输出文件 录制文件...");
+            return;
+        }
+        Map<String, Integer> counts = new HashMap<>();
+        int sampled = 0;
+        for (int i = 1; i < args.length; i++) {
+            List<byte[]> frames = readFrames(args[i]);
+            int stride = Math.max(1, frames.size() / MAX_SAMPLE_FRAMES);
+            for (int f = 0; f < frames.size(); f += stride) {
+                count(frames.get(f), counts);
+                sampled++;
+            }
+            System.out.println(args[i] + ": " + frames.size() + " 帧，取样 " + (frames.size() + stride - 1) / stride);
+        }
+        byte[] dictionary = select(counts);
+        Files.write(Paths.get(args[0]), dictionary);
+        System.out.println("取样 " + sampled + " 帧，候选 " + counts.size() + " 个，字典 " + dictionary.length + " 字节 -> " + args[0]);
+    }
+
+    private static List<byte[]> readFrames(String path) throws IOException {
+        List<byte[]> frames = new ArrayList<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(path)))) {
+            byte[] frame;
+            while ((frame = Frames.readFrame(in)) != null) {
+                frames.add(frame);
+            }
+        }
+        return frames;
+    }
+
+    /**
+     * 记录一帧中出现的片段（每帧每个片段只计一次）
+     */
+    private static void count(byte[] frame, Map<String, Integer> counts) {
+        // ISO-8859-1 把每个字节对应到一个字符，片段可以直接用 String 做键
+        String text = new String(frame, StandardCharsets.ISO_8859_1);
+        Set<String> seen = new HashSet<>();
+        for (int length : LENGTHS) {
+            for (int start = 0; start + length <= text.length(); start++) {
+                String piece = text.substring(start, start + length);
+                if (seen.add(piece)) {
+                    counts.merge(piece, 1, Integer::sum);
+                }
+            }
+        }
+        if (counts.size() > PRUNE_THRESHOLD) {
+            counts.values().removeIf(c -> c <= 1);
+        }
+    }
+
+    private static byte[] select(Map<String, Integer> counts) {
+        List<Map.Entry<String, Integer>> candidates = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : counts.entrySet()) {
+            if (entry.getValue() > 1) {
+                candidates.add(entry);
+            }
+        }
+        candidates.sort((a, b) -> Long.compare(score(b), score(a)));
+        List<String> chosen = new ArrayList<>();
+        int size = 0;
+        for (Map.Entry<String, Integer> entry : candidates) {
+            String piece = entry.getKey();
+            if (size + piece.length() > DICTIONARY_BYTES) {
+                continue;
+            }
+            // 与已选片段只差几个字节的错位片段（前半或后半已经在字典中）也跳过
+            int half = Math.max(LENGTHS[0], piece.length() / 2);
+            String head = piece.substring(0, half);
+            String tail = piece.substring(piece.length() - half);
+            boolean covered = false;
+            for (String existing : chosen) {
+                if (existing.contains(head) || existing.contains(tail)) {
+                    covered = true;
+                    break;
+                }
+            }
+            if (!covered) {
+                chosen.add(piece);
+                size += piece.length();
+            }
+            if (size >= DICTIONARY_BYTES - LENGTHS[0]) {
+                break;
+            }
+        }
+        StringBuilder dictionary = new StringBuilder(size);
+        for (int i = chosen.size() - 1; i >= 0; i--) {
+            dictionary.append(chosen.get(i));
+        }
+        return dictionary.toString().getBytes(StandardCharsets.ISO_8859_1);
+    }
+
+    private static long score(Map.Entry<String, Integer> entry) {
+        return (long) entry.getValue() * (entry.getKey().length() - 3);
+    }
+}
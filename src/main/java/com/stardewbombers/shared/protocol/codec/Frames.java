@@ -0,0 +1,99 @@
+package com.stardewbombers.shared.protocol.codec;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 帧的读写：varint 长度 + 内容
+ * 阻塞流（ClientHandler、NetworkClient）和 NIO 缓冲区（NioConnection）共用同样的格式。
+ */
+public final class Frames {
+    /** 单帧内容上限，超过视为协议错误 */
+    public static final int MAX_FRAME_BYTES = 64 * 1024;
+    /** 长度前缀最多占用的字节数 */
+    public static final int MAX_LENGTH_BYTES = 3;
+
+    private Frames() {
+    }
+
+    /**
+     * 从缓冲区当前位置读取长度前缀
+     * @return 帧长度；前缀还不完整时返回 -1，position 不变
+     * @throws ProtocolException 长度超过上限
+     */
+    public static int readLength(ByteBuffer buffer) throws ProtocolException {
+        int start = buffer.position();
+        int length = 0;
+        for (int i = 0; i < MAX_LENGTH_BYTES; i++) {
+            if (!buffer.hasRemaining()) {
+                buffer.position(start);
+                return -1;
+            }
+            int b = buffer.get() & 0xFF;
+            length |= (b & 0x7F) << (7 * i);
+            if ((b & 0x80) == 0) {
+                return checkLength(length);
+            }
+        }
+        throw new ProtocolException("帧长度前缀过长");
+    }
+
+    /**
+     * 从流中读取一帧
+     * @return 帧内容；流在帧边界处结束时返回 null
+     */
+    public static byte[] readFrame(DataInputStream in) throws IOException {
+        int first = in.read();
+        if (first < 0) {
+            return null;
+        }
+        int length = first & 0x7F;
+        int shift = 7;
+        int b = first;
+        while ((b & 0x80) != 0) {
+            if (shift >= 7 * MAX_LENGTH_BYTES) {
+                throw new ProtocolException("帧长度前缀过长");
+            }
+            b = in.read();
+            if (b < 0) {
+                throw new EOFException("帧长度前缀不完整");
+            }
+            length |= (b & 0x7F) << shift;
+            shift += 7;
+        }
+        byte[] frame = new byte[checkLength(length)];
+        in.readFully(frame);
+        return frame;
+    }
+
+    /**
+     * 向流写入一帧（不 flush）
+     */
+    public static void writeFrame(DataOutputStream out, WireWriter payload) throws IOException {
+        int length = payload.size();
+        while ((length & ~0x7F) != 0) {
+            out.write((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        out.write(length);
+        out.write(payload.array(), 0, payload.size());
+    }
+
+    /**
+     * 把 payload 作为一帧追加到 out
+     */
+    public static void appendFrame(WireWriter out, WireWriter payload) {
+        out.writeVarInt(payload.size());
+        out.writeBytes(payload.array(), 0, payload.size());
+    }
+
+    private static int checkLength(int length) throws ProtocolException {
+        if (length > MAX_FRAME_BYTES) {
+            throw new ProtocolException("帧过长: " + length + " 字节");
+        }
+        return length;
+    }
+}
@@ -0,0 +1,64 @@
+package com.stardewbombers.shared.protocol.codec;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stardewbombers.shared.protocol.Message;
+import com.stardewbombers.shared.protocol.MessageType;
+import com.stardewbombers.shared.protocol.MessageTypes;
+import com.stardewbombers.shared.util.JsonUtil;
+import java.io.IOException;
+
+/**
+ * JSON 编解码器（调试用）
+ * 帧内容是一个 UTF-8 JSON 对象，按 "type" 字段创建对应的消息类再填充字段。连接状态只有收到的帧数。
+ */
+public final class JsonMessageCodec implements MessageCodec {
+    private final ObjectMapper mapper = JsonUtil.mapper();
+    private long receivedFrames;
+
+    @Override
+    public WireFormat getFormat() {
+        return WireFormat.JSON;
+    }
+
+    @Override
+    public void encode(Message message, WireWriter out) {
+        if (message instanceof SharedFrame) {
+            message = ((SharedFrame) message).getMessage();
+        }
+        try {
+            byte[] bytes = mapper.writeValueAsBytes(message);
+            out.writeBytes(bytes, 0, bytes.length);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("消息无法编码为 JSON: " + message.getType(), e);
+        }
+    }
+
+    @Override
+    public Message decode(WireReader in) throws ProtocolException {
+        JsonNode node;
+        try {
+            node = mapper.readTree(in.array(), in.position(), in.remaining());
+        } catch (IOException e) {
+            throw new ProtocolException("JSON 格式错误: " + e.getMessage());
+        }
+        MessageType type;
+        try {
+            type = MessageType.valueOf(node.path("type").asText());
+        } catch (IllegalArgumentException e) {
+            throw new ProtocolException("未知的消息类型: " + node.path("type").asText());
+        }
+        Message message = MessageTypes.newMessage(type);
+        if (message == null) {
+            throw new ProtocolException("不支持的消息类型: " + type);
+        }
+        try {
+            mapper.readerForUpdating(message).readValue(node);
+        } catch (IOException e) {
+            throw new ProtocolException("消息字段错误: " + e.getMessage());
+        }
+        in.skip(in.remaining());
+        message.setFrameSequence(++receivedFrames);
+        return message;
+    }
+}
@@ -0,0 +1,93 @@
+package com.stardewbombers.shared.protocol.codec;
+
+import com.stardewbombers.shared.protocol.PlayerMoveMessage;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import javafx.geometry.Point2D;
+
+/**
+ * 发送路径的分配基准测试
+ * 模拟客户端 60Hz 的移动输入：创建 PlayerMoveMessage、二进制编码、按批追加成帧，
+ * 分别测量每次新建消息和从对象池取出/放回两种方式每条消息分配的字节数（对象池期望为 0 B/op）。
+ *
+ * 运行：java -cp target/classes com.stardewbombers.shared.protocol.codec.MessageAllocationBenchmark [次数]
+ */
+public class MessageAllocationBenchmark {
+    private static final int WARMUP_MESSAGES = 500_000;
+    private static final int BATCH = 16; // 每批帧数，相当于服务器一个 tick 合并的消息
+    private static final String[] DIRECTIONS = {"UP", "RIGHT", "DOWN", "LEFT"};
+
+    public static void main(String[] args) {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+            System.out.println("当前JVM不支持线程分配统计，无法运行基准测试");
+            return;
+        }
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+        allocationBean.setThreadAllocatedMemoryEnabled(true);
+
+        for (boolean pooled : new boolean[] {false, true}) {
+            SendPath path = new SendPath(pooled);
+            path.run(WARMUP_MESSAGES);
+
+            long threadId = Thread.currentThread().threadId();
+            long before = allocationBean.getThreadAllocatedBytes(threadId);
+            long startNanos = System.nanoTime();
+            path.run(messages);
+            long elapsedNanos = System.nanoTime() - startNanos;
+            long allocated = allocationBean.getThreadAllocatedBytes(threadId) - before;
+
+            System.out.printf("%-6s messages=%d  %.1f ns/op  %.3f B/op (总计 %d B，%d 字节/帧)%n",
+                pooled ? "pooled" : "new", messages, (double) elapsedNanos / messages,
+                (double) allocated / messages, allocated, path.bytes / Math.max(1, path.frames));
+        }
+        System.out.println("对象池累计新建: " + PlayerMoveMessage.pool().getCreatedCount());
+    }
+
+    /**
+     * 一个连接的发送路径：编解码器、单条消息缓冲和批量帧缓冲都复用
+     */
+    private static final class SendPath {
+        private final boolean pooled;
+        private final BinaryMessageCodec codec = new BinaryMessageCodec();
+        private final WireWriter payload = new WireWriter();
+        private final WireWriter batch = new WireWriter();
+        // 位置只有有限个取值（格子中心），预先创建，测量的只是消息本身
+        private final Point2D[] positions = new Point2D[64];
+        private int sequence;
+        private long bytes;
+        private long frames;
+
+        SendPath(boolean pooled) {
+            this.pooled = pooled;
+            for (int i = 0; i < positions.length; i++) {
+                positions[i] = new Point2D(20 + i % 8 * 40, 20 + i / 8 * 40);
+            }
+        }
+
+        void run(int messages) {
+            for (int i = 0; i < messages; i++) {
+                sequence++;
+                Point2D position = positions[sequence & (positions.length - 1)];
+                String direction = DIRECTIONS[sequence & 3];
+                PlayerMoveMessage move = pooled
+                    ? PlayerMoveMessage.obtain("bench", position, direction, sequence)
+                    : new PlayerMoveMessage("bench", position, direction, sequence);
+                move.setTimestamp(1_000L + sequence * 16L); // 按 tick 递增的时间戳
+                payload.reset();
+                codec.encode(move, payload);
+                Frames.appendFrame(batch, payload);
+                if (pooled) {
+                    move.recycle();
+                }
+                if (sequence % BATCH == 0) {
+                    bytes += batch.size();
+                    frames += BATCH;
+                    batch.reset();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.stardewbombers.shared.protocol.codec;
+
+import com.stardewbombers.shared.protocol.Message;
+
+/**
+ * 消息编解码器，处理一个连接上的帧内容（不含长度前缀）
+ * 编解码器带有连接状态（字符串驻留表、上一条消息的时间戳、收到的帧数），每个连接使用自己的实例。
+ * decode 按到达顺序给消息设置帧序号（Message.getFrameSequence），连接是有序的，所以序号不占用线上字节。
+ * 发送方向和接收方向的状态相互独立：encode 和 decode 可以在不同线程同时调用，
+ * 但同一方向的调用必须串行。
+ */
+public interface MessageCodec {
+    WireFormat getFormat();
+
+    void encode(Message message, WireWriter out);
+
+    Message decode(WireReader in) throws ProtocolException;
+
+    /**
+     * 发送队列中的 SharedFrame 能否直接写出（帧字节与本编解码器的输出兼容）；否则按普通消息编码
+     */
+    default boolean supportsSharedFrames() {
+        return getFormat() == WireFormat.BINARY;
+    }
+}
@@ -0,0 +1,14 @@
+package com.stardewbombers.shared.protocol.codec;
+
+import java.io.IOException;
+
+/**
+ * 收到的数据不符合协议（握手不匹配、帧过长、字段越界等），连接应当断开
+ */
+public class ProtocolException extends IOException {
+    private static final long serialVersionUID = 1L;
+
+    public ProtocolException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,64 @@
+package com.stardewbombers.shared.protocol.codec;
+
+import com.stardewbombers.shared.protocol.Message;
+import java.nio.ByteBuffer;
+
+/**
+ * 编码一次、发给多个连接的消息
+ * 创建时在调用线程上把消息编码为独立帧（BinaryMessageCodec.encodeStandalone，含长度前缀），
+ * 保存在只读的直接缓冲区中；各连接的发送线程通过 frame() 取得自己的视图直接写出，不再逐个编码。
+ *
+ * 作为 Message 放进发送队列：类型和发送者与原消息相同，合并、丢弃规则照常生效。
+ * JSON 连接和不认识它的写出路径由编解码器处理（JSON 编码原消息，二进制复制帧内容）。
+ */
+public final class SharedFrame extends Message {
+    private final Message message;
+    private final ByteBuffer frame;  // 长度前缀 + 帧内容，只读
+    private final int payloadOffset;
+
+    /**
+     * @throws IllegalArgumentException 消息没有二进制编码或超过单帧上限
+     */
+    public SharedFrame(Message message) {
+        super(message.getType(), message.getSenderId());
+        setTimestamp(message.getTimestamp());
+        WireWriter payload = new WireWriter(512);
+        BinaryMessageCodec.encodeStandalone(message, payload);
+        if (payload.size() > Frames.MAX_FRAME_BYTES) {
+            throw new IllegalArgumentException(message.getType() + " 消息过长: " + payload.size() + " 字节");
+        }
+        WireWriter framed = new WireWriter(payload.size() + Frames.MAX_LENGTH_BYTES);
+        Frames.appendFrame(framed, payload);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(framed.size());
+        buffer.put(framed.array(), 0, framed.size()).flip();
+        this.message = message;
+        this.frame = buffer.asReadOnlyBuffer();
+        this.payloadOffset = framed.size() - payload.size();
+    }
+
+    /** 原消息 */
+    public Message getMessage() {
+        return message;
+    }
+
+    /**
+     * 帧的一份独立视图（含长度前缀），position 和 limit 各自维护，可以在任意线程写出
+     */
+    public ByteBuffer frame() {
+        return frame.duplicate();
+    }
+
+    /** 帧的总字节数（含长度前缀） */
+    public int size() {
+        return frame.limit();
+    }
+
+    /**
+     * 把帧内容（不含长度前缀）追加到 out
+     */
+    void copyPayloadTo(WireWriter out) {
+        ByteBuffer view = frame.duplicate();
+        view.position(payloadOffset);
+        out.writeBytes(view);
+    }
+}
@@ -0,0 +1,184 @@
+package com.stardewbombers.shared.protocol.codec;
+
+import com.stardewbombers.shared.protocol.WorldSnapshotMessage;
+import com.stardewbombers.shared.protocol.snapshot.BombState;
+import com.stardewbombers.shared.protocol.snapshot.PlayerState;
+import com.stardewbombers.shared.protocol.snapshot.SnapshotDelta;
+
+/**
+ * 快照增量的二进制编码
+ *
+ * 序号、基准距离（0 表示完整快照）、模拟时间；玩家为 id（驻留）+ 字段掩码 + 掩码中的字段；
+ * 按格子排序的列表（炸弹、道具、消失的格子）用差值编码，相邻格子通常只占 1 字节；
+ * 炸弹引信结束时间相对快照时间发送。
+ */
+final class SnapshotBodyCodec implements BinaryMessageCodec.BodyCodec<WorldSnapshotMessage> {
+    private static final int MAX_ENTRIES = 4096; // 单个列表的长度上限，防止恶意数据导致大量分配
+
+    @Override
+    public void write(WorldSnapshotMessage message, WireWriter out, StringTable strings) {
+        SnapshotDelta delta = message.getDelta();
+        out.writeVarLong(delta.getSequence());
+        out.writeVarLong(delta.isFull() ? 0 : delta.getSequence() - delta.getBaselineSequence());
+        out.writeVarLong(delta.getTimeMs());
+
+        PlayerState[] players = delta.getPlayers();
+        int[] masks = delta.getPlayerMasks();
+        out.writeVarInt(players.length);
+        for (int i = 0; i < players.length; i++) {
+            writePlayer(out, strings, players[i], masks[i]);
+        }
+        String[] removedPlayers = delta.getRemovedPlayers();
+        out.writeVarInt(removedPlayers.length);
+        for (String id : removedPlayers) {
+            strings.write(out, id);
+        }
+
+        BombState[] bombs = delta.getBombs();
+        out.writeVarInt(bombs.length);
+        int previous = 0;
+        for (BombState bomb : bombs) {
+            out.writeVarInt(bomb.getCell() - previous);
+            previous = bomb.getCell();
+            strings.write(out, bomb.getOwnerId());
+            out.writeVarInt(bomb.getRadius());
+            out.writeVarInt(bomb.getState());
+            out.writeSignedVarLong(bomb.getFuseEndMs() - delta.getTimeMs());
+            out.writeVarInt(bomb.getTotalFuseMs());
+        }
+        writeSortedCells(out, delta.getRemovedBombCells());
+
+        int[] destroyed = delta.getDestroyedCells();
+        out.writeVarInt(destroyed.length);
+        for (int cell : destroyed) {
+            out.writeVarInt(cell);
+        }
+
+        writeSortedCells(out, delta.getAddedItemCells());
+        for (byte type : delta.getAddedItemTypes()) {
+            out.writeByte(type);
+        }
+        writeSortedCells(out, delta.getRemovedItemCells());
+    }
+
+    @Override
+    public void read(WorldSnapshotMessage message, WireReader in, StringTable strings) throws ProtocolException {
+        long sequence = in.readVarLong();
+        long distance = in.readVarLong();
+        long timeMs = in.readVarLong();
+
+        int playerCount = readCount(in);
+        PlayerState[] players = new PlayerState[playerCount];
+        int[] masks = new int[playerCount];
+        for (int i = 0; i < playerCount; i++) {
+            String id = strings.read(in);
+            masks[i] = in.readVarInt();
+            players[i] = readPlayer(in, id, masks[i]);
+        }
+        String[] removedPlayers = new String[readCount(in)];
+        for (int i = 0; i < removedPlayers.length; i++) {
+            removedPlayers[i] = strings.read(in);
+        }
+
+        BombState[] bombs = new BombState[readCount(in)];
+        int previous = 0;
+        for (int i = 0; i < bombs.length; i++) {
+            int cell = previous + in.readVarInt();
+            previous = cell;
+            String owner = strings.read(in);
+            int radius = in.readVarInt();
+            int state = in.readVarInt();
+            long fuseEndMs = timeMs + in.readSignedVarLong();
+            bombs[i] = new BombState(cell, owner, radius, state, fuseEndMs, in.readVarInt());
+        }
+        int[] removedBombs = readSortedCells(in);
+
+        int[] destroyed = new int[readCount(in)];
+        for (int i = 0; i < destroyed.length; i++) {
+            destroyed[i] = in.readVarInt();
+        }
+
+        int[] addedItems = readSortedCells(in);
+        byte[] addedTypes = new byte[addedItems.length];
+        for (int i = 0; i < addedTypes.length; i++) {
+            addedTypes[i] = (byte) in.readByte();
+        }
+        int[] removedItems = readSortedCells(in);
+
+        long baseline = distance == 0 ? -1L : sequence - distance;
+        message.setDelta(new SnapshotDelta(sequence, baseline, timeMs, players, masks, removedPlayers,
+            bombs, removedBombs, destroyed, addedItems, addedTypes, removedItems));
+    }
+
+    private static void writePlayer(WireWriter out, StringTable strings, PlayerState player, int mask) {
+        strings.write(out, player.getId());
+        out.writeVarInt(mask);
+        if ((mask & PlayerState.FIELD_POSITION) != 0) {
+            out.writeSignedVarInt(player.getQuantizedX());
+            out.writeSignedVarInt(player.getQuantizedY());
+        }
+        if ((mask & PlayerState.FIELD_HEALTH) != 0) {
+            out.writeVarInt(player.getHealth());
+        }
+        if ((mask & PlayerState.FIELD_STATUS) != 0) {
+            out.writeVarInt(player.getStatus());
+        }
+        if ((mask & PlayerState.FIELD_BOMBS) != 0) {
+            out.writeVarInt(player.getBombCount());
+            out.writeVarInt(player.getBombPower());
+        }
+        if ((mask & PlayerState.FIELD_SPEED) != 0) {
+            out.writeVarInt(player.getQuantizedSpeed());
+        }
+        if ((mask & PlayerState.FIELD_INPUT) != 0) {
+            out.writeVarInt(player.getLastInput());
+        }
+    }
+
+    private static PlayerState readPlayer(WireReader in, String id, int mask) throws ProtocolException {
+        int x = 0;
+        int y = 0;
+        if ((mask & PlayerState.FIELD_POSITION) != 0) {
+            x = in.readSignedVarInt();
+            y = in.readSignedVarInt();
+        }
+        int health = (mask & PlayerState.FIELD_HEALTH) != 0 ? in.readVarInt() : 0;
+        int status = (mask & PlayerState.FIELD_STATUS) != 0 ? in.readVarInt() : 0;
+        int bombCount = 0;
+        int bombPower = 0;
+        if ((mask & PlayerState.FIELD_BOMBS) != 0) {
+            bombCount = in.readVarInt();
+            bombPower = in.readVarInt();
+        }
+        int speed = (mask & PlayerState.FIELD_SPEED) != 0 ? in.readVarInt() : 0;
+        int lastInput = (mask & PlayerState.FIELD_INPUT) != 0 ? in.readVarInt() : 0;
+        return new PlayerState(id, x, y, health, status, bombCount, bombPower, speed, lastInput);
+    }
+
+    private static void writeSortedCells(WireWriter out, int[] cells) {
+        out.writeVarInt(cells.length);
+        int previous = 0;
+        for (int cell : cells) {
+            out.writeVarInt(cell - previous);
+            previous = cell;
+        }
+    }
+
+    private static int[] readSortedCells(WireReader in) throws ProtocolException {
+        int[] cells = new int[readCount(in)];
+        int previous = 0;
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = previous + in.readVarInt();
+            previous = cells[i];
+        }
+        return cells;
+    }
+
+    private static int readCount(WireReader in) throws ProtocolException {
+        int count = in.readVarInt();
+        if (count < 0 || count > MAX_ENTRIES || count > in.remaining()) {
+            throw new ProtocolException("列表长度非法: " + count);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,76 @@
+package com.stardewbombers.shared.protocol.codec;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单方向的字符串驻留表（发送者 id、方向名等反复出现的字符串）
+ * 第一次出现时发送完整字符串并分配编号，之后只发送编号（通常 1 字节）。
+ * 编码端和解码端各持有一个实例，按相同规则分配编号，所以不需要额外同步表内容。
+ *
+ * 标记（varint）：0 = null，1 = 新字符串（后跟字符串内容），n >= 2 = 编号 n - 2 的字符串。
+ * 表满后新字符串照常发送但不再分配编号；容量为 0 的表不保存任何状态，可以多线程共用。
+ */
+public final class StringTable {
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final int TAG_NULL = 0;
+    private static final int TAG_LITERAL = 1;
+    private static final int TAG_FIRST_INDEX = 2;
+
+    private final int capacity;
+    private final Map<String, Integer> indexes = new HashMap<>(); // 编码端
+    private final List<String> values = new ArrayList<>();          // 解码端
+    private int size;
+
+    public StringTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public StringTable(int capacity) {
+        this.capacity = capacity;
+    }
+
+    public void write(WireWriter out, String value) {
+        if (value == null) {
+            out.writeVarInt(TAG_NULL);
+            return;
+        }
+        Integer index = indexes.get(value);
+        if (index != null) {
+            out.writeVarInt(TAG_FIRST_INDEX + index);
+            return;
+        }
+        out.writeVarInt(TAG_LITERAL);
+        out.writeString(value);
+        if (size < capacity) {
+            indexes.put(value, size++);
+        }
+    }
+
+    public String read(WireReader in) throws ProtocolException {
+        int tag = in.readVarInt();
+        if (tag == TAG_NULL) {
+            return null;
+        }
+        if (tag == TAG_LITERAL) {
+            String value = in.readString();
+            if (size < capacity) {
+                values.add(value);
+                size++;
+            }
+            return value;
+        }
+        int index = tag - TAG_FIRST_INDEX;
+        if (index < 0 || index >= values.size()) {
+            throw new ProtocolException("未知的字符串编号: " + index);
+        }
+        return values.get(index);
+    }
+
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,90 @@
+package com.stardewbombers.shared.protocol.codec;
+
+/**
+ * 连接使用的消息编码格式
+ *
+ * 连接建立后客户端先发送 4 字节握手：'S' 'B' 协议版本 格式编号，服务器检查版本后回复同样格式的握手，
+ * 之后双方只发送帧：varint 长度 + 编码后的消息。BINARY 是正常格式，JSON 用于调试（帧内容可以直接阅读）。
+ * 格式编号的最高位表示发送方的帧带压缩层（CompressingCodec）：客户端置位表示请求压缩，
+ * 服务器回复中置位表示同意，两个方向各自按对方的握手解码。
+ */
+public enum WireFormat {
+    BINARY(0),
+    JSON(1);
+
+    public static final int PROTOCOL_VERSION = 7; // 握手两端必须一致；消息编码或握手有不兼容的改动时加一
+    public static final int PREAMBLE_SIZE = 4;
+    private static final byte MAGIC_0 = 'S';
+    private static final byte MAGIC_1 = 'B';
+    private static final int COMPRESSED_FLAG = 0x80;
+
+    private final int id;
+
+    WireFormat(int id) {
+        this.id = id;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * 每个连接一个编解码器实例（编解码器带有连接状态）
+     */
+    public MessageCodec newCodec() {
+        return this == JSON ? new JsonMessageCodec() : new BinaryMessageCodec();
+    }
+
+    public byte[] preamble() {
+        return preamble(false);
+    }
+
+    /**
+     * @param compressed 本方发出的帧是否带压缩层
+     */
+    public byte[] preamble(boolean compressed) {
+        return new byte[] {MAGIC_0, MAGIC_1, (byte) PROTOCOL_VERSION, (byte) (id | (compressed ? COMPRESSED_FLAG : 0))};
+    }
+
+    /**
+     * 对方的握手是否声明了压缩（在 fromPreamble 检查通过之后调用）
+     */
+    public static boolean isCompressed(byte[] data, int offset) {
+        return (data[offset + 3] & COMPRESSED_FLAG) != 0;
+    }
+
+    /**
+     * 解析对方的握手
+     * @throws ProtocolException 不是本协议、版本不同或格式未知
+     */
+    public static WireFormat fromPreamble(byte[] data, int offset) throws ProtocolException {
+        if (data[offset] != MAGIC_0 || data[offset + 1] != MAGIC_1) {
+            throw new ProtocolException("握手标识不正确");
+        }
+        int version = data[offset + 2] & 0xFF;
+        if (version != PROTOCOL_VERSION) {
+            throw new ProtocolException("协议版本不兼容: 对方 " + version + "，本地 " + PROTOCOL_VERSION);
+        }
+        int formatId = data[offset + 3] & 0xFF & ~COMPRESSED_FLAG;
+        for (WireFormat format : values()) {
+            if (format.id == formatId) {
+                return format;
+            }
+        }
+        throw new ProtocolException("未知的编码格式: " + formatId);
+    }
+
+    /**
+     * 按名称解析（不区分大小写），无法识别时返回默认值
+     */
+    public static WireFormat parse(String name, WireFormat defaultFormat) {
+        if (name != null) {
+            for (WireFormat format : values()) {
+                if (format.name().equalsIgnoreCase(name.trim())) {
+                    return format;
+                }
+            }
+        }
+        return defaultFormat;
+    }
+}
@@ -0,0 +1,104 @@
+package com.stardewbombers.shared.protocol.codec;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 从字节数组的一段中读取 WireWriter 写出的数据
+ * 读越界或数据不合法时抛出 ProtocolException。可以 reset 到新的数据上复用。
+ */
+public final class WireReader {
+    private byte[] data;
+    private int position;
+    private int limit;
+
+    public WireReader() {
+        this(new byte[0], 0, 0);
+    }
+
+    public WireReader(byte[] data, int offset, int length) {
+        reset(data, offset, length);
+    }
+
+    public void reset(byte[] data, int offset, int length) {
+        this.data = data;
+        this.position = offset;
+        this.limit = offset + length;
+    }
+
+    public int remaining() {
+        return limit - position;
+    }
+
+    public byte[] array() {
+        return data;
+    }
+
+    public int position() {
+        return position;
+    }
+
+    public void skip(int length) throws ProtocolException {
+        require(length);
+        position += length;
+    }
+
+    public int readByte() throws ProtocolException {
+        require(1);
+        return data[position++] & 0xFF;
+    }
+
+    public boolean readBoolean() throws ProtocolException {
+        return readByte() != 0;
+    }
+
+    public int readVarInt() throws ProtocolException {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int b = readByte();
+            result |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new ProtocolException("varint 过长");
+    }
+
+    public long readVarLong() throws ProtocolException {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new ProtocolException("varlong 过长");
+    }
+
+    public int readSignedVarInt() throws ProtocolException {
+        int raw = readVarInt();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    public long readSignedVarLong() throws ProtocolException {
+        long raw = readVarLong();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    public String readString() throws ProtocolException {
+        int length = readVarInt();
+        if (length < 0) {
+            throw new ProtocolException("字符串长度非法: " + length);
+        }
+        require(length);
+        String value = new String(data, position, length, StandardCharsets.UTF_8);
+        position += length;
+        return value;
+    }
+
+    private void require(int length) throws ProtocolException {
+        if (length > limit - position) {
+            throw new ProtocolException("数据不完整：需要 " + length + " 字节，剩余 " + (limit - position));
+        }
+    }
+}
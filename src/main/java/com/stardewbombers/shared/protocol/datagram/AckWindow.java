@@ -0,0 +1,156 @@
+package com.stardewbombers.shared.protocol.datagram;
+
+/**
+ * 数据报通道一端的序号和确认状态
+ *
+ * 接收：记录收到的最新序号和它之前 32 个序号的接收位图（第 i 位表示 latest - 1 - i），随每个发出的包告诉对方；
+ * 比最新序号旧的包（乱序或重复）内容已经过时，onReceive 返回 false，由调用方丢弃。
+ * 发送：为每个发出的包分配序号并记录发送时间，对方的确认和位图到达后计算往返时间，
+ * 移出位图范围仍未确认的包计为丢失。需要可靠送达的消息（客户端的输入）在每个包中重发，
+ * 直到携带它的某个包被确认（isAcked）。
+ *
+ * 不是线程安全的，调用方负责同步。
+ */
+public final class AckWindow {
+    public static final int BITS = 32;
+    private static final int RING = 256; // 记录发送时间的包数，必须大于 BITS
+
+    private int latestReceived;   // 0 表示还没有收到
+    private int receivedBits;
+    private int nextSequence = 1;
+    private int latestAcked;      // 对方确认的最新序号
+    private int settledThrough;   // 该序号及之前的包已计入确认或丢失
+    private final long[] sentNanos = new long[RING];
+    private final boolean[] acked = new boolean[RING];
+    private long sentCount;
+    private long ackedCount;
+    private long lostCount;
+    private long staleCount;
+    private long smoothedRttNanos = -1;
+
+    /**
+     * 收到对方序号为 sequence 的包
+     * @return 是否是新的最新包；false 表示乱序或重复，内容应丢弃
+     */
+    public boolean onReceive(int sequence) {
+        if (sequence <= 0) {
+            return false;
+        }
+        if (sequence > latestReceived) {
+            int shift = sequence - latestReceived;
+            if (latestReceived == 0 || shift > BITS) {
+                receivedBits = 0; // 之前的最新包已经在位图范围之外
+            } else {
+                receivedBits = shift == BITS ? 0 : receivedBits << shift;
+                receivedBits |= 1 << (shift - 1);
+            }
+            latestReceived = sequence;
+            return true;
+        }
+        int age = latestReceived - sequence;
+        if (age >= 1 && age <= BITS) {
+            receivedBits |= 1 << (age - 1);
+        }
+        staleCount++;
+        return false;
+    }
+
+    public int getLatestReceived() {
+        return latestReceived;
+    }
+
+    public int getReceivedBits() {
+        return receivedBits;
+    }
+
+    /**
+     * 为下一个发出的包分配序号
+     */
+    public int nextSequence(long nowNanos) {
+        int sequence = nextSequence++;
+        sentNanos[sequence & (RING - 1)] = nowNanos;
+        acked[sequence & (RING - 1)] = false;
+        sentCount++;
+        // 超出记录范围的旧包不会再被确认
+        settleThrough(sequence - RING + BITS);
+        return sequence;
+    }
+
+    /**
+     * 处理对方包头中的确认：ack 是对方收到的最新序号，bits 是之前 32 个序号的接收位图
+     */
+    public void onAck(int ack, int bits, long nowNanos) {
+        if (ack <= 0 || ack >= nextSequence || ack < latestAcked - BITS) {
+            return;
+        }
+        markAcked(ack, nowNanos);
+        for (int i = 0; i < BITS; i++) {
+            if ((bits & (1 << i)) != 0) {
+                markAcked(ack - 1 - i, nowNanos);
+            }
+        }
+        if (ack > latestAcked) {
+            latestAcked = ack;
+            settleThrough(ack - BITS - 1);
+        }
+    }
+
+    /**
+     * 序号为 sequence 的包是否已被对方确认（太旧、已经不在记录范围内的包按未确认处理）
+     */
+    public boolean isAcked(int sequence) {
+        return sequence > 0 && sequence > nextSequence - RING && sequence < nextSequence
+            && acked[sequence & (RING - 1)];
+    }
+
+    public int getLatestAcked() {
+        return latestAcked;
+    }
+
+    private void markAcked(int sequence, long nowNanos) {
+        if (sequence <= settledThrough || sequence <= nextSequence - RING) {
+            return;
+        }
+        int slot = sequence & (RING - 1);
+        if (acked[slot]) {
+            return;
+        }
+        acked[slot] = true;
+        ackedCount++;
+        long rtt = nowNanos - sentNanos[slot];
+        smoothedRttNanos = smoothedRttNanos < 0 ? rtt : smoothedRttNanos + (rtt - smoothedRttNanos) / 8;
+    }
+
+    /**
+     * 把 sequence 及之前还没有确认的包计为丢失
+     */
+    private void settleThrough(int sequence) {
+        int last = Math.min(sequence, nextSequence - 1);
+        for (int s = Math.max(settledThrough + 1, nextSequence - RING); s <= last; s++) {
+            if (!acked[s & (RING - 1)]) {
+                lostCount++;
+            }
+        }
+        settledThrough = Math.max(settledThrough, last);
+    }
+
+    public long getSentCount() { return sentCount; }
+    public long getAckedCount() { return ackedCount; }
+    /** 超出确认位图范围仍未确认的包数 */
+    public long getLostCount() { return lostCount; }
+    /** 收到的乱序或重复包数 */
+    public long getStaleCount() { return staleCount; }
+
+    /**
+     * 丢包率（已经有结论的包中丢失的比例），还没有结论时为 0
+     */
+    public double getLossRatio() {
+        long settled = ackedCount + lostCount;
+        return settled == 0 ? 0.0 : (double) lostCount / settled;
+    }
+
+    /** 平滑往返时间（纳秒），没有样本时为 -1 */
+    public long getSmoothedRttNanos() {
+        return smoothedRttNanos;
+    }
+}
@@ -0,0 +1,96 @@
+package com.stardewbombers.shared.protocol.datagram;
+
+import com.stardewbombers.shared.protocol.Message;
+import com.stardewbombers.shared.protocol.MessageType;
+import com.stardewbombers.shared.protocol.PlaceBombMessage;
+import com.stardewbombers.shared.protocol.PlayerMoveMessage;
+import com.stardewbombers.shared.protocol.codec.BinaryMessageCodec;
+import com.stardewbombers.shared.protocol.codec.ProtocolException;
+import com.stardewbombers.shared.protocol.codec.WireReader;
+import com.stardewbombers.shared.protocol.codec.WireWriter;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 数据报通道的包格式
+ * 高频、只关心最新值的消息（移动、快照及其确认）可以走 UDP，一个丢失的包不会像 TCP 那样阻塞后面所有的数据；
+ * 带输入序号的放炸弹与移动共用一个序号，一起走客户端可靠重发的输入流，服务器按同一顺序收到；
+ * 加入、游戏结束等仍然走 TCP。数据报通道与 TCP 连接配对：服务器在 SERVER_RESPONSE 中告知 UDP 端口和令牌，
+ * 客户端发 HELLO（带令牌）直到收到服务器的 HELLO 回复，之后双方互发 DATA。
+ *
+ * 包：类型（1 字节）、令牌（varlong），DATA 还有：
+ * 本方向的包序号（varint，从 1 开始）、收到的最新对方序号（varint）、之前 32 个序号的接收位图（varint），
+ * 然后是若干条消息，每条为长度（varint）+ 独立帧（BinaryMessageCodec.encodeStandalone，与 SharedFrame 的字节相同）。
+ * 包的大小不超过 MAX_PACKET_BYTES，放不下的消息改走 TCP。
+ */
+public final class Datagrams {
+    public static final int HELLO = 1;
+    public static final int DATA = 2;
+    /** 包的大小上限：低于常见路径 MTU，避免 IP 分片 */
+    public static final int MAX_PACKET_BYTES = 1200;
+    /** 包头最多占用的字节数（类型 1 + 令牌 10 + 序号 5 + 确认 5 + 位图 5） */
+    public static final int MAX_HEADER_BYTES = 26;
+    /** 模拟丢包率，默认取 -Dstardew.net.udpLoss（0~1），用于在本机测试 */
+    public static final double DEFAULT_LOSS_RATE = Double.parseDouble(System.getProperty("stardew.net.udpLoss", "0"));
+
+    private Datagrams() {
+    }
+
+    public static void writeHello(WireWriter out, long token) {
+        out.writeByte(HELLO);
+        out.writeVarLong(token);
+    }
+
+    /**
+     * 写 DATA 包头，之后用 appendMessage 追加消息
+     */
+    public static void writeDataHeader(WireWriter out, long token, int sequence, AckWindow acks) {
+        out.writeByte(DATA);
+        out.writeVarLong(token);
+        out.writeVarInt(sequence);
+        out.writeVarInt(acks.getLatestReceived());
+        out.writeVarInt(acks.getReceivedBits());
+    }
+
+    /**
+     * 追加一条消息（长度 + 独立帧）
+     */
+    public static void appendMessage(WireWriter out, Message message, WireWriter scratch) {
+        scratch.reset();
+        BinaryMessageCodec.encodeStandalone(message, scratch);
+        out.writeVarInt(scratch.size());
+        out.writeBytes(scratch.array(), 0, scratch.size());
+    }
+
+    /**
+     * 读取包中剩余的下一条消息
+     */
+    public static Message readMessage(WireReader in, WireReader frame) throws ProtocolException {
+        int length = in.readVarInt();
+        if (length <= 0 || length > in.remaining()) {
+            throw new ProtocolException("数据报消息长度错误: " + length);
+        }
+        frame.reset(in.array(), in.position(), length);
+        in.skip(length);
+        return BinaryMessageCodec.decodeStandalone(frame);
+    }
+
+    /**
+     * 带序号输入（移动、放炸弹）的输入序号，其他消息或没有序号时为 0
+     */
+    public static int inputSequence(Message message) {
+        if (message.getType() == MessageType.PLAYER_MOVE) {
+            return ((PlayerMoveMessage) message).getInputSequence();
+        }
+        if (message.getType() == MessageType.PLACE_BOMB) {
+            return ((PlaceBombMessage) message).getInputSequence();
+        }
+        return 0;
+    }
+
+    /**
+     * 按模拟丢包率决定是否丢弃这个包
+     */
+    public static boolean simulateLoss(double lossRate) {
+        return lossRate > 0 && ThreadLocalRandom.current().nextDouble() < lossRate;
+    }
+}
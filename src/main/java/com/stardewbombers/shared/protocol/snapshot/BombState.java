@@ -0,0 +1,56 @@
+package com.stardewbombers.shared.protocol.snapshot;
+
+/**
+ * 快照中一个炸弹的状态，以所在格子下标为键（一个格子最多一个炸弹）
+ * 引信保存为结束时间（房间模拟时间），客户端用快照时间推算进度，所以倒计时本身不会让炸弹出现在增量中。
+ */
+public final class BombState {
+    private int cell;
+    private String ownerId;
+    private int radius;
+    private int state;
+    private long fuseEndMs;
+    private int totalFuseMs;
+
+    private BombState() {
+        // JSON 调试格式反序列化用
+    }
+
+    public BombState(int cell, String ownerId, int radius, int state, long fuseEndMs, int totalFuseMs) {
+        this.cell = cell;
+        this.ownerId = ownerId;
+        this.radius = radius;
+        this.state = state;
+        this.fuseEndMs = fuseEndMs;
+        this.totalFuseMs = totalFuseMs;
+    }
+
+    public int getCell() { return cell; }
+    public String getOwnerId() { return ownerId; }
+    public int getRadius() { return radius; }
+    public int getState() { return state; }
+    public long getFuseEndMs() { return fuseEndMs; }
+    public int getTotalFuseMs() { return totalFuseMs; }
+
+    /**
+     * 引信进度（0 刚放置 - 1 引爆）
+     */
+    public double getFuseProgress(long nowMs) {
+        if (totalFuseMs <= 0) {
+            return 1.0;
+        }
+        double remaining = Math.max(0, fuseEndMs - nowMs);
+        return Math.max(0.0, Math.min(1.0, 1.0 - remaining / totalFuseMs));
+    }
+
+    boolean sameAs(BombState other) {
+        return cell == other.cell && radius == other.radius && state == other.state
+            && fuseEndMs == other.fuseEndMs && totalFuseMs == other.totalFuseMs
+            && (ownerId == null ? other.ownerId == null : ownerId.equals(other.ownerId));
+    }
+
+    @Override
+    public String toString() {
+        return "Bomb[cell=" + cell + " owner=" + ownerId + " r=" + radius + " state=" + state + " fuseEnd=" + fuseEndMs + "]";
+    }
+}
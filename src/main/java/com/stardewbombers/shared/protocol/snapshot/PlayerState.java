@@ -0,0 +1,115 @@
+package com.stardewbombers.shared.protocol.snapshot;
+
+/**
+ * 快照中一个玩家的状态
+ * 坐标和速度保存为量化后的整数，比较是否变化时不受浮点误差影响。
+ */
+public final class PlayerState {
+    /** 坐标量化精度：每像素的单位数（与二进制编码的坐标精度相同） */
+    public static final int POSITION_SCALE = 8;
+    /** 速度量化精度 */
+    public static final int SPEED_SCALE = 100;
+
+    // 增量中的字段掩码
+    public static final int FIELD_POSITION = 1;
+    public static final int FIELD_HEALTH = 1 << 1;
+    public static final int FIELD_STATUS = 1 << 2;
+    public static final int FIELD_BOMBS = 1 << 3;   // 炸弹数量和威力
+    public static final int FIELD_SPEED = 1 << 4;
+    public static final int FIELD_INPUT = 1 << 5;   // 服务器已处理的最后一个输入序号
+    public static final int ALL_FIELDS = FIELD_POSITION | FIELD_HEALTH | FIELD_STATUS | FIELD_BOMBS | FIELD_SPEED
+        | FIELD_INPUT;
+
+    private String id;
+    private int x;
+    private int y;
+    private int health;
+    private int status;
+    private int bombCount;
+    private int bombPower;
+    private int speed;
+    private int lastInput;  // 客户端预测用来确定哪些输入已经生效，0 表示还没有
+
+    private PlayerState() {
+        // JSON 调试格式反序列化用
+    }
+
+    public PlayerState(String id, int x, int y, int health, int status, int bombCount, int bombPower, int speed,
+                       int lastInput) {
+        this.id = id;
+        this.x = x;
+        this.y = y;
+        this.health = health;
+        this.status = status;
+        this.bombCount = bombCount;
+        this.bombPower = bombPower;
+        this.speed = speed;
+        this.lastInput = lastInput;
+    }
+
+    /**
+     * 从世界坐标和实际速度创建（负责量化）
+     */
+    public static PlayerState of(String id, double worldX, double worldY, int health, int status,
+                                 int bombCount, int bombPower, double speed, int lastInput) {
+        return new PlayerState(id, quantize(worldX, POSITION_SCALE), quantize(worldY, POSITION_SCALE), health, status,
+            bombCount, bombPower, quantize(speed, SPEED_SCALE), lastInput);
+    }
+
+    /**
+     * 与 baseline 相比发生变化的字段
+     */
+    public int diffMask(PlayerState baseline) {
+        int mask = 0;
+        if (x != baseline.x || y != baseline.y) mask |= FIELD_POSITION;
+        if (health != baseline.health) mask |= FIELD_HEALTH;
+        if (status != baseline.status) mask |= FIELD_STATUS;
+        if (bombCount != baseline.bombCount || bombPower != baseline.bombPower) mask |= FIELD_BOMBS;
+        if (speed != baseline.speed) mask |= FIELD_SPEED;
+        if (lastInput != baseline.lastInput) mask |= FIELD_INPUT;
+        return mask;
+    }
+
+    /**
+     * 以 baseline 为基础，用本对象中 mask 指定的字段覆盖
+     */
+    public PlayerState mergeInto(PlayerState baseline, int mask) {
+        if (baseline == null || mask == ALL_FIELDS) {
+            return this;
+        }
+        boolean position = (mask & FIELD_POSITION) != 0;
+        boolean bombs = (mask & FIELD_BOMBS) != 0;
+        return new PlayerState(id,
+            position ? x : baseline.x,
+            position ? y : baseline.y,
+            (mask & FIELD_HEALTH) != 0 ? health : baseline.health,
+            (mask & FIELD_STATUS) != 0 ? status : baseline.status,
+            bombs ? bombCount : baseline.bombCount,
+            bombs ? bombPower : baseline.bombPower,
+            (mask & FIELD_SPEED) != 0 ? speed : baseline.speed,
+            (mask & FIELD_INPUT) != 0 ? lastInput : baseline.lastInput);
+    }
+
+    public String getId() { return id; }
+    public int getQuantizedX() { return x; }
+    public int getQuantizedY() { return y; }
+    public double getX() { return x / (double) POSITION_SCALE; }
+    public double getY() { return y / (double) POSITION_SCALE; }
+    public int getHealth() { return health; }
+    public int getStatus() { return status; }
+    public int getBombCount() { return bombCount; }
+    public int getBombPower() { return bombPower; }
+    public int getQuantizedSpeed() { return speed; }
+    public double getSpeed() { return speed / (double) SPEED_SCALE; }
+    public int getLastInput() { return lastInput; }
+
+    static int quantize(double value, int scale) {
+        return (int) Math.round(value * scale);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Player[%s (%.1f, %.1f) hp=%d status=%d bombs=%d/%d input=%d]",
+            id, getX(), getY(), health, status, bombCount, bombPower, lastInput);
+    }
+}
@@ -0,0 +1,295 @@
+package com.stardewbombers.shared.protocol.snapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 快照增量：把基准快照变成目标快照需要的最少信息
+ * 玩家只包含变化的字段（掩码），炸弹和道具只包含新增、变化和消失的格子，已破坏格子只包含新破坏的部分。
+ * 基准序号为 -1 时是完整快照（相对 WorldSnapshot.EMPTY）。
+ */
+public final class SnapshotDelta {
+    private long sequence;
+    private long baselineSequence;
+    private long timeMs;
+    private PlayerState[] players;      // 新增或变化的玩家
+    private int[] playerMasks;          // 对应玩家变化的字段
+    private String[] removedPlayers;
+    private BombState[] bombs;          // 新增或变化的炸弹，按格子排序
+    private int[] removedBombCells;     // 按格子排序
+    private int[] destroyedCells;       // 新破坏的格子（按破坏顺序）
+    private int[] addedItemCells;       // 按格子排序
+    private byte[] addedItemTypes;
+    private int[] removedItemCells;     // 按格子排序
+
+    private SnapshotDelta() {
+        // JSON 调试格式反序列化用
+    }
+
+    public SnapshotDelta(long sequence, long baselineSequence, long timeMs,
+                         PlayerState[] players, int[] playerMasks, String[] removedPlayers,
+                         BombState[] bombs, int[] removedBombCells, int[] destroyedCells,
+                         int[] addedItemCells, byte[] addedItemTypes, int[] removedItemCells) {
+        this.sequence = sequence;
+        this.baselineSequence = baselineSequence;
+        this.timeMs = timeMs;
+        this.players = players;
+        this.playerMasks = playerMasks;
+        this.removedPlayers = removedPlayers;
+        this.bombs = bombs;
+        this.removedBombCells = removedBombCells;
+        this.destroyedCells = destroyedCells;
+        this.addedItemCells = addedItemCells;
+        this.addedItemTypes = addedItemTypes;
+        this.removedItemCells = removedItemCells;
+    }
+
+    /**
+     * 计算 current 相对 baseline 的增量
+     * @param baseline 客户端已确认的快照，null 表示生成完整快照
+     */
+    public static SnapshotDelta diff(WorldSnapshot baseline, WorldSnapshot current) {
+        boolean full = baseline == null;
+        WorldSnapshot base = full ? WorldSnapshot.EMPTY : baseline;
+
+        List<PlayerState> players = new ArrayList<>();
+        int[] masks = new int[current.players().length];
+        for (PlayerState player : current.players()) {
+            PlayerState old = base.findPlayer(player.getId());
+            int mask = old == null ? PlayerState.ALL_FIELDS : player.diffMask(old);
+            if (mask != 0) {
+                masks[players.size()] = mask;
+                players.add(player);
+            }
+        }
+        List<String> removedPlayers = new ArrayList<>();
+        for (PlayerState old : base.players()) {
+            if (current.findPlayer(old.getId()) == null) {
+                removedPlayers.add(old.getId());
+            }
+        }
+
+        // 炸弹：两边都按格子排序，归并比较
+        List<BombState> bombs = new ArrayList<>();
+        IntList removedBombs = new IntList();
+        BombState[] oldBombs = base.bombs();
+        BombState[] newBombs = current.bombs();
+        int i = 0;
+        int j = 0;
+        while (i < oldBombs.length || j < newBombs.length) {
+            int oldCell = i < oldBombs.length ? oldBombs[i].getCell() : Integer.MAX_VALUE;
+            int newCell = j < newBombs.length ? newBombs[j].getCell() : Integer.MAX_VALUE;
+            if (oldCell < newCell) {
+                removedBombs.add(oldCell);
+                i++;
+            } else if (newCell < oldCell) {
+                bombs.add(newBombs[j++]);
+            } else {
+                if (!newBombs[j].sameAs(oldBombs[i])) {
+                    bombs.add(newBombs[j]);
+                }
+                i++;
+                j++;
+            }
+        }
+
+        // 道具：同样归并，类型变化视为新增（覆盖）
+        IntList addedItems = new IntList();
+        IntList addedTypes = new IntList();
+        IntList removedItems = new IntList();
+        int[] oldItems = base.itemCells();
+        int[] newItems = current.itemCells();
+        i = 0;
+        j = 0;
+        while (i < oldItems.length || j < newItems.length) {
+            int oldCell = i < oldItems.length ? oldItems[i] : Integer.MAX_VALUE;
+            int newCell = j < newItems.length ? newItems[j] : Integer.MAX_VALUE;
+            if (oldCell < newCell) {
+                removedItems.add(oldCell);
+                i++;
+            } else if (newCell < oldCell || current.itemTypes()[j] != base.itemTypes()[i]) {
+                addedItems.add(newCell);
+                addedTypes.add(current.itemTypes()[j]);
+                if (newCell == oldCell) {
+                    i++;
+                }
+                j++;
+            } else {
+                i++;
+                j++;
+            }
+        }
+
+        int[] oldDestroyed = base.destroyedCells();
+        int[] newDestroyed = current.destroyedCells();
+        int[] destroyed = newDestroyed.length > oldDestroyed.length
+            ? Arrays.copyOfRange(newDestroyed, oldDestroyed.length, newDestroyed.length) : new int[0];
+
+        byte[] itemTypes = new byte[addedTypes.size()];
+        for (int k = 0; k < itemTypes.length; k++) {
+            itemTypes[k] = (byte) addedTypes.get(k);
+        }
+        return new SnapshotDelta(current.getSequence(), full ? -1L : baseline.getSequence(), current.getTimeMs(),
+            players.toArray(new PlayerState[0]), Arrays.copyOf(masks, players.size()),
+            removedPlayers.toArray(new String[0]), bombs.toArray(new BombState[0]), removedBombs.toArray(),
+            destroyed, addedItems.toArray(), itemTypes, removedItems.toArray());
+    }
+
+    /**
+     * 在基准快照上应用增量，得到目标快照
+     * @param baseline 序号必须等于 getBaselineSequence()（完整快照时忽略）
+     */
+    public WorldSnapshot apply(WorldSnapshot baseline) {
+        WorldSnapshot base = isFull() ? WorldSnapshot.EMPTY : baseline;
+        if (!isFull() && (baseline == null || baseline.getSequence() != baselineSequence)) {
+            throw new IllegalArgumentException("基准快照不匹配: 需要 #" + baselineSequence
+                + "，实际 " + (baseline != null ? "#" + baseline.getSequence() : "null"));
+        }
+
+        List<PlayerState> players = new ArrayList<>();
+        for (PlayerState old : base.players()) {
+            if (!contains(removedPlayers, old.getId())) {
+                int index = indexOfPlayer(old.getId());
+                players.add(index >= 0 ? this.players[index].mergeInto(old, playerMasks[index]) : old);
+            }
+        }
+        for (PlayerState player : this.players) {
+            if (base.findPlayer(player.getId()) == null) {
+                players.add(player);
+            }
+        }
+
+        List<BombState> bombs = new ArrayList<>();
+        BombState[] oldBombs = base.bombs();
+        int i = 0;
+        int j = 0;
+        while (i < oldBombs.length || j < this.bombs.length) {
+            int oldCell = i < oldBombs.length ? oldBombs[i].getCell() : Integer.MAX_VALUE;
+            int newCell = j < this.bombs.length ? this.bombs[j].getCell() : Integer.MAX_VALUE;
+            if (newCell <= oldCell) {
+                bombs.add(this.bombs[j++]);
+                if (newCell == oldCell) {
+                    i++;
+                }
+            } else {
+                if (Arrays.binarySearch(removedBombCells, oldCell) < 0) {
+                    bombs.add(oldBombs[i]);
+                }
+                i++;
+            }
+        }
+
+        IntList itemCells = new IntList();
+        IntList itemTypes = new IntList();
+        int[] oldItems = base.itemCells();
+        i = 0;
+        j = 0;
+        while (i < oldItems.length || j < addedItemCells.length) {
+            int oldCell = i < oldItems.length ? oldItems[i] : Integer.MAX_VALUE;
+            int newCell = j < addedItemCells.length ? addedItemCells[j] : Integer.MAX_VALUE;
+            if (newCell <= oldCell) {
+                itemCells.add(newCell);
+                itemTypes.add(addedItemTypes[j++]);
+                if (newCell == oldCell) {
+                    i++;
+                }
+            } else {
+                if (Arrays.binarySearch(removedItemCells, oldCell) < 0) {
+                    itemCells.add(oldCell);
+                    itemTypes.add(base.itemTypes()[i]);
+                }
+                i++;
+            }
+        }
+        byte[] types = new byte[itemTypes.size()];
+        for (int k = 0; k < types.length; k++) {
+            types[k] = (byte) itemTypes.get(k);
+        }
+
+        int[] oldDestroyed = base.destroyedCells();
+        int[] destroyed = Arrays.copyOf(oldDestroyed, oldDestroyed.length + destroyedCells.length);
+        System.arraycopy(destroyedCells, 0, destroyed, oldDestroyed.length, destroyedCells.length);
+
+        return new WorldSnapshot(sequence, timeMs, players.toArray(new PlayerState[0]),
+            bombs.toArray(new BombState[0]), destroyed, itemCells.toArray(), types);
+    }
+
+    public boolean isFull() {
+        return baselineSequence < 0;
+    }
+
+    public long getSequence() { return sequence; }
+    public long getBaselineSequence() { return baselineSequence; }
+    public long getTimeMs() { return timeMs; }
+    public PlayerState[] getPlayers() { return players; }
+    public int[] getPlayerMasks() { return playerMasks; }
+    public String[] getRemovedPlayers() { return removedPlayers; }
+    public BombState[] getBombs() { return bombs; }
+    public int[] getRemovedBombCells() { return removedBombCells; }
+    public int[] getDestroyedCells() { return destroyedCells; }
+    public int[] getAddedItemCells() { return addedItemCells; }
+    public byte[] getAddedItemTypes() { return addedItemTypes; }
+    public int[] getRemovedItemCells() { return removedItemCells; }
+
+    /**
+     * 没有任何变化（只推进了序号和时间）
+     */
+    public boolean isEmpty() {
+        return players.length == 0 && removedPlayers.length == 0 && bombs.length == 0
+            && removedBombCells.length == 0 && destroyedCells.length == 0
+            && addedItemCells.length == 0 && removedItemCells.length == 0;
+    }
+
+    private int indexOfPlayer(String id) {
+        for (int k = 0; k < players.length; k++) {
+            if (players[k].getId().equals(id)) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean contains(String[] values, String value) {
+        for (String v : values) {
+            if (v.equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SnapshotDelta[#%d base=%d players=%d/-%d bombs=%d/-%d destroyed=%d items=%d/-%d]",
+            sequence, baselineSequence, players.length, removedPlayers.length, bombs.length, removedBombCells.length,
+            destroyedCells.length, addedItemCells.length, removedItemCells.length);
+    }
+
+    /**
+     * 简单的 int 动态数组，避免装箱
+     */
+    private static final class IntList {
+        private int[] values = new int[8];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
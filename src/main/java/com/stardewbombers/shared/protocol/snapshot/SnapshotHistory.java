@@ -0,0 +1,54 @@
+package com.stardewbombers.shared.protocol.snapshot;
+
+import java.util.Arrays;
+
+/**
+ * 最近若干个快照的环形缓冲区，按序号查找
+ * 服务器用它找到客户端已确认的基准快照，客户端用它找到增量引用的基准快照。
+ * 不是线程安全的。
+ */
+public final class SnapshotHistory {
+    public static final int DEFAULT_CAPACITY = 64; // 60Hz 下约 1 秒
+
+    private final WorldSnapshot[] ring;
+    private WorldSnapshot latest;
+
+    public SnapshotHistory() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public SnapshotHistory(int capacity) {
+        this.ring = new WorldSnapshot[capacity];
+    }
+
+    public void put(WorldSnapshot snapshot) {
+        ring[slot(snapshot.getSequence())] = snapshot;
+        if (latest == null || snapshot.getSequence() > latest.getSequence()) {
+            latest = snapshot;
+        }
+    }
+
+    /**
+     * 按序号查找，已被覆盖或从未保存时返回 null
+     */
+    public WorldSnapshot get(long sequence) {
+        if (sequence < 0) {
+            return null;
+        }
+        WorldSnapshot snapshot = ring[slot(sequence)];
+        return snapshot != null && snapshot.getSequence() == sequence ? snapshot : null;
+    }
+
+    public WorldSnapshot getLatest() {
+        return latest;
+    }
+
+    public void clear() {
+        Arrays.fill(ring, null);
+        latest = null;
+    }
+
+    private int slot(long sequence) {
+        return (int) Math.floorMod(sequence, (long) ring.length);
+    }
+}
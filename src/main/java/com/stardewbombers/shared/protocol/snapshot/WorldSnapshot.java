@@ -0,0 +1,113 @@
+package com.stardewbombers.shared.protocol.snapshot;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * 房间在某个 tick 的权威状态：玩家、炸弹、已破坏的格子、地上的道具
+ * 创建后不再修改，服务器的快照历史和客户端重建的快照都可以安全共享。
+ *
+ * 炸弹和道具按格子下标排序；已破坏格子按破坏顺序排列（地图的破坏记录只追加，
+ * 所以较早快照的 destroyedCells 一定是较晚快照的前缀）。
+ */
+public final class WorldSnapshot {
+    /** 空快照：完整快照就是相对它的增量 */
+    public static final WorldSnapshot EMPTY = new WorldSnapshot(-1L, 0L, new PlayerState[0], new BombState[0],
+        new int[0], new int[0], new byte[0]);
+
+    private long sequence;
+    private long timeMs;
+    private PlayerState[] players;
+    private BombState[] bombs;
+    private int[] destroyedCells;
+    private int[] itemCells;
+    private byte[] itemTypes;   // 与 itemCells 对应的 PowerUpType 序号
+
+    private WorldSnapshot() {
+        // JSON 调试格式反序列化用
+    }
+
+    public WorldSnapshot(long sequence, long timeMs, PlayerState[] players, BombState[] bombs,
+                         int[] destroyedCells, int[] itemCells, byte[] itemTypes) {
+        this.sequence = sequence;
+        this.timeMs = timeMs;
+        this.players = players;
+        this.bombs = bombs;
+        this.destroyedCells = destroyedCells;
+        this.itemCells = itemCells;
+        this.itemTypes = itemTypes;
+    }
+
+    /** 快照序号（房间内递增） */
+    public long getSequence() { return sequence; }
+    /** 房间模拟时间（毫秒） */
+    public long getTimeMs() { return timeMs; }
+    public int getPlayerCount() { return players.length; }
+    public PlayerState getPlayer(int i) { return players[i]; }
+    public int getBombCount() { return bombs.length; }
+    public BombState getBomb(int i) { return bombs[i]; }
+    public int getDestroyedCount() { return destroyedCells.length; }
+    public int getDestroyedCell(int i) { return destroyedCells[i]; }
+    public int getItemCount() { return itemCells.length; }
+    public int getItemCell(int i) { return itemCells[i]; }
+    public int getItemType(int i) { return itemTypes[i]; }
+
+    public PlayerState findPlayer(String id) {
+        for (PlayerState player : players) {
+            if (player.getId().equals(id)) {
+                return player;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 只保留可见的玩家、炸弹和道具（兴趣区域过滤），序号和时间不变；全部可见时返回自身。
+     * 已破坏格子不过滤：它是只追加的记录，过滤后不再满足前缀关系，而且每个格子只出现一次，数据量很小。
+     */
+    public WorldSnapshot filter(Predicate<PlayerState> playerVisible, IntPredicate cellVisible) {
+        PlayerState[] visiblePlayers = new PlayerState[players.length];
+        int playerCount = 0;
+        for (PlayerState player : players) {
+            if (playerVisible.test(player)) {
+                visiblePlayers[playerCount++] = player;
+            }
+        }
+        BombState[] visibleBombs = new BombState[bombs.length];
+        int bombCount = 0;
+        for (BombState bomb : bombs) {
+            if (cellVisible.test(bomb.getCell())) {
+                visibleBombs[bombCount++] = bomb;
+            }
+        }
+        int[] visibleItemCells = new int[itemCells.length];
+        byte[] visibleItemTypes = new byte[itemTypes.length];
+        int itemCount = 0;
+        for (int i = 0; i < itemCells.length; i++) {
+            if (cellVisible.test(itemCells[i])) {
+                visibleItemCells[itemCount] = itemCells[i];
+                visibleItemTypes[itemCount++] = itemTypes[i];
+            }
+        }
+        if (playerCount == players.length && bombCount == bombs.length && itemCount == itemCells.length) {
+            return this;
+        }
+        return new WorldSnapshot(sequence, timeMs, Arrays.copyOf(visiblePlayers, playerCount),
+            Arrays.copyOf(visibleBombs, bombCount), destroyedCells,
+            Arrays.copyOf(visibleItemCells, itemCount), Arrays.copyOf(visibleItemTypes, itemCount));
+    }
+
+    // 以下供 SnapshotDelta 计算和应用增量
+    PlayerState[] players() { return players; }
+    BombState[] bombs() { return bombs; }
+    int[] destroyedCells() { return destroyedCells; }
+    int[] itemCells() { return itemCells; }
+    byte[] itemTypes() { return itemTypes; }
+
+    @Override
+    public String toString() {
+        return String.format("WorldSnapshot[#%d t=%dms players=%d bombs=%d destroyed=%d items=%d]",
+            sequence, timeMs, players.length, bombs.length, destroyedCells.length, itemCells.length);
+    }
+}
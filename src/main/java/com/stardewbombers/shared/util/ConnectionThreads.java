@@ -0,0 +1,24 @@
+package com.stardewbombers.shared.util;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 连接处理线程的创建方式
+ * 虚拟线程模式下每个连接仍然是一个阻塞读写的线程，但线程由 JVM 调度到少量载体线程上，
+ * 阻塞在 Socket 读写时不占用操作系统线程，一个进程可以同时保持上万个连接。
+ */
+public final class ConnectionThreads {
+    private ConnectionThreads() {
+    }
+
+    /**
+     * @param virtual true 使用虚拟线程，false 使用平台线程
+     * @param namePrefix 线程名前缀，后面追加从0开始的序号
+     */
+    public static ThreadFactory factory(boolean virtual, String namePrefix) {
+        if (virtual) {
+            return Thread.ofVirtual().name(namePrefix, 0).factory();
+        }
+        return Thread.ofPlatform().name(namePrefix, 0).factory();
+    }
+}
@@ -1,34 +1,83 @@
 package com.stardewbombers.shared.util;
 
-//import com.google.gson.Gson;
-//import com.google.gson.GsonBuilder;
-
-//public class JsonUtil {
-//    private static final Gson gson = new GsonBuilder()
-//            .setPrettyPrinting()
-//            .create();
-//
-//    public static String toJson(Object obj) {
-//        return gson.toJson(obj);
-//    }
-//
-//    public static <T> T fromJson(String json, Class<T> clazz) {
-//        try {
-//            return gson.fromJson(json, clazz);
-//        } catch (Exception e) {
-//            System.err.println("JSON解析失败: " + e.getMessage());
-//            return null;
-//        }
-//    }
-//}
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.stardewbombers.shared.protocol.Message;
+import javafx.geometry.Point2D;
 
+import java.io.IOException;
+
+/**
+ * JSON 工具（Jackson）
+ * 按字段序列化（快照等只有只读访问方法的类也能往返），Point2D 序列化为 {"x":..,"y":..}；
+ * 消息的帧序号由编解码器按连接设置，不参与序列化。
+ */
 public class JsonUtil {
+    private static final ObjectMapper MAPPER = createMapper();
+
     public static String toJson(Object obj) {
-        return obj.toString(); // 临时方案
+        try {
+            return MAPPER.writeValueAsString(obj);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("JSON序列化失败: " + e.getMessage(), e);
+        }
     }
 
     public static <T> T fromJson(String json, Class<T> clazz) {
-        System.out.println("收到: " + json);
-        return null; // 临时返回null
+        try {
+            return MAPPER.readValue(json, clazz);
+        } catch (IOException e) {
+            System.err.println("JSON解析失败: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 共用的 ObjectMapper（线程安全），供 JsonMessageCodec 等直接使用
+     */
+    public static ObjectMapper mapper() {
+        return MAPPER;
+    }
+
+    private static ObjectMapper createMapper() {
+        SimpleModule module = new SimpleModule("stardew");
+        module.addSerializer(Point2D.class, new JsonSerializer<Point2D>() {
+            @Override
+            public void serialize(Point2D value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+                gen.writeStartObject();
+                gen.writeNumberField("x", value.getX());
+                gen.writeNumberField("y", value.getY());
+                gen.writeEndObject();
+            }
+        });
+        module.addDeserializer(Point2D.class, new JsonDeserializer<Point2D>() {
+            @Override
+            public Point2D deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+                JsonNode node = parser.getCodec().readTree(parser);
+                return new Point2D(node.path("x").asDouble(), node.path("y").asDouble());
+            }
+        });
+        module.setMixInAnnotation(Message.class, MessageMixIn.class);
+        return new ObjectMapper()
+            .registerModule(module)
+            .setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE)
+            .setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY)
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+
+    private abstract static class MessageMixIn {
+        @JsonIgnore
+        private long frameSequence;
     }
 }
@@ -0,0 +1,106 @@
+package com.stardewbombers.shared.util;
+
+/**
+ * 一个连接的往返时间（RTT）和抖动统计，由心跳驱动
+ * 平滑 RTT 按 TCP 的方式更新（新样本占 1/8），抖动按 RFC 3550 的方式更新
+ * （相邻两次 RTT 之差的绝对值，新样本占 1/16），样本同时记入直方图（微秒）。
+ * 另外记录最近一次收到对方数据的时间，用来发现空闲或半开的连接。
+ *
+ * 线程安全：接收线程记录，心跳线程和统计读取可以同时调用。
+ */
+public class LatencyTracker {
+    private final LogHistogram rttMicros = new LogHistogram();
+    private final LogHistogram jitterMicros = new LogHistogram();
+    private long smoothedRttNanos = -1L;
+    private long jitterNanos;
+    private long lastRttNanos = -1L;
+    private long sentPings;
+    private long lastEchoedPing;
+    private volatile long lastReceivedNanos;
+
+    public LatencyTracker() {
+        this.lastReceivedNanos = System.nanoTime();
+    }
+
+    /**
+     * 下一个 ping 的序号（从1开始）
+     */
+    public synchronized long nextPingId() {
+        return ++sentPings;
+    }
+
+    /**
+     * 收到对方的任何数据
+     */
+    public void onReceive(long nowNanos) {
+        lastReceivedNanos = nowNanos;
+    }
+
+    /**
+     * 收到自己 ping 的回显；重复、乱序或伪造的回显被忽略
+     * @return 本次往返时间（纳秒），回显无效时返回 -1
+     */
+    public synchronized long onEcho(long pingId, long originNanos, long nowNanos) {
+        if (pingId <= lastEchoedPing || pingId > sentPings || originNanos > nowNanos) {
+            return -1L;
+        }
+        lastEchoedPing = pingId;
+        long rtt = nowNanos - originNanos;
+        if (smoothedRttNanos < 0) {
+            smoothedRttNanos = rtt;
+        } else {
+            smoothedRttNanos += (rtt - smoothedRttNanos) >> 3;
+        }
+        if (lastRttNanos >= 0) {
+            long delta = Math.abs(rtt - lastRttNanos);
+            jitterNanos += (delta - jitterNanos) >> 4;
+            jitterMicros.record(delta / 1_000);
+        }
+        lastRttNanos = rtt;
+        rttMicros.record(rtt / 1_000);
+        return rtt;
+    }
+
+    /**
+     * 距离最近一次收到数据的时间（纳秒）
+     */
+    public long getIdleNanos(long nowNanos) {
+        return nowNanos - lastReceivedNanos;
+    }
+
+    /** 平滑往返时间（微秒），还没有样本时为 -1 */
+    public synchronized long getSmoothedRttMicros() {
+        return smoothedRttNanos < 0 ? -1L : smoothedRttNanos / 1_000;
+    }
+
+    /** 平滑抖动（微秒） */
+    public synchronized long getJitterMicros() {
+        return jitterNanos / 1_000;
+    }
+
+    public synchronized long getSampleCount() {
+        return rttMicros.getCount();
+    }
+
+    /** 往返时间分布（微秒，副本） */
+    public synchronized LogHistogram getRttHistogram() {
+        LogHistogram copy = new LogHistogram();
+        copy.merge(rttMicros);
+        return copy;
+    }
+
+    /** 相邻两次往返时间之差的分布（微秒，副本） */
+    public synchronized LogHistogram getJitterHistogram() {
+        LogHistogram copy = new LogHistogram();
+        copy.merge(jitterMicros);
+        return copy;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("rtt=%.1fms jitter=%.1fms p50=%.1fms p99=%.1fms samples=%d",
+            getSmoothedRttMicros() / 1000.0, getJitterMicros() / 1000.0,
+            rttMicros.getValueAtPercentile(50) / 1000.0, rttMicros.getValueAtPercentile(99) / 1000.0,
+            rttMicros.getCount());
+    }
+}
@@ -0,0 +1,167 @@
+package com.stardewbombers.shared.util;
+
+import java.util.Arrays;
+
+/**
+ * 对数-线性分桶的直方图（与 HdrHistogram 相同的分桶方式）
+ * 小于 2×子桶数 的值精确记录，更大的值按2的幂分段，每段再等分为固定数量的子桶，
+ * 相对误差不超过 1/子桶数。桶数组大小固定，记录时不分配对象，两个相同精度的直方图可以合并。
+ *
+ * 非线程安全：每个线程使用自己的直方图，最后用 merge 汇总。
+ */
+public class LogHistogram {
+    public static final int DEFAULT_PRECISION_BITS = 5; // 每段32个子桶，误差约3%
+
+    private final int precisionBits;
+    private final int subBucketCount;
+    private final long[] counts;
+    private long totalCount;
+    private long min = Long.MAX_VALUE;
+    private long max;
+    private double sum;
+
+    public LogHistogram() {
+        this(DEFAULT_PRECISION_BITS);
+    }
+
+    /**
+     * @param precisionBits 每段子桶数的位数（1-16）
+     */
+    public LogHistogram(int precisionBits) {
+        if (precisionBits < 1 || precisionBits > 16) {
+            throw new IllegalArgumentException("精度位数必须在1-16之间: " + precisionBits);
+        }
+        this.precisionBits = precisionBits;
+        this.subBucketCount = 1 << precisionBits;
+        this.counts = new long[(64 - precisionBits) * subBucketCount];
+    }
+
+    /**
+     * 记录一个值（负数按0记录）
+     */
+    public void record(long value) {
+        record(value, 1L);
+    }
+
+    /**
+     * 记录同一个值 count 次
+     */
+    public void record(long value, long count) {
+        if (count <= 0) {
+            return;
+        }
+        long v = Math.max(0L, value);
+        counts[indexOf(v)] += count;
+        totalCount += count;
+        sum += (double) v * count;
+        if (v < min) {
+            min = v;
+        }
+        if (v > max) {
+            max = v;
+        }
+    }
+
+    /**
+     * 合并另一个直方图（精度必须相同）
+     */
+    public void merge(LogHistogram other) {
+        if (other.precisionBits != precisionBits) {
+            throw new IllegalArgumentException("直方图精度不同: " + precisionBits + " / " + other.precisionBits);
+        }
+        if (other.totalCount == 0) {
+            return;
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        sum += other.sum;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0L);
+        totalCount = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    public long getCount() { return totalCount; }
+    public long getMin() { return totalCount == 0 ? 0 : min; }
+    public long getMax() { return max; }
+    public int getPrecisionBits() { return precisionBits; }
+
+    public double getMean() {
+        return totalCount == 0 ? 0.0 : sum / totalCount;
+    }
+
+    /**
+     * 百分位数对应的值（所在桶的上界，不超过记录到的最大值）
+     * @param percentile 0-100
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return 0;
+        }
+        double p = Math.min(100.0, Math.max(0.0, percentile));
+        long target = Math.max(1L, (long) Math.ceil(p / 100.0 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.max(getMin(), Math.min(max, highestValueAt(i)));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * 遍历非空桶：visitor 收到桶的下界、上界和计数
+     */
+    public void forEachBucket(BucketVisitor visitor) {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                visitor.visit(lowestValueAt(i), highestValueAt(i), counts[i]);
+            }
+        }
+    }
+
+    public interface BucketVisitor {
+        void visit(long lowValue, long highValue, long count);
+    }
+
+    private int indexOf(long value) {
+        if (value < (subBucketCount << 1)) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - precisionBits;
+        return (shift + 1) * subBucketCount + (int) ((value >>> shift) - subBucketCount);
+    }
+
+    private long lowestValueAt(int index) {
+        if (index < (subBucketCount << 1)) {
+            return index;
+        }
+        int shift = index / subBucketCount - 1;
+        long mantissa = index % subBucketCount + subBucketCount;
+        return mantissa << shift;
+    }
+
+    private long highestValueAt(int index) {
+        if (index < (subBucketCount << 1)) {
+            return index;
+        }
+        int shift = index / subBucketCount - 1;
+        return lowestValueAt(index) + (1L << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.1f p50=%d p90=%d p99=%d max=%d",
+            totalCount, getMean(), getValueAtPercentile(50), getValueAtPercentile(90),
+            getValueAtPercentile(99), max);
+    }
+}
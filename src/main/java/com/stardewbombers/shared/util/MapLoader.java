@@ -5,6 +5,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stardewbombers.shared.entity.Block;
 import com.stardewbombers.shared.entity.GameMap;
 import com.stardewbombers.shared.enums.BlockType;
+import com.stardewbombers.shared.log.GameLog;
+import com.stardewbombers.shared.log.GameLogger;
+import com.stardewbombers.shared.log.LogCategory;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -17,6 +20,7 @@ import java.util.Map;
  */
 public class MapLoader {
     private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final GameLogger LOG = GameLog.logger(LogCategory.MAP);
     
     // 瓦片ID到BlockType的映射
     private static final Map<Integer, BlockType> TILE_ID_MAPPING = new HashMap<>();
@@ -120,7 +124,7 @@ public class MapLoader {
                     gameMap.setBlock(x, y, blockType);
                 } else {
                     // 如果找不到映射，默认使用地板
-                    System.out.println("警告: 未找到瓦片ID " + tileId + " 的映射，使用默认地板");
+                    LOG.debug("未找到瓦片ID {} 的映射，使用默认地板", tileId);
                     gameMap.setBlock(x, y, BlockType.FLOOR);
                 }
             }
@@ -18,7 +18,7 @@ public class MapLoaderTest {
         GameMap defaultMap = MapLoader.createDefaultMap();
         System.out.println("地图大小: " + defaultMap.getWidth() + "x" + defaultMap.getHeight());
         System.out.println("方块大小: " + defaultMap.getTileWidth() + "x" + defaultMap.getTileHeight());
-        System.out.println("可破坏方块数量: " + defaultMap.getDestructibleBlocks().size());
+        System.out.println("可破坏方块数量: " + defaultMap.getDestructibleBlockCount());
         System.out.println("\n地图布局:");
         System.out.println(defaultMap.getMapString());
         
@@ -32,7 +32,7 @@ public class MapLoaderTest {
             GameMap jsonMap = MapLoader.loadMap("farm_map");
             System.out.println("成功加载JSON地图!");
             System.out.println("地图大小: " + jsonMap.getWidth() + "x" + jsonMap.getHeight());
-            System.out.println("可破坏方块数量: " + jsonMap.getDestructibleBlocks().size());
+            System.out.println("可破坏方块数量: " + jsonMap.getDestructibleBlockCount());
             System.out.println("\nJSON地图布局:");
             System.out.println(jsonMap.getMapString());
         } catch (Exception e) {
@@ -0,0 +1,115 @@
+package com.stardewbombers.shared.util;
+
+import com.stardewbombers.shared.log.GameLog;
+import com.stardewbombers.shared.log.GameLogger;
+import com.stardewbombers.shared.log.LogCategory;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * 虚拟线程钉住（pinning）检测
+ * 虚拟线程在 synchronized 块内阻塞（或等待进入被占用的 synchronized）时无法让出载体线程，
+ * 载体线程被钉住，连接多时会退化成平台线程模式。监视器订阅 JFR 的 jdk.VirtualThreadPinned 事件，
+ * 超过阈值的钉住记录一条警告和触发位置的栈，便于找到需要改成 ReentrantLock 或移出阻塞调用的同步块。
+ *
+ * 排查时也可以直接用 -Djdk.tracePinnedThreads=short 运行，JVM 会在钉住时打印栈。
+ */
+public class PinningMonitor {
+    private static final GameLogger LOG = GameLog.logger(LogCategory.NETWORK);
+    public static final String PINNED_EVENT = "jdk.VirtualThreadPinned";
+    public static final Duration DEFAULT_THRESHOLD = Duration.ofMillis(20);
+    private static final int MAX_LOGGED_FRAMES = 8;
+
+    private final Duration threshold;
+    private final AtomicLong pinnedCount = new AtomicLong();
+    private final AtomicLong pinnedNanos = new AtomicLong();
+    private RecordingStream stream;
+
+    public PinningMonitor() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * @param threshold 钉住时间超过该值才记录
+     */
+    public PinningMonitor(Duration threshold) {
+        this.threshold = threshold;
+    }
+
+    /**
+     * 开始监视（后台线程接收事件），重复调用无效
+     */
+    public synchronized void start() {
+        if (stream != null) {
+            return;
+        }
+        try {
+            RecordingStream recording = new RecordingStream();
+            recording.enable(PINNED_EVENT).withThreshold(threshold).withStackTrace();
+            recording.onEvent(PINNED_EVENT, this::onPinned);
+            recording.startAsync();
+            stream = recording;
+            LOG.info("虚拟线程钉住检测已启动，阈值 {}ms", threshold.toMillis());
+        } catch (RuntimeException e) {
+            // 不支持 JFR 的运行环境只是没有检测，不影响服务
+            LOG.warn("无法启动虚拟线程钉住检测: {}", e.getMessage());
+        }
+    }
+
+    public synchronized void stop() {
+        if (stream != null) {
+            stream.close();
+            stream = null;
+        }
+    }
+
+    /**
+     * 检测到的钉住次数
+     */
+    public long getPinnedCount() {
+        return pinnedCount.get();
+    }
+
+    /**
+     * 累计钉住时间（纳秒）
+     */
+    public long getPinnedNanos() {
+        return pinnedNanos.get();
+    }
+
+    private void onPinned(RecordedEvent event) {
+        pinnedCount.incrementAndGet();
+        pinnedNanos.addAndGet(event.getDuration().toNanos());
+        if (LOG.isWarnEnabled()) {
+            LOG.warn("虚拟线程被钉住 {}ms，线程: {}，位置:\n{}", event.getDuration().toMillis(),
+                event.getThread() != null ? event.getThread().getJavaName() : "?", formatStack(event.getStackTrace()));
+        }
+    }
+
+    private static String formatStack(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return "  (无栈信息)";
+        }
+        StringBuilder sb = new StringBuilder();
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        for (int i = 0; i < frames.size() && i < MAX_LOGGED_FRAMES; i++) {
+            RecordedFrame frame = frames.get(i);
+            sb.append("  at ").append(frame.getMethod().getType().getName()).append('.')
+                .append(frame.getMethod().getName()).append(" line ").append(frame.getLineNumber());
+            if (i + 1 < frames.size() && i + 1 < MAX_LOGGED_FRAMES) {
+                sb.append('\n');
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PinningMonitor[pinned=%d total=%.1fms]", pinnedCount.get(), pinnedNanos.get() / 1e6);
+    }
+}
@@ -18,7 +18,7 @@ public class SimpleMapTest {
         GameMap defaultMap = SimpleMapLoader.createDefaultMap();
         System.out.println("地图大小: " + defaultMap.getWidth() + "x" + defaultMap.getHeight());
         System.out.println("方块大小: " + defaultMap.getTileWidth() + "x" + defaultMap.getTileHeight());
-        System.out.println("可破坏方块数量: " + defaultMap.getDestructibleBlocks().size());
+        System.out.println("可破坏方块数量: " + defaultMap.getDestructibleBlockCount());
         System.out.println("\n地图布局:");
         System.out.println(defaultMap.getMapString());
         
@@ -80,7 +80,7 @@ public class SimpleMapTest {
         
         System.out.println("手动创建的地图:");
         System.out.println("地图大小: " + map.getWidth() + "x" + map.getHeight());
-        System.out.println("可破坏方块数量: " + map.getDestructibleBlocks().size());
+        System.out.println("可破坏方块数量: " + map.getDestructibleBlockCount());
         
         // 显示前几行
         System.out.println("\n地图前3行:");
@@ -119,7 +119,7 @@ public class SimpleMapTest {
         System.out.println("农场地图信息:");
         System.out.println("地图大小: " + farmMap.getWidth() + "x" + farmMap.getHeight());
         System.out.println("方块大小: " + farmMap.getTileWidth() + "x" + farmMap.getTileHeight());
-        System.out.println("可破坏方块数量: " + farmMap.getDestructibleBlocks().size());
+        System.out.println("可破坏方块数量: " + farmMap.getDestructibleBlockCount());
         
         // 统计各种方块类型
         int floorCount = 0, bushCount = 0, pumpkinCount = 0, melonCount = 0, stumpCount = 0;
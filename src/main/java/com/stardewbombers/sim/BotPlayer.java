@@ -0,0 +1,449 @@
+package com.stardewbombers.sim;
+
+import com.stardewbombers.component.PlayerComponent;
+import com.stardewbombers.server.game.GameLogic;
+import com.stardewbombers.shared.entity.Bomb;
+import com.stardewbombers.shared.entity.GameMap;
+import com.stardewbombers.shared.game.GameLoop;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 模拟用的机器人玩家（按格子决策）
+ * 每次停在格子上时决定下一步：
+ * 1. 所在格子会被炸到 -> 沿来得及走完的最短路逃到安全格子；来不及时仍沿最短路逃，可能被炸到
+ * 2. 没有自己的炸弹且这里能炸到方块或敌人，并且放下炸弹后来得及逃开 -> 放炸弹（敌人来不及逃开时一定放）
+ * 3. 自己的炸弹还没炸完 -> 在安全格子上等待
+ * 4. 否则大概率追向最近的敌人（走到能炸到它的格子），追不到时走向最近的"值得放炸弹"的格子，
+ *    小概率随机走一步，不主动走进危险格子
+ *
+ * 危险按时间计算：已注意到的炸弹在引信结束时爆炸，处在其他炸弹爆炸范围内的炸弹随之提前引爆（连锁），
+ * 逃跑路线上的每个格子都要在它爆炸之前走过。
+ * 别人的每个炸弹要过一段反应时间才会被注意到，按均值为 reactionMs 的指数分布抽取，偶尔到爆炸时还没有注意到，
+ * 这是机器人被炸到的主要原因；自己的炸弹总是知道的。
+ *
+ * 与服务器玩家一样通过 GameLogic / PlayerComponent 的接口行动，不直接修改游戏状态。
+ */
+public class BotPlayer {
+    private static final double BOMB_CHANCE = 0.8;      // 满足条件时放炸弹的概率
+    private static final double CHASE_CHANCE = 0.7;     // 优先追敌人（而不是炸方块）的概率
+    private static final double WANDER_CHANCE = 0.15;   // 不找目标、随机走一步的概率
+    private static final long SAFE = Long.MAX_VALUE;    // 不会被炸到的格子的爆炸时间
+    private static final int[] DX = {0, 0, -1, 1};
+    private static final int[] DY = {-1, 1, 0, 0};
+
+    private final PlayerComponent self;
+    private final GameLogic logic;
+    private final GameMap map;
+    private final Random random;
+    private final double tileSize;
+    private final int width;
+    private final long reactionMs;
+    private final long salt; // 决定每个炸弹的反应时间
+
+    // BFS 复用的数组
+    private final int[] queue;
+    private final int[] parent;
+    private final int[] depth;
+    // 每个格子最早被炸到的时间（SAFE 表示不会），scratch 用于假设放下自己的炸弹
+    private final long[] detonateAt;
+    private final long[] scratchDetonateAt;
+    private final int[] enemyCells;
+
+    // 已注意到的炸弹
+    private int[] bombCells = new int[8];
+    private int[] bombPowers = new int[8];
+    private long[] bombTimes = new long[8];
+    private long[] chainTimes = new long[8];
+    private int bombCount;
+
+    private int bombsPlaced;
+
+    /**
+     * @param reactionMs 注意到别人炸弹所需的平均时间（毫秒）
+     */
+    public BotPlayer(PlayerComponent self, GameLogic logic, Random random, long reactionMs) {
+        this.self = self;
+        this.logic = logic;
+        this.map = logic.getGameMap();
+        this.random = random;
+        this.reactionMs = reactionMs;
+        this.salt = random.nextLong();
+        this.tileSize = map.getTileWidth();
+        this.width = map.getWidth();
+        int cells = map.getWidth() * map.getHeight();
+        this.queue = new int[cells];
+        this.parent = new int[cells];
+        this.depth = new int[cells];
+        this.detonateAt = new long[cells];
+        this.scratchDetonateAt = new long[cells];
+        this.enemyCells = new int[8];
+    }
+
+    public PlayerComponent getPlayerComponent() { return self; }
+    public int getBombsPlaced() { return bombsPlaced; }
+
+    /**
+     * 每个模拟步调用一次（移动中不做决策）
+     * @param players 对局中的所有玩家
+     * @param nowMs 当前模拟时间
+     */
+    public void decide(List<PlayerComponent> players, long nowMs) {
+        if (!self.getPlayer().isAlive() || self.getMovement().isMoving()) {
+            return;
+        }
+        int cx = (int) (self.getMovement().getX() / tileSize);
+        int cy = (int) (self.getMovement().getY() / tileSize);
+        if (!map.isValidPosition(cx, cy)) {
+            return;
+        }
+        collectBombs(players, nowMs);
+        computeDanger(detonateAt);
+        int cell = map.indexOf(cx, cy);
+        int enemyCount = collectEnemies(players);
+        long tileMs = tileMs();
+
+        if (detonateAt[cell] != SAFE) {
+            int next = escapeStep(cell, detonateAt, nowMs, tileMs);
+            if (next < 0) {
+                next = firstStep(cell, false, 0); // 来不及了，仍然往最近的安全格子跑
+            }
+            if (next >= 0) {
+                moveTowards(cell, next);
+            } else {
+                randomStep(cell, false);
+            }
+            return;
+        }
+
+        if (!self.getBombs().getActiveBombs().isEmpty()) {
+            return; // 已经躲开自己的炸弹，等它炸完
+        }
+        if (isWorthBombing(cx, cy, enemyCount) && tryPlaceBomb(cell, enemyCount, nowMs, tileMs)) {
+            return;
+        }
+
+        if (random.nextDouble() >= WANDER_CHANCE) {
+            int next = enemyCount > 0 && random.nextDouble() < CHASE_CHANCE ? firstStep(cell, true, enemyCount) : -1;
+            if (next < 0) {
+                next = firstStep(cell, true, 0);
+            }
+            if (next >= 0) {
+                moveTowards(cell, next);
+                return;
+            }
+        }
+        randomStep(cell, true);
+    }
+
+    /**
+     * 假设在脚下放炸弹（连同它引起的连锁）：来得及逃开时放下；敌人来不及逃开时一定放，否则按 BOMB_CHANCE
+     */
+    private boolean tryPlaceBomb(int cell, int enemyCount, long nowMs, long tileMs) {
+        long fuseMs = Math.round(self.getBombs().getFuseSeconds() * 1000);
+        int power = self.getBombs().getBombPower();
+        addBomb(cell, power, nowMs + fuseMs);
+        computeDanger(scratchDetonateAt);
+        bombCount--;
+        // 按格子估计的走路时间有误差，多留一格的余量
+        if (escapeStep(cell, scratchDetonateAt, nowMs + tileMs, tileMs) < 0) {
+            return false;
+        }
+        boolean trapped = false;
+        for (int i = 0; i < enemyCount && !trapped; i++) {
+            // 敌人的反应时间和速度未知，按自己的估计
+            trapped = scratchDetonateAt[enemyCells[i]] != SAFE
+                && escapeStep(enemyCells[i], scratchDetonateAt, nowMs + reactionMs, tileMs) < 0;
+        }
+        if ((trapped || random.nextDouble() < BOMB_CHANCE) && logic.placeBomb(self.getPlayer().getId())) {
+            bombsPlaced++;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 逃跑路线的第一步：从 startMs 起每 tileMs 走一格，路线上的格子都要在爆炸前走过，
+     * 终点是不会被炸到的格子；找不到这样的路线时返回 -1
+     */
+    private int escapeStep(int start, long[] detonate, long startMs, long tileMs) {
+        if (startMs + tileMs >= detonate[start]) {
+            return -1;
+        }
+        int head = 0;
+        int tail = 0;
+        Arrays.fill(parent, -2);
+        queue[tail++] = start;
+        parent[start] = -1;
+        depth[start] = 0;
+        while (head < tail) {
+            int cell = queue[head++];
+            if (detonate[cell] == SAFE) {
+                return cell == start ? -1 : firstStepTo(start, cell);
+            }
+            int x = cell % width;
+            int y = cell / width;
+            // 走到下一格，再用一格的时间离开它
+            long leaveMs = startMs + (depth[cell] + 2L) * tileMs;
+            for (int dir = 0; dir < 4; dir++) {
+                int nx = x + DX[dir];
+                int ny = y + DY[dir];
+                if (!map.isValidPosition(nx, ny) || !map.isWalkable(nx, ny)) {
+                    continue;
+                }
+                int next = map.indexOf(nx, ny);
+                if (parent[next] != -2 || (detonate[next] != SAFE && leaveMs >= detonate[next])) {
+                    continue;
+                }
+                parent[next] = cell;
+                depth[next] = depth[cell] + 1;
+                queue[tail++] = next;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 广度优先搜索，返回通往最近目标格子的第一步；已在目标上或找不到时返回 -1
+     * @param seekTarget true 时目标是能炸到东西的安全格子（路径不经过危险格子），false 时目标是任意安全格子
+     * @param enemyCount 大于 0 时目标只算能炸到敌人的格子，否则能炸到方块或敌人都算
+     */
+    private int firstStep(int start, boolean seekTarget, int enemyCount) {
+        int head = 0;
+        int tail = 0;
+        Arrays.fill(parent, -2);
+        queue[tail++] = start;
+        parent[start] = -1;
+        while (head < tail) {
+            int cell = queue[head++];
+            int x = cell % width;
+            int y = cell / width;
+            if (cell != start && detonateAt[cell] == SAFE
+                && (!seekTarget || (enemyCount > 0 ? hitsEnemy(x, y, enemyCount) : isWorthBombing(x, y, 0)))) {
+                return firstStepTo(start, cell);
+            }
+            for (int dir = 0; dir < 4; dir++) {
+                int nx = x + DX[dir];
+                int ny = y + DY[dir];
+                if (!map.isValidPosition(nx, ny) || !map.isWalkable(nx, ny)) {
+                    continue;
+                }
+                int next = map.indexOf(nx, ny);
+                if (parent[next] != -2 || (seekTarget && detonateAt[next] != SAFE)) {
+                    continue;
+                }
+                parent[next] = cell;
+                queue[tail++] = next;
+            }
+        }
+        return -1;
+    }
+
+    private int firstStepTo(int start, int target) {
+        int step = target;
+        while (parent[step] != start) {
+            step = parent[step];
+        }
+        return step;
+    }
+
+    /**
+     * 记录已注意到的倒计时炸弹（爆炸中的火焰不再造成伤害，不算危险）
+     */
+    private void collectBombs(List<PlayerComponent> players, long nowMs) {
+        bombCount = 0;
+        for (PlayerComponent playerComponent : players) {
+            boolean own = playerComponent == self;
+            for (Bomb bomb : playerComponent.getBombs().getActiveBombs()) {
+                if (bomb.getState() != Bomb.BombState.TICKING) {
+                    continue;
+                }
+                long totalMs = Math.round(bomb.getTotalFuseTime() * 1000);
+                long explodeMs = bomb.getFuseEndMs() >= 0 ? bomb.getFuseEndMs()
+                    : nowMs + Math.round(bomb.getFuseTime() * 1000);
+                int cell = map.indexOf(bomb.getX(), bomb.getY());
+                if (own || nowMs - (explodeMs - totalMs) >= noticeDelayMs(cell, explodeMs)) {
+                    addBomb(cell, bomb.getExplosionRadius(), explodeMs);
+                }
+            }
+        }
+    }
+
+    /**
+     * 注意到一个炸弹所需的时间：由炸弹的位置和爆炸时间决定（每一步判断结果相同），均值为 reactionMs 的指数分布
+     */
+    private long noticeDelayMs(int cell, long explodeMs) {
+        long z = salt + 0x9E3779B97F4A7C15L * (((long) cell << 40) ^ explodeMs);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        double u = ((z ^ (z >>> 31)) >>> 11) * 0x1.0p-53;
+        return Math.round(-reactionMs * Math.log1p(-u));
+    }
+
+    private void addBomb(int cell, int power, long explodeMs) {
+        if (bombCount == bombCells.length) {
+            int capacity = bombCount * 2;
+            bombCells = Arrays.copyOf(bombCells, capacity);
+            bombPowers = Arrays.copyOf(bombPowers, capacity);
+            bombTimes = Arrays.copyOf(bombTimes, capacity);
+            chainTimes = Arrays.copyOf(chainTimes, capacity);
+        }
+        bombCells[bombCount] = cell;
+        bombPowers[bombCount] = power;
+        bombTimes[bombCount] = explodeMs;
+        bombCount++;
+    }
+
+    /**
+     * 计算每个格子最早被炸到的时间：炸弹处在更早爆炸的范围内时随之提前引爆，重复到不再变化
+     */
+    private void computeDanger(long[] detonate) {
+        Arrays.fill(detonate, SAFE);
+        System.arraycopy(bombTimes, 0, chainTimes, 0, bombCount);
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < bombCount; i++) {
+                markBlast(map, bombCells[i] % width, bombCells[i] / width, bombPowers[i], chainTimes[i], detonate);
+            }
+            for (int i = 0; i < bombCount; i++) {
+                if (detonate[bombCells[i]] < chainTimes[i]) {
+                    chainTimes[i] = detonate[bombCells[i]];
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * 按当前速度走一格需要的时间（与服务器相同的 GameLoop.DEFAULT_TICK_RATE）
+     */
+    private long tileMs() {
+        int stepsPerTile = (int) Math.ceil(tileSize / Math.max(0.01, self.getMovement().getMoveSpeed()));
+        return stepsPerTile * 1000L / GameLoop.DEFAULT_TICK_RATE;
+    }
+
+    /**
+     * 在 (x, y) 放炸弹能否炸到可破坏方块或敌人
+     */
+    private boolean isWorthBombing(int x, int y, int enemyCount) {
+        return canHit(x, y, enemyCount, true);
+    }
+
+    /**
+     * 在 (x, y) 放炸弹能否炸到敌人
+     */
+    private boolean hitsEnemy(int x, int y, int enemyCount) {
+        return canHit(x, y, enemyCount, false);
+    }
+
+    private boolean canHit(int x, int y, int enemyCount, boolean blocks) {
+        int power = self.getBombs().getBombPower();
+        for (int i = 0; i < enemyCount; i++) {
+            if (enemyCells[i] == map.indexOf(x, y)) {
+                return true;
+            }
+        }
+        for (int dir = 0; dir < 4; dir++) {
+            for (int step = 1; step <= power; step++) {
+                int nx = x + DX[dir] * step;
+                int ny = y + DY[dir] * step;
+                if (!map.isValidPosition(nx, ny)) {
+                    break;
+                }
+                if (map.isDestructible(nx, ny)) {
+                    if (blocks) {
+                        return true;
+                    }
+                    break;
+                }
+                if (!map.isWalkable(nx, ny)) {
+                    break;
+                }
+                int cell = map.indexOf(nx, ny);
+                for (int i = 0; i < enemyCount; i++) {
+                    if (enemyCells[i] == cell) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 标记 (x, y) 处炸弹的爆炸范围，与 ExplosionEngine.computeBlast 的规则一致
+     * @param explodeMs 爆炸时间，每个格子保留最早的
+     */
+    static void markBlast(GameMap map, int x, int y, int power, long explodeMs, long[] detonate) {
+        int origin = map.indexOf(x, y);
+        detonate[origin] = Math.min(detonate[origin], explodeMs);
+        for (int dir = 0; dir < 4; dir++) {
+            for (int step = 1; step <= power; step++) {
+                int nx = x + DX[dir] * step;
+                int ny = y + DY[dir] * step;
+                if (!map.isValidPosition(nx, ny)) {
+                    break;
+                }
+                boolean destructible = map.isDestructible(nx, ny);
+                if (!destructible && !map.isWalkable(nx, ny)) {
+                    break;
+                }
+                int cell = map.indexOf(nx, ny);
+                detonate[cell] = Math.min(detonate[cell], explodeMs);
+                if (destructible) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private int collectEnemies(List<PlayerComponent> players) {
+        int count = 0;
+        for (PlayerComponent other : players) {
+            if (other == self || !other.getPlayer().isAlive() || count == enemyCells.length) {
+                continue;
+            }
+            int ex = (int) (other.getMovement().getX() / tileSize);
+            int ey = (int) (other.getMovement().getY() / tileSize);
+            if (map.isValidPosition(ex, ey)) {
+                enemyCells[count++] = map.indexOf(ex, ey);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 随机走向一个相邻的可通行格子（avoidDanger 为 true 时不走进已知的危险格子）
+     */
+    private void randomStep(int cell, boolean avoidDanger) {
+        int x = cell % width;
+        int y = cell / width;
+        int offset = random.nextInt(4);
+        for (int i = 0; i < 4; i++) {
+            int dir = (offset + i) & 3;
+            int nx = x + DX[dir];
+            int ny = y + DY[dir];
+            if (map.isValidPosition(nx, ny) && map.isWalkable(nx, ny)
+                && (!avoidDanger || detonateAt[map.indexOf(nx, ny)] == SAFE)) {
+                moveTowards(cell, map.indexOf(nx, ny));
+                return;
+            }
+        }
+    }
+
+    private void moveTowards(int from, int to) {
+        int dx = to % width - from % width;
+        int dy = to / width - from / width;
+        if (dx > 0) {
+            self.moveRight();
+        } else if (dx < 0) {
+            self.moveLeft();
+        } else if (dy > 0) {
+            self.moveDown();
+        } else if (dy < 0) {
+            self.moveUp();
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.stardewbombers.sim;
+
+import com.stardewbombers.component.PlayerComponent;
+import com.stardewbombers.server.game.GameLogic;
+import com.stardewbombers.shared.entity.GameMap;
+import com.stardewbombers.shared.entity.ItemManager;
+import com.stardewbombers.shared.entity.Player;
+import com.stardewbombers.shared.game.GameLoop;
+import com.stardewbombers.shared.game.ManualGameClock;
+import com.stardewbombers.shared.game.MatchEventBus;
+import com.stardewbombers.shared.util.LogHistogram;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 无头对局：用服务器的 GameLogic 和机器人玩家快进一整场比赛
+ * 不依赖真实时间，按固定步长连续执行 GameLoop.step()，同样的种子得到同样的结果。
+ */
+public class HeadlessMatch implements MatchEventBus.Listener {
+    private final String mapName;
+    private final GameMap gameMap;
+    private final GameLogic logic;
+    private final List<PlayerComponent> players = new ArrayList<>();
+    private final BotPlayer[] bots;
+    private final long maxSteps;
+    private final int initialDestructible;
+
+    private int deaths;
+    private int damageEvents;
+    private String winnerId;
+
+    /**
+     * @param template 地图模板（只读，每场对局使用副本）
+     * @param seed 对局种子，决定道具掉落和机器人行为
+     */
+    public HeadlessMatch(String mapName, GameMap template, SimConfig config, long seed) {
+        this.mapName = mapName;
+        this.gameMap = template.copy();
+        this.initialDestructible = gameMap.getDestructibleBlockCount();
+        Random random = new Random(seed);
+        ItemManager itemManager = gameMap.getItemManager();
+        itemManager.setDropTable(config.getDropProbability(), config.getBootsWeight(), config.getElixirWeight());
+        itemManager.setRandom(new Random(random.nextLong()));
+
+        this.logic = new GameLogic(gameMap, new ManualGameClock(0L));
+        this.logic.getGameManager().getEventBus().subscribe(this);
+        this.bots = new BotPlayer[config.getPlayersPerMatch()];
+        for (int i = 0; i < bots.length; i++) {
+            PlayerComponent playerComponent = logic.addPlayer("bot" + i);
+            playerComponent.getBombs().setFuseSeconds(config.getFuseSeconds());
+            players.add(playerComponent);
+            // 每个机器人的平均反应时间在 [0.5, 1.5] 倍配置值之间均匀分布
+            long reactionMs = Math.round(config.getReactionMs() * (0.5 + random.nextDouble()));
+            bots[i] = new BotPlayer(playerComponent, logic, new Random(random.nextLong()), reactionMs);
+        }
+        this.maxSteps = config.getMaxSteps();
+    }
+
+    /**
+     * 运行到游戏结束或达到步数上限
+     * @param stepNanos 记录每个模拟步耗时（纳秒）的直方图，不需要时传 null
+     */
+    public MatchResult run(LogHistogram stepNanos) {
+        GameLoop gameLoop = logic.getGameLoop();
+        logic.start();
+        long steps = 0;
+        while (steps < maxSteps && !logic.isGameEnded()) {
+            long nowMs = logic.getGameManager().getCurrentTimeMs();
+            for (BotPlayer bot : bots) {
+                bot.decide(players, nowMs);
+            }
+            if (stepNanos != null) {
+                long start = System.nanoTime();
+                gameLoop.step();
+                stepNanos.record(System.nanoTime() - start);
+            } else {
+                gameLoop.step();
+            }
+            steps++;
+        }
+        boolean timedOut = !logic.isGameEnded();
+        int bombsPlaced = 0;
+        for (BotPlayer bot : bots) {
+            bombsPlaced += bot.getBombsPlaced();
+        }
+        ItemManager itemManager = gameMap.getItemManager();
+        return new MatchResult(mapName, steps, gameLoop.getSimulationTimeMs(), winnerSlot(), timedOut,
+            deaths, damageEvents, bombsPlaced, itemManager.getSpawnedCount(), itemManager.getPickedUpCount(),
+            initialDestructible - gameMap.getDestructibleBlockCount());
+    }
+
+    private int winnerSlot() {
+        if (winnerId == null) {
+            return -1;
+        }
+        for (int i = 0; i < players.size(); i++) {
+            if (players.get(i).getPlayer().getId().equals(winnerId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void onPlayerDamaged(Player player, int amount, long nowMs) {
+        damageEvents++;
+    }
+
+    @Override
+    public void onPlayerDeath(Player player, long nowMs) {
+        deaths++;
+    }
+
+    @Override
+    public void onGameEnd(String winnerId) {
+        this.winnerId = winnerId;
+    }
+}
@@ -0,0 +1,53 @@
+package com.stardewbombers.sim;
+
+/**
+ * 单场模拟对局的结果
+ */
+public class MatchResult {
+    private final String mapName;
+    private final long steps;
+    private final long durationMs;
+    private final int winnerSlot;      // 获胜者的加入顺序（出生角落），平局或超时为 -1
+    private final boolean timedOut;
+    private final int deaths;
+    private final int damageEvents;
+    private final int bombsPlaced;
+    private final int itemsSpawned;
+    private final int itemsPickedUp;
+    private final int blocksDestroyed;
+
+    public MatchResult(String mapName, long steps, long durationMs, int winnerSlot, boolean timedOut,
+                       int deaths, int damageEvents, int bombsPlaced, int itemsSpawned, int itemsPickedUp,
+                       int blocksDestroyed) {
+        this.mapName = mapName;
+        this.steps = steps;
+        this.durationMs = durationMs;
+        this.winnerSlot = winnerSlot;
+        this.timedOut = timedOut;
+        this.deaths = deaths;
+        this.damageEvents = damageEvents;
+        this.bombsPlaced = bombsPlaced;
+        this.itemsSpawned = itemsSpawned;
+        this.itemsPickedUp = itemsPickedUp;
+        this.blocksDestroyed = blocksDestroyed;
+    }
+
+    public String getMapName() { return mapName; }
+    public long getSteps() { return steps; }
+    public long getDurationMs() { return durationMs; }
+    public int getWinnerSlot() { return winnerSlot; }
+    public boolean isTimedOut() { return timedOut; }
+    public boolean isDraw() { return winnerSlot < 0; }
+    public int getDeaths() { return deaths; }
+    public int getDamageEvents() { return damageEvents; }
+    public int getBombsPlaced() { return bombsPlaced; }
+    public int getItemsSpawned() { return itemsSpawned; }
+    public int getItemsPickedUp() { return itemsPickedUp; }
+    public int getBlocksDestroyed() { return blocksDestroyed; }
+
+    @Override
+    public String toString() {
+        return String.format("MatchResult[%s steps=%d %dms winner=%d timeout=%s deaths=%d drops=%d/%d]",
+            mapName, steps, durationMs, winnerSlot, timedOut, deaths, itemsPickedUp, itemsSpawned);
+    }
+}
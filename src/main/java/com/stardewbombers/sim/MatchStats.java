@@ -0,0 +1,168 @@
+package com.stardewbombers.sim;
+
+import com.stardewbombers.shared.util.LogHistogram;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 一批对局的汇总统计
+ * 每个 fork-join 子任务累积自己的实例，最后逐级 merge，累积过程不需要同步。
+ */
+public class MatchStats {
+    static final String[] CSV_HEADER = {
+        "map", "matches", "draws", "timeouts", "timeoutRatio", "winRateBySlot",
+        "durationMsMean", "durationMsP50", "durationMsP90", "durationMsP99", "durationMsMax",
+        "deathsMean", "damageMean", "bombsMean", "itemsSpawnedMean", "itemsPickedUpMean", "blocksDestroyedMean",
+        "stepNsMean", "stepNsP50", "stepNsP99", "stepNsP999", "stepNsMax"
+    };
+
+    private final String name;
+    private long matches;
+    private long draws;
+    private long timeouts;
+    private long[] winsBySlot;
+    private final LogHistogram durationMs = new LogHistogram();
+    private final LogHistogram deaths = new LogHistogram();
+    private final LogHistogram damage = new LogHistogram();
+    private final LogHistogram bombs = new LogHistogram();
+    private final LogHistogram itemsSpawned = new LogHistogram();
+    private final LogHistogram itemsPickedUp = new LogHistogram();
+    private final LogHistogram blocksDestroyed = new LogHistogram();
+    private final LogHistogram stepNanos = new LogHistogram();
+
+    public MatchStats(String name, int slots) {
+        this.name = name;
+        this.winsBySlot = new long[slots];
+    }
+
+    public void add(MatchResult result) {
+        matches++;
+        if (result.isTimedOut()) {
+            timeouts++;
+        }
+        if (result.isDraw()) {
+            draws++;
+        } else if (result.getWinnerSlot() < winsBySlot.length) {
+            winsBySlot[result.getWinnerSlot()]++;
+        }
+        durationMs.record(result.getDurationMs());
+        deaths.record(result.getDeaths());
+        damage.record(result.getDamageEvents());
+        bombs.record(result.getBombsPlaced());
+        itemsSpawned.record(result.getItemsSpawned());
+        itemsPickedUp.record(result.getItemsPickedUp());
+        blocksDestroyed.record(result.getBlocksDestroyed());
+    }
+
+    public void merge(MatchStats other) {
+        matches += other.matches;
+        draws += other.draws;
+        timeouts += other.timeouts;
+        if (other.winsBySlot.length > winsBySlot.length) {
+            winsBySlot = Arrays.copyOf(winsBySlot, other.winsBySlot.length);
+        }
+        for (int i = 0; i < other.winsBySlot.length; i++) {
+            winsBySlot[i] += other.winsBySlot[i];
+        }
+        durationMs.merge(other.durationMs);
+        deaths.merge(other.deaths);
+        damage.merge(other.damage);
+        bombs.merge(other.bombs);
+        itemsSpawned.merge(other.itemsSpawned);
+        itemsPickedUp.merge(other.itemsPickedUp);
+        blocksDestroyed.merge(other.blocksDestroyed);
+        stepNanos.merge(other.stepNanos);
+    }
+
+    /**
+     * 每个模拟步耗时的直方图，由 HeadlessMatch.run 直接写入
+     */
+    public LogHistogram getStepNanos() { return stepNanos; }
+    public String getName() { return name; }
+    public long getMatches() { return matches; }
+    public long getDraws() { return draws; }
+    public long getTimeouts() { return timeouts; }
+    public double getTimeoutRatio() { return matches == 0 ? 0.0 : (double) timeouts / matches; }
+    public LogHistogram getDurationMs() { return durationMs; }
+
+    /**
+     * CSV 的一行，列与 CSV_HEADER 对应
+     */
+    String[] toCsvRow() {
+        return new String[] {
+            name, Long.toString(matches), Long.toString(draws), Long.toString(timeouts), fmt(getTimeoutRatio()),
+            winRates(),
+            fmt(durationMs.getMean()), Long.toString(durationMs.getValueAtPercentile(50)),
+            Long.toString(durationMs.getValueAtPercentile(90)), Long.toString(durationMs.getValueAtPercentile(99)),
+            Long.toString(durationMs.getMax()),
+            fmt(deaths.getMean()), fmt(damage.getMean()), fmt(bombs.getMean()), fmt(itemsSpawned.getMean()),
+            fmt(itemsPickedUp.getMean()), fmt(blocksDestroyed.getMean()),
+            fmt(stepNanos.getMean()), Long.toString(stepNanos.getValueAtPercentile(50)),
+            Long.toString(stepNanos.getValueAtPercentile(99)), Long.toString(stepNanos.getValueAtPercentile(99.9)),
+            Long.toString(stepNanos.getMax())
+        };
+    }
+
+    /**
+     * JSON 报告中的一节（百分位数，以及对局时长和单步耗时的分桶，便于画图）
+     */
+    Map<String, Object> toJson() {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("map", name);
+        json.put("matches", matches);
+        json.put("draws", draws);
+        json.put("timeouts", timeouts);
+        json.put("timeoutRatio", getTimeoutRatio());
+        List<Double> rates = new ArrayList<>();
+        for (long wins : winsBySlot) {
+            rates.add(matches == 0 ? 0.0 : (double) wins / matches);
+        }
+        json.put("winRateBySlot", rates);
+        json.put("durationMs", summary(durationMs, true));
+        json.put("deaths", summary(deaths, false));
+        json.put("damageEvents", summary(damage, false));
+        json.put("bombsPlaced", summary(bombs, false));
+        json.put("itemsSpawned", summary(itemsSpawned, false));
+        json.put("itemsPickedUp", summary(itemsPickedUp, false));
+        json.put("blocksDestroyed", summary(blocksDestroyed, false));
+        json.put("stepNanos", summary(stepNanos, true));
+        return json;
+    }
+
+    private static Map<String, Object> summary(LogHistogram histogram, boolean withBuckets) {
+        Map<String, Object> json = new LinkedHashMap<>();
+        json.put("count", histogram.getCount());
+        json.put("mean", histogram.getMean());
+        json.put("min", histogram.getMin());
+        json.put("p50", histogram.getValueAtPercentile(50));
+        json.put("p90", histogram.getValueAtPercentile(90));
+        json.put("p99", histogram.getValueAtPercentile(99));
+        json.put("p999", histogram.getValueAtPercentile(99.9));
+        json.put("max", histogram.getMax());
+        if (withBuckets) {
+            List<long[]> buckets = new ArrayList<>();
+            histogram.forEachBucket((low, high, count) -> buckets.add(new long[] {low, high, count}));
+            json.put("buckets", buckets);
+        }
+        return json;
+    }
+
+    private String winRates() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < winsBySlot.length; i++) {
+            if (i > 0) {
+                sb.append('/');
+            }
+            sb.append(fmt(matches == 0 ? 0.0 : (double) winsBySlot[i] / matches));
+        }
+        return sb.toString();
+    }
+
+    private static String fmt(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+}
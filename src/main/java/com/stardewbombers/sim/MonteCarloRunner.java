@@ -0,0 +1,166 @@
+package com.stardewbombers.sim;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.stardewbombers.client.MusicManager;
+import com.stardewbombers.shared.entity.GameMap;
+import com.stardewbombers.shared.log.GameLog;
+import com.stardewbombers.shared.log.LogLevel;
+import com.stardewbombers.shared.util.MapLoader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 并行蒙特卡洛对局模拟
+ * 在 fork-join 线程池上对每张地图各跑 N 场机器人对局，汇总对局时长、死亡、道具掉落/拾取和单步耗时直方图，
+ * 输出 CSV（每张地图一行加合计）和 JSON（含参数和直方图分桶）报告，用于调整掉落概率、道具权重和引信时间。
+ *
+ * 每场对局的种子只由基础种子、地图序号和对局序号决定，与线程数和任务拆分方式无关，结果可复现。
+ * 超时对局的比例超过 SimConfig.getMaxTimeoutRatio 时报告仍然写出但标记为无效（JSON 的 valid），进程以状态 1 退出。
+ *
+ * 运行：java -cp target/classes:依赖 com.stardewbombers.sim.MonteCarloRunner matches=30000 drop=0.4 out=report
+ * 参数见 SimConfig。
+ */
+public class MonteCarloRunner {
+    private static final int SPLIT_THRESHOLD = 16; // 每个叶子任务最多跑的对局数
+
+    public static void main(String[] args) throws Exception {
+        SimConfig config = SimConfig.parse(args);
+        GameLog.setAllLevels(LogLevel.WARN);
+        MusicManager.setSoundEnabled(false); // 受伤和拾取道具会尝试播放音效
+
+        String[] maps = config.getMaps();
+        GameMap[] templates = new GameMap[maps.length];
+        for (int i = 0; i < maps.length; i++) {
+            templates[i] = MapLoader.loadMap(maps[i]);
+        }
+
+        System.out.println("蒙特卡洛模拟: " + config.describe());
+        ForkJoinPool pool = new ForkJoinPool(config.getThreads());
+        long start = System.nanoTime();
+        List<ForkJoinTask<MatchStats>> futures = new ArrayList<>();
+        for (int i = 0; i < maps.length; i++) {
+            futures.add(pool.submit(new BatchTask(config, maps[i], i, templates[i], 0, config.getMatchesPerMap())));
+        }
+        List<MatchStats> perMap = new ArrayList<>();
+        MatchStats total = new MatchStats("ALL", config.getPlayersPerMatch());
+        for (ForkJoinTask<MatchStats> future : futures) {
+            MatchStats stats = future.join();
+            perMap.add(stats);
+            total.merge(stats);
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        pool.shutdown();
+
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("完成 %d 场对局，用时 %.1f 秒（%.0f 场/秒，%d 线程）%n",
+            total.getMatches(), seconds, total.getMatches() / seconds, config.getThreads());
+        for (MatchStats stats : perMap) {
+            System.out.printf("  %-10s 对局 %d 平局 %d 超时 %d%s 时长(ms) %s%n", stats.getName(), stats.getMatches(),
+                stats.getDraws(), stats.getTimeouts(),
+                stats.getTimeoutRatio() > config.getMaxTimeoutRatio() ? "（超时过多）" : "", stats.getDurationMs());
+        }
+        System.out.println("  单步耗时(ns) " + total.getStepNanos());
+
+        boolean valid = total.getTimeoutRatio() <= config.getMaxTimeoutRatio();
+        File csv = new File(config.getOutput() + ".csv");
+        File json = new File(config.getOutput() + ".json");
+        writeCsv(csv, perMap, total);
+        writeJson(json, config, perMap, total, elapsedNanos, valid);
+        System.out.println("报告已写入 " + csv.getPath() + " 和 " + json.getPath());
+        if (!valid) {
+            System.err.printf("%.1f%% 的对局超时（上限 %.1f%%），胜率和对局时长没有参考价值，检查机器人行为或参数%n",
+                total.getTimeoutRatio() * 100, config.getMaxTimeoutRatio() * 100);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 第 index 场对局的种子（SplitMix64 混合）
+     */
+    static long matchSeed(long baseSeed, int mapIndex, int index) {
+        long z = baseSeed + 0x9E3779B97F4A7C15L * (((long) mapIndex << 32) + index + 1);
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static void writeCsv(File file, List<MatchStats> perMap, MatchStats total) throws IOException {
+        try (PrintWriter out = new PrintWriter(file, StandardCharsets.UTF_8.name())) {
+            out.println(String.join(",", MatchStats.CSV_HEADER));
+            for (MatchStats stats : perMap) {
+                out.println(String.join(",", stats.toCsvRow()));
+            }
+            out.println(String.join(",", total.toCsvRow()));
+        }
+    }
+
+    private static void writeJson(File file, SimConfig config, List<MatchStats> perMap, MatchStats total,
+                                  long elapsedNanos, boolean valid) throws IOException {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("config", config.describe());
+        report.put("valid", valid);
+        report.put("elapsedMs", elapsedNanos / 1_000_000L);
+        report.put("matchesPerSecond", total.getMatches() / (elapsedNanos / 1e9));
+        List<Map<String, Object>> maps = new ArrayList<>();
+        for (MatchStats stats : perMap) {
+            maps.add(stats.toJson());
+        }
+        report.put("maps", maps);
+        report.put("total", total.toJson());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(file, report);
+    }
+
+    /**
+     * 对一张地图的 [from, to) 场对局：超过阈值时对半拆分，叶子任务顺序运行并累积统计
+     * ForkJoinTask 实现了 Serializable，但任务只在本进程的线程池里运行，配置和地图模板不参与序列化
+     */
+    private static final class BatchTask extends RecursiveTask<MatchStats> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient SimConfig config;
+        private final String mapName;
+        private final int mapIndex;
+        private final transient GameMap template;
+        private final int from;
+        private final int to;
+
+        BatchTask(SimConfig config, String mapName, int mapIndex, GameMap template, int from, int to) {
+            this.config = config;
+            this.mapName = mapName;
+            this.mapIndex = mapIndex;
+            this.template = template;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected MatchStats compute() {
+            if (to - from > SPLIT_THRESHOLD) {
+                int mid = (from + to) >>> 1;
+                BatchTask left = new BatchTask(config, mapName, mapIndex, template, from, mid);
+                BatchTask right = new BatchTask(config, mapName, mapIndex, template, mid, to);
+                left.fork();
+                MatchStats stats = right.compute();
+                stats.merge(left.join());
+                return stats;
+            }
+            MatchStats stats = new MatchStats(mapName, config.getPlayersPerMatch());
+            for (int i = from; i < to; i++) {
+                HeadlessMatch match = new HeadlessMatch(mapName, template, config,
+                    matchSeed(config.getSeed(), mapIndex, i));
+                stats.add(match.run(stats.getStepNanos()));
+            }
+            return stats;
+        }
+    }
+}
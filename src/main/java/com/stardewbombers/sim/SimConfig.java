@@ -0,0 +1,109 @@
+package com.stardewbombers.sim;
+
+import com.stardewbombers.server.game.RoomManager;
+import com.stardewbombers.shared.game.GameLoop;
+import com.stardewbombers.shared.util.GameConfig;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 批量模拟参数
+ * 命令行使用 key=value 形式，例如：matches=20000 maps=cave_map,farm_map drop=0.4 fuse=2.5
+ * 大部分对局打到 maxSeconds 超时时结果没有意义（胜率全为 0、时长都是上限），超时比例超过 maxTimeouts 时运行失败。
+ *
+ * 可调的平衡参数对应：drop = ItemManager 掉落概率，boots/elixir = 道具权重，fuse = GameConfig.BOMB_FUSE_TIME
+ */
+public class SimConfig {
+    private String[] maps = RoomManager.DEFAULT_MAPS.clone();
+    private int matchesPerMap = 1000;
+    private int playersPerMatch = GameConfig.MAX_PLAYERS;
+    private long seed = 20240601L;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private double dropProbability = 0.5;
+    private double bootsWeight = 4.0;
+    private double elixirWeight = 1.0;
+    private double fuseSeconds = GameConfig.BOMB_FUSE_TIME;
+    private int maxMatchSeconds = 180; // 超过时按平局（超时）结束
+    private double maxTimeoutRatio = 0.5; // 超时对局的比例超过它时报告标记为无效，进程以状态 1 退出
+    private long reactionMs = 1500; // 机器人注意到别人炸弹的平均反应时间（每个炸弹按指数分布抽取，可能超过引信时间）
+    private String output = "sim-report";
+
+    /**
+     * 解析命令行参数，未知参数抛出 IllegalArgumentException
+     */
+    public static SimConfig parse(String[] args) {
+        SimConfig config = new SimConfig();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) {
+                throw new IllegalArgumentException("参数格式应为 key=value: " + arg);
+            }
+            String key = arg.substring(0, eq).trim();
+            String value = arg.substring(eq + 1).trim();
+            switch (key) {
+                case "maps": config.maps = value.split(","); break;
+                case "matches": config.matchesPerMap = Integer.parseInt(value); break;
+                case "players": config.playersPerMatch = Integer.parseInt(value); break;
+                case "seed": config.seed = Long.parseLong(value); break;
+                case "threads": config.threads = Integer.parseInt(value); break;
+                case "drop": config.dropProbability = Double.parseDouble(value); break;
+                case "boots": config.bootsWeight = Double.parseDouble(value); break;
+                case "elixir": config.elixirWeight = Double.parseDouble(value); break;
+                case "fuse": config.fuseSeconds = Double.parseDouble(value); break;
+                case "maxSeconds": config.maxMatchSeconds = Integer.parseInt(value); break;
+                case "maxTimeouts": config.maxTimeoutRatio = Double.parseDouble(value); break;
+                case "reaction": config.reactionMs = Long.parseLong(value); break;
+                case "out": config.output = value; break;
+                default: throw new IllegalArgumentException("未知参数: " + key);
+            }
+        }
+        if (config.matchesPerMap <= 0 || config.playersPerMatch < 2 || config.threads <= 0
+            || config.fuseSeconds <= 0 || config.maxMatchSeconds <= 0 || config.reactionMs < 0
+            || config.maxTimeoutRatio < 0 || config.maxTimeoutRatio > 1) {
+            throw new IllegalArgumentException("模拟参数无效: " + config.describe());
+        }
+        return config;
+    }
+
+    public String[] getMaps() { return maps.clone(); }
+    public int getMatchesPerMap() { return matchesPerMap; }
+    public int getPlayersPerMatch() { return playersPerMatch; }
+    public long getSeed() { return seed; }
+    public int getThreads() { return threads; }
+    public double getDropProbability() { return dropProbability; }
+    public double getBootsWeight() { return bootsWeight; }
+    public double getElixirWeight() { return elixirWeight; }
+    public double getFuseSeconds() { return fuseSeconds; }
+    public int getMaxMatchSeconds() { return maxMatchSeconds; }
+    public double getMaxTimeoutRatio() { return maxTimeoutRatio; }
+    public long getReactionMs() { return reactionMs; }
+    public String getOutput() { return output; }
+
+    /**
+     * 单场对局的最大步数（与服务器相同的 GameLoop.DEFAULT_TICK_RATE）
+     */
+    public long getMaxSteps() {
+        return (long) maxMatchSeconds * GameLoop.DEFAULT_TICK_RATE;
+    }
+
+    /**
+     * 参数表（写入报告）
+     */
+    public Map<String, Object> describe() {
+        Map<String, Object> params = new LinkedHashMap<>();
+        params.put("maps", String.join(",", maps));
+        params.put("matchesPerMap", matchesPerMap);
+        params.put("playersPerMatch", playersPerMatch);
+        params.put("seed", seed);
+        params.put("threads", threads);
+        params.put("dropProbability", dropProbability);
+        params.put("bootsWeight", bootsWeight);
+        params.put("elixirWeight", elixirWeight);
+        params.put("fuseSeconds", fuseSeconds);
+        params.put("maxMatchSeconds", maxMatchSeconds);
+        params.put("maxTimeoutRatio", maxTimeoutRatio);
+        params.put("reactionMs", reactionMs);
+        params.put("tickRate", GameLoop.DEFAULT_TICK_RATE);
+        return params;
+    }
+}